@@ -0,0 +1,384 @@
+package org.CleverBank.Config;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.CleverBank.Models.Compounding;
+import org.CleverBank.Models.DayCount;
+import org.CleverBank.Models.Money;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Неизменяемый снимок конфигурации приложения, прочитанный из `config.yml`.
+ * Снимок публикуется целиком, поэтому сервисы никогда не видят частично обновленную конфигурацию.
+ * Параметры, отсутствующие в файле, принимают значения по умолчанию.
+ */
+@Getter
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class AppConfig {
+
+    /**
+     * Минимальное количество соединений в пуле по умолчанию.
+     */
+    public static final int DEFAULT_POOL_MIN_SIZE = 2;
+
+    /**
+     * Максимальное количество соединений в пуле по умолчанию.
+     */
+    public static final int DEFAULT_POOL_MAX_SIZE = 20;
+
+    /**
+     * Максимальное время ожидания свободного соединения по умолчанию (в миллисекундах).
+     */
+    public static final long DEFAULT_POOL_ACQUIRE_TIMEOUT_MILLIS = 5_000;
+
+    /**
+     * Время простоя, после которого лишнее соединение закрывается, по умолчанию (в миллисекундах).
+     */
+    public static final long DEFAULT_POOL_IDLE_TIMEOUT_MILLIS = 600_000;
+
+    /**
+     * Количество идентификаторов счетов в одном запросе массового начисления процентов по умолчанию.
+     */
+    public static final int DEFAULT_INTEREST_CHUNK_SIZE = 10_000;
+
+    /**
+     * Максимальное количество счетов в очереди на начисление процентов по одному счету по умолчанию.
+     */
+    public static final int DEFAULT_INTEREST_QUEUE_CAPACITY = 1_000;
+
+    /**
+     * Окно ожидания операций для пачки групповой фиксации по умолчанию (в микросекундах).
+     */
+    public static final long DEFAULT_GROUP_COMMIT_WINDOW_MICROS = 200;
+
+    /**
+     * Максимальное количество операций в пачке групповой фиксации по умолчанию.
+     */
+    public static final int DEFAULT_GROUP_COMMIT_MAX_BATCH_SIZE = 128;
+
+    /**
+     * Емкость очереди чеков по умолчанию.
+     */
+    public static final int DEFAULT_CHECK_QUEUE_CAPACITY = 4_096;
+
+    /**
+     * Количество чеков между сбросами файла чеков на диск по умолчанию.
+     */
+    public static final int DEFAULT_CHECK_SYNC_EVERY_CHECKS = 256;
+
+    /**
+     * Максимальное время между записью чека и сбросом на диск по умолчанию (в миллисекундах).
+     */
+    public static final long DEFAULT_CHECK_SYNC_INTERVAL_MILLIS = 1_000;
+
+    /**
+     * Каталог архива чеков по умолчанию.
+     */
+    public static final String DEFAULT_CHECK_ARCHIVE_DIRECTORY =
+            Paths.get(System.getProperty("user.home"), "clever-bank", "checks").toString();
+
+    /**
+     * Предельный размер сегмента архива чеков по умолчанию (в байтах).
+     */
+    public static final long DEFAULT_CHECK_SEGMENT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Максимальное количество ключей идемпотентности в памяти по умолчанию.
+     */
+    public static final int DEFAULT_IDEMPOTENCY_CACHE_CAPACITY = 100_000;
+
+    /**
+     * Срок хранения ключей идемпотентности по умолчанию (в минутах).
+     */
+    public static final long DEFAULT_IDEMPOTENCY_TTL_MINUTES = 24 * 60;
+
+    /**
+     * Каталог кэша выписок по умолчанию.
+     */
+    public static final String DEFAULT_STATEMENT_CACHE_DIRECTORY =
+            Paths.get(System.getProperty("user.home"), "clever-bank", "statements").toString();
+
+    /**
+     * Максимальное количество выписок в памяти по умолчанию.
+     */
+    public static final int DEFAULT_STATEMENT_CACHE_CAPACITY = 1_000;
+
+    /**
+     * Максимальный размер кэша выписок на диске по умолчанию (в мегабайтах).
+     */
+    public static final long DEFAULT_STATEMENT_CACHE_MAX_DISK_MEGABYTES = 256;
+
+    /**
+     * Минимальное количество соединений, поддерживаемых пулом.
+     */
+    private final int poolMinSize;
+
+    /**
+     * Максимальное количество одновременно выданных соединений пула.
+     */
+    private final int poolMaxSize;
+
+    /**
+     * Максимальное время ожидания свободного соединения (в миллисекундах).
+     */
+    private final long poolAcquireTimeoutMillis;
+
+    /**
+     * Время простоя, после которого лишнее соединение пула закрывается (в миллисекундах).
+     */
+    private final long poolIdleTimeoutMillis;
+
+    /**
+     * Проверять ли соединение перед выдачей из пула.
+     */
+    private final boolean poolValidateOnBorrow;
+
+    /**
+     * Ставка ежемесячного начисления процентов в миллионных долях (1% = 10 000).
+     */
+    private final long interestRateMicros;
+
+    /**
+     * Интервал запуска задачи начисления процентов (в секундах).
+     */
+    private final long interestPeriodSeconds;
+
+    /**
+     * Количество потоков для начисления процентов.
+     */
+    private final int interestPoolSize;
+
+    /**
+     * Количество идентификаторов счетов, обрабатываемых одним запросом массового начисления процентов.
+     */
+    private final int interestChunkSize;
+
+    /**
+     * Максимальное количество счетов в очереди на начисление процентов по одному счету.
+     */
+    private final int interestQueueCapacity;
+
+    /**
+     * Соглашение о подсчете дней периода начисления процентов.
+     */
+    private final DayCount interestDayCount;
+
+    /**
+     * Способ начисления процентов внутри периода: простые проценты или ежедневная капитализация.
+     */
+    private final Compounding interestCompounding;
+
+    /**
+     * Режим выполнения блокирующих задач: пул потоков или виртуальный поток на задачу.
+     */
+    private final ExecutorMode executorMode;
+
+    /**
+     * Окно ожидания операций для пачки групповой фиксации (в микросекундах).
+     */
+    private final long groupCommitWindowMicros;
+
+    /**
+     * Максимальное количество операций в пачке групповой фиксации.
+     */
+    private final int groupCommitMaxBatchSize;
+
+    /**
+     * Емкость очереди чеков, ожидающих записи в архив.
+     */
+    private final int checkQueueCapacity;
+
+    /**
+     * Количество записанных чеков, после которого файл чеков сбрасывается на диск.
+     */
+    private final int checkSyncEveryChecks;
+
+    /**
+     * Максимальное время между записью чека и сбросом файла чеков на диск (в миллисекундах).
+     */
+    private final long checkSyncIntervalMillis;
+
+    /**
+     * Каталог архива чеков.
+     */
+    private final String checkArchiveDirectory;
+
+    /**
+     * Предельный размер сегмента архива чеков (в байтах).
+     */
+    private final long checkSegmentMaxBytes;
+
+    /**
+     * Максимальное количество ключей идемпотентности в памяти.
+     */
+    private final int idempotencyCacheCapacity;
+
+    /**
+     * Срок хранения ключей идемпотентности (в минутах).
+     */
+    private final long idempotencyTtlMinutes;
+
+    /**
+     * Каталог кэша выписок по закрытым периодам.
+     */
+    private final String statementCacheDirectory;
+
+    /**
+     * Максимальное количество выписок в памяти.
+     */
+    private final int statementCacheCapacity;
+
+    /**
+     * Максимальный размер кэша выписок на диске (в мегабайтах).
+     */
+    private final long statementCacheMaxDiskMegabytes;
+
+    /**
+     * Создает конфигурацию со значениями по умолчанию.
+     *
+     * @return Конфигурация по умолчанию.
+     */
+    public static AppConfig defaults() {
+        return fromMap(Map.of());
+    }
+
+    /**
+     * Создает конфигурацию из разобранного YAML-документа.
+     * Дробные значения допускают запятую в качестве разделителя (например, "0,01").
+     *
+     * @param values Значения верхнего уровня документа.
+     * @return Конфигурация.
+     * @throws IllegalArgumentException Если значение имеет неверный формат или выходит за допустимые пределы.
+     */
+    public static AppConfig fromMap(Map<String, Object> values) {
+        int poolMinSize = (int) nonNegative(values, "poolMinSize", DEFAULT_POOL_MIN_SIZE);
+        int poolMaxSize = (int) positive(values, "poolMaxSize", DEFAULT_POOL_MAX_SIZE);
+        if (poolMinSize > poolMaxSize) {
+            throw new IllegalArgumentException("Config value poolMinSize must not exceed poolMaxSize: "
+                    + poolMinSize + " > " + poolMaxSize);
+        }
+        return AppConfig.builder()
+                .poolMinSize(poolMinSize)
+                .poolMaxSize(poolMaxSize)
+                .poolAcquireTimeoutMillis(positive(values, "poolAcquireTimeoutMillis", DEFAULT_POOL_ACQUIRE_TIMEOUT_MILLIS))
+                .poolIdleTimeoutMillis(positive(values, "poolIdleTimeoutMillis", DEFAULT_POOL_IDLE_TIMEOUT_MILLIS))
+                .poolValidateOnBorrow(bool(values, "poolValidateOnBorrow", true))
+                .interestRateMicros(Money.rateToMicros(decimal(values, "interestRate", 0.01)))
+                .interestPeriodSeconds(positive(values, "interestPeriodSeconds", 30))
+                .interestPoolSize((int) positive(values, "interestPoolSize", 10))
+                .interestChunkSize((int) positive(values, "interestChunkSize", DEFAULT_INTEREST_CHUNK_SIZE))
+                .interestQueueCapacity((int) positive(values, "interestQueueCapacity", DEFAULT_INTEREST_QUEUE_CAPACITY))
+                .interestDayCount(enumValue(values, "interestDayCount", DayCount.THIRTY_360))
+                .interestCompounding(enumValue(values, "interestCompounding", Compounding.SIMPLE))
+                .executorMode(enumValue(values, "executorMode", ExecutorMode.FIXED_POOL))
+                .groupCommitWindowMicros(decimalMicros(values, "groupCommitWindowMicros", DEFAULT_GROUP_COMMIT_WINDOW_MICROS))
+                .groupCommitMaxBatchSize((int) positive(values, "groupCommitMaxBatchSize", DEFAULT_GROUP_COMMIT_MAX_BATCH_SIZE))
+                .checkQueueCapacity((int) positive(values, "checkQueueCapacity", DEFAULT_CHECK_QUEUE_CAPACITY))
+                .checkSyncEveryChecks((int) positive(values, "checkSyncEveryChecks", DEFAULT_CHECK_SYNC_EVERY_CHECKS))
+                .checkSyncIntervalMillis(positive(values, "checkSyncIntervalMillis", DEFAULT_CHECK_SYNC_INTERVAL_MILLIS))
+                .checkArchiveDirectory(string(values, "checkArchiveDirectory", DEFAULT_CHECK_ARCHIVE_DIRECTORY))
+                .checkSegmentMaxBytes(positive(values, "checkSegmentMaxBytes", DEFAULT_CHECK_SEGMENT_MAX_BYTES))
+                .idempotencyCacheCapacity((int) positive(values, "idempotencyCacheCapacity", DEFAULT_IDEMPOTENCY_CACHE_CAPACITY))
+                .idempotencyTtlMinutes(positive(values, "idempotencyTtlMinutes", DEFAULT_IDEMPOTENCY_TTL_MINUTES))
+                .statementCacheDirectory(string(values, "statementCacheDirectory", DEFAULT_STATEMENT_CACHE_DIRECTORY))
+                .statementCacheCapacity((int) positive(values, "statementCacheCapacity", DEFAULT_STATEMENT_CACHE_CAPACITY))
+                .statementCacheMaxDiskMegabytes(positive(values, "statementCacheMaxDiskMegabytes",
+                        DEFAULT_STATEMENT_CACHE_MAX_DISK_MEGABYTES))
+                .build();
+    }
+
+    private static double decimal(Map<String, Object> values, String key, double defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            double result = value instanceof Number
+                    ? ((Number) value).doubleValue()
+                    : Double.parseDouble(value.toString().trim().replace(',', '.'));
+            if (result < 0 || Double.isNaN(result) || Double.isInfinite(result)) {
+                throw new IllegalArgumentException("Config value " + key + " must not be negative: " + value);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Config value " + key + " is not a number: " + value, e);
+        }
+    }
+
+    private static String string(Map<String, Object> values, String key, String defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        String result = value.toString().trim();
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("Config value " + key + " must not be empty");
+        }
+        return result;
+    }
+
+    private static boolean bool(Map<String, Object> values, String key, boolean defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        String text = value.toString().trim();
+        if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false")) {
+            return Boolean.parseBoolean(text);
+        }
+        throw new IllegalArgumentException("Config value " + key + " must be true or false: " + value);
+    }
+
+    private static long decimalMicros(Map<String, Object> values, String key, long defaultValue) {
+        return Math.round(decimal(values, key, defaultValue));
+    }
+
+    private static <E extends Enum<E>> E enumValue(Map<String, Object> values, String key, E defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        Class<E> type = defaultValue.getDeclaringClass();
+        try {
+            return Enum.valueOf(type, value.toString().trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Config value " + key + " must be one of "
+                    + Arrays.toString(type.getEnumConstants()) + ": " + value, e);
+        }
+    }
+
+    private static long nonNegative(Map<String, Object> values, String key, long defaultValue) {
+        return integer(values, key, defaultValue, 0);
+    }
+
+    private static long positive(Map<String, Object> values, String key, long defaultValue) {
+        return integer(values, key, defaultValue, 1);
+    }
+
+    private static long integer(Map<String, Object> values, String key, long defaultValue, long min) {
+        Object value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            long result = value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString().trim());
+            if (result < min || result > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Config value " + key + " must be "
+                        + (min > 0 ? "a positive" : "a non-negative") + " int: " + value);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Config value " + key + " is not an integer: " + value, e);
+        }
+    }
+}
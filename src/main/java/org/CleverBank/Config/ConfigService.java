@@ -0,0 +1,235 @@
+package org.CleverBank.Config;
+
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс `ConfigService` хранит текущий снимок конфигурации {@link AppConfig}.
+ * Файл разбирается один раз при создании и повторно только при его изменении, поэтому чтение
+ * конфигурации сервисами стоит одного чтения volatile-поля. Если сервис запущен методом {@link #start()},
+ * каталог файла отслеживается через {@link WatchService}, и новый снимок подменяет старый атомарно.
+ * Файл с ошибкой не применяется: сервисы продолжают работать с предыдущим снимком.
+ */
+public class ConfigService implements AutoCloseable {
+
+    /**
+     * Системное свойство с путем к файлу конфигурации. Если не задано, используется `/config.yml` из classpath.
+     */
+    public static final String CONFIG_PATH_PROPERTY = "cleverbank.config";
+
+    private static final String CLASSPATH_RESOURCE = "/config.yml";
+
+    private static ConfigService defaultInstance;
+
+    private final Path file;
+    private volatile AppConfig current;
+    private volatile WatchService watchService;
+    private volatile Exception lastReloadFailure;
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder reloadFailures = new LongAdder();
+
+    /**
+     * Конструктор класса `ConfigService`, читающий конфигурацию из файла.
+     *
+     * @param file Путь к файлу конфигурации.
+     * @throws IllegalArgumentException Если файл содержит неверные значения.
+     * @throws UncheckedIOException     Если файл не удалось прочитать.
+     */
+    public ConfigService(Path file) {
+        this.file = file.toAbsolutePath();
+        this.current = load(this.file);
+    }
+
+    /**
+     * Конструктор класса `ConfigService` с неизменяемой конфигурацией, не связанной с файлом.
+     *
+     * @param config Конфигурация.
+     */
+    public ConfigService(AppConfig config) {
+        this.file = null;
+        this.current = config;
+    }
+
+    /**
+     * Получает общий сервис конфигурации. При первом обращении конфигурация читается из файла,
+     * заданного свойством {@value #CONFIG_PATH_PROPERTY}, и отслеживается, либо из `/config.yml` в classpath.
+     *
+     * @return Общий сервис конфигурации.
+     */
+    public static synchronized ConfigService getDefault() {
+        if (defaultInstance == null) {
+            String path = System.getProperty(CONFIG_PATH_PROPERTY);
+            if (path != null) {
+                defaultInstance = new ConfigService(Paths.get(path));
+                defaultInstance.start();
+            } else {
+                defaultInstance = new ConfigService(loadClasspath());
+            }
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * Получает текущий снимок конфигурации.
+     *
+     * @return Снимок конфигурации.
+     */
+    public AppConfig get() {
+        return current;
+    }
+
+    /**
+     * Запускает отслеживание файла конфигурации в фоновом потоке. Для конфигурации,
+     * не связанной с файлом, ничего не делает.
+     *
+     * @throws UncheckedIOException Если отслеживание не удалось запустить.
+     */
+    public synchronized void start() {
+        if (file == null || watchService != null) {
+            return;
+        }
+        try {
+            WatchService service = file.getFileSystem().newWatchService();
+            // Редакторы и системы развертывания заменяют файл переименованием, поэтому отслеживается каталог
+            file.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            watchService = service;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to watch config file " + file, e);
+        }
+        Thread watcher = new Thread(this::watch, "config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Перечитывает файл конфигурации. Если файл не удалось прочитать или разобрать,
+     * текущий снимок сохраняется, а ошибка учитывается в статистике.
+     *
+     * @return true, если применен новый снимок.
+     */
+    public boolean reload() {
+        if (file == null) {
+            return false;
+        }
+        try {
+            current = load(file);
+            reloads.increment();
+            return true;
+        } catch (RuntimeException e) {
+            lastReloadFailure = e;
+            reloadFailures.increment();
+            return false;
+        }
+    }
+
+    /**
+     * Получает количество примененных перечитываний конфигурации.
+     *
+     * @return Количество перечитываний.
+     */
+    public long getReloadCount() {
+        return reloads.sum();
+    }
+
+    /**
+     * Получает количество перечитываний, отклоненных из-за ошибки.
+     *
+     * @return Количество ошибок.
+     */
+    public long getReloadFailureCount() {
+        return reloadFailures.sum();
+    }
+
+    /**
+     * Получает последнюю ошибку перечитывания конфигурации.
+     *
+     * @return Ошибка или null, если ошибок не было.
+     */
+    public Exception getLastReloadFailure() {
+        return lastReloadFailure;
+    }
+
+    /**
+     * Останавливает отслеживание файла конфигурации.
+     */
+    @Override
+    public synchronized void close() {
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                // Поток отслеживания завершится при следующем обращении к закрытому сервису
+            }
+        }
+    }
+
+    private void watch() {
+        WatchService service = watchService;
+        Path fileName = file.getFileName();
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (fileName.equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    reload();
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Сервис конфигурации закрыт
+        }
+    }
+
+    private static AppConfig load(Path file) {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            return parse(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read config file " + file, e);
+        }
+    }
+
+    private static AppConfig loadClasspath() {
+        try (InputStream inputStream = ConfigService.class.getResourceAsStream(CLASSPATH_RESOURCE)) {
+            return inputStream == null ? AppConfig.defaults() : parse(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read config resource " + CLASSPATH_RESOURCE, e);
+        }
+    }
+
+    private static AppConfig parse(InputStream inputStream) {
+        Object document = new Yaml().load(inputStream);
+        if (document == null) {
+            return AppConfig.defaults();
+        }
+        if (!(document instanceof Map)) {
+            throw new IllegalArgumentException("Config must be a YAML mapping");
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> values = (Map<String, Object>) document;
+        return AppConfig.fromMap(values);
+    }
+}
@@ -0,0 +1,16 @@
+package org.CleverBank.Config;
+
+/**
+ * Режим выполнения блокирующих задач (см. {@code BlockingTaskExecutor}).
+ */
+public enum ExecutorMode {
+    /**
+     * Фиксированный пул потоков платформы по числу разрешений.
+     */
+    FIXED_POOL,
+
+    /**
+     * Виртуальный поток на каждую задачу.
+     */
+    VIRTUAL_THREADS
+}
@@ -0,0 +1,390 @@
+package org.CleverBank;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Класс `ConnectionPool` — ограниченный пул физических соединений поверх произвольного источника данных.
+ * Соединения переиспользуются между вызовами репозиториев, а закрытие соединения клиентом
+ * возвращает его в пул вместо разрыва физического подключения к базе данных.
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    /**
+     * Таймаут проверки соединения при выдаче из пула (в секундах).
+     */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    /**
+     * Соединения, простаивавшие меньше этого времени, выдаются без проверки.
+     */
+    private static final long VALIDATION_SKIP_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    /**
+     * Границы корзин гистограммы времени получения соединения (в микросекундах).
+     */
+    private static final long[] ACQUIRE_LATENCY_BOUNDS_MICROS =
+            {10, 50, 100, 500, 1_000, 5_000, 10_000, 50_000, 100_000, 500_000, 1_000_000};
+
+    private final DataSource target;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutNanos;
+    private final boolean validateOnBorrow;
+
+    /**
+     * Разрешения на выдачу соединений; их количество ограничивает число одновременно занятых соединений.
+     */
+    private final Semaphore permits;
+
+    /**
+     * Простаивающие соединения. Голова очереди — последние возвращенные (самые "теплые") соединения.
+     */
+    private final Deque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private final Histogram acquireLatency = new Histogram(ACQUIRE_LATENCY_BOUNDS_MICROS);
+
+    /**
+     * Фоновая задача вытеснения простаивающих соединений и поддержания минимального размера пула.
+     */
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "connection-pool-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean closed;
+
+    /**
+     * Конструктор класса `ConnectionPool`.
+     *
+     * @param target               Источник физических соединений.
+     * @param minSize              Минимальное количество поддерживаемых соединений.
+     * @param maxSize              Максимальное количество одновременно выданных соединений.
+     * @param acquireTimeoutMillis Максимальное время ожидания свободного соединения (в миллисекундах).
+     * @param idleTimeoutMillis    Время простоя, после которого лишнее соединение закрывается (в миллисекундах).
+     * @param validateOnBorrow     Проверять ли соединение перед выдачей.
+     * @throws IllegalArgumentException Если параметры пула заданы некорректно.
+     */
+    public ConnectionPool(DataSource target, int minSize, int maxSize, long acquireTimeoutMillis,
+                          long idleTimeoutMillis, boolean validateOnBorrow) {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Pool size must satisfy 0 <= minSize <= maxSize and maxSize > 0");
+        }
+        if (acquireTimeoutMillis < 0 || idleTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Pool timeouts must be positive");
+        }
+        this.target = target;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.validateOnBorrow = validateOnBorrow;
+        this.permits = new Semaphore(maxSize, true);
+
+        long maintenancePeriod = Math.max(1_000, idleTimeoutMillis / 2);
+        maintenance.scheduleWithFixedDelay(this::maintain, 0, maintenancePeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Получает соединение из пула, ожидая освобождения не дольше таймаута получения.
+     * Закрытие полученного соединения возвращает его в пул.
+     *
+     * @return Соединение с базой данных.
+     * @throws SQLTimeoutException Если свободное соединение не появилось за отведенное время.
+     * @throws SQLException        Если пул закрыт или не удалось открыть физическое соединение.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                acquireTimeouts.increment();
+                throw new SQLTimeoutException("Timed out after " + acquireTimeoutMillis
+                        + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = borrowIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(target.getConnection());
+                totalConnections.incrementAndGet();
+            }
+            activeConnections.incrementAndGet();
+            acquireLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Пул выдает соединения только с учетными данными, заданными для целевого источника.
+     *
+     * @throws SQLFeatureNotSupportedException Всегда.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connection pool does not support per-call credentials");
+    }
+
+    /**
+     * Получает снимок текущего состояния пула.
+     *
+     * @return Статистика пула соединений.
+     */
+    public PoolStatistics getStatistics() {
+        return new PoolStatistics(
+                activeConnections.get(),
+                idle.size(),
+                totalConnections.get(),
+                permits.getQueueLength(),
+                maxSize,
+                acquireTimeouts.sum(),
+                acquireLatency.getBounds(),
+                acquireLatency.getCounts(),
+                acquireLatency.getMean()
+        );
+    }
+
+    /**
+     * Закрывает пул: простаивающие соединения закрываются сразу,
+     * выданные — при возврате в пул.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        maintenance.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    /**
+     * Извлекает простаивающее соединение, отбрасывая не прошедшие проверку.
+     *
+     * @return Соединение или null, если пригодных простаивающих соединений нет.
+     */
+    private PooledConnection borrowIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (!validateOnBorrow || isValid(pooled)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+        return null;
+    }
+
+    /**
+     * Проверяет физическое соединение, если оно простаивало достаточно долго.
+     */
+    private boolean isValid(PooledConnection pooled) {
+        if (System.nanoTime() - pooled.lastUsedNanos < VALIDATION_SKIP_NANOS) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Возвращает соединение в пул после сброса его состояния.
+     * Незавершенная транзакция откатывается, режим автокоммита восстанавливается.
+     */
+    private void release(PooledConnection pooled) {
+        activeConnections.decrementAndGet();
+        try {
+            if (closed || !reset(pooled.physical)) {
+                discard(pooled);
+            } else {
+                pooled.lastUsedNanos = System.nanoTime();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean reset(Connection physical) {
+        try {
+            if (physical.isClosed()) {
+                return false;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException ignored) {
+            // Соединение уже непригодно, ошибка закрытия ничего не меняет
+        }
+    }
+
+    /**
+     * Закрывает соединения, простаивающие дольше таймаута (сверх минимального размера),
+     * и дополняет пул до минимального размера.
+     */
+    private void maintain() {
+        long now = System.nanoTime();
+        Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+        while (oldestFirst.hasNext() && totalConnections.get() > minSize) {
+            PooledConnection pooled = oldestFirst.next();
+            if (now - pooled.lastUsedNanos >= idleTimeoutNanos && idle.removeLastOccurrence(pooled)) {
+                discard(pooled);
+            }
+        }
+        while (!closed && totalConnections.get() < minSize) {
+            try {
+                PooledConnection pooled = new PooledConnection(target.getConnection());
+                totalConnections.incrementAndGet();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                // База данных недоступна; попробуем дополнить пул при следующем запуске
+                return;
+            }
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return target.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        target.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        target.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return target.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return target.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target.isWrapperFor(iface);
+    }
+
+    /**
+     * Физическое соединение, принадлежащее пулу.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private volatile long lastUsedNanos = System.nanoTime();
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * Создает клиентскую обертку соединения. Каждая выдача получает свою обертку,
+         * чтобы повторное закрытие или использование после закрытия не затрагивало следующего владельца.
+         */
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(this));
+        }
+    }
+
+    /**
+     * Обработчик вызовов клиентской обертки соединения.
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    if (returned.get()) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
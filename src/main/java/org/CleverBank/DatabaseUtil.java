@@ -1,5 +1,7 @@
 package org.CleverBank;
 
+import org.CleverBank.Config.AppConfig;
+import org.CleverBank.Config.ConfigService;
 import org.postgresql.ds.PGSimpleDataSource;
 
 import javax.sql.DataSource;
@@ -14,12 +16,40 @@ public class DatabaseUtil {
     private static final String JDBC_USER = "postgres";
     private static final String JDBC_PASSWORD = "ghjuhn";
 
+    private static ConnectionPool connectionPool;
+
     /**
-     * Получает и настраивает источник данных (DataSource) для подключения к базе данных PostgreSQL.
+     * Получает пул соединений с базой данных PostgreSQL.
+     * Пул создается при первом обращении и разделяется всеми вызывающими.
      *
-     * @return Источник данных (DataSource) для PostgreSQL.
+     * @return Источник данных (DataSource) с пулом соединений.
      */
     public static DataSource getDataSource() {
+        return getConnectionPool();
+    }
+
+    /**
+     * Получает пул соединений для доступа к его статистике. Размеры и таймауты пула берутся
+     * из снимка конфигурации на момент создания пула; изменения конфигурации применяются при следующем запуске.
+     *
+     * @return Пул соединений с базой данных PostgreSQL.
+     */
+    public static synchronized ConnectionPool getConnectionPool() {
+        if (connectionPool == null) {
+            AppConfig config = ConfigService.getDefault().get();
+            connectionPool = new ConnectionPool(createPhysicalDataSource(), config.getPoolMinSize(),
+                    config.getPoolMaxSize(), config.getPoolAcquireTimeoutMillis(), config.getPoolIdleTimeoutMillis(),
+                    config.isPoolValidateOnBorrow());
+        }
+        return connectionPool;
+    }
+
+    /**
+     * Создает и настраивает источник физических соединений с базой данных PostgreSQL.
+     *
+     * @return Источник данных (DataSource) для PostgreSQL.
+     */
+    private static DataSource createPhysicalDataSource() {
         PGSimpleDataSource dataSource = new PGSimpleDataSource();
         dataSource.setUrl(JDBC_URL);
         dataSource.setUser(JDBC_USER);
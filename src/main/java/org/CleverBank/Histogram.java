@@ -0,0 +1,115 @@
+package org.CleverBank;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс `Histogram` накапливает распределение значений по фиксированным корзинам.
+ * Запись значения не блокирует потоки и не выделяет память, что позволяет использовать
+ * гистограмму на горячем пути (например, для замера времени получения соединения).
+ */
+public class Histogram {
+
+    /**
+     * Верхние границы корзин (включительно), упорядоченные по возрастанию.
+     * Значения больше последней границы попадают в дополнительную корзину переполнения.
+     */
+    private final long[] bounds;
+
+    /**
+     * Счетчики корзин. Последний элемент — корзина переполнения.
+     */
+    private final LongAdder[] counts;
+
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Конструктор класса `Histogram`.
+     *
+     * @param bounds Верхние границы корзин, упорядоченные по возрастанию.
+     * @throws IllegalArgumentException Если границы не заданы или не упорядочены.
+     */
+    public Histogram(long... bounds) {
+        if (bounds.length == 0) {
+            throw new IllegalArgumentException("Histogram must have at least one bucket");
+        }
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("Histogram bounds must be strictly increasing");
+            }
+        }
+        this.bounds = bounds.clone();
+        this.counts = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Записывает значение в соответствующую корзину.
+     *
+     * @param value Значение для записи.
+     */
+    public void record(long value) {
+        int index = Arrays.binarySearch(bounds, value);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        counts[index].increment();
+        total.increment();
+        sum.add(value);
+    }
+
+    /**
+     * Получает верхние границы корзин.
+     *
+     * @return Копия массива границ.
+     */
+    public long[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * Получает текущие значения счетчиков корзин.
+     *
+     * @return Массив счетчиков; последний элемент соответствует значениям больше последней границы.
+     */
+    public long[] getCounts() {
+        long[] snapshot = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            snapshot[i] = counts[i].sum();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Получает общее количество записанных значений.
+     *
+     * @return Количество значений.
+     */
+    public long getTotalCount() {
+        return total.sum();
+    }
+
+    /**
+     * Получает среднее значение записанных величин.
+     *
+     * @return Среднее значение или 0, если значений нет.
+     */
+    public double getMean() {
+        long count = total.sum();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    @Override
+    public String toString() {
+        long[] snapshot = getCounts();
+        StringBuilder builder = new StringBuilder("Histogram{");
+        for (int i = 0; i < bounds.length; i++) {
+            builder.append("<=").append(bounds[i]).append(": ").append(snapshot[i]).append(", ");
+        }
+        builder.append(">").append(bounds[bounds.length - 1]).append(": ").append(snapshot[bounds.length]).append('}');
+        return builder.toString();
+    }
+}
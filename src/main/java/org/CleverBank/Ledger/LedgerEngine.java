@@ -0,0 +1,696 @@
+package org.CleverBank.Ledger;
+
+import org.CleverBank.Models.Account;
+import org.CleverBank.Models.Transaction;
+import org.CleverBank.Models.TransactionType;
+import org.CleverBank.Repository.AccountRepository;
+import org.CleverBank.Repository.LedgerCheckpointRepository;
+import org.CleverBank.Repository.TransactionContext;
+import org.CleverBank.Repository.TransactionRepository;
+import org.CleverBank.Service.StatementCache;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс `LedgerEngine` — движок проводок для режима высокой нагрузки.
+ * Балансы счетов хранятся в памяти и распределены по шардам с одним потоком-писателем на шард,
+ * операции передаются шардам через неблокирующие очереди, а переводы между шардами
+ * согласуются обменом сообщениями без блокировок.
+ * <p>
+ * Операция считается выполненной после записи в журнал шарда. Фоновый поток сохраняет выполненные
+ * операции в базе данных пачками: изменения балансов, строки транзакций и контрольные точки журналов
+ * записываются одной транзакцией. При запуске операции из журналов, не попавшие в базу данных,
+ * применяются повторно.
+ * <p>
+ * Пока движок запущен, он единственный изменяет балансы загруженных счетов: изменения, внесенные
+ * в базу данных в обход движка, станут видны ему только после перезапуска.
+ */
+public class LedgerEngine implements AutoCloseable {
+
+    /**
+     * Количество шардов по умолчанию.
+     */
+    public static final int DEFAULT_SHARDS = 4;
+
+    /**
+     * Емкость очереди операций шарда по умолчанию.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 16_384;
+
+    /**
+     * Интервал сохранения операций в базе данных по умолчанию (в миллисекундах).
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50;
+
+    /**
+     * Максимальное время ожидания завершения принятых операций при остановке (в миллисекундах).
+     */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * Максимальное количество пачек шардов, сохраняемых одной транзакцией.
+     */
+    private static final int MAX_FLUSH_BATCHES = 64;
+
+    private static final String JOURNAL_PREFIX = "ledger-";
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    private final DataSource dataSource;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final LedgerCheckpointRepository checkpointRepository;
+    private final Path journalDirectory;
+    private final int shardCount;
+    private final int queueCapacity;
+    private final long flushIntervalMillis;
+    private final boolean syncJournal;
+
+    private final Queue<FlushBatch> flushQueue = new ConcurrentLinkedQueue<>();
+    private final List<FlushBatch> pendingFlush = new ArrayList<>();
+    private final Object flushLock = new Object();
+    private final AtomicLong inFlight = new AtomicLong();
+
+    private final LongAdder completedOperations = new LongAdder();
+    private final LongAdder rejectedOperations = new LongAdder();
+    private final LongAdder flushedOperations = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final Queue<LedgerOperation> deadLetters = new ConcurrentLinkedQueue<>();
+
+    private LedgerShard[] shards;
+    private Thread[] shardThreads;
+    private ScheduledExecutorService flusher;
+    private ExecutorService loader;
+    private volatile boolean accepting;
+    private volatile RuntimeException lastFlushFailure;
+    private volatile StatementCache statementCache;
+
+    /**
+     * Конструктор класса `LedgerEngine` с параметрами по умолчанию.
+     *
+     * @param dataSource       Источник данных (DataSource), используемый для взаимодействия с базой данных.
+     * @param journalDirectory Каталог журналов шардов.
+     */
+    public LedgerEngine(DataSource dataSource, Path journalDirectory) {
+        this(dataSource, journalDirectory, DEFAULT_SHARDS, DEFAULT_QUEUE_CAPACITY, DEFAULT_FLUSH_INTERVAL_MILLIS, true);
+    }
+
+    /**
+     * Конструктор класса `LedgerEngine`.
+     *
+     * @param dataSource          Источник данных (DataSource), используемый для взаимодействия с базой данных.
+     * @param journalDirectory    Каталог журналов шардов.
+     * @param shardCount          Количество шардов (потоков-писателей).
+     * @param queueCapacity       Емкость очереди операций каждого шарда.
+     * @param flushIntervalMillis Интервал сохранения операций в базе данных (в миллисекундах).
+     * @param syncJournal         Сбрасывать журнал на диск перед подтверждением операций.
+     * @throws IllegalArgumentException Если параметры не положительны.
+     */
+    public LedgerEngine(DataSource dataSource, Path journalDirectory, int shardCount, int queueCapacity,
+                        long flushIntervalMillis, boolean syncJournal) {
+        if (shardCount <= 0 || queueCapacity <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Shard count, queue capacity and flush interval must be positive");
+        }
+        this.dataSource = dataSource;
+        this.accountRepository = new AccountRepository(dataSource);
+        this.transactionRepository = new TransactionRepository(dataSource);
+        this.checkpointRepository = new LedgerCheckpointRepository(dataSource);
+        this.journalDirectory = journalDirectory;
+        this.shardCount = shardCount;
+        this.queueCapacity = queueCapacity;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.syncJournal = syncJournal;
+    }
+
+    /**
+     * Задает кэш выписок, из которого удаляются выписки за даты сохраненных операций.
+     * Если не задан, используется {@link StatementCache#getDefault()}.
+     *
+     * @param statementCache Кэш выписок.
+     */
+    public void setStatementCache(StatementCache statementCache) {
+        this.statementCache = statementCache;
+    }
+
+    /**
+     * Восстанавливает операции из журналов, запускает шарды и фоновое сохранение.
+     *
+     * @throws IllegalStateException Если движок уже запущен.
+     * @throws RuntimeException      Если журналы не удалось восстановить.
+     */
+    public synchronized void start() {
+        if (shards != null) {
+            throw new IllegalStateException("Ledger engine is already started");
+        }
+        Map<Integer, Long> lastSequences = recover();
+
+        loader = Executors.newFixedThreadPool(shardCount, runnable -> {
+            Thread thread = new Thread(runnable, "ledger-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        shards = new LedgerShard[shardCount];
+        shardThreads = new Thread[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            LedgerJournal journal = openJournal(i);
+            shards[i] = new LedgerShard(i, this, journal, syncJournal, queueCapacity,
+                    lastSequences.getOrDefault(i, 0L));
+            shardThreads[i] = new Thread(shards[i], "ledger-shard-" + i);
+            shardThreads[i].setDaemon(true);
+            shardThreads[i].start();
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        accepting = true;
+    }
+
+    /**
+     * Зачисляет сумму на счет.
+     * Результат завершается в потоке шарда, поэтому зависимые действия не должны выполнять в нем
+     * долгих операций.
+     *
+     * @param accountId Идентификатор счета.
+     * @param amount    Сумма зачисления в копейках.
+     * @return Операция с новым балансом счета.
+     * @throws IllegalArgumentException Если сумма отрицательна.
+     */
+    public CompletableFuture<LedgerOperation> deposit(int accountId, long amount) {
+        return submit(new LedgerOperation(LedgerOperation.Type.DEPOSIT, accountId, accountId, amount, today()));
+    }
+
+    /**
+     * Списывает сумму со счета. Если средств недостаточно, результат завершается
+     * исключением {@link IllegalArgumentException}.
+     *
+     * @param accountId Идентификатор счета.
+     * @param amount    Сумма списания в копейках.
+     * @return Операция с новым балансом счета.
+     * @throws IllegalArgumentException Если сумма отрицательна.
+     */
+    public CompletableFuture<LedgerOperation> withdraw(int accountId, long amount) {
+        return submit(new LedgerOperation(LedgerOperation.Type.WITHDRAW, accountId, accountId, amount, today()));
+    }
+
+    /**
+     * Переводит сумму со счета на счет. Если средств недостаточно, результат завершается
+     * исключением {@link IllegalArgumentException}. Результат завершается после зачисления
+     * суммы на счет-получатель.
+     *
+     * @param sourceAccountId Идентификатор счета-источника.
+     * @param targetAccountId Идентификатор счета-получателя.
+     * @param amount          Сумма перевода в копейках.
+     * @return Операция с новыми балансами обоих счетов.
+     * @throws IllegalArgumentException Если сумма отрицательна.
+     */
+    public CompletableFuture<LedgerOperation> transfer(int sourceAccountId, int targetAccountId, long amount) {
+        return submit(new LedgerOperation(LedgerOperation.Type.TRANSFER, sourceAccountId, targetAccountId, amount,
+                today()));
+    }
+
+    /**
+     * Получает баланс счета с учетом всех принятых ранее операций, в том числе еще не сохраненных
+     * в базе данных. Запрос выполняется потоком шарда после операций, поставленных в очередь до него.
+     *
+     * @param accountId Идентификатор счета.
+     * @return Баланс счета в копейках.
+     */
+    public CompletableFuture<Long> balanceOf(int accountId) {
+        return submit(new LedgerOperation(LedgerOperation.Type.BALANCE, accountId, accountId, 0, today()))
+                .thenApply(LedgerOperation::getBalance);
+    }
+
+    /**
+     * Проверяет, принимает ли движок операции.
+     *
+     * @return true, если движок запущен и не остановлен.
+     */
+    public boolean isRunning() {
+        return accepting;
+    }
+
+    /**
+     * Получает количество выполненных операций.
+     *
+     * @return Количество операций.
+     */
+    public long getCompletedCount() {
+        return completedOperations.sum();
+    }
+
+    /**
+     * Получает количество отклоненных операций.
+     *
+     * @return Количество операций.
+     */
+    public long getRejectedCount() {
+        return rejectedOperations.sum();
+    }
+
+    /**
+     * Получает количество операций, сохраненных в базе данных.
+     *
+     * @return Количество операций.
+     */
+    public long getFlushedCount() {
+        return flushedOperations.sum();
+    }
+
+    /**
+     * Получает количество неудачных попыток сохранения в базе данных.
+     *
+     * @return Количество попыток.
+     */
+    public long getFlushFailureCount() {
+        return flushFailures.sum();
+    }
+
+    /**
+     * Получает ошибку последней неудачной попытки сохранения в базе данных.
+     *
+     * @return Ошибка или null, если сохранение ни разу не завершалось ошибкой.
+     */
+    public RuntimeException getLastFlushFailure() {
+        return lastFlushFailure;
+    }
+
+    /**
+     * Получает операции, которые не удалось сохранить в базе данных, хотя база данных была доступна,
+     * например операции удаленного счета. Балансы в памяти учитывают эти операции, поэтому их нужно
+     * перенести в базу данных вручную.
+     *
+     * @return Список операций в порядке их обнаружения.
+     */
+    public List<LedgerOperation> getDeadLetters() {
+        return List.copyOf(deadLetters);
+    }
+
+    /**
+     * Проверяет, хранит ли запущенный движок баланс счета в памяти. Пока движок хранит баланс,
+     * счет нельзя изменять или удалять в обход движка.
+     *
+     * @param accountId Идентификатор счета.
+     * @return true, если баланс счета загружен в шард запущенного движка.
+     */
+    public boolean holds(int accountId) {
+        return accepting && shardOf(accountId).isLoaded(accountId);
+    }
+
+    /**
+     * Прекращает прием операций, дожидается завершения принятых, останавливает шарды
+     * и сохраняет оставшиеся операции в базе данных. Операции, которые не удалось сохранить,
+     * будут применены из журналов при следующем запуске.
+     */
+    @Override
+    public synchronized void close() {
+        if (shards == null || !accepting) {
+            return;
+        }
+        accepting = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_TIMEOUT_MILLIS);
+        try {
+            while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            for (LedgerShard shard : shards) {
+                shard.stop();
+            }
+            for (Thread thread : shardThreads) {
+                thread.join(TimeUnit.NANOSECONDS.toMillis(Math.max(deadline - System.nanoTime(), 1)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flusher.shutdown();
+        loader.shutdown();
+        try {
+            flusher.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    LedgerShard shardOf(int accountId) {
+        int hash = accountId * 0x9E3779B9;
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    /**
+     * Загружает счет из базы данных в фоновом потоке, чтобы не задерживать поток шарда,
+     * и возвращает операцию с загруженным балансом шарду, владеющему счетом.
+     *
+     * @param operation Операция, ожидающая загрузки счета.
+     * @param accountId Идентификатор счета.
+     */
+    void load(LedgerOperation operation, int accountId) {
+        loader.execute(() -> {
+            Account account;
+            try {
+                account = accountRepository.getAccountById(accountId);
+            } catch (RuntimeException e) {
+                fail(operation, e);
+                return;
+            }
+            if (account == null) {
+                fail(operation, new RuntimeException("Account not found"));
+                return;
+            }
+            operation.setLoadedBalance(accountId, account.getBalance());
+            shardOf(accountId).send(operation);
+        });
+    }
+
+    void complete(LedgerOperation operation) {
+        completedOperations.increment();
+        inFlight.decrementAndGet();
+        operation.getFuture().complete(operation);
+    }
+
+    /**
+     * Завершает запрос, не изменяющий балансы, не учитывая его среди выполненных операций.
+     */
+    void reply(LedgerOperation operation) {
+        inFlight.decrementAndGet();
+        operation.getFuture().complete(operation);
+    }
+
+    void fail(LedgerOperation operation, RuntimeException cause) {
+        rejectedOperations.increment();
+        inFlight.decrementAndGet();
+        operation.getFuture().completeExceptionally(cause);
+    }
+
+    void enqueueFlush(LedgerShard shard, List<LedgerOperation> operations, long lastSequence) {
+        flushQueue.offer(new FlushBatch(shard, operations, lastSequence));
+    }
+
+    private CompletableFuture<LedgerOperation> submit(LedgerOperation operation) {
+        if (!(operation.getAmount() >= 0)) {
+            throw new IllegalArgumentException("Amount cannot be negative");
+        }
+        inFlight.incrementAndGet();
+        if (!accepting) {
+            inFlight.decrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException("Ledger engine is not running"));
+        }
+        shardOf(operation.getAccountId()).submit(operation);
+        return operation.getFuture();
+    }
+
+    /**
+     * Сохраняет накопленные пачки операций в базе данных. Если пачки не удалось сохранить вместе,
+     * они сохраняются по отдельности, чтобы одна ошибочная операция не останавливала остальные.
+     * Пока база данных недоступна, пачки остаются в очереди и сохраняются при следующем вызове,
+     * а журналы шардов не очищаются.
+     */
+    private void flush() {
+        synchronized (flushLock) {
+            flushPending();
+        }
+    }
+
+    private void flushPending() {
+        do {
+            FlushBatch batch;
+            while (pendingFlush.size() < MAX_FLUSH_BATCHES && (batch = flushQueue.poll()) != null) {
+                pendingFlush.add(batch);
+            }
+            if (pendingFlush.isEmpty()) {
+                return;
+            }
+            List<LedgerOperation> operations = new ArrayList<>();
+            Map<Integer, Long> checkpoints = new HashMap<>();
+            for (FlushBatch pending : pendingFlush) {
+                operations.addAll(pending.operations);
+                checkpoints.put(pending.shard.getIndex(), pending.lastSequence);
+            }
+            try {
+                applyToDatabase(operations, checkpoints);
+            } catch (RuntimeException e) {
+                flushFailures.increment();
+                lastFlushFailure = e;
+                if (!flushSeparately()) {
+                    return;
+                }
+                continue;
+            }
+            for (FlushBatch pending : pendingFlush) {
+                pending.shard.markFlushed(pending.lastSequence);
+            }
+            flushedOperations.add(operations.size());
+            for (LedgerOperation operation : operations) {
+                operation.getPersisted().complete(operation);
+            }
+            pendingFlush.clear();
+        } while (!flushQueue.isEmpty());
+    }
+
+    /**
+     * Сохраняет ожидающие пачки по одной, а пачку, которую не удалось сохранить, — по одной операции.
+     * Операция, которую не удалось сохранить, когда контрольная точка после нее сохраняется успешно,
+     * переносится в список неперсистентных операций, а ее результат сохранения завершается ошибкой.
+     * Если не удается сохранить и контрольную точку, база данных недоступна: оставшиеся операции
+     * сохраняются при следующем вызове.
+     *
+     * @return true, если все ожидающие пачки обработаны.
+     */
+    private boolean flushSeparately() {
+        while (!pendingFlush.isEmpty()) {
+            FlushBatch pending = pendingFlush.get(0);
+            int shard = pending.shard.getIndex();
+            try {
+                applyToDatabase(pending.operations, Map.of(shard, pending.lastSequence));
+                flushedOperations.add(pending.operations.size());
+                for (LedgerOperation operation : pending.operations) {
+                    operation.getPersisted().complete(operation);
+                }
+            } catch (RuntimeException batchFailure) {
+                while (!pending.operations.isEmpty()) {
+                    LedgerOperation operation = pending.operations.get(0);
+                    Map<Integer, Long> checkpoint = Map.of(shard, operation.getSequence());
+                    try {
+                        applyToDatabase(List.of(operation), checkpoint);
+                        flushedOperations.increment();
+                        operation.getPersisted().complete(operation);
+                    } catch (RuntimeException e) {
+                        try {
+                            applyToDatabase(List.of(), checkpoint);
+                        } catch (RuntimeException unavailable) {
+                            lastFlushFailure = unavailable;
+                            return false;
+                        }
+                        deadLetters.add(operation);
+                        operation.getPersisted().completeExceptionally(e);
+                    }
+                    pending.operations.remove(0);
+                }
+                try {
+                    applyToDatabase(List.of(), Map.of(shard, pending.lastSequence));
+                } catch (RuntimeException unavailable) {
+                    lastFlushFailure = unavailable;
+                    return false;
+                }
+            }
+            pending.shard.markFlushed(pending.lastSequence);
+            pendingFlush.remove(0);
+        }
+        return true;
+    }
+
+    /**
+     * Применяет операции к базе данных одной транзакцией: суммарные изменения балансов
+     * в порядке возрастания идентификаторов счетов, строки транзакций и контрольные точки журналов.
+     * Номера созданных транзакций сохраняются в операциях, а выписки за их даты удаляются из кэша:
+     * операции сохраняются с задержкой и могут попасть в уже закрытый период.
+     */
+    private void applyToDatabase(List<LedgerOperation> operations, Map<Integer, Long> checkpoints) {
+        Map<Integer, Long> deltas = new TreeMap<>();
+        List<Transaction> transactions = new ArrayList<>(operations.size() * 2);
+        for (LedgerOperation operation : operations) {
+            int accountId = operation.getAccountId();
+            int counterpartyId = operation.getCounterpartyId();
+            long amount = operation.getAmount();
+            LocalDate date = operation.getDate();
+            switch (operation.getType()) {
+                case DEPOSIT:
+                    deltas.merge(accountId, amount, Long::sum);
+                    transactions.add(transaction(accountId, accountId, amount, date, TransactionType.DEPOSIT));
+                    break;
+                case WITHDRAW:
+                    deltas.merge(accountId, -amount, Long::sum);
+                    transactions.add(transaction(accountId, accountId, -amount, date, TransactionType.WITHDRAWAL));
+                    break;
+                default:
+                    deltas.merge(accountId, -amount, Long::sum);
+                    deltas.merge(counterpartyId, amount, Long::sum);
+                    transactions.add(transaction(accountId, counterpartyId, amount, date, TransactionType.TRANSFER_IN));
+                    transactions.add(transaction(accountId, counterpartyId, -amount, date, TransactionType.TRANSFER_OUT));
+            }
+        }
+        TransactionContext.runInTransaction(dataSource, () -> {
+            deltas.forEach((accountId, delta) -> {
+                if (delta != 0) {
+                    accountRepository.adjustBalance(accountId, delta);
+                }
+            });
+            if (!transactions.isEmpty()) {
+                transactionRepository.saveTransactions(transactions);
+            }
+            checkpoints.forEach(checkpointRepository::saveLastSequence);
+            assignTransactionIds(operations, transactions);
+        });
+        evictStatements(transactions);
+    }
+
+    /**
+     * Удаляет из кэша выписки счетов-источников сохраненных транзакций за их даты.
+     * Транзакции уже сохранены, поэтому ошибка удаления запоминается, но не повторяет сохранение.
+     */
+    private void evictStatements(List<Transaction> transactions) {
+        StatementCache cache = statementCache;
+        if (cache == null) {
+            cache = StatementCache.getDefault();
+            statementCache = cache;
+        }
+        Set<Map.Entry<Integer, LocalDate>> evicted = new HashSet<>();
+        try {
+            for (Transaction transaction : transactions) {
+                if (evicted.add(Map.entry(transaction.getSourceAccount(), transaction.getDate()))) {
+                    cache.evict(transaction.getSourceAccount(), transaction.getDate());
+                }
+            }
+        } catch (RuntimeException e) {
+            lastFlushFailure = e;
+        }
+    }
+
+    /**
+     * Сохраняет в операциях номера их транзакций; транзакции перечислены в порядке операций,
+     * у перевода — зачисление, затем списание.
+     */
+    private static void assignTransactionIds(List<LedgerOperation> operations, List<Transaction> transactions) {
+        int next = 0;
+        for (LedgerOperation operation : operations) {
+            if (operation.getType() == LedgerOperation.Type.TRANSFER) {
+                operation.setTransactionIds(transactions.get(next + 1).getId(), transactions.get(next).getId());
+                next += 2;
+            } else {
+                operation.setTransactionIds(transactions.get(next).getId());
+                next++;
+            }
+        }
+    }
+
+    /**
+     * Применяет к базе данных операции из журналов, номера которых больше контрольных точек,
+     * и очищает журналы.
+     *
+     * @return Номер последней известной операции каждого шарда.
+     */
+    private Map<Integer, Long> recover() {
+        Map<Integer, Long> lastSequences = new HashMap<>();
+        try {
+            Files.createDirectories(journalDirectory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(journalDirectory,
+                    JOURNAL_PREFIX + "*" + JOURNAL_SUFFIX)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    int shard = Integer.parseInt(name.substring(JOURNAL_PREFIX.length(),
+                            name.length() - JOURNAL_SUFFIX.length()));
+                    try (LedgerJournal journal = new LedgerJournal(file, 1)) {
+                        lastSequences.put(shard, recoverJournal(shard, journal));
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new RuntimeException("Failed to recover ledger journals", e);
+        }
+        // Номера операций шарда без журнала продолжаются с контрольной точки
+        for (int i = 0; i < shardCount; i++) {
+            if (!lastSequences.containsKey(i)) {
+                lastSequences.put(i, checkpointRepository.getLastSequence(i));
+            }
+        }
+        return lastSequences;
+    }
+
+    private long recoverJournal(int shard, LedgerJournal journal) throws IOException {
+        long checkpoint = checkpointRepository.getLastSequence(shard);
+        long lastSequence = checkpoint;
+        List<LedgerOperation> pending = new ArrayList<>();
+        for (LedgerOperation operation : journal.readAll()) {
+            if (operation.getSequence() > checkpoint) {
+                pending.add(operation);
+            }
+            lastSequence = Math.max(lastSequence, operation.getSequence());
+        }
+        if (!pending.isEmpty()) {
+            applyToDatabase(pending, Map.of(shard, lastSequence));
+        }
+        journal.truncate();
+        return lastSequence;
+    }
+
+    private LedgerJournal openJournal(int shard) {
+        Path file = journalDirectory.resolve(JOURNAL_PREFIX + shard + JOURNAL_SUFFIX);
+        try {
+            return new LedgerJournal(file, LedgerShard.MAX_BATCH);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open ledger journal " + file, e);
+        }
+    }
+
+    private static Transaction transaction(int sourceAccount, int targetAccount, long amount, LocalDate date,
+                                           TransactionType type) {
+        return Transaction.builder()
+                .amount(amount)
+                .sourceAccount(sourceAccount)
+                .targetAccount(targetAccount)
+                .date(date)
+                .type(type)
+                .build();
+    }
+
+    private static int today() {
+        return (int) LocalDate.now().toEpochDay();
+    }
+
+    /**
+     * Операции шарда, записанные в журнал одной пачкой.
+     */
+    private static final class FlushBatch {
+        private final LedgerShard shard;
+        private final List<LedgerOperation> operations;
+        private final long lastSequence;
+
+        private FlushBatch(LedgerShard shard, List<LedgerOperation> operations, long lastSequence) {
+            this.shard = shard;
+            this.operations = operations;
+            this.lastSequence = lastSequence;
+        }
+    }
+}
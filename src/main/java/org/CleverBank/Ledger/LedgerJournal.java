@@ -0,0 +1,190 @@
+package org.CleverBank.Ledger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Класс `LedgerJournal` — журнал операций одного шарда, доступный только для дозаписи.
+ * Каждая операция занимает запись фиксированного размера с контрольной суммой,
+ * поэтому оборванная при сбое запись в конце файла обнаруживается и отбрасывается при чтении.
+ * Экземпляр не потокобезопасен и используется только потоком своего шарда.
+ */
+final class LedgerJournal implements AutoCloseable {
+
+    /**
+     * Размер записи: номер (8), тип (1), счет (4), контрагент (4), сумма (8), день (4), CRC32 (4).
+     */
+    static final int RECORD_SIZE = 33;
+
+    private static final int PAYLOAD_SIZE = RECORD_SIZE - Integer.BYTES;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Конструктор класса `LedgerJournal`.
+     *
+     * @param file            Файл журнала (создается, если не существует).
+     * @param bufferedRecords Количество записей, накапливаемых в памяти до записи в файл.
+     * @throws IOException Если файл не удалось открыть.
+     */
+    LedgerJournal(Path file, int bufferedRecords) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocateDirect(RECORD_SIZE * bufferedRecords);
+    }
+
+    /**
+     * Читает все целые записи журнала и обрезает файл после последней из них.
+     * После вызова новые записи дописываются в конец журнала.
+     *
+     * @return Операции в порядке записи.
+     * @throws IOException Если файл не удалось прочитать.
+     */
+    List<LedgerOperation> readAll() throws IOException {
+        List<LedgerOperation> operations = new ArrayList<>();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        long position = 0;
+        channel.position(0);
+        while (true) {
+            record.clear();
+            while (record.hasRemaining() && channel.read(record) > 0) {
+                // дочитываем запись целиком
+            }
+            if (record.hasRemaining() || !checksumMatches(record)) {
+                break;
+            }
+            record.flip();
+            operations.add(decode(record));
+            position += RECORD_SIZE;
+        }
+        channel.truncate(position);
+        channel.position(position);
+        return operations;
+    }
+
+    /**
+     * Добавляет операцию в буфер журнала. При заполнении буфер записывается в файл.
+     *
+     * @param operation Операция с назначенным номером.
+     * @throws IOException Если буфер не удалось записать.
+     */
+    void append(LedgerOperation operation) throws IOException {
+        if (buffer.remaining() < RECORD_SIZE) {
+            writeBuffer();
+        }
+        int start = buffer.position();
+        buffer.putLong(operation.getSequence())
+                .put((byte) operation.getType().ordinal())
+                .putInt(operation.getAccountId())
+                .putInt(operation.getCounterpartyId())
+                .putLong(operation.getAmount())
+                .putInt(operation.getEpochDay());
+        crc.reset();
+        crc.update(buffer.duplicate().position(start).limit(start + PAYLOAD_SIZE));
+        buffer.putInt((int) crc.getValue());
+    }
+
+    /**
+     * Записывает накопленные записи в файл.
+     *
+     * @param sync Принудительно сбросить данные на диск.
+     * @throws IOException Если запись не удалась.
+     */
+    void flush(boolean sync) throws IOException {
+        writeBuffer();
+        if (sync) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Отбрасывает записи, добавленные после последнего {@link #flush(boolean)}.
+     * Используется, когда запись пачки завершилась ошибкой и операции пачки отменяются.
+     *
+     * @param length Длина файла до начала пачки.
+     * @throws IOException Если файл не удалось обрезать.
+     */
+    void rollback(long length) throws IOException {
+        buffer.clear();
+        channel.truncate(length);
+        channel.position(length);
+    }
+
+    /**
+     * Удаляет все записи журнала. Вызывается, когда все операции сохранены в базе данных.
+     *
+     * @throws IOException Если файл не удалось обрезать.
+     */
+    void truncate() throws IOException {
+        rollback(0);
+    }
+
+    /**
+     * Получает текущую длину журнала в файле.
+     *
+     * @return Длина в байтах.
+     * @throws IOException Если длину не удалось получить.
+     */
+    long length() throws IOException {
+        return channel.position();
+    }
+
+    /**
+     * Получает путь к файлу журнала.
+     *
+     * @return Путь к файлу.
+     */
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Записывает буфер и закрывает файл.
+     *
+     * @throws IOException Если запись или закрытие не удались.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private boolean checksumMatches(ByteBuffer record) {
+        crc.reset();
+        crc.update(record.array(), 0, PAYLOAD_SIZE);
+        return (int) crc.getValue() == record.getInt(PAYLOAD_SIZE);
+    }
+
+    private static LedgerOperation decode(ByteBuffer record) {
+        long sequence = record.getLong();
+        int type = record.get();
+        LedgerOperation.Type[] types = LedgerOperation.Type.values();
+        if (type < 0 || type >= types.length) {
+            throw new IllegalStateException("Unknown ledger operation type " + type);
+        }
+        LedgerOperation operation = new LedgerOperation(types[type], record.getInt(), record.getInt(),
+                record.getLong(), record.getInt());
+        operation.setSequence(sequence);
+        return operation;
+    }
+}
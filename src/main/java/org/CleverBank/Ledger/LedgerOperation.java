@@ -0,0 +1,251 @@
+package org.CleverBank.Ledger;
+
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Класс `LedgerOperation` описывает одну денежную операцию движка и ее результат.
+ * Операция создается вызывающим потоком, выполняется потоком шарда, владеющего счетом,
+ * и завершает {@link #getFuture()} после записи в журнал, а {@link #getPersisted()} — после
+ * сохранения в базе данных, когда известны номера ее транзакций.
+ */
+public final class LedgerOperation {
+
+    /**
+     * Тип операции.
+     */
+    public enum Type {
+        /**
+         * Зачисление на счет.
+         */
+        DEPOSIT,
+
+        /**
+         * Списание со счета.
+         */
+        WITHDRAW,
+
+        /**
+         * Перевод со счета на счет.
+         */
+        TRANSFER,
+
+        /**
+         * Запрос баланса счета. Не изменяет баланс и не записывается в журнал.
+         */
+        BALANCE
+    }
+
+    /**
+     * Этап обработки перевода между шардами.
+     */
+    enum Stage {
+        /**
+         * Операция ждет обработки шардом счета-источника.
+         */
+        DEBIT,
+
+        /**
+         * Шард счета-получателя должен загрузить счет и вернуть операцию шарду источника.
+         */
+        PRELOAD,
+
+        /**
+         * Шард счета-получателя должен зачислить сумму перевода.
+         */
+        CREDIT
+    }
+
+    private final Type type;
+    private final int accountId;
+    private final int counterpartyId;
+    private final long amount;
+    private final int epochDay;
+    private final CompletableFuture<LedgerOperation> future = new CompletableFuture<>();
+    private final CompletableFuture<LedgerOperation> persisted = new CompletableFuture<>();
+
+    private long sequence;
+    private int shard;
+    private long balance;
+    private long counterpartyBalance;
+    private int[] transactionIds = new int[0];
+    private boolean loaded;
+    private int loadedAccountId;
+    private long loadedBalance;
+    private Stage stage = Stage.DEBIT;
+
+    /**
+     * Конструктор класса `LedgerOperation`.
+     *
+     * @param type           Тип операции.
+     * @param accountId      Идентификатор счета (для перевода — счета-источника).
+     * @param counterpartyId Идентификатор счета-получателя перевода или идентификатор самого счета.
+     * @param amount         Сумма операции.
+     * @param epochDay       День операции (количество дней от 1970-01-01).
+     */
+    LedgerOperation(Type type, int accountId, int counterpartyId, long amount, int epochDay) {
+        this.type = type;
+        this.accountId = accountId;
+        this.counterpartyId = counterpartyId;
+        this.amount = amount;
+        this.epochDay = epochDay;
+    }
+
+    /**
+     * Получает тип операции.
+     *
+     * @return Тип операции.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Получает идентификатор счета (для перевода — счета-источника).
+     *
+     * @return Идентификатор счета.
+     */
+    public int getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * Получает идентификатор счета-получателя перевода.
+     *
+     * @return Идентификатор счета-получателя или идентификатор самого счета для зачислений и списаний.
+     */
+    public int getCounterpartyId() {
+        return counterpartyId;
+    }
+
+    /**
+     * Получает сумму операции.
+     *
+     * @return Сумма операции.
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * Получает дату операции.
+     *
+     * @return Дата операции.
+     */
+    public LocalDate getDate() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Получает баланс счета после операции.
+     *
+     * @return Новый баланс счета (для перевода — счета-источника).
+     */
+    public long getBalance() {
+        return balance;
+    }
+
+    /**
+     * Получает баланс счета-получателя после перевода.
+     *
+     * @return Новый баланс счета-получателя.
+     */
+    public long getCounterpartyBalance() {
+        return counterpartyBalance;
+    }
+
+    /**
+     * Получает результат операции, завершаемый после ее записи в журнал.
+     *
+     * @return Будущий результат операции.
+     */
+    public CompletableFuture<LedgerOperation> getFuture() {
+        return future;
+    }
+
+    /**
+     * Получает номера транзакций операции в базе данных: для перевода — списания и зачисления.
+     * Номера известны после завершения {@link #getPersisted()}.
+     *
+     * @return Номера транзакций или пустой массив, если операция еще не сохранена.
+     */
+    public int[] getTransactionIds() {
+        return transactionIds.clone();
+    }
+
+    /**
+     * Получает результат сохранения операции в базе данных. Результат завершается в фоновом потоке
+     * сохранения; если движок остановлен до сохранения, результат не завершается, а операция
+     * сохраняется из журнала при следующем запуске.
+     *
+     * @return Будущий результат сохранения операции.
+     */
+    public CompletableFuture<LedgerOperation> getPersisted() {
+        return persisted;
+    }
+
+    int getEpochDay() {
+        return epochDay;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    int getShard() {
+        return shard;
+    }
+
+    void setShard(int shard) {
+        this.shard = shard;
+    }
+
+    void setBalance(long balance) {
+        this.balance = balance;
+    }
+
+    void setCounterpartyBalance(long counterpartyBalance) {
+        this.counterpartyBalance = counterpartyBalance;
+    }
+
+    void setTransactionIds(int... transactionIds) {
+        this.transactionIds = transactionIds;
+    }
+
+    /**
+     * Прикладывает к операции баланс счета, загруженный из базы данных для шарда, владеющего счетом.
+     */
+    void setLoadedBalance(int accountId, long balance) {
+        this.loadedAccountId = accountId;
+        this.loadedBalance = balance;
+        this.loaded = true;
+    }
+
+    boolean hasLoadedBalance() {
+        return loaded;
+    }
+
+    int getLoadedAccountId() {
+        return loadedAccountId;
+    }
+
+    long getLoadedBalance() {
+        return loadedBalance;
+    }
+
+    void clearLoaded() {
+        loaded = false;
+    }
+
+    Stage getStage() {
+        return stage;
+    }
+
+    void setStage(Stage stage) {
+        this.stage = stage;
+    }
+}
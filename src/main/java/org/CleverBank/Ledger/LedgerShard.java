@@ -0,0 +1,412 @@
+package org.CleverBank.Ledger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Класс `LedgerShard` — однопоточный цикл обработки операций над счетами одного шарда.
+ * Балансы счетов шарда изменяются только его потоком, поэтому операции выполняются без блокировок.
+ * Операции читаются пачками, применяются в памяти, записываются в журнал одной записью на диск
+ * и только после этого завершаются и передаются движку для сохранения в базе данных.
+ * <p>
+ * Счет, которого еще нет в памяти, загружается фоновым потоком движка ({@link LedgerEngine#load}),
+ * а операция возвращается шарду вместе с загруженным балансом, поэтому поток шарда не ждет базу данных.
+ */
+final class LedgerShard implements Runnable {
+
+    /**
+     * Максимальное количество операций в одной пачке.
+     */
+    static final int MAX_BATCH = 256;
+
+    /**
+     * Время ожидания новых операций при пустых очередях (в наносекундах).
+     */
+    private static final long IDLE_PARK_NANOS = 100_000;
+
+    private final int index;
+    private final LedgerEngine engine;
+    private final LedgerJournal journal;
+    private final boolean syncJournal;
+
+    /**
+     * Операции от клиентов.
+     */
+    private final MpscRingBuffer<LedgerOperation> inbox;
+
+    /**
+     * Сообщения от других шардов. Очередь не ограничена, чтобы шарды не ждали друг друга.
+     */
+    private final Queue<LedgerOperation> mailbox = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Балансы загруженных счетов. Изменяются только потоком шарда, другие шарды лишь проверяют наличие счета.
+     * Загруженный счет не выгружается до остановки движка: шард источника перевода полагается на то,
+     * что загруженный получатель останется в памяти до зачисления. Поэтому память шарда растет
+     * с количеством счетов, затронутых с момента запуска, и ограничена количеством счетов шарда
+     * (около сотни байт на счет).
+     */
+    private final Map<Integer, Balance> balances = new ConcurrentHashMap<>();
+
+    private final List<LedgerOperation> batch = new ArrayList<>(MAX_BATCH);
+    private final List<LedgerOperation> journaled = new ArrayList<>(MAX_BATCH);
+    private final AtomicBoolean parked = new AtomicBoolean();
+
+    private long lastSequence;
+    private long lastJournaledSequence;
+    private long truncatedSequence;
+    private volatile long flushedSequence;
+    private volatile boolean running = true;
+    private volatile Thread thread;
+
+    /**
+     * Конструктор класса `LedgerShard`.
+     *
+     * @param index        Номер шарда.
+     * @param engine       Движок, которому принадлежит шард.
+     * @param journal      Журнал шарда.
+     * @param syncJournal  Сбрасывать журнал на диск перед завершением операций.
+     * @param capacity     Емкость очереди операций.
+     * @param lastSequence Номер последней операции шарда, уже записанной в журнал или базу данных.
+     */
+    LedgerShard(int index, LedgerEngine engine, LedgerJournal journal, boolean syncJournal, int capacity,
+                long lastSequence) {
+        this.index = index;
+        this.engine = engine;
+        this.journal = journal;
+        this.syncJournal = syncJournal;
+        this.inbox = new MpscRingBuffer<>(capacity);
+        this.lastSequence = lastSequence;
+        this.lastJournaledSequence = lastSequence;
+        this.truncatedSequence = lastSequence;
+        this.flushedSequence = lastSequence;
+    }
+
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        while (running || !inbox.isEmpty() || !mailbox.isEmpty()) {
+            if (processMailbox() + processInbox() == 0) {
+                idle();
+            }
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close ledger journal " + journal.getFile(), e);
+        }
+    }
+
+    /**
+     * Ставит операцию клиента в очередь шарда, ожидая освобождения места при переполнении.
+     *
+     * @param operation Операция.
+     */
+    void submit(LedgerOperation operation) {
+        while (!inbox.offer(operation)) {
+            wake();
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        wake();
+    }
+
+    /**
+     * Передает операцию шарду от другого шарда. Никогда не ждет.
+     *
+     * @param operation Операция.
+     */
+    void send(LedgerOperation operation) {
+        mailbox.offer(operation);
+        wake();
+    }
+
+    /**
+     * Проверяет, загружен ли счет в память шарда. Загруженный счет остается в памяти до остановки движка.
+     *
+     * @param accountId Идентификатор счета.
+     * @return true, если счет загружен.
+     */
+    boolean isLoaded(int accountId) {
+        return balances.containsKey(accountId);
+    }
+
+    /**
+     * Отмечает, что операции шарда до указанного номера включительно сохранены в базе данных.
+     *
+     * @param sequence Номер последней сохраненной операции.
+     */
+    void markFlushed(long sequence) {
+        flushedSequence = sequence;
+    }
+
+    /**
+     * Останавливает цикл после обработки уже поставленных операций.
+     */
+    void stop() {
+        running = false;
+        wake();
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    private int processMailbox() {
+        int count = 0;
+        LedgerOperation operation;
+        while (count < MAX_BATCH && (operation = mailbox.poll()) != null) {
+            count++;
+            if (operation.hasLoadedBalance()) {
+                // Счет мог загрузиться раньше для другой операции; тогда баланс в памяти новее загруженного
+                balances.putIfAbsent(operation.getLoadedAccountId(), new Balance(operation.getLoadedBalance()));
+                operation.clearLoaded();
+            }
+            switch (operation.getStage()) {
+                case PRELOAD:
+                    preload(operation);
+                    break;
+                case CREDIT:
+                    credit(operation);
+                    break;
+                default:
+                    batch.add(operation);
+            }
+        }
+        if (!batch.isEmpty()) {
+            processBatch();
+        }
+        return count;
+    }
+
+    private int processInbox() {
+        int count = inbox.drain(batch::add, MAX_BATCH);
+        if (count > 0) {
+            processBatch();
+        }
+        return count;
+    }
+
+    /**
+     * Загружает счет-получатель перевода и возвращает операцию шарду счета-источника.
+     * Счет должен оказаться в памяти до записи перевода в журнал: иначе сохранение перевода
+     * в базе данных могло бы опередить загрузку и зачисление учлось бы дважды.
+     */
+    private void preload(LedgerOperation operation) {
+        if (balanceOrLoad(operation, operation.getCounterpartyId()) == null) {
+            return;
+        }
+        operation.setStage(LedgerOperation.Stage.DEBIT);
+        engine.shardOf(operation.getAccountId()).send(operation);
+    }
+
+    private void credit(LedgerOperation operation) {
+        Balance target = balances.get(operation.getCounterpartyId());
+        target.value += operation.getAmount();
+        operation.setCounterpartyBalance(target.value);
+        engine.complete(operation);
+    }
+
+    private void processBatch() {
+        journaled.clear();
+        long journalLength;
+        try {
+            journalLength = journal.length();
+        } catch (IOException e) {
+            batch.forEach(operation -> engine.fail(operation, new RuntimeException("Failed to write ledger journal", e)));
+            batch.clear();
+            return;
+        }
+        try {
+            for (LedgerOperation operation : batch) {
+                if (apply(operation)) {
+                    operation.setShard(index);
+                    operation.setSequence(++lastSequence);
+                    journaled.add(operation);
+                    journal.append(operation);
+                }
+            }
+            journal.flush(syncJournal);
+        } catch (IOException e) {
+            rollback(journalLength, e);
+            batch.clear();
+            return;
+        }
+        batch.clear();
+        if (journaled.isEmpty()) {
+            return;
+        }
+        lastJournaledSequence = lastSequence;
+        engine.enqueueFlush(this, new ArrayList<>(journaled), lastSequence);
+
+        for (LedgerOperation operation : journaled) {
+            if (operation.getType() == LedgerOperation.Type.TRANSFER && !ownsAccount(operation.getCounterpartyId())) {
+                operation.setStage(LedgerOperation.Stage.CREDIT);
+                engine.shardOf(operation.getCounterpartyId()).send(operation);
+            } else {
+                engine.complete(operation);
+            }
+        }
+    }
+
+    /**
+     * Применяет операцию к балансам в памяти.
+     *
+     * @return true, если операция применена и должна быть записана в журнал;
+     * false, если операция отклонена, выполнена без записи в журнал, отправлена другому шарду
+     * или ожидает загрузки счета.
+     */
+    private boolean apply(LedgerOperation operation) {
+        try {
+            Balance balance = balanceOrLoad(operation, operation.getAccountId());
+            if (balance == null) {
+                return false;
+            }
+            long amount = operation.getAmount();
+            switch (operation.getType()) {
+                case BALANCE:
+                    operation.setBalance(balance.value);
+                    engine.reply(operation);
+                    return false;
+                case DEPOSIT:
+                    balance.value = Math.addExact(balance.value, amount);
+                    break;
+                case WITHDRAW:
+                    if (balance.value < amount) {
+                        throw new IllegalArgumentException("Insufficient funds to withdraw");
+                    }
+                    balance.value -= amount;
+                    break;
+                case TRANSFER:
+                    int targetId = operation.getCounterpartyId();
+                    if (!ownsAccount(targetId) && !engine.shardOf(targetId).isLoaded(targetId)) {
+                        operation.setStage(LedgerOperation.Stage.PRELOAD);
+                        engine.shardOf(targetId).send(operation);
+                        return false;
+                    }
+                    Balance target = null;
+                    if (ownsAccount(targetId)) {
+                        target = balanceOrLoad(operation, targetId);
+                        if (target == null) {
+                            return false;
+                        }
+                    }
+                    if (balance.value < amount) {
+                        throw new IllegalArgumentException("Not enough funds");
+                    }
+                    if (target != null) {
+                        balance.value -= amount;
+                        target.value += amount;
+                        operation.setCounterpartyBalance(target.value);
+                    } else {
+                        balance.value -= amount;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown ledger operation type " + operation.getType());
+            }
+            operation.setBalance(balance.value);
+            return true;
+        } catch (RuntimeException e) {
+            engine.fail(operation, e);
+            return false;
+        }
+    }
+
+    /**
+     * Отменяет в памяти операции пачки, которую не удалось записать в журнал, и завершает их ошибкой.
+     */
+    private void rollback(long journalLength, IOException cause) {
+        for (int i = journaled.size() - 1; i >= 0; i--) {
+            LedgerOperation operation = journaled.get(i);
+            long amount = operation.getAmount();
+            Balance balance = balances.get(operation.getAccountId());
+            switch (operation.getType()) {
+                case DEPOSIT:
+                    balance.value -= amount;
+                    break;
+                case WITHDRAW:
+                    balance.value += amount;
+                    break;
+                default:
+                    balance.value += amount;
+                    if (ownsAccount(operation.getCounterpartyId())) {
+                        balances.get(operation.getCounterpartyId()).value -= amount;
+                    }
+            }
+        }
+        lastSequence = lastJournaledSequence;
+        try {
+            journal.rollback(journalLength);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+        RuntimeException failure = new RuntimeException("Failed to write ledger journal", cause);
+        for (LedgerOperation operation : batch) {
+            if (!operation.getFuture().isDone() && operation.getStage() == LedgerOperation.Stage.DEBIT) {
+                engine.fail(operation, failure);
+            }
+        }
+        journaled.clear();
+    }
+
+    /**
+     * Получает баланс загруженного счета или передает операцию движку для загрузки счета.
+     *
+     * @return Баланс или null, если операция ожидает загрузки счета и будет возвращена шарду.
+     */
+    private Balance balanceOrLoad(LedgerOperation operation, int accountId) {
+        Balance balance = balances.get(accountId);
+        if (balance == null) {
+            engine.load(operation, accountId);
+        }
+        return balance;
+    }
+
+    private boolean ownsAccount(int accountId) {
+        return engine.shardOf(accountId) == this;
+    }
+
+    /**
+     * Освобождает журнал, когда все записанные в него операции сохранены в базе данных.
+     */
+    private void idle() {
+        if (truncatedSequence < lastJournaledSequence && flushedSequence >= lastJournaledSequence) {
+            try {
+                journal.truncate();
+                truncatedSequence = lastJournaledSequence;
+            } catch (IOException e) {
+                // Журнал останется длиннее необходимого; повторная попытка при следующем простое
+            }
+        }
+        parked.set(true);
+        if (running && inbox.isEmpty() && mailbox.isEmpty()) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        parked.set(false);
+    }
+
+    private void wake() {
+        Thread target = thread;
+        if (target != null && parked.get()) {
+            LockSupport.unpark(target);
+        }
+    }
+
+    /**
+     * Изменяемый баланс счета, чтобы операции не создавали новых объектов.
+     */
+    private static final class Balance {
+        private long value;
+
+        private Balance(long value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.CleverBank.Ledger;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Класс `MpscRingBuffer` — ограниченный неблокирующий кольцевой буфер
+ * для нескольких производителей и одного потребителя.
+ * Производители захватывают ячейки через CAS на счетчике записи, потребитель читает ячейки
+ * по порядку без синхронизации с другими потребителями.
+ *
+ * @param <E> тип элементов буфера.
+ */
+public final class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+
+    /**
+     * Номер следующей ячейки для записи (изменяется производителями).
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Номер следующей ячейки для чтения (изменяется только потребителем).
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Конструктор класса `MpscRingBuffer`.
+     *
+     * @param capacity Емкость буфера (округляется вверх до степени двойки).
+     * @throws IllegalArgumentException Если емкость не положительна или слишком велика.
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Ring buffer capacity must be in (0, 2^30]");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Добавляет элемент в буфер. Может вызываться из любого потока.
+     *
+     * @param element Элемент.
+     * @return false, если буфер заполнен.
+     */
+    public boolean offer(E element) {
+        Objects.requireNonNull(element);
+        long capacity = mask + 1L;
+        while (true) {
+            long position = tail.get();
+            if (position - head.get() >= capacity) {
+                return false;
+            }
+            if (tail.compareAndSet(position, position + 1)) {
+                slots.lazySet((int) position & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Извлекает следующий элемент. Вызывается только потоком-потребителем.
+     *
+     * @return Элемент или null, если буфер пуст или следующий элемент еще не опубликован.
+     */
+    public E poll() {
+        long position = head.get();
+        int index = (int) position & mask;
+        E element = slots.get(index);
+        if (element == null) {
+            return null;
+        }
+        slots.lazySet(index, null);
+        head.lazySet(position + 1);
+        return element;
+    }
+
+    /**
+     * Извлекает до {@code limit} элементов и передает их обработчику.
+     * Вызывается только потоком-потребителем.
+     *
+     * @param consumer Обработчик элементов.
+     * @param limit    Максимальное количество элементов.
+     * @return Количество извлеченных элементов.
+     */
+    public int drain(Consumer<E> consumer, int limit) {
+        int count = 0;
+        E element;
+        while (count < limit && (element = poll()) != null) {
+            consumer.accept(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Проверяет, пуст ли буфер. Результат может устареть сразу после вызова.
+     *
+     * @return true, если в буфере нет элементов.
+     */
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * Получает емкость буфера.
+     *
+     * @return Емкость.
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
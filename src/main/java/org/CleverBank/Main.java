@@ -1,12 +1,14 @@
 package org.CleverBank;
 
+import org.CleverBank.Models.Currency;
+import org.CleverBank.Models.Money;
 import org.CleverBank.Repository.AccountRepository;
 import org.CleverBank.Service.AccountService;
 
 public class Main {
     public static void main(String[] args) {
         AccountService accountService=new AccountService(DatabaseUtil.getDataSource());
-        accountService.deposit(accountService.getAccount(3),9);
+        accountService.deposit(accountService.getAccount(3), Money.ofMajor(9, Currency.DEFAULT));
         System.out.println(accountService.getAllAccounts());
     }
 }
@@ -41,30 +41,44 @@ public class Account {
     private int bankId;
 
     /**
-     * Баланс аккаунта.
+     * Баланс аккаунта в минимальных единицах валюты (копейках).
      */
-    private double balance;
+    private long balance;
+
+    /**
+     * Валюта счета; определяет масштаб баланса и сумм операций по счету.
+     */
+    @Builder.Default
+    private Currency currency = Currency.DEFAULT;
 
     /**
      * Дата последнего начисления процентов или выплаты по аккаунту.
      */
     private LocalDate lastInterestDate ;
 
+    /**
+     * Версия записи аккаунта для оптимистичной блокировки.
+     * Увеличивается при каждом изменении строки аккаунта в базе данных.
+     */
+    private long version;
+
     /**
      * Уменьшает баланс аккаунта на указанную сумму.
      *
-     * @param amount сумма, на которую следует уменьшить баланс.
+     * @param amount сумма в копейках, на которую следует уменьшить баланс.
+     * @throws ArithmeticException если баланс выходит за пределы диапазона.
      */
-    public void decreaseBalance(double amount){
-        balance -= amount;
+    public void decreaseBalance(long amount){
+        balance = Math.subtractExact(balance, amount);
     }
 
     /**
      * Увеличивает баланс аккаунта на указанную сумму.
      *
-     * @param amount сумма, на которую следует увеличить баланс.
+     * @param amount сумма в копейках, на которую следует увеличить баланс.
+     * @throws ArithmeticException если баланс выходит за пределы диапазона.
      */
-    public void increaseBalance(double amount){
-        balance += amount;
+    public void increaseBalance(long amount){
+        balance = Math.addExact(balance, amount);
     }
 }
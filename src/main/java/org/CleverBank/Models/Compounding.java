@@ -0,0 +1,16 @@
+package org.CleverBank.Models;
+
+/**
+ * Перечисление, представляющее способы начисления процентов внутри периода.
+ */
+public enum Compounding {
+    /**
+     * Простые проценты: ставка, умноженная на долю года.
+     */
+    SIMPLE,
+
+    /**
+     * Ежедневная капитализация: проценты каждого дня начисляются на проценты предыдущих дней.
+     */
+    DAILY
+}
@@ -0,0 +1,80 @@
+package org.CleverBank.Models;
+
+/**
+ * Перечисление, представляющее валюты и количество знаков дробной части их сумм.
+ * Суммы хранятся целым числом минимальных единиц валюты (например, копеек),
+ * а масштаб определяет, сколько минимальных единиц составляет одну основную.
+ */
+public enum Currency {
+    /**
+     * Белорусский рубль.
+     */
+    BYN(2, "рублей"),
+
+    /**
+     * Российский рубль.
+     */
+    RUB(2, "рублей"),
+
+    /**
+     * Доллар США.
+     */
+    USD(2, "долларов"),
+
+    /**
+     * Евро.
+     */
+    EUR(2, "евро");
+
+    /**
+     * Валюта счетов по умолчанию.
+     */
+    public static final Currency DEFAULT = BYN;
+
+    private final int scale;
+    private final long minorUnitsPerMajor;
+    private final String description;
+
+    /**
+     * Конструктор для валюты с масштабом.
+     *
+     * @param scale       количество знаков дробной части.
+     * @param description название валюты в чеках и выписках (после суммы).
+     */
+    Currency(int scale, String description) {
+        this.scale = scale;
+        this.description = description;
+        long units = 1;
+        for (int i = 0; i < scale; i++) {
+            units *= 10;
+        }
+        this.minorUnitsPerMajor = units;
+    }
+
+    /**
+     * Получить количество знаков дробной части.
+     *
+     * @return масштаб валюты.
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * Получить количество минимальных единиц в одной основной единице валюты.
+     *
+     * @return количество минимальных единиц (например, 100 копеек в рубле).
+     */
+    public long getMinorUnitsPerMajor() {
+        return minorUnitsPerMajor;
+    }
+
+    /**
+     * Получить название валюты в чеках и выписках.
+     *
+     * @return название валюты (например, "рублей").
+     */
+    public String getDescription() {
+        return description;
+    }
+}
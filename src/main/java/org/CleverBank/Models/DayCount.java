@@ -0,0 +1,37 @@
+package org.CleverBank.Models;
+
+/**
+ * Перечисление, представляющее соглашения о подсчете дней периода начисления процентов.
+ */
+public enum DayCount {
+    /**
+     * Фактическое количество дней, год — 365 дней.
+     */
+    ACT_365(365),
+
+    /**
+     * Каждый месяц — 30 дней, год — 360 дней (правило 30/360 Bond Basis). Полный месяц равен 1/12 года
+     * независимо от количества дней в нем.
+     */
+    THIRTY_360(360);
+
+    private final int daysInYear;
+
+    /**
+     * Конструктор для соглашения с длиной года.
+     *
+     * @param daysInYear количество дней в году.
+     */
+    DayCount(int daysInYear) {
+        this.daysInYear = daysInYear;
+    }
+
+    /**
+     * Получить количество дней в году по соглашению.
+     *
+     * @return количество дней в году.
+     */
+    public int getDaysInYear() {
+        return daysInYear;
+    }
+}
@@ -0,0 +1,48 @@
+package org.CleverBank.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Модель записи идемпотентности, хранящая результат операции, выполненной с ключом идемпотентности.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class IdempotencyRecord {
+    /**
+     * Ключ идемпотентности, переданный клиентом.
+     */
+    private String key;
+
+    /**
+     * Отпечаток запроса (тип операции, счета и сумма), по которому обнаруживается
+     * повторное использование ключа для другого запроса.
+     */
+    private String fingerprint;
+
+    /**
+     * Баланс счета в копейках после операции (для перевода — счета-источника).
+     */
+    private long balance;
+
+    /**
+     * Баланс счета-получателя в копейках после перевода.
+     */
+    private long counterpartyBalance;
+
+    /**
+     * Признак завершения операции.
+     */
+    private boolean completed;
+
+    /**
+     * Дата и время выполнения операции.
+     */
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,86 @@
+package org.CleverBank.Models;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Блок счетов для начисления процентов, хранящийся параллельными массивами примитивов.
+ * Элемент с индексом i во всех массивах относится к одному счету; заполнены первые {@link #getSize()} элементов.
+ * Массивы растут по мере добавления счетов и переиспользуются после {@link #clear()}.
+ */
+@Getter
+public class InterestChunk {
+    /**
+     * Идентификаторы счетов.
+     */
+    private int[] ids;
+
+    /**
+     * Балансы счетов в минимальных единицах.
+     */
+    private long[] balances;
+
+    /**
+     * Даты последнего начисления процентов в днях от 1970-01-01.
+     */
+    private int[] lastAccrualDays;
+
+    /**
+     * Годовые ставки в виде десятичных дробей.
+     */
+    private double[] rates;
+
+    /**
+     * Начисленные проценты в минимальных единицах.
+     */
+    private long[] interest;
+
+    /**
+     * Количество счетов в блоке.
+     */
+    private int size;
+
+    /**
+     * Конструктор блока с начальной емкостью.
+     *
+     * @param capacity Начальное количество счетов, для которых выделяются массивы.
+     */
+    public InterestChunk(int capacity) {
+        int initial = Math.max(capacity, 1);
+        ids = new int[initial];
+        balances = new long[initial];
+        lastAccrualDays = new int[initial];
+        rates = new double[initial];
+        interest = new long[initial];
+    }
+
+    /**
+     * Добавляет счет в блок.
+     *
+     * @param id             Идентификатор счета.
+     * @param balance        Баланс счета в минимальных единицах.
+     * @param lastAccrualDay Дата последнего начисления в днях от 1970-01-01.
+     */
+    public void add(int id, long balance, int lastAccrualDay) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            balances = Arrays.copyOf(balances, capacity);
+            lastAccrualDays = Arrays.copyOf(lastAccrualDays, capacity);
+            rates = Arrays.copyOf(rates, capacity);
+            interest = Arrays.copyOf(interest, capacity);
+        }
+        ids[size] = id;
+        balances[size] = balance;
+        lastAccrualDays[size] = lastAccrualDay;
+        size++;
+    }
+
+    /**
+     * Очищает блок, сохраняя выделенные массивы.
+     */
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,155 @@
+package org.CleverBank.Models;
+
+/**
+ * Класс `Money` содержит операции над денежными суммами в формате с фиксированной точкой.
+ * Сумма — это {@code long} с количеством минимальных единиц валюты (например, копеек), поэтому
+ * арифметика точна, не создает объектов и не требует {@code BigDecimal}. Переполнение не замалчивается:
+ * операции выбрасывают {@link ArithmeticException}.
+ */
+public final class Money {
+
+    /**
+     * Знаменатель ставок, заданных в миллионных долях (1% = 10 000).
+     */
+    public static final long RATE_SCALE = 1_000_000;
+
+    private Money() {
+    }
+
+    /**
+     * Переводит сумму в основных единицах в минимальные единицы.
+     *
+     * @param major    Сумма в основных единицах (например, рублях).
+     * @param currency Валюта.
+     * @return Сумма в минимальных единицах.
+     * @throws ArithmeticException Если сумма не помещается в {@code long}.
+     */
+    public static long ofMajor(long major, Currency currency) {
+        return Math.multiplyExact(major, currency.getMinorUnitsPerMajor());
+    }
+
+    /**
+     * Разбирает десятичную запись суммы (например, "123.45" или "-0,5").
+     *
+     * @param amount   Десятичная запись суммы с точкой или запятой.
+     * @param currency Валюта.
+     * @return Сумма в минимальных единицах.
+     * @throws IllegalArgumentException Если запись некорректна или содержит больше знаков, чем масштаб валюты.
+     * @throws ArithmeticException      Если сумма не помещается в {@code long}.
+     */
+    public static long parse(String amount, Currency currency) {
+        String text = amount.trim();
+        int start = 0;
+        boolean negative = false;
+        if (!text.isEmpty() && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            start = 1;
+        }
+        long result = 0;
+        int fractionDigits = -1;
+        boolean hasDigits = false;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '.' || c == ',') {
+                if (fractionDigits >= 0) {
+                    throw new IllegalArgumentException("Invalid amount: " + amount);
+                }
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (fractionDigits >= 0 && ++fractionDigits > currency.getScale()) {
+                    throw new IllegalArgumentException("Too many fraction digits for " + currency + ": " + amount);
+                }
+                result = Math.addExact(Math.multiplyExact(result, 10), c - '0');
+                hasDigits = true;
+            } else {
+                throw new IllegalArgumentException("Invalid amount: " + amount);
+            }
+        }
+        if (!hasDigits) {
+            throw new IllegalArgumentException("Invalid amount: " + amount);
+        }
+        for (int i = Math.max(fractionDigits, 0); i < currency.getScale(); i++) {
+            result = Math.multiplyExact(result, 10);
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Форматирует сумму в десятичную запись с количеством знаков, равным масштабу валюты.
+     *
+     * @param amount   Сумма в минимальных единицах.
+     * @param currency Валюта.
+     * @return Десятичная запись суммы (например, "123.45").
+     */
+    public static String format(long amount, Currency currency) {
+        StringBuilder builder = new StringBuilder(24);
+        appendTo(builder, amount, currency);
+        return builder.toString();
+    }
+
+    /**
+     * Дописывает десятичную запись суммы в буфер без создания промежуточных строк.
+     *
+     * @param builder  Буфер.
+     * @param amount   Сумма в минимальных единицах.
+     * @param currency Валюта.
+     * @return Тот же буфер.
+     */
+    public static StringBuilder appendTo(StringBuilder builder, long amount, Currency currency) {
+        long units = currency.getMinorUnitsPerMajor();
+        long major = amount / units;
+        long minor = Math.abs(amount % units);
+        if (amount < 0 && major == 0) {
+            builder.append('-');
+        }
+        builder.append(major);
+        if (currency.getScale() > 0) {
+            builder.append('.');
+            for (long divisor = units / 10; divisor > minor && divisor > 1; divisor /= 10) {
+                builder.append('0');
+            }
+            builder.append(minor);
+        }
+        return builder;
+    }
+
+    /**
+     * Переводит ставку, заданную десятичной дробью (например, 0.01 для 1%), в миллионные доли.
+     * Используется при чтении конфигурации, а не на горячем пути.
+     *
+     * @param rate Ставка в виде десятичной дроби.
+     * @return Ставка в миллионных долях.
+     */
+    public static long rateToMicros(double rate) {
+        return Math.round(rate * RATE_SCALE);
+    }
+
+    /**
+     * Вычисляет долю суммы по ставке с банковским округлением (половина — к четному).
+     *
+     * @param amount     Сумма в минимальных единицах.
+     * @param rateMicros Ставка в миллионных долях.
+     * @return Доля суммы в минимальных единицах.
+     * @throws ArithmeticException Если промежуточное произведение не помещается в {@code long}.
+     */
+    public static long applyRate(long amount, long rateMicros) {
+        return divideHalfEven(Math.multiplyExact(amount, rateMicros), RATE_SCALE);
+    }
+
+    /**
+     * Делит с банковским округлением (половина — к четному).
+     *
+     * @param dividend Делимое.
+     * @param divisor  Положительный делитель.
+     * @return Округленное частное.
+     */
+    public static long divideHalfEven(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        long twice = Math.abs(remainder) * 2;
+        if (twice > divisor || (twice == divisor && (quotient & 1) != 0)) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+}
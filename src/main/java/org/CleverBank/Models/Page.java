@@ -0,0 +1,34 @@
+package org.CleverBank.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Модель страницы результатов, полученной постраничным (keyset) чтением.
+ *
+ * @param <T> тип элементов страницы.
+ */
+@Data
+@AllArgsConstructor
+public class Page<T> {
+    /**
+     * Элементы страницы, упорядоченные по ключу.
+     */
+    private List<T> items;
+
+    /**
+     * Токен продолжения для запроса следующей страницы или null, если страница последняя.
+     */
+    private String continuationToken;
+
+    /**
+     * Проверяет, есть ли следующая страница.
+     *
+     * @return true, если следующую страницу можно запросить по токену продолжения.
+     */
+    public boolean hasNext() {
+        return continuationToken != null;
+    }
+}
@@ -0,0 +1,53 @@
+package org.CleverBank.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Строка выписки по счету: транзакция вместе с данными счета и владельца второй стороны операции,
+ * полученными тем же запросом.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StatementRow {
+    /**
+     * Уникальный идентификатор транзакции.
+     */
+    private int transactionId;
+
+    /**
+     * Тип транзакции.
+     */
+    private TransactionType type;
+
+    /**
+     * Сумма транзакции в минимальных единицах валюты (копейках).
+     */
+    private long amount;
+
+    /**
+     * Дата выполнения транзакции.
+     */
+    private LocalDate date;
+
+    /**
+     * Идентификатор счета второй стороны операции (для пополнения и снятия — сам счет).
+     */
+    private int counterpartyAccountId;
+
+    /**
+     * Номер счета второй стороны операции или null, если счет не найден.
+     */
+    private String counterpartyAccountNumber;
+
+    /**
+     * Фамилия владельца счета второй стороны операции или null, если владелец не найден.
+     */
+    private String counterpartyLastname;
+}
@@ -35,9 +35,9 @@ public class Transaction {
     private TransactionType type;
 
     /**
-     * Сумма транзакции.
+     * Сумма транзакции в минимальных единицах валюты (копейках).
      */
-    private double amount;
+    private long amount;
 
     /**
      * Дата и время выполнения транзакции.
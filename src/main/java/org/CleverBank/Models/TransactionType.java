@@ -22,7 +22,12 @@ public enum TransactionType {
     /**
      * Тип транзакции: Перевод на получателя.
      */
-    TRANSFER_IN("Перевод на получателя");
+    TRANSFER_IN("Перевод на получателя"),
+
+    /**
+     * Тип транзакции: Начисление процентов.
+     */
+    INTEREST("Начисление процентов");
 
     private final String description;
 
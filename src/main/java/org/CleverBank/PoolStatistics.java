@@ -0,0 +1,56 @@
+package org.CleverBank;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Снимок состояния пула соединений на момент запроса.
+ */
+@Data
+@AllArgsConstructor
+public class PoolStatistics {
+    /**
+     * Количество соединений, выданных клиентам.
+     */
+    private int active;
+
+    /**
+     * Количество простаивающих соединений в пуле.
+     */
+    private int idle;
+
+    /**
+     * Общее количество открытых физических соединений.
+     */
+    private int total;
+
+    /**
+     * Количество потоков, ожидающих свободное соединение.
+     */
+    private int waiters;
+
+    /**
+     * Максимальное количество одновременно выданных соединений.
+     */
+    private int maxSize;
+
+    /**
+     * Количество запросов соединения, завершившихся по таймауту.
+     */
+    private long acquireTimeouts;
+
+    /**
+     * Верхние границы корзин гистограммы времени получения соединения (в микросекундах).
+     */
+    private long[] acquireLatencyBoundsMicros;
+
+    /**
+     * Счетчики корзин гистограммы; последний элемент — значения больше последней границы.
+     */
+    private long[] acquireLatencyCounts;
+
+    /**
+     * Среднее время получения соединения (в микросекундах).
+     */
+    private double meanAcquireLatencyMicros;
+}
@@ -4,16 +4,30 @@
 package org.CleverBank.Repository;
 
 import org.CleverBank.Models.Account;
+import org.CleverBank.Models.Currency;
+import org.CleverBank.Models.InterestChunk;
+import org.CleverBank.Models.Page;
+import org.CleverBank.Models.TransactionType;
 
 import javax.sql.DataSource;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.stream.Stream;
 
 public class AccountRepository {
 
+    /**
+     * Количество строк, получаемых с сервера за один раз при потоковом чтении, по умолчанию.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
     private DataSource dataSource;
 
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
     /**
      * Конструктор класса AccountRepository.
      *
@@ -23,6 +37,19 @@ public class AccountRepository {
         this.dataSource = dataSource;
     }
 
+    /**
+     * Установить количество строк, получаемых с сервера за один раз при потоковом чтении.
+     *
+     * @param fetchSize размер выборки.
+     * @throws IllegalArgumentException если размер выборки не положителен.
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive");
+        }
+        this.fetchSize = fetchSize;
+    }
+
     /**
      * Получить аккаунт по его идентификатору.
      *
@@ -32,7 +59,7 @@ public class AccountRepository {
      */
     public Account getAccountById(int accountId) {
         String sql = "SELECT * FROM account WHERE id=?";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setInt(1, accountId);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
@@ -55,7 +82,7 @@ public class AccountRepository {
      */
     public List<Account> getAllAccounts() {
         String sql = "SELECT * FROM account";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 List<Account> accounts = new ArrayList<>();
@@ -69,6 +96,50 @@ public class AccountRepository {
         }
     }
 
+    /**
+     * Получить страницу аккаунтов, упорядоченных по идентификатору (keyset-пагинация).
+     * Следующая страница ищется по индексу первичного ключа, поэтому время запроса
+     * не зависит от глубины страницы.
+     *
+     * @param continuationToken токен продолжения предыдущей страницы или null для первой страницы.
+     * @param limit             максимальное количество аккаунтов на странице.
+     * @return страница аккаунтов с токеном продолжения.
+     * @throws IllegalArgumentException если лимит не положителен или токен поврежден.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public Page<Account> getAccountsPage(String continuationToken, int limit) {
+        KeysetToken.checkLimit(limit);
+        String sql = "SELECT * FROM account WHERE id > ? ORDER BY id LIMIT ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, KeysetToken.decodeId(continuationToken));
+            preparedStatement.setInt(2, limit + 1);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<Account> accounts = new ArrayList<>();
+                while (resultSet.next()) {
+                    accounts.add(mapAccountFromResultSet(resultSet));
+                }
+                return KeysetToken.toPage(accounts, limit, row -> String.valueOf(row.getId()));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get accounts page", e);
+        }
+    }
+
+    /**
+     * Получить все аккаунты в виде потока, читаемого через серверный курсор.
+     * В памяти одновременно находится не больше {@code fetchSize} строк.
+     * Поток удерживает соединение, поэтому его обязательно нужно закрыть.
+     *
+     * @return поток объектов аккаунтов.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public Stream<Account> streamAllAccounts() {
+        String sql = "SELECT * FROM account";
+        return ResultSetStream.open(dataSource, sql, fetchSize,
+                ResultSetStream.ParameterSetter.NONE, this::mapAccountFromResultSet);
+    }
+
     /**
      * Сохранить аккаунт в базе данных.
      *
@@ -78,16 +149,18 @@ public class AccountRepository {
      */
     public Account saveAccount(Account account) {
         String sql = "INSERT INTO account (account_number, account_date, user_id," +
-                "bank_id, balance, last_interest_date) VALUES (?,?,?,?,?,?)";
-        try (Connection connection = dataSource.getConnection();
+                "bank_id, balance, last_interest_date, currency) VALUES (?,?,?,?,?,?,?)";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
             preparedStatement.setString(1, account.getAccountNumber());
             preparedStatement.setDate(2, Date.valueOf(account.getDate()));
             preparedStatement.setInt(3, account.getUserId());
             preparedStatement.setInt(4, account.getBankId());
-            preparedStatement.setDouble(5, account.getBalance());
+            preparedStatement.setLong(5, account.getBalance());
             preparedStatement.setDate(6, Date.valueOf(account.getLastInterestDate()));
+            preparedStatement.setString(7, account.getCurrency().name());
             preparedStatement.executeUpdate();
+            account.setVersion(0);
             try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     int generatedId = generatedKeys.getInt(1);
@@ -103,30 +176,279 @@ public class AccountRepository {
     }
 
     /**
-     * Обновить аккаунт по его идентификатору.
+     * Обновить аккаунт по его идентификатору с проверкой версии.
+     * Строка обновляется, только если ее версия совпадает с версией переданного объекта;
+     * после успешного обновления версия объекта увеличивается.
      *
-     * @param account   объект аккаунта с обновленными данными.
+     * @param account   объект аккаунта с обновленными данными и версией, с которой он был прочитан.
      * @param accountId идентификатор аккаунта, который следует обновить.
+     * @throws OptimisticLockException если строка была изменена после чтения или удалена.
      * @throws RuntimeException если произошла ошибка при выполнении запроса.
      */
     public void updateAccountById(Account account, int accountId) {
         String sql = "UPDATE account SET account_number = ?, account_date=?, user_id = ?," +
-                " bank_id = ?, balance = ?, last_interest_date=? WHERE id = ?";
-        try (Connection connection = dataSource.getConnection();
+                " bank_id = ?, balance = ?, last_interest_date=?, currency = ?, version = version + 1" +
+                " WHERE id = ? AND version = ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setString(1, account.getAccountNumber());
             preparedStatement.setDate(2, Date.valueOf(account.getDate()));
             preparedStatement.setInt(3, account.getUserId());
             preparedStatement.setInt(4, account.getBankId());
-            preparedStatement.setDouble(5, account.getBalance());
+            preparedStatement.setLong(5, account.getBalance());
             preparedStatement.setDate(6, Date.valueOf(account.getLastInterestDate()));
-            preparedStatement.setInt(7, accountId);
-            preparedStatement.executeUpdate();
+            preparedStatement.setString(7, account.getCurrency().name());
+            preparedStatement.setInt(8, accountId);
+            preparedStatement.setLong(9, account.getVersion());
+            if (preparedStatement.executeUpdate() == 0) {
+                throw new OptimisticLockException("Account " + accountId + " was modified concurrently");
+            }
+            account.setVersion(account.getVersion() + 1);
         } catch (SQLException e) {
             throw new RuntimeException("Failed to update account", e);
         }
     }
 
+    /**
+     * Атомарно изменить баланс аккаунта на указанную величину одним запросом,
+     * без предварительного чтения аккаунта.
+     *
+     * @param accountId идентификатор аккаунта.
+     * @param delta     изменение баланса в копейках (положительное для зачисления, отрицательное для списания).
+     * @return новый баланс аккаунта в копейках.
+     * @throws RuntimeException если аккаунт не найден или произошла ошибка при выполнении запроса.
+     */
+    public long adjustBalance(int accountId, long delta) {
+        String sql = "UPDATE account SET balance = balance + ?, version = version + 1 WHERE id = ? RETURNING balance";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, delta);
+            preparedStatement.setInt(2, accountId);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    return resultSet.getLong(1);
+                } else {
+                    throw new RuntimeException("Account not found");
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to adjust account balance", e);
+        }
+    }
+
+    /**
+     * Атомарно списать сумму с аккаунта, если на нем достаточно средств.
+     * Проверка остатка и списание выполняются одним запросом, поэтому конкурирующие
+     * списания не могут увести баланс в минус.
+     *
+     * @param accountId идентификатор аккаунта.
+     * @param amount    сумма списания в копейках.
+     * @return новый баланс аккаунта в копейках или пустое значение, если средств недостаточно или аккаунт не найден.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public OptionalLong debitIfSufficient(int accountId, long amount) {
+        String sql = "UPDATE account SET balance = balance - ?, version = version + 1 " +
+                "WHERE id = ? AND balance >= ? RETURNING balance";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, amount);
+            preparedStatement.setInt(2, accountId);
+            preparedStatement.setLong(3, amount);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    return OptionalLong.of(resultSet.getLong(1));
+                } else {
+                    return OptionalLong.empty();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to debit account", e);
+        }
+    }
+
+    /**
+     * Заблокировать строки аккаунтов до конца транзакции в порядке возрастания идентификаторов,
+     * как это делают остальные операции с несколькими аккаунтами, чтобы они не блокировали друг друга.
+     *
+     * @param accountIds идентификаторы аккаунтов.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public void lockAccounts(int[] accountIds) {
+        String sql = "SELECT id FROM account WHERE id = ANY (?) ORDER BY id FOR UPDATE";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            Integer[] ids = new Integer[accountIds.length];
+            for (int i = 0; i < accountIds.length; i++) {
+                ids[i] = accountIds[i];
+            }
+            preparedStatement.setArray(1, connection.createArrayOf("integer", ids));
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    // Строки блокируются по мере чтения результата
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to lock accounts", e);
+        }
+    }
+
+    /**
+     * Получить аккаунты, которым пора начислять проценты, в порядке даты последнего начисления.
+     * Запрос читает индекс по {@code last_interest_date}, поэтому его стоимость зависит от числа
+     * найденных аккаунтов, а не от размера таблицы.
+     *
+     * @param asOf  дата начисления; проценты пора начислять, если с последнего начисления прошел хотя бы месяц.
+     * @param limit максимальное количество аккаунтов.
+     * @return список аккаунтов.
+     * @throws IllegalArgumentException если лимит не положителен.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public List<Account> findDueForInterest(LocalDate asOf, int limit) {
+        return findDueForInterest(asOf, null, limit);
+    }
+
+    /**
+     * Получить следующую страницу аккаунтов, которым пора начислять проценты, после указанного аккаунта
+     * по ключу (last_interest_date, id).
+     *
+     * @param asOf  дата начисления.
+     * @param after последний аккаунт предыдущей страницы или null для первой страницы.
+     * @param limit максимальное количество аккаунтов.
+     * @return список аккаунтов.
+     * @throws IllegalArgumentException если лимит не положителен.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public List<Account> findDueForInterest(LocalDate asOf, Account after, int limit) {
+        KeysetToken.checkLimit(limit);
+        String sql = "SELECT * FROM account WHERE last_interest_date <= ? " +
+                (after == null ? "" : "AND (last_interest_date > ? OR (last_interest_date = ? AND id > ?)) ") +
+                "ORDER BY last_interest_date, id LIMIT ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            int index = 1;
+            preparedStatement.setDate(index++, Date.valueOf(asOf.minusMonths(1)));
+            if (after != null) {
+                preparedStatement.setDate(index++, Date.valueOf(after.getLastInterestDate()));
+                preparedStatement.setDate(index++, Date.valueOf(after.getLastInterestDate()));
+                preparedStatement.setInt(index++, after.getId());
+            }
+            preparedStatement.setInt(index, limit);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<Account> accounts = new ArrayList<>();
+                while (resultSet.next()) {
+                    accounts.add(mapAccountFromResultSet(resultSet));
+                }
+                return accounts;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to find accounts due for interest", e);
+        }
+    }
+
+    /**
+     * Получить наибольший идентификатор аккаунта.
+     *
+     * @return наибольший идентификатор или 0, если аккаунтов нет.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public int getMaxAccountId() {
+        String sql = "SELECT COALESCE(MAX(id), 0) FROM account";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get max account ID", e);
+        }
+    }
+
+    /**
+     * Загрузить в блок аккаунты из диапазона идентификаторов, которым пора начислять проценты,
+     * и заблокировать их строки до конца транзакции. Блок предварительно очищается. Аккаунты
+     * с разделенным балансом пропускаются: их баланс хранится в частях, и проценты на них
+     * начисляются по одному.
+     *
+     * @param fromId    первый идентификатор диапазона.
+     * @param toId      последний идентификатор диапазона включительно.
+     * @param dueBefore проценты начисляются на аккаунты, последнее начисление которых было не позже этой даты.
+     * @param chunk     блок для загруженных аккаунтов.
+     * @return количество загруженных аккаунтов.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public int loadInterestChunk(int fromId, int toId, LocalDate dueBefore, InterestChunk chunk) {
+        String sql = "SELECT id, balance, last_interest_date FROM account " +
+                "WHERE id BETWEEN ? AND ? AND last_interest_date <= ? " +
+                "AND NOT EXISTS (SELECT 1 FROM account_balance_shard s WHERE s.account_id = account.id) " +
+                "ORDER BY id FOR UPDATE";
+        chunk.clear();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, fromId);
+            preparedStatement.setInt(2, toId);
+            preparedStatement.setDate(3, Date.valueOf(dueBefore));
+            preparedStatement.setFetchSize(fetchSize);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    chunk.add(resultSet.getInt(1), resultSet.getLong(2),
+                            (int) resultSet.getDate(3).toLocalDate().toEpochDay());
+                }
+            }
+            return chunk.getSize();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load accounts due for interest", e);
+        }
+    }
+
+    /**
+     * Записать проценты, начисленные на аккаунты блока: баланс каждого аккаунта увеличивается на его проценты,
+     * дата начисления обновляется, а для каждого ненулевого начисления вставляется транзакция {@code INTEREST}.
+     * Строки отправляются пакетами JDBC, поэтому запись блока стоит двух обращений к базе данных.
+     *
+     * @param chunk блок аккаунтов с вычисленными процентами.
+     * @param asOf  дата начисления.
+     * @return количество вставленных транзакций начисления процентов.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public int applyInterestChunk(InterestChunk chunk, LocalDate asOf) {
+        String updateSql = "UPDATE account SET balance = balance + ?, last_interest_date = ?, version = version + 1 " +
+                "WHERE id = ?";
+        String insertSql = "INSERT INTO transactions (source_account, target_account, amount, transaction_type, " +
+                "transaction_date) VALUES (?, ?, ?, ?, ?)";
+        int[] ids = chunk.getIds();
+        long[] interest = chunk.getInterest();
+        Date date = Date.valueOf(asOf);
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement update = connection.prepareStatement(updateSql);
+             PreparedStatement insert = connection.prepareStatement(insertSql)) {
+            int inserted = 0;
+            for (int i = 0; i < chunk.getSize(); i++) {
+                update.setLong(1, interest[i]);
+                update.setDate(2, date);
+                update.setInt(3, ids[i]);
+                update.addBatch();
+                if (interest[i] > 0) {
+                    insert.setInt(1, ids[i]);
+                    insert.setInt(2, ids[i]);
+                    insert.setLong(3, interest[i]);
+                    insert.setString(4, TransactionType.INTEREST.name());
+                    insert.setDate(5, date);
+                    insert.addBatch();
+                    inserted++;
+                }
+            }
+            if (chunk.getSize() > 0) {
+                update.executeBatch();
+            }
+            if (inserted > 0) {
+                insert.executeBatch();
+            }
+            return inserted;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to apply interest", e);
+        }
+    }
+
     /**
      * Удалить аккаунт по его идентификатору.
      *
@@ -135,7 +457,7 @@ public class AccountRepository {
      */
     public void deleteAccountById(int accountId) {
         String sql = "DELETE FROM account WHERE id=?";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setInt(1, accountId);
             preparedStatement.executeUpdate();
@@ -158,8 +480,10 @@ public class AccountRepository {
                 resultSet.getDate("account_date").toLocalDate(),
                 resultSet.getInt("user_id"),
                 resultSet.getInt("bank_id"),
-                resultSet.getDouble("balance"),
-                resultSet.getDate("last_interest_date").toLocalDate()
+                resultSet.getLong("balance"),
+                Currency.valueOf(resultSet.getString("currency")),
+                resultSet.getDate("last_interest_date").toLocalDate(),
+                resultSet.getLong("version")
         );
     }
 }
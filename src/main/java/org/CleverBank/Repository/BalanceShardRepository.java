@@ -0,0 +1,231 @@
+/**
+ * Репозиторий для работы с частями баланса горячих аккаунтов.
+ */
+package org.CleverBank.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+public class BalanceShardRepository {
+
+    private DataSource dataSource;
+
+    /**
+     * Конструктор класса BalanceShardRepository.
+     *
+     * @param dataSource источник данных для выполнения операций с базой данных.
+     */
+    public BalanceShardRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Получить количество частей баланса каждого аккаунта, баланс которого разделен.
+     *
+     * @return отображение идентификатора аккаунта в количество частей.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public Map<Integer, Integer> getShardCounts() {
+        String sql = "SELECT account_id, COUNT(*) FROM account_balance_shard GROUP BY account_id";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            Map<Integer, Integer> shardCounts = new HashMap<>();
+            while (resultSet.next()) {
+                shardCounts.put(resultSet.getInt(1), resultSet.getInt(2));
+            }
+            return shardCounts;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get balance shard counts", e);
+        }
+    }
+
+    /**
+     * Разделить баланс аккаунта на части. Весь переданный баланс помещается в нулевую часть,
+     * остальные части создаются пустыми и заполняются зачислениями и перебалансировкой.
+     *
+     * @param accountId идентификатор аккаунта.
+     * @param shards    количество частей.
+     * @param balance   баланс аккаунта в копейках, переносимый в части.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public void createShards(int accountId, int shards, long balance) {
+        String sql = "INSERT INTO account_balance_shard (account_id, shard, balance) VALUES (?, ?, ?)";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            for (int shard = 0; shard < shards; shard++) {
+                preparedStatement.setInt(1, accountId);
+                preparedStatement.setInt(2, shard);
+                preparedStatement.setLong(3, shard == 0 ? balance : 0);
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to create balance shards", e);
+        }
+    }
+
+    /**
+     * Удалить части баланса аккаунта.
+     *
+     * @param accountId идентификатор аккаунта.
+     * @return сумма балансов удаленных частей в копейках.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public long deleteShards(int accountId) {
+        long total = 0;
+        for (long balance : lockShards(accountId)) {
+            total = Math.addExact(total, balance);
+        }
+        String sql = "DELETE FROM account_balance_shard WHERE account_id = ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, accountId);
+            preparedStatement.executeUpdate();
+            return total;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to delete balance shards", e);
+        }
+    }
+
+    /**
+     * Зачислить сумму на часть баланса аккаунта. Блокируется только строка этой части.
+     *
+     * @param accountId идентификатор аккаунта.
+     * @param shard     номер части.
+     * @param amount    сумма зачисления в копейках.
+     * @throws RuntimeException если часть не найдена или произошла ошибка при выполнении запроса.
+     */
+    public void credit(int accountId, int shard, long amount) {
+        String sql = "UPDATE account_balance_shard SET balance = balance + ? WHERE account_id = ? AND shard = ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, amount);
+            preparedStatement.setInt(2, accountId);
+            preparedStatement.setInt(3, shard);
+            if (preparedStatement.executeUpdate() == 0) {
+                throw new RuntimeException("Balance shard not found");
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to credit balance shard", e);
+        }
+    }
+
+    /**
+     * Атомарно списать сумму с части баланса аккаунта, если в ней достаточно средств.
+     *
+     * @param accountId идентификатор аккаунта.
+     * @param shard     номер части.
+     * @param amount    сумма списания в копейках.
+     * @return true, если сумма списана; false, если в части недостаточно средств.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public boolean debitIfSufficient(int accountId, int shard, long amount) {
+        String sql = "UPDATE account_balance_shard SET balance = balance - ? " +
+                "WHERE account_id = ? AND shard = ? AND balance >= ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, amount);
+            preparedStatement.setInt(2, accountId);
+            preparedStatement.setInt(3, shard);
+            preparedStatement.setLong(4, amount);
+            return preparedStatement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to debit balance shard", e);
+        }
+    }
+
+    /**
+     * Списать сумму с аккаунта за счет всех его частей и поровну распределить остаток между частями.
+     * Используется, когда ни в одной отдельной части нет нужной суммы. Все части блокируются
+     * в порядке номеров до конца транзакции, поэтому вызывать метод следует внутри транзакции.
+     *
+     * @param accountId идентификатор аккаунта.
+     * @param amount    сумма списания в копейках.
+     * @return остаток на аккаунте в копейках или пустое значение, если средств недостаточно.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public OptionalLong debitAndRebalance(int accountId, long amount) {
+        List<Long> balances = lockShards(accountId);
+        long total = 0;
+        for (long balance : balances) {
+            total = Math.addExact(total, balance);
+        }
+        if (balances.isEmpty() || total < amount) {
+            return OptionalLong.empty();
+        }
+        long remaining = total - amount;
+        long share = remaining / balances.size();
+        long extra = remaining % balances.size();
+        String sql = "UPDATE account_balance_shard SET balance = ? WHERE account_id = ? AND shard = ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            for (int shard = 0; shard < balances.size(); shard++) {
+                long balance = shard < extra ? share + 1 : share;
+                if (balance != balances.get(shard)) {
+                    preparedStatement.setLong(1, balance);
+                    preparedStatement.setInt(2, accountId);
+                    preparedStatement.setInt(3, shard);
+                    preparedStatement.addBatch();
+                }
+            }
+            preparedStatement.executeBatch();
+            return OptionalLong.of(remaining);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to rebalance balance shards", e);
+        }
+    }
+
+    /**
+     * Получить суммарный баланс частей аккаунта.
+     *
+     * @param accountId идентификатор аккаунта.
+     * @return сумма балансов частей в копейках или 0, если баланс аккаунта не разделен.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public long getTotalBalance(int accountId) {
+        String sql = "SELECT COALESCE(SUM(balance), 0) FROM account_balance_shard WHERE account_id = ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, accountId);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get balance shards total", e);
+        }
+    }
+
+    /**
+     * Заблокировать части баланса аккаунта до конца транзакции и прочитать их балансы.
+     *
+     * @param accountId идентификатор аккаунта.
+     * @return балансы частей в порядке номеров.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    private List<Long> lockShards(int accountId) {
+        String sql = "SELECT balance FROM account_balance_shard WHERE account_id = ? ORDER BY shard FOR UPDATE";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, accountId);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<Long> balances = new ArrayList<>();
+                while (resultSet.next()) {
+                    balances.add(resultSet.getLong(1));
+                }
+                return balances;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to lock balance shards", e);
+        }
+    }
+}
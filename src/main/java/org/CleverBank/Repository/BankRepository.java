@@ -4,6 +4,7 @@
 package org.CleverBank.Repository;
 
 import org.CleverBank.Models.Bank;
+import org.CleverBank.Models.Page;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
@@ -35,7 +36,7 @@ public class BankRepository {
      */
     public Bank getBankById(int bankId) {
         String sql = "SELECT * FROM bank WHERE id=?";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setInt(1, bankId);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
@@ -58,7 +59,7 @@ public class BankRepository {
      */
     public List<Bank> getAllBanks() {
         String sql = "SELECT * FROM bank";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 List<Bank> banks = new ArrayList<>();
@@ -72,6 +73,36 @@ public class BankRepository {
         }
     }
 
+    /**
+     * Получить страницу банков, упорядоченных по идентификатору (keyset-пагинация).
+     * Следующая страница ищется по индексу первичного ключа, поэтому время запроса
+     * не зависит от глубины страницы.
+     *
+     * @param continuationToken токен продолжения предыдущей страницы или null для первой страницы.
+     * @param limit             максимальное количество банков на странице.
+     * @return страница банков с токеном продолжения.
+     * @throws IllegalArgumentException если лимит не положителен или токен поврежден.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public Page<Bank> getBanksPage(String continuationToken, int limit) {
+        KeysetToken.checkLimit(limit);
+        String sql = "SELECT * FROM bank WHERE id > ? ORDER BY id LIMIT ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, KeysetToken.decodeId(continuationToken));
+            preparedStatement.setInt(2, limit + 1);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<Bank> banks = new ArrayList<>();
+                while (resultSet.next()) {
+                    banks.add(mapBankFromResultSet(resultSet));
+                }
+                return KeysetToken.toPage(banks, limit, row -> String.valueOf(row.getId()));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get banks page", e);
+        }
+    }
+
     /**
      * Сохранить банк в базе данных.
      *
@@ -81,7 +112,7 @@ public class BankRepository {
      */
     public Bank saveBank(Bank bank) {
         String sql = "INSERT INTO bank (name) VALUES (?)";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
             preparedStatement.setString(1, bank.getName());
             preparedStatement.executeUpdate();
@@ -108,7 +139,7 @@ public class BankRepository {
      */
     public void updateBankById(Bank bank, int bankId) {
         String sql = "UPDATE bank SET name=? WHERE id=?";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setString(1, bank.getName());
             preparedStatement.setInt(2, bankId);
@@ -126,7 +157,7 @@ public class BankRepository {
      */
     public void deleteBankById(int bankId) {
         String sql = "DELETE FROM bank WHERE id=?";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setInt(1, bankId);
             preparedStatement.executeUpdate();
@@ -0,0 +1,130 @@
+/**
+ * Репозиторий для работы с записями идемпотентности.
+ */
+package org.CleverBank.Repository;
+
+import org.CleverBank.Models.IdempotencyRecord;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+public class IdempotencyRepository {
+
+    private DataSource dataSource;
+
+    /**
+     * Конструктор класса IdempotencyRepository.
+     *
+     * @param dataSource источник данных для выполнения операций с базой данных.
+     */
+    public IdempotencyRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Занять ключ идемпотентности для новой операции. Ключ с истекшим сроком хранения занимается заново.
+     * Если ключ занят незафиксированной транзакцией, запрос ждет ее завершения.
+     *
+     * @param key           ключ идемпотентности.
+     * @param fingerprint   отпечаток запроса.
+     * @param now           дата и время операции.
+     * @param expiredBefore записи, созданные раньше этого момента, считаются истекшими.
+     * @return true, если ключ занят этим вызовом; false, если ключ уже использован.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public boolean claim(String key, String fingerprint, LocalDateTime now, LocalDateTime expiredBefore) {
+        String sql = "INSERT INTO idempotency (key, fingerprint, created_at) VALUES (?, ?, ?) " +
+                "ON CONFLICT (key) DO UPDATE SET fingerprint = EXCLUDED.fingerprint, balance = 0, " +
+                "counterparty_balance = 0, completed = FALSE, created_at = EXCLUDED.created_at " +
+                "WHERE idempotency.created_at < ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, key);
+            preparedStatement.setString(2, fingerprint);
+            preparedStatement.setTimestamp(3, Timestamp.valueOf(now));
+            preparedStatement.setTimestamp(4, Timestamp.valueOf(expiredBefore));
+            return preparedStatement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to claim idempotency key", e);
+        }
+    }
+
+    /**
+     * Сохранить результат операции, выполненной с ключом идемпотентности.
+     *
+     * @param key                 ключ идемпотентности.
+     * @param balance             баланс счета после операции.
+     * @param counterpartyBalance баланс счета-получателя после перевода.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public void complete(String key, long balance, long counterpartyBalance) {
+        String sql = "UPDATE idempotency SET balance = ?, counterparty_balance = ?, completed = TRUE WHERE key = ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, balance);
+            preparedStatement.setLong(2, counterpartyBalance);
+            preparedStatement.setString(3, key);
+            preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to complete idempotency key", e);
+        }
+    }
+
+    /**
+     * Получить запись идемпотентности по ключу.
+     *
+     * @param key ключ идемпотентности.
+     * @return запись, если найдена, в противном случае null.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public IdempotencyRecord getByKey(String key) {
+        String sql = "SELECT * FROM idempotency WHERE key = ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, key);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    return mapRecordFromResultSet(resultSet);
+                } else {
+                    return null;
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get idempotency record", e);
+        }
+    }
+
+    /**
+     * Удалить записи с истекшим сроком хранения.
+     *
+     * @param expiredBefore записи, созданные раньше этого момента, удаляются.
+     * @return количество удаленных записей.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public int deleteExpired(LocalDateTime expiredBefore) {
+        String sql = "DELETE FROM idempotency WHERE created_at < ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setTimestamp(1, Timestamp.valueOf(expiredBefore));
+            return preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to delete expired idempotency records", e);
+        }
+    }
+
+    private IdempotencyRecord mapRecordFromResultSet(ResultSet resultSet) throws SQLException {
+        return IdempotencyRecord.builder()
+                .key(resultSet.getString("key"))
+                .fingerprint(resultSet.getString("fingerprint"))
+                .balance(resultSet.getLong("balance"))
+                .counterpartyBalance(resultSet.getLong("counterparty_balance"))
+                .completed(resultSet.getBoolean("completed"))
+                .createdAt(resultSet.getTimestamp("created_at").toLocalDateTime())
+                .build();
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Репозиторий контрольных точек запусков начисления процентов.
+ */
+package org.CleverBank.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class InterestCheckpointRepository {
+
+    private DataSource dataSource;
+
+    /**
+     * Конструктор класса InterestCheckpointRepository.
+     *
+     * @param dataSource источник данных для выполнения операций с базой данных.
+     */
+    public InterestCheckpointRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Получить диапазоны идентификаторов счетов, обработанные в запуске за указанную дату.
+     *
+     * @param runDate дата запуска.
+     * @return пары {начало, конец} диапазонов включительно, упорядоченные по началу.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public List<int[]> getCompletedRanges(LocalDate runDate) {
+        String sql = "SELECT range_start, range_end FROM interest_checkpoint WHERE run_date = ? ORDER BY range_start";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setDate(1, Date.valueOf(runDate));
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<int[]> ranges = new ArrayList<>();
+                while (resultSet.next()) {
+                    ranges.add(new int[]{resultSet.getInt("range_start"), resultSet.getInt("range_end")});
+                }
+                return ranges;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get interest checkpoints", e);
+        }
+    }
+
+    /**
+     * Отметить диапазон идентификаторов счетов обработанным. Вызывается в той же транзакции,
+     * что и начисление процентов по диапазону, поэтому контрольная точка фиксируется вместе с начислением.
+     *
+     * @param runDate    дата запуска.
+     * @param rangeStart начало диапазона.
+     * @param rangeEnd   конец диапазона включительно.
+     * @param accrued    количество начислений в диапазоне.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public void markCompleted(LocalDate runDate, int rangeStart, int rangeEnd, int accrued) {
+        String sql = "INSERT INTO interest_checkpoint (run_date, range_start, range_end, accrued, completed_at) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setDate(1, Date.valueOf(runDate));
+            preparedStatement.setInt(2, rangeStart);
+            preparedStatement.setInt(3, rangeEnd);
+            preparedStatement.setInt(4, accrued);
+            preparedStatement.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+            preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save interest checkpoint", e);
+        }
+    }
+
+    /**
+     * Удалить контрольные точки запусков, выполненных раньше указанной даты.
+     *
+     * @param runDate дата, контрольные точки до которой удаляются.
+     * @return количество удаленных контрольных точек.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public int deleteBefore(LocalDate runDate) {
+        String sql = "DELETE FROM interest_checkpoint WHERE run_date < ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setDate(1, Date.valueOf(runDate));
+            return preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to delete interest checkpoints", e);
+        }
+    }
+}
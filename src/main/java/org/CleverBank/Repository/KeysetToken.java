@@ -0,0 +1,123 @@
+/**
+ * Токены продолжения для постраничного (keyset) чтения.
+ */
+package org.CleverBank.Repository;
+
+import org.CleverBank.Models.Page;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Класс `KeysetToken` кодирует ключ последней строки страницы в токен продолжения и обратно.
+ * Запросы страниц читают на одну строку больше лимита, чтобы узнать, есть ли следующая страница,
+ * не выполняя отдельный подсчет.
+ */
+final class KeysetToken {
+
+    private static final char SEPARATOR = '_';
+
+    private KeysetToken() {
+    }
+
+    /**
+     * Проверить лимит страницы.
+     *
+     * @param limit максимальное количество строк на странице.
+     * @throws IllegalArgumentException если лимит не положителен.
+     */
+    static void checkLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+    }
+
+    /**
+     * Получить идентификатор, после которого начинается страница.
+     *
+     * @param token токен продолжения или null для первой страницы.
+     * @return идентификатор последней строки предыдущей страницы или 0 для первой страницы.
+     * @throws IllegalArgumentException если токен поврежден.
+     */
+    static int decodeId(String token) {
+        if (token == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token, e);
+        }
+    }
+
+    /**
+     * Получить дату ключа (дата, идентификатор), после которого начинается страница.
+     *
+     * @param token     токен продолжения или null для первой страницы.
+     * @param startDate начальная дата диапазона, используемая для первой страницы.
+     * @return дата последней строки предыдущей страницы.
+     * @throws IllegalArgumentException если токен поврежден.
+     */
+    static LocalDate decodeDate(String token, LocalDate startDate) {
+        if (token == null) {
+            return startDate;
+        }
+        try {
+            return LocalDate.parse(token.substring(0, separatorIndex(token)));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token, e);
+        }
+    }
+
+    /**
+     * Получить идентификатор ключа (дата, идентификатор), после которого начинается страница.
+     *
+     * @param token токен продолжения или null для первой страницы.
+     * @return идентификатор последней строки предыдущей страницы или 0 для первой страницы.
+     * @throws IllegalArgumentException если токен поврежден.
+     */
+    static int decodeDateId(String token) {
+        if (token == null) {
+            return 0;
+        }
+        return decodeId(token.substring(separatorIndex(token) + 1));
+    }
+
+    /**
+     * Сформировать страницу из строк, прочитанных с лимитом на единицу больше запрошенного.
+     *
+     * @param rows  прочитанные строки, упорядоченные по ключу; лишняя строка удаляется из списка.
+     * @param limit запрошенный лимит страницы.
+     * @param key   функция получения токена по строке.
+     * @param <T>   тип строк.
+     * @return страница с токеном продолжения, если прочитана лишняя строка.
+     */
+    static <T> Page<T> toPage(List<T> rows, int limit, Function<T, String> key) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        rows.subList(limit, rows.size()).clear();
+        return new Page<>(rows, key.apply(rows.get(limit - 1)));
+    }
+
+    /**
+     * Закодировать ключ (дата, идентификатор).
+     *
+     * @param date дата строки.
+     * @param id   идентификатор строки.
+     * @return токен продолжения.
+     */
+    static String encode(LocalDate date, int id) {
+        return date.toString() + SEPARATOR + id;
+    }
+
+    private static int separatorIndex(String token) {
+        int index = token.indexOf(SEPARATOR);
+        if (index < 0) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Репозиторий контрольных точек журналов движка проводок.
+ */
+package org.CleverBank.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class LedgerCheckpointRepository {
+
+    private DataSource dataSource;
+
+    /**
+     * Конструктор класса LedgerCheckpointRepository.
+     *
+     * @param dataSource источник данных для выполнения операций с базой данных.
+     */
+    public LedgerCheckpointRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Получить номер последней операции шарда, сохраненной в базе данных.
+     *
+     * @param shard номер шарда.
+     * @return номер операции или 0, если операции шарда еще не сохранялись.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public long getLastSequence(int shard) {
+        String sql = "SELECT last_sequence FROM ledger_checkpoint WHERE shard = ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, shard);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong("last_sequence") : 0;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get ledger checkpoint", e);
+        }
+    }
+
+    /**
+     * Сохранить номер последней операции шарда, сохраненной в базе данных.
+     * Вызывается в той же транзакции, что и применение операций, поэтому контрольная точка
+     * никогда не опережает и не отстает от данных.
+     *
+     * @param shard    номер шарда.
+     * @param sequence номер операции.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public void saveLastSequence(int shard, long sequence) {
+        String sql = "INSERT INTO ledger_checkpoint (shard, last_sequence) VALUES (?, ?) " +
+                "ON CONFLICT (shard) DO UPDATE SET last_sequence = EXCLUDED.last_sequence";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, shard);
+            preparedStatement.setLong(2, sequence);
+            preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save ledger checkpoint", e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * Исключение конфликта оптимистичной блокировки.
+ */
+package org.CleverBank.Repository;
+
+/**
+ * Исключение `OptimisticLockException` выбрасывается, когда строка была изменена другим
+ * потоком или узлом приложения после того, как ее прочитал вызывающий, и обновление не выполнено.
+ */
+public class OptimisticLockException extends RuntimeException {
+
+    /**
+     * Конструктор исключения с описанием конфликта.
+     *
+     * @param message описание конфликта.
+     */
+    public OptimisticLockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Потоковое чтение результатов запроса через серверный курсор.
+ */
+package org.CleverBank.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Класс `ResultSetStream` открывает запрос с ограниченным размером выборки и отдает строки
+ * в виде {@link Stream}. Драйвер PostgreSQL использует серверный курсор только при выключенном
+ * автокоммите, поэтому на время чтения автокоммит выключается. Закрытие потока закрывает курсор
+ * и возвращает соединение.
+ */
+final class ResultSetStream {
+
+    private ResultSetStream() {
+    }
+
+    /**
+     * Преобразование текущей строки результата в объект.
+     *
+     * @param <T> тип объекта.
+     */
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * Установка параметров подготовленного запроса.
+     */
+    @FunctionalInterface
+    interface ParameterSetter {
+        void setParameters(PreparedStatement preparedStatement) throws SQLException;
+
+        ParameterSetter NONE = preparedStatement -> {
+        };
+    }
+
+    /**
+     * Открыть запрос и получить его строки в виде потока.
+     * Поток обязательно нужно закрыть, например с помощью try-with-resources.
+     *
+     * @param dataSource источник данных.
+     * @param sql        SQL-запрос.
+     * @param fetchSize  количество строк, получаемых с сервера за один раз.
+     * @param parameters установка параметров запроса.
+     * @param mapper     преобразование строки в объект.
+     * @param <T>        тип элементов потока.
+     * @return поток объектов, привязанный к открытому курсору.
+     * @throws RuntimeException если не удалось выполнить запрос.
+     */
+    static <T> Stream<T> open(DataSource dataSource, String sql, int fetchSize,
+                              ParameterSetter parameters, RowMapper<T> mapper) {
+        Cursor<T> cursor = new Cursor<>(mapper);
+        try {
+            cursor.connection = TransactionContext.getConnection(dataSource);
+            if (cursor.connection.getAutoCommit()) {
+                cursor.connection.setAutoCommit(false);
+                cursor.ownsTransaction = true;
+            }
+            cursor.preparedStatement = cursor.connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            cursor.preparedStatement.setFetchSize(fetchSize);
+            parameters.setParameters(cursor.preparedStatement);
+            cursor.resultSet = cursor.preparedStatement.executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            try {
+                cursor.close();
+            } catch (RuntimeException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw new RuntimeException("Failed to open cursor", e);
+        }
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    }
+
+    /**
+     * Итератор по строкам открытого курсора.
+     */
+    private static final class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+        private final RowMapper<T> mapper;
+        private Connection connection;
+        private PreparedStatement preparedStatement;
+        private ResultSet resultSet;
+        private boolean ownsTransaction;
+        private boolean closed;
+
+        private Cursor(RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                if (closed || !resultSet.next()) {
+                    return false;
+                }
+                action.accept(mapper.map(resultSet));
+                return true;
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to read from cursor", e);
+            }
+        }
+
+        /**
+         * Закрыть курсор и вернуть соединение. Если автокоммит выключался для чтения,
+         * читающая транзакция завершается и автокоммит восстанавливается.
+         */
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            SQLException failure = null;
+            try {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                if (preparedStatement != null) {
+                    preparedStatement.close();
+                }
+                if (ownsTransaction) {
+                    connection.commit();
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                failure = e;
+            } finally {
+                if (connection != null) {
+                    try {
+                        connection.close();
+                    } catch (SQLException e) {
+                        if (failure == null) {
+                            failure = e;
+                        } else {
+                            failure.addSuppressed(e);
+                        }
+                    }
+                }
+            }
+            if (failure != null) {
+                throw new RuntimeException("Failed to close cursor", failure);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Контекст транзакции, связывающий одно соединение с текущим потоком.
+ */
+package org.CleverBank.Repository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * Класс `TransactionContext` позволяет выполнить несколько операций репозиториев в одной транзакции.
+ * Пока внутри {@link #inTransaction(DataSource, Supplier)} выполняется работа, все репозитории,
+ * получающие соединение через {@link #getConnection(DataSource)}, используют одно и то же соединение,
+ * а фиксация выполняется один раз по завершении работы.
+ */
+public final class TransactionContext {
+
+    private static final ThreadLocal<Binding> CURRENT = new ThreadLocal<>();
+
+    private TransactionContext() {
+    }
+
+    /**
+     * Получить соединение для выполнения запроса репозитория.
+     * Если в текущем потоке открыта транзакция для этого источника данных, возвращается ее соединение,
+     * закрытие которого не завершает транзакцию. Иначе возвращается новое соединение из источника данных.
+     *
+     * @param dataSource источник данных репозитория.
+     * @return соединение, которое вызывающий обязан закрыть.
+     * @throws SQLException если не удалось получить соединение.
+     */
+    public static Connection getConnection(DataSource dataSource) throws SQLException {
+        Binding binding = CURRENT.get();
+        if (binding != null && binding.dataSource == dataSource) {
+            return binding.participant;
+        }
+        return dataSource.getConnection();
+    }
+
+    /**
+     * Проверить, открыта ли в текущем потоке транзакция для указанного источника данных.
+     *
+     * @param dataSource источник данных.
+     * @return true, если транзакция открыта.
+     */
+    public static boolean isActive(DataSource dataSource) {
+        Binding binding = CURRENT.get();
+        return binding != null && binding.dataSource == dataSource;
+    }
+
+    /**
+     * Выполнить работу в одной транзакции. Если транзакция для этого источника данных уже открыта
+     * в текущем потоке, работа присоединяется к ней; иначе открывается новая транзакция,
+     * которая фиксируется при успешном завершении и откатывается при исключении.
+     *
+     * @param dataSource источник данных.
+     * @param work       работа, выполняемая в транзакции.
+     * @param <T>        тип результата работы.
+     * @return результат работы.
+     * @throws RuntimeException если не удалось начать, зафиксировать или откатить транзакцию.
+     */
+    public static <T> T inTransaction(DataSource dataSource, Supplier<T> work) {
+        Binding current = CURRENT.get();
+        if (current != null) {
+            if (current.dataSource != dataSource) {
+                throw new IllegalStateException("Another data source is already bound to the current thread");
+            }
+            return work.get();
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            CURRENT.set(new Binding(dataSource, connection));
+            Throwable failure = null;
+            try {
+                T result = work.get();
+                connection.commit();
+                return result;
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                rollbackQuietly(connection, e);
+                throw e;
+            } catch (SQLException e) {
+                failure = e;
+                throw e;
+            } finally {
+                CURRENT.remove();
+                restoreAutoCommit(connection, failure);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to complete transaction", e);
+        }
+    }
+
+    /**
+     * Выполнить работу без результата в одной транзакции.
+     *
+     * @param dataSource источник данных.
+     * @param work       работа, выполняемая в транзакции.
+     * @see #inTransaction(DataSource, Supplier)
+     */
+    public static void runInTransaction(DataSource dataSource, Runnable work) {
+        inTransaction(dataSource, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Возвращает соединению режим автофиксации. Ошибка не заменяет исключение работы, а прикрепляется к нему,
+     * чтобы вызывающий получил исходный тип (например, {@link OptimisticLockException}); после успешной
+     * фиксации она игнорируется — пул сбрасывает режим при возврате соединения.
+     */
+    private static void restoreAutoCommit(Connection connection, Throwable failure) {
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            if (failure != null) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    private static void rollbackQuietly(Connection connection, Throwable cause) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Соединение, связанное с потоком, и его обертка для репозиториев.
+     */
+    private static final class Binding {
+        private final DataSource dataSource;
+        private final Connection participant;
+
+        private Binding(DataSource dataSource, Connection connection) {
+            this.dataSource = dataSource;
+            this.participant = nonClosing(connection);
+        }
+    }
+
+    /**
+     * Создает обертку соединения, игнорирующую close(): соединение закрывает владелец транзакции.
+     */
+    private static Connection nonClosing(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            return null;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+}
@@ -3,6 +3,8 @@
  */
 package org.CleverBank.Repository;
 
+import org.CleverBank.Models.Page;
+import org.CleverBank.Models.StatementRow;
 import org.CleverBank.Models.Transaction;
 import org.CleverBank.Models.TransactionType;
 
@@ -11,11 +13,29 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class TransactionRepository {
 
+    /**
+     * Количество строк, отправляемых в базу данных одним пакетом по умолчанию.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    /**
+     * Количество строк, получаемых с сервера за один раз при потоковом чтении, по умолчанию.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    private static final String INSERT_SQL = "INSERT INTO transactions (source_account, target_account, amount, " +
+            "transaction_type, transaction_date) VALUES (?,?,?,?,?)";
+
     private DataSource dataSource;
 
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
     /**
      * Конструктор класса TransactionRepository.
      *
@@ -25,6 +45,32 @@ public class TransactionRepository {
         this.dataSource = dataSource;
     }
 
+    /**
+     * Установить размер пакета для пакетной вставки транзакций.
+     *
+     * @param batchSize количество строк в одном пакете.
+     * @throws IllegalArgumentException если размер пакета не положителен.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Установить количество строк, получаемых с сервера за один раз при потоковом чтении.
+     *
+     * @param fetchSize размер выборки.
+     * @throws IllegalArgumentException если размер выборки не положителен.
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive");
+        }
+        this.fetchSize = fetchSize;
+    }
+
     /**
      * Получить транзакцию по ее идентификатору.
      *
@@ -34,7 +80,7 @@ public class TransactionRepository {
      */
     public Transaction getTransactionById(int transactionId) {
         String sql = "SELECT * FROM transactions WHERE id=?";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setInt(1, transactionId);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
@@ -57,7 +103,7 @@ public class TransactionRepository {
      */
     public List<Transaction> getAllTransactions() {
         String sql = "SELECT * FROM transactions";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 List<Transaction> transactions = new ArrayList<>();
@@ -71,6 +117,50 @@ public class TransactionRepository {
         }
     }
 
+    /**
+     * Получить страницу транзакций, упорядоченных по идентификатору (keyset-пагинация).
+     * Следующая страница ищется по индексу первичного ключа, поэтому время запроса
+     * не зависит от глубины страницы.
+     *
+     * @param continuationToken токен продолжения предыдущей страницы или null для первой страницы.
+     * @param limit             максимальное количество транзакций на странице.
+     * @return страница транзакций с токеном продолжения.
+     * @throws IllegalArgumentException если лимит не положителен или токен поврежден.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public Page<Transaction> getTransactionsPage(String continuationToken, int limit) {
+        KeysetToken.checkLimit(limit);
+        String sql = "SELECT * FROM transactions WHERE id > ? ORDER BY id LIMIT ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, KeysetToken.decodeId(continuationToken));
+            preparedStatement.setInt(2, limit + 1);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<Transaction> transactions = new ArrayList<>();
+                while (resultSet.next()) {
+                    transactions.add(mapTransactionFromResultSet(resultSet));
+                }
+                return KeysetToken.toPage(transactions, limit, row -> String.valueOf(row.getId()));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get transactions page", e);
+        }
+    }
+
+    /**
+     * Получить все транзакции в виде потока, читаемого через серверный курсор.
+     * В памяти одновременно находится не больше {@code fetchSize} строк.
+     * Поток удерживает соединение, поэтому его обязательно нужно закрыть.
+     *
+     * @return поток объектов транзакций.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public Stream<Transaction> streamAllTransactions() {
+        String sql = "SELECT * FROM transactions";
+        return ResultSetStream.open(dataSource, sql, fetchSize,
+                ResultSetStream.ParameterSetter.NONE, this::mapTransactionFromResultSet);
+    }
+
     /**
      * Получить список всех транзакций для указанного аккаунта в заданном временном диапазоне.
      *
@@ -82,7 +172,7 @@ public class TransactionRepository {
      */
     public List<Transaction> getAllTransactionsByAccountIdAndTime(int accountId, LocalDate startDate, LocalDate endDate) {
         String sql = "SELECT * FROM transactions WHERE source_account=? and transaction_date BETWEEN ? AND ? ";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setInt(1, accountId);
             preparedStatement.setDate(2, java.sql.Date.valueOf(startDate));
@@ -99,6 +189,97 @@ public class TransactionRepository {
         }
     }
 
+    /**
+     * Получить транзакции указанного аккаунта в заданном временном диапазоне в виде потока,
+     * читаемого через серверный курсор, в порядке (дата транзакции, идентификатор).
+     * В памяти одновременно находится не больше {@code fetchSize} строк, поэтому длина диапазона не ограничена.
+     * Поток удерживает соединение, поэтому его обязательно нужно закрыть.
+     *
+     * @param accountId идентификатор аккаунта.
+     * @param startDate начальная дата временного диапазона.
+     * @param endDate   конечная дата временного диапазона.
+     * @return поток объектов транзакций.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public Stream<Transaction> streamTransactionsByAccountIdAndTime(int accountId, LocalDate startDate, LocalDate endDate) {
+        String sql = "SELECT * FROM transactions WHERE source_account=? AND transaction_date BETWEEN ? AND ? " +
+                "ORDER BY transaction_date, id";
+        return ResultSetStream.open(dataSource, sql, fetchSize, preparedStatement -> {
+            preparedStatement.setInt(1, accountId);
+            preparedStatement.setDate(2, Date.valueOf(startDate));
+            preparedStatement.setDate(3, Date.valueOf(endDate));
+        }, this::mapTransactionFromResultSet);
+    }
+
+    /**
+     * Получить строки выписки указанного аккаунта в заданном временном диапазоне в виде потока,
+     * читаемого через серверный курсор, в порядке (дата транзакции, идентификатор).
+     * Номер счета второй стороны операции и фамилия его владельца получаются тем же запросом
+     * соединением по первичным ключам, поэтому выписка выполняется одним запросом независимо от количества строк.
+     * Поток удерживает соединение, поэтому его обязательно нужно закрыть.
+     *
+     * @param accountId идентификатор аккаунта.
+     * @param startDate начальная дата временного диапазона.
+     * @param endDate   конечная дата временного диапазона.
+     * @return поток строк выписки.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public Stream<StatementRow> streamStatementRows(int accountId, LocalDate startDate, LocalDate endDate) {
+        String sql = "SELECT t.id, t.transaction_type, t.amount, t.transaction_date, t.target_account, " +
+                "a.account_number, u.lastname " +
+                "FROM transactions t " +
+                "LEFT JOIN account a ON a.id = t.target_account " +
+                "LEFT JOIN users u ON u.id = a.user_id " +
+                "WHERE t.source_account=? AND t.transaction_date BETWEEN ? AND ? " +
+                "ORDER BY t.transaction_date, t.id";
+        return ResultSetStream.open(dataSource, sql, fetchSize, preparedStatement -> {
+            preparedStatement.setInt(1, accountId);
+            preparedStatement.setDate(2, Date.valueOf(startDate));
+            preparedStatement.setDate(3, Date.valueOf(endDate));
+        }, this::mapStatementRowFromResultSet);
+    }
+
+    /**
+     * Получить страницу транзакций указанного аккаунта в заданном временном диапазоне,
+     * упорядоченных по ключу (дата транзакции, идентификатор).
+     *
+     * @param accountId         идентификатор аккаунта.
+     * @param startDate         начальная дата временного диапазона.
+     * @param endDate           конечная дата временного диапазона.
+     * @param continuationToken токен продолжения предыдущей страницы или null для первой страницы.
+     * @param limit             максимальное количество транзакций на странице.
+     * @return страница транзакций с токеном продолжения.
+     * @throws IllegalArgumentException если лимит не положителен или токен поврежден.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public Page<Transaction> getTransactionsPageByAccountIdAndTime(int accountId, LocalDate startDate, LocalDate endDate,
+                                                                   String continuationToken, int limit) {
+        KeysetToken.checkLimit(limit);
+        String sql = "SELECT * FROM transactions WHERE source_account=? AND transaction_date BETWEEN ? AND ? " +
+                "AND (transaction_date > ? OR (transaction_date = ? AND id > ?)) " +
+                "ORDER BY transaction_date, id LIMIT ?";
+        Date afterDate = Date.valueOf(KeysetToken.decodeDate(continuationToken, startDate));
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, accountId);
+            preparedStatement.setDate(2, Date.valueOf(startDate));
+            preparedStatement.setDate(3, Date.valueOf(endDate));
+            preparedStatement.setDate(4, afterDate);
+            preparedStatement.setDate(5, afterDate);
+            preparedStatement.setInt(6, KeysetToken.decodeDateId(continuationToken));
+            preparedStatement.setInt(7, limit + 1);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<Transaction> transactions = new ArrayList<>();
+                while (resultSet.next()) {
+                    transactions.add(mapTransactionFromResultSet(resultSet));
+                }
+                return KeysetToken.toPage(transactions, limit, row -> KeysetToken.encode(row.getDate(), row.getId()));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get transactions page", e);
+        }
+    }
+
     /**
      * Сохранить транзакцию в базе данных.
      *
@@ -107,15 +288,9 @@ public class TransactionRepository {
      * @throws RuntimeException если произошла ошибка при выполнении запроса.
      */
     public Transaction saveTransaction(Transaction transaction) {
-        String sql = "INSERT INTO transactions (source_account, target_account, amount, transaction_type, transaction_date) VALUES (?,?,?,?,?)";
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
-            preparedStatement.setInt(1, transaction.getSourceAccount());
-            preparedStatement.setInt(2, transaction.getTargetAccount());
-            preparedStatement.setDouble(3, transaction.getAmount());
-            preparedStatement.setString(4, transaction.getType().name());
-            Date date = Date.valueOf(transaction.getDate());
-            preparedStatement.setDate(5, date);
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(INSERT_SQL, PreparedStatement.RETURN_GENERATED_KEYS)) {
+            setInsertParameters(preparedStatement, transaction);
             preparedStatement.executeUpdate();
             try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
@@ -131,6 +306,39 @@ public class TransactionRepository {
         }
     }
 
+    /**
+     * Сохранить несколько транзакций пакетными вставками.
+     * Строки отправляются пакетами по {@code batchSize} штук, каждой транзакции устанавливается
+     * сгенерированный идентификатор. Все пакеты сохраняются в одной транзакции базы данных.
+     *
+     * @param transactions список транзакций для сохранения.
+     * @return тот же список транзакций с установленными идентификаторами.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public List<Transaction> saveTransactions(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return transactions;
+        }
+        return TransactionContext.inTransaction(dataSource, () -> {
+            try (Connection connection = TransactionContext.getConnection(dataSource);
+                 PreparedStatement preparedStatement = connection.prepareStatement(INSERT_SQL, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                int batchStart = 0;
+                for (int i = 0; i < transactions.size(); i++) {
+                    setInsertParameters(preparedStatement, transactions.get(i));
+                    preparedStatement.addBatch();
+                    if (i - batchStart + 1 == batchSize || i == transactions.size() - 1) {
+                        preparedStatement.executeBatch();
+                        assignGeneratedIds(preparedStatement, transactions.subList(batchStart, i + 1));
+                        batchStart = i + 1;
+                    }
+                }
+                return transactions;
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to create transactions", e);
+            }
+        });
+    }
+
     /**
      * Обновить транзакцию по ее идентификатору.
      *
@@ -141,11 +349,11 @@ public class TransactionRepository {
     public void updateTransactionById(Transaction transaction, int transactionId) {
         String sql = "UPDATE transactions SET source_account=?, target_account=?, " +
                 "amount=?, transaction_type=?, transaction_date=? WHERE id=?";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setInt(1, transaction.getSourceAccount());
             preparedStatement.setInt(2, transaction.getTargetAccount());
-            preparedStatement.setDouble(3, transaction.getAmount());
+            preparedStatement.setLong(3, transaction.getAmount());
             preparedStatement.setString(4, transaction.getType().name());
             preparedStatement.setDate(5, Date.valueOf(transaction.getDate()));
             preparedStatement.setInt(6, transactionId);
@@ -163,7 +371,7 @@ public class TransactionRepository {
      */
     public void deleteTransactionById(int transactionId) {
         String sql = "DELETE FROM transactions WHERE id=?";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setInt(1, transactionId);
             preparedStatement.executeUpdate();
@@ -172,6 +380,58 @@ public class TransactionRepository {
         }
     }
 
+    /**
+     * Заполнить параметры запроса вставки транзакции.
+     *
+     * @param preparedStatement подготовленный запрос вставки.
+     * @param transaction       транзакция для сохранения.
+     * @throws SQLException если произошла ошибка при установке параметров.
+     */
+    private void setInsertParameters(PreparedStatement preparedStatement, Transaction transaction) throws SQLException {
+        preparedStatement.setInt(1, transaction.getSourceAccount());
+        preparedStatement.setInt(2, transaction.getTargetAccount());
+        preparedStatement.setLong(3, transaction.getAmount());
+        preparedStatement.setString(4, transaction.getType().name());
+        preparedStatement.setDate(5, Date.valueOf(transaction.getDate()));
+    }
+
+    /**
+     * Установить транзакциям пакета идентификаторы, сгенерированные базой данных.
+     *
+     * @param preparedStatement выполненный пакетный запрос вставки.
+     * @param batch             транзакции пакета в порядке добавления.
+     * @throws SQLException если произошла ошибка при чтении сгенерированных ключей.
+     */
+    private void assignGeneratedIds(PreparedStatement preparedStatement, List<Transaction> batch) throws SQLException {
+        try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+            for (Transaction transaction : batch) {
+                if (!generatedKeys.next()) {
+                    throw new RuntimeException("Failed to get generated transaction id");
+                }
+                transaction.setId(generatedKeys.getInt(1));
+            }
+        }
+    }
+
+    /**
+     * Преобразовать результат запроса выписки в строку выписки.
+     *
+     * @param resultSet результат SQL-запроса с данными транзакции и второй стороны операции.
+     * @return строка выписки.
+     * @throws SQLException если произошла ошибка при обработке результата запроса.
+     */
+    private StatementRow mapStatementRowFromResultSet(ResultSet resultSet) throws SQLException {
+        return new StatementRow(
+                resultSet.getInt("id"),
+                TransactionType.valueOf(resultSet.getString("transaction_type")),
+                resultSet.getLong("amount"),
+                resultSet.getDate("transaction_date").toLocalDate(),
+                resultSet.getInt("target_account"),
+                resultSet.getString("account_number"),
+                resultSet.getString("lastname")
+        );
+    }
+
     /**
      * Преобразовать результат SQL-запроса в объект транзакции.
      *
@@ -185,7 +445,7 @@ public class TransactionRepository {
                 resultSet.getInt("source_account"),
                 resultSet.getInt("target_account"),
                 TransactionType.valueOf(resultSet.getString("transaction_type")),
-                resultSet.getDouble("amount"),
+                resultSet.getLong("amount"),
                 resultSet.getDate("transaction_date").toLocalDate()
         );
     }
@@ -3,6 +3,7 @@
  */
 package org.CleverBank.Repository;
 
+import org.CleverBank.Models.Page;
 import org.CleverBank.Models.User;
 
 import javax.sql.DataSource;
@@ -32,7 +33,7 @@ public class UserRepository {
      */
     public User getUserById(int userId) {
         String sql = "SELECT * FROM users WHERE id=?";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setInt(1, userId);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
@@ -55,7 +56,7 @@ public class UserRepository {
      */
     public List<User> getAllUsers() {
         String sql = "SELECT * FROM users";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             ResultSet resultSet = preparedStatement.executeQuery();
             List<User> users = new ArrayList<>();
@@ -68,6 +69,36 @@ public class UserRepository {
         }
     }
 
+    /**
+     * Получить страницу пользователей, упорядоченных по идентификатору (keyset-пагинация).
+     * Следующая страница ищется по индексу первичного ключа, поэтому время запроса
+     * не зависит от глубины страницы.
+     *
+     * @param continuationToken токен продолжения предыдущей страницы или null для первой страницы.
+     * @param limit             максимальное количество пользователей на странице.
+     * @return страница пользователей с токеном продолжения.
+     * @throws IllegalArgumentException если лимит не положителен или токен поврежден.
+     * @throws RuntimeException если произошла ошибка при выполнении запроса.
+     */
+    public Page<User> getUsersPage(String continuationToken, int limit) {
+        KeysetToken.checkLimit(limit);
+        String sql = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        try (Connection connection = TransactionContext.getConnection(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, KeysetToken.decodeId(continuationToken));
+            preparedStatement.setInt(2, limit + 1);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<User> users = new ArrayList<>();
+                while (resultSet.next()) {
+                    users.add(mapUserFromResultSet(resultSet));
+                }
+                return KeysetToken.toPage(users, limit, row -> String.valueOf(row.getId()));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get users page", e);
+        }
+    }
+
     /**
      * Сохранить пользователя в базе данных.
      *
@@ -77,7 +108,7 @@ public class UserRepository {
      */
     public User saveUser(User user) {
         String sql = "INSERT INTO users (firstname, lastname) VALUES (?,?)";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
             preparedStatement.setString(1, user.getFirstname());
             preparedStatement.setString(2, user.getLastname());
@@ -106,7 +137,7 @@ public class UserRepository {
      */
     public void updateUserById(User user, int userId) {
         String sql = "UPDATE users SET firstname=?, lastname=? WHERE id=?";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setString(1, user.getFirstname());
             preparedStatement.setString(2, user.getLastname());
@@ -125,7 +156,7 @@ public class UserRepository {
      */
     public void deleteUserById(int userId) {
         String sql = "DELETE FROM users WHERE id=?";
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = TransactionContext.getConnection(dataSource);
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setInt(1, userId);
             preparedStatement.executeUpdate();
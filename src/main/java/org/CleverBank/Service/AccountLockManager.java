@@ -0,0 +1,234 @@
+package org.CleverBank.Service;
+
+import org.CleverBank.Histogram;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Класс `AccountLockManager` сериализует операции над счетами по их идентификаторам.
+ * Идентификаторы счетов распределяются по фиксированному набору полос (stripes) с отдельными
+ * блокировками, поэтому операции над разными счетами почти никогда не ждут друг друга,
+ * а операции над одним счетом выполняются строго по очереди независимо от того,
+ * какой экземпляр {@code Account} передан в сервис.
+ */
+public class AccountLockManager {
+
+    /**
+     * Количество полос блокировок по умолчанию.
+     */
+    public static final int DEFAULT_STRIPES = 1024;
+
+    /**
+     * Максимальное время ожидания блокировок по умолчанию (в миллисекундах).
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5_000;
+
+    /**
+     * Максимальное количество счетов, для которых ведется статистика конфликтов.
+     */
+    private static final int MAX_TRACKED_ACCOUNTS = 10_000;
+
+    /**
+     * Границы корзин гистограммы времени ожидания блокировок (в микросекундах).
+     */
+    private static final long[] WAIT_TIME_BOUNDS_MICROS = {10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+    private final long timeoutMillis;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contendedAcquisitions = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final Map<Integer, LongAdder> contentionByAccount = new ConcurrentHashMap<>();
+    private final Histogram contendedWaitTime = new Histogram(WAIT_TIME_BOUNDS_MICROS);
+
+    /**
+     * Конструктор класса `AccountLockManager` с параметрами по умолчанию.
+     */
+    public AccountLockManager() {
+        this(DEFAULT_STRIPES, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Конструктор класса `AccountLockManager`.
+     *
+     * @param stripes       Количество полос блокировок (округляется вверх до степени двойки).
+     * @param timeoutMillis Максимальное время ожидания всех блокировок операции (в миллисекундах).
+     * @throws IllegalArgumentException Если параметры не положительны.
+     */
+    public AccountLockManager(int stripes, long timeoutMillis) {
+        if (stripes <= 0 || timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Stripes and timeout must be positive");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Захватывает блокировки указанных счетов. Блокировки берутся в порядке возрастания номеров полос,
+     * поэтому две операции над одними и теми же счетами не могут взаимно заблокироваться.
+     *
+     * @param accountIds Идентификаторы счетов.
+     * @return Захваченные блокировки, которые необходимо освободить вызовом {@link Locks#close()}.
+     * @throws RuntimeException Если блокировки не удалось захватить за отведенное время.
+     */
+    public Locks lock(int... accountIds) {
+        // Номер полосы в старших битах, идентификатор счета в младших: сортировка задает порядок захвата
+        long[] keys = new long[accountIds.length];
+        for (int i = 0; i < accountIds.length; i++) {
+            keys[i] = ((long) stripeOf(accountIds[i]) << 32) | (accountIds[i] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(keys);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        ReentrantLock[] acquired = new ReentrantLock[keys.length];
+        int count = 0;
+        int previousStripe = -1;
+        try {
+            for (long key : keys) {
+                int stripe = (int) (key >>> 32);
+                if (stripe == previousStripe) {
+                    continue;
+                }
+                previousStripe = stripe;
+                ReentrantLock lock = locks[stripe];
+                if (!lock.tryLock()) {
+                    acquireContended(lock, (int) key, deadline);
+                }
+                acquired[count++] = lock;
+            }
+        } catch (RuntimeException e) {
+            release(acquired, count);
+            throw e;
+        }
+        acquisitions.increment();
+        return new Locks(acquired, count);
+    }
+
+    /**
+     * Получает количество успешных захватов блокировок.
+     *
+     * @return Количество захватов.
+     */
+    public long getAcquisitionCount() {
+        return acquisitions.sum();
+    }
+
+    /**
+     * Получает количество захватов, которым пришлось ждать освобождения блокировки.
+     *
+     * @return Количество захватов с ожиданием.
+     */
+    public long getContendedCount() {
+        return contendedAcquisitions.sum();
+    }
+
+    /**
+     * Получает количество захватов, завершившихся по таймауту.
+     *
+     * @return Количество таймаутов.
+     */
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Получает гистограмму времени ожидания занятых блокировок (в микросекундах).
+     *
+     * @return Гистограмма времени ожидания.
+     */
+    public Histogram getContendedWaitTime() {
+        return contendedWaitTime;
+    }
+
+    /**
+     * Получает счета с наибольшим количеством конфликтов блокировок.
+     *
+     * @param limit Максимальное количество счетов в результате.
+     * @return Идентификаторы счетов и количество конфликтов, упорядоченные по убыванию.
+     */
+    public Map<Integer, Long> getHotAccounts(int limit) {
+        Map<Integer, Long> hotAccounts = new LinkedHashMap<>();
+        contentionByAccount.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+                .limit(limit)
+                .forEach(entry -> hotAccounts.put(entry.getKey(), entry.getValue()));
+        return hotAccounts;
+    }
+
+    private void acquireContended(ReentrantLock lock, int accountId, long deadline) {
+        contendedAcquisitions.increment();
+        recordContention(accountId);
+        long start = System.nanoTime();
+        try {
+            if (!lock.tryLock(deadline - start, TimeUnit.NANOSECONDS)) {
+                timeouts.increment();
+                throw new RuntimeException("Timed out waiting for lock on account " + accountId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for lock on account " + accountId, e);
+        }
+        contendedWaitTime.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+
+    private void recordContention(int accountId) {
+        LongAdder counter = contentionByAccount.get(accountId);
+        if (counter == null) {
+            if (contentionByAccount.size() >= MAX_TRACKED_ACCOUNTS) {
+                return;
+            }
+            counter = contentionByAccount.computeIfAbsent(accountId, id -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    private int stripeOf(int accountId) {
+        int hash = accountId * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static void release(ReentrantLock[] acquired, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            acquired[i].unlock();
+        }
+    }
+
+    /**
+     * Набор захваченных блокировок одной операции.
+     */
+    public static final class Locks implements AutoCloseable {
+        private final ReentrantLock[] acquired;
+        private final int count;
+
+        private Locks(ReentrantLock[] acquired, int count) {
+            this.acquired = acquired;
+            this.count = count;
+        }
+
+        /**
+         * Освобождает блокировки в порядке, обратном захвату.
+         * Должен вызываться в том же потоке, который захватил блокировки.
+         */
+        @Override
+        public void close() {
+            release(acquired, count);
+        }
+    }
+}
@@ -1,23 +1,34 @@
 package org.CleverBank.Service;
 
 import lombok.Setter;
+import org.CleverBank.ConnectionPool;
+import org.CleverBank.Config.AppConfig;
+import org.CleverBank.Config.ConfigService;
+import org.CleverBank.Ledger.LedgerEngine;
+import org.CleverBank.Ledger.LedgerOperation;
 import org.CleverBank.Models.Account;
+import org.CleverBank.Models.IdempotencyRecord;
+import org.CleverBank.Models.Page;
+import org.CleverBank.Models.TransactionType;
 import org.CleverBank.Repository.AccountRepository;
-import org.yaml.snakeyaml.Yaml;
-
+import org.CleverBank.Repository.TransactionContext;
 
 import javax.sql.DataSource;
-import java.io.InputStream;
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Класс `AccountService` предоставляет методы для управления банковскими счетами и выполнения операций,
@@ -25,6 +36,7 @@ import java.util.concurrent.TimeUnit;
  */
 @Setter
 public class AccountService {
+
     // Поля класса
 
     /**
@@ -42,15 +54,91 @@ public class AccountService {
      */
     private DataSource dataSource;
 
+    /**
+     * Менеджер блокировок, сериализующий операции над одним счетом.
+     */
+    private AccountLockManager lockManager = new AccountLockManager();
+
+    /**
+     * Политика повтора операций при конфликте оптимистичной блокировки.
+     */
+    private OptimisticRetry optimisticRetry = new OptimisticRetry();
+
+    /**
+     * Движок проводок для режима высокой нагрузки. Если задан и запущен, депозиты, снятия, переводы
+     * и начисление процентов выполняются через него, а база данных обновляется асинхронно.
+     */
+    private LedgerEngine ledgerEngine;
+
+    /**
+     * Групповая фиксация операций. Если задана, депозиты, снятия и переводы конкурирующих потоков
+     * объединяются в пачки, фиксируемые одной транзакцией базы данных.
+     */
+    private GroupCommitter groupCommitter;
+
+    /**
+     * Хранилище ключей идемпотентности для операций, повторяемых клиентами.
+     */
+    private IdempotencyStore idempotencyStore;
+
+    /**
+     * Разделенные балансы горячих счетов. Если заданы, операции над счетами с разделенным балансом
+     * выполняются над частями баланса без блокировки строки счета.
+     */
+    private BalanceShards balanceShards;
+
+    /**
+     * Кэш выписок по закрытым периодам. Если не задан, используется {@link StatementCache#getDefault()}.
+     */
+    private StatementCache statementCache;
+
+    /**
+     * Массовое начисление процентов. Если включено (по умолчанию), проценты начисляются возобновляемым
+     * пакетным запуском над диапазонами идентификаторов счетов, а не задачей на каждый счет.
+     */
+    private boolean bulkInterest = true;
+
+    /**
+     * Сервис конфигурации, из текущего снимка которого читаются ставка и параметры начисления процентов.
+     */
+    private ConfigService configService = ConfigService.getDefault();
+
     /**
      * Планировщик для запуска периодических задач.
      */
     private ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
 
     /**
-     * Пул потоков для вычисления процентов по счетам.
+     * Исполнитель задач начисления процентов по счетам. Количество одновременно обрабатываемых счетов
+     * равно размеру пула начисления процентов, режим выполнения задается конфигурацией.
+     */
+    private ExecutorService interestExecutor = new BlockingTaskExecutor(
+            configService.get().getExecutorMode(), configService.get().getInterestPoolSize());
+
+    /**
+     * Исполнитель асинхронных операций над счетами. Количество одновременно выполняемых операций
+     * ограничено размером пула соединений, режим выполнения задается конфигурацией.
      */
-    private ExecutorService interestExecutor = Executors.newFixedThreadPool(10);
+    private ExecutorService asyncExecutor;
+
+    /**
+     * Разрешения на постановку счетов в очередь начисления процентов: по одному на каждую
+     * одновременно обрабатываемую задачу и место в очереди. Когда очередь заполнена, планировщик
+     * ждет освобождения разрешения, а не накапливает задачи.
+     */
+    private Semaphore interestPermits = new Semaphore(
+            configService.get().getInterestPoolSize() + configService.get().getInterestQueueCapacity());
+
+    /**
+     * Идентификаторы счетов, поставленных в очередь начисления процентов и еще не обработанных.
+     * Счет, начисление по которому еще не записано, не ставится в очередь повторно.
+     */
+    private final Set<Integer> interestInFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Пакетный запуск массового начисления процентов с контрольными точками.
+     */
+    private InterestBatchRunner interestBatchRunner;
 
     // Конструктор
 
@@ -62,42 +150,166 @@ public class AccountService {
     public AccountService(DataSource dataSource) {
         accountRepository = new AccountRepository(dataSource);
         transactionService = new TransactionService(dataSource);
+        idempotencyStore = new IdempotencyStore(dataSource, configService);
+        interestBatchRunner = new InterestBatchRunner(dataSource, configService);
+        asyncExecutor = new BlockingTaskExecutor(configService.get().getExecutorMode(), maxConnections(dataSource));
         this.dataSource = dataSource;
     }
 
+    /**
+     * Приватный метод для определения количества соединений, доступных операциям над счетами.
+     *
+     * @param dataSource Источник данных.
+     * @return Размер пула соединений или размер пула начисления процентов, если источник данных не является пулом.
+     */
+    private int maxConnections(DataSource dataSource) {
+        if (dataSource instanceof ConnectionPool) {
+            return ((ConnectionPool) dataSource).getStatistics().getMaxSize();
+        }
+        return configService.get().getInterestPoolSize();
+    }
+
     // Методы для операций счетов
 
     /**
      * Метод для внесения средств на счет.
      *
      * @param account Счет, на который вносятся средства.
-     * @param amount  Сумма для внесения на счет.
+     * @param amount  Сумма для внесения на счет в копейках.
      * @throws IllegalArgumentException Если сумма отрицательная.
      */
 
-    public void deposit(Account account, double amount) {
+    public void deposit(Account account, long amount) {
         if (amount < 0) {
             throw new IllegalArgumentException("Refill amount must be positive");
         }
-        account.increaseBalance(amount);
-        accountRepository.updateAccountById(account, account.getId());
-        transactionService.saveDepositTransfer(account, amount);
+        retryIfShardingChanged(() -> depositOnce(account, amount), account.getId());
+    }
+
+    /**
+     * Приватный метод для внесения средств на счет без повтора.
+     */
+    private void depositOnce(Account account, long amount) {
+        if (isSharded(account)) {
+            // Зачисление на случайную часть баланса не конкурирует с другими зачислениями на этот счет
+            TransactionContext.runInTransaction(dataSource, () -> {
+                account.setBalance(balanceShards.credit(account.getId(), amount));
+                transactionService.saveDepositTransfer(account, amount);
+            });
+            return;
+        }
+        if (isLedgerEngineEnabled()) {
+            LedgerOperation operation = await(ledgerEngine.deposit(account.getId(), amount));
+            account.setBalance(operation.getBalance());
+            createCheckWhenPersisted(operation, transactionIds -> transactionService.createCheck(
+                    TransactionType.DEPOSIT.getDescription(), account, amount, transactionIds));
+            return;
+        }
+        if (groupCommitter != null) {
+            GroupCommitter.Result result = await(groupCommitter.deposit(account.getId(), amount));
+            account.setBalance(result.getBalance());
+            transactionService.createCheck(TransactionType.DEPOSIT.getDescription(), account, amount,
+                    result.getTransactionIds());
+            return;
+        }
+        // Баланс изменяется в базе данных одним запросом и фиксируется вместе с записью транзакции
+        try (AccountLockManager.Locks ignored = lockManager.lock(account.getId())) {
+            TransactionContext.runInTransaction(dataSource, () -> {
+                account.setBalance(accountRepository.adjustBalance(account.getId(), amount));
+                transactionService.saveDepositTransfer(account, amount);
+            });
+        }
+    }
+
+    /**
+     * Метод для внесения средств на счет с ключом идемпотентности. Повторный вызов с тем же ключом
+     * не вносит средства повторно, а возвращает в счет баланс, полученный при первом вызове.
+     *
+     * @param account        Счет, на который вносятся средства.
+     * @param amount         Сумма для внесения на счет в копейках.
+     * @param idempotencyKey Ключ идемпотентности, уникальный для запроса клиента.
+     * @throws IllegalArgumentException Если сумма отрицательная или ключ использован для другого запроса.
+     * @throws IllegalStateException    Если включены движок проводок или групповая фиксация.
+     */
+    public void deposit(Account account, long amount, String idempotencyKey) {
+        requireIdempotencySupported();
+        IdempotencyRecord record = idempotencyStore.execute(idempotencyKey,
+                fingerprint(TransactionType.DEPOSIT, account.getId(), account.getId(), amount), () -> {
+                    deposit(account, amount);
+                    return idempotencyResult(account.getBalance(), account.getBalance());
+                });
+        account.setBalance(record.getBalance());
     }
 
     /**
      * Метод для снятия средств со счета.
      *
      * @param account Счет, с которого снимаются средства.
-     * @param amount  Сумма для снятия со счета.
-     * @throws IllegalArgumentException Если на счету недостаточно средств.
+     * @param amount  Сумма для снятия со счета в копейках.
+     * @throws IllegalArgumentException Если сумма отрицательная или на счету недостаточно средств.
      */
-    public void withdraw(Account account, double amount) {
-        if (account.getBalance() - amount < 0) {
-            throw new IllegalArgumentException("Insufficient funds to withdraw");
+    public void withdraw(Account account, long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Withdrawal amount must be positive");
         }
-        account.decreaseBalance(amount);
-        accountRepository.updateAccountById(account, account.getId());
-        transactionService.saveWithdrawTransfer(account, amount);
+        retryIfShardingChanged(() -> withdrawOnce(account, amount), account.getId());
+    }
+
+    /**
+     * Приватный метод для снятия средств со счета без повтора.
+     */
+    private void withdrawOnce(Account account, long amount) {
+        if (isSharded(account)) {
+            TransactionContext.runInTransaction(dataSource, () -> {
+                account.setBalance(balanceShards.debit(account.getId(), amount)
+                        .orElseThrow(() -> new IllegalArgumentException("Insufficient funds to withdraw")));
+                transactionService.saveWithdrawTransfer(account, amount);
+            });
+            return;
+        }
+        if (isLedgerEngineEnabled()) {
+            LedgerOperation operation = await(ledgerEngine.withdraw(account.getId(), amount));
+            account.setBalance(operation.getBalance());
+            createCheckWhenPersisted(operation, transactionIds -> transactionService.createCheck(
+                    TransactionType.WITHDRAWAL.getDescription(), account, amount, transactionIds));
+            return;
+        }
+        if (groupCommitter != null) {
+            GroupCommitter.Result result = await(groupCommitter.withdraw(account.getId(), amount));
+            account.setBalance(result.getBalance());
+            transactionService.createCheck(TransactionType.WITHDRAWAL.getDescription(), account, amount,
+                    result.getTransactionIds());
+            return;
+        }
+        // Проверка остатка и списание выполняются в базе данных одним запросом
+        try (AccountLockManager.Locks ignored = lockManager.lock(account.getId())) {
+            TransactionContext.runInTransaction(dataSource, () -> {
+                account.setBalance(accountRepository.debitIfSufficient(account.getId(), amount)
+                        .orElseThrow(() -> new IllegalArgumentException("Insufficient funds to withdraw")));
+                transactionService.saveWithdrawTransfer(account, amount);
+            });
+        }
+    }
+
+    /**
+     * Метод для снятия средств со счета с ключом идемпотентности. Повторный вызов с тем же ключом
+     * не снимает средства повторно, а возвращает в счет баланс, полученный при первом вызове.
+     *
+     * @param account        Счет, с которого снимаются средства.
+     * @param amount         Сумма для снятия со счета в копейках.
+     * @param idempotencyKey Ключ идемпотентности, уникальный для запроса клиента.
+     * @throws IllegalArgumentException Если сумма отрицательная, средств недостаточно
+     *                                  или ключ использован для другого запроса.
+     * @throws IllegalStateException    Если включены движок проводок или групповая фиксация.
+     */
+    public void withdraw(Account account, long amount, String idempotencyKey) {
+        requireIdempotencySupported();
+        IdempotencyRecord record = idempotencyStore.execute(idempotencyKey,
+                fingerprint(TransactionType.WITHDRAWAL, account.getId(), account.getId(), amount), () -> {
+                    withdraw(account, amount);
+                    return idempotencyResult(account.getBalance(), account.getBalance());
+                });
+        account.setBalance(record.getBalance());
     }
 
     /**
@@ -105,34 +317,296 @@ public class AccountService {
      *
      * @param sourceAccount Счет-источник средств.
      * @param targetAccount Счет-получатель средств.
-     * @param amount        Сумма для перевода.
-     * @throws IllegalArgumentException Если на счете-источнике недостаточно средств.
+     * @param amount        Сумма для перевода в минимальных единицах валюты счетов.
+     * @throws IllegalArgumentException Если сумма отрицательная, счета открыты в разных валютах
+     *                                  или на счете-источнике недостаточно средств.
+     */
+    public void transfer(Account sourceAccount, Account targetAccount, long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Transfer amount must be positive");
+        }
+        if (sourceAccount.getCurrency() != targetAccount.getCurrency()) {
+            throw new IllegalArgumentException("Transfer between accounts in different currencies is not supported");
+        }
+        retryIfShardingChanged(() -> transferOnce(sourceAccount, targetAccount, amount),
+                sourceAccount.getId(), targetAccount.getId());
+    }
+
+    /**
+     * Приватный метод для перевода средств между счетами без повтора.
      */
-    public void transfer(Account sourceAccount, Account targetAccount, double amount) {
-        if (sourceAccount.getBalance() - amount < 0) {
-            throw new IllegalArgumentException("Not enough funds");
+    private void transferOnce(Account sourceAccount, Account targetAccount, long amount) {
+        if (isSharded(sourceAccount) || isSharded(targetAccount)) {
+            transferWithShards(sourceAccount, targetAccount, amount);
+            return;
+        }
+        if (isLedgerEngineEnabled()) {
+            LedgerOperation operation = await(ledgerEngine.transfer(sourceAccount.getId(), targetAccount.getId(), amount));
+            sourceAccount.setBalance(operation.getBalance());
+            targetAccount.setBalance(operation.getCounterpartyBalance());
+            createCheckWhenPersisted(operation, transactionIds -> transactionService.createTransferCheck(
+                    sourceAccount, targetAccount, amount, transactionIds));
+            return;
+        }
+        if (groupCommitter != null) {
+            GroupCommitter.Result result = await(groupCommitter.transfer(sourceAccount.getId(), targetAccount.getId(), amount));
+            sourceAccount.setBalance(result.getBalance());
+            targetAccount.setBalance(result.getCounterpartyBalance());
+            transactionService.createTransferCheck(sourceAccount, targetAccount, amount, result.getTransactionIds());
+            return;
         }
 
-        Account firstLockedAccount = sourceAccount.getId() < targetAccount.getId() ? sourceAccount : targetAccount;
-        Account secondLockedAccount = sourceAccount.getId() < targetAccount.getId() ? targetAccount : sourceAccount;
+        // Обновления счетов и записи транзакций выполняются на одном соединении и фиксируются вместе.
+        // Строки счетов изменяются в порядке возрастания идентификаторов, чтобы встречные переводы
+        // не блокировали друг друга в базе данных.
+        try (AccountLockManager.Locks ignored = lockManager.lock(sourceAccount.getId(), targetAccount.getId())) {
+            TransactionContext.runInTransaction(dataSource, () -> {
+                if (sourceAccount.getId() < targetAccount.getId()) {
+                    sourceAccount.setBalance(debitForTransfer(sourceAccount, amount));
+                    targetAccount.setBalance(accountRepository.adjustBalance(targetAccount.getId(), amount));
+                } else {
+                    targetAccount.setBalance(accountRepository.adjustBalance(targetAccount.getId(), amount));
+                    sourceAccount.setBalance(debitForTransfer(sourceAccount, amount));
+                }
+                transactionService.createTransferTransactions(sourceAccount, targetAccount, amount);
+            });
+        }
+    }
+
+    /**
+     * Метод для выполнения перевода средств между счетами с ключом идемпотентности. Повторный вызов
+     * с тем же ключом не переводит средства повторно, а возвращает в счета балансы, полученные
+     * при первом вызове.
+     *
+     * @param sourceAccount  Счет-источник средств.
+     * @param targetAccount  Счет-получатель средств.
+     * @param amount         Сумма для перевода в копейках.
+     * @param idempotencyKey Ключ идемпотентности, уникальный для запроса клиента.
+     * @throws IllegalArgumentException Если сумма отрицательная, средств недостаточно
+     *                                  или ключ использован для другого запроса.
+     * @throws IllegalStateException    Если включены движок проводок или групповая фиксация.
+     */
+    public void transfer(Account sourceAccount, Account targetAccount, long amount, String idempotencyKey) {
+        requireIdempotencySupported();
+        IdempotencyRecord record = idempotencyStore.execute(idempotencyKey,
+                fingerprint(TransactionType.TRANSFER_OUT, sourceAccount.getId(), targetAccount.getId(), amount), () -> {
+                    transfer(sourceAccount, targetAccount, amount);
+                    return idempotencyResult(sourceAccount.getBalance(), targetAccount.getBalance());
+                });
+        sourceAccount.setBalance(record.getBalance());
+        targetAccount.setBalance(record.getCounterpartyBalance());
+    }
 
-        synchronized (firstLockedAccount) {
-            synchronized (secondLockedAccount) {
-                try (Connection connection = dataSource.getConnection()) {
-                    connection.setAutoCommit(false);
+    // Асинхронные операции счетов
 
-                    sourceAccount.decreaseBalance(amount);
-                    accountRepository.updateAccountById(sourceAccount, sourceAccount.getId());
+    /**
+     * Метод для асинхронного внесения средств на счет. Операция выполняется исполнителем асинхронных операций,
+     * поэтому вызывающий поток не блокируется на базе данных.
+     *
+     * @param account Счет, на который вносятся средства.
+     * @param amount  Сумма для внесения на счет в копейках.
+     * @return Результат операции; завершается исключением в тех же случаях, что и {@link #deposit(Account, long)}.
+     */
+    public CompletableFuture<Void> depositAsync(Account account, long amount) {
+        return CompletableFuture.runAsync(() -> deposit(account, amount), asyncExecutor);
+    }
 
-                    targetAccount.increaseBalance(amount);
-                    accountRepository.updateAccountById(targetAccount, targetAccount.getId());
+    /**
+     * Метод для асинхронного снятия средств со счета.
+     *
+     * @param account Счет, с которого снимаются средства.
+     * @param amount  Сумма для снятия со счета в копейках.
+     * @return Результат операции; завершается исключением в тех же случаях, что и {@link #withdraw(Account, long)}.
+     */
+    public CompletableFuture<Void> withdrawAsync(Account account, long amount) {
+        return CompletableFuture.runAsync(() -> withdraw(account, amount), asyncExecutor);
+    }
 
-                    transactionService.createTransferTransactions(sourceAccount, targetAccount, amount);
-                    connection.commit();
-                } catch (SQLException e) {
-                    throw new RuntimeException(e);
+    /**
+     * Метод для асинхронного перевода средств между счетами.
+     *
+     * @param sourceAccount Счет-источник средств.
+     * @param targetAccount Счет-получатель средств.
+     * @param amount        Сумма для перевода в копейках.
+     * @return Результат операции; завершается исключением в тех же случаях,
+     * что и {@link #transfer(Account, Account, long)}.
+     */
+    public CompletableFuture<Void> transferAsync(Account sourceAccount, Account targetAccount, long amount) {
+        return CompletableFuture.runAsync(() -> transfer(sourceAccount, targetAccount, amount), asyncExecutor);
+    }
+
+    /**
+     * Метод для асинхронного получения счета по его идентификатору.
+     *
+     * @param accountId Идентификатор счета.
+     * @return Счет с указанным идентификатором; завершается исключением, если счет не найден.
+     */
+    public CompletableFuture<Account> getAccountAsync(int accountId) {
+        return CompletableFuture.supplyAsync(() -> getAccount(accountId), asyncExecutor);
+    }
+
+    /**
+     * Приватный метод для перевода, в котором участвует счет с разделенным балансом.
+     * Блокируются только счета без разделенного баланса; части баланса блокируются базой данных
+     * на время транзакции. Счета изменяются в порядке возрастания идентификаторов, как и при обычном переводе.
+     *
+     * @param sourceAccount Счет-источник средств.
+     * @param targetAccount Счет-получатель средств.
+     * @param amount        Сумма для перевода в копейках.
+     * @throws IllegalArgumentException Если на счете-источнике недостаточно средств.
+     */
+    private void transferWithShards(Account sourceAccount, Account targetAccount, long amount) {
+        int[] lockedIds = Stream.of(sourceAccount, targetAccount)
+                .filter(account -> !isSharded(account))
+                .mapToInt(Account::getId)
+                .toArray();
+        try (AccountLockManager.Locks ignored = lockManager.lock(lockedIds)) {
+            TransactionContext.runInTransaction(dataSource, () -> {
+                if (sourceAccount.getId() < targetAccount.getId()) {
+                    sourceAccount.setBalance(debitSource(sourceAccount, amount));
+                    targetAccount.setBalance(creditTarget(targetAccount, amount));
+                } else {
+                    targetAccount.setBalance(creditTarget(targetAccount, amount));
+                    sourceAccount.setBalance(debitSource(sourceAccount, amount));
                 }
+                transactionService.createTransferTransactions(sourceAccount, targetAccount, amount);
+            });
+        }
+    }
+
+    /**
+     * Приватный метод для списания суммы перевода со счета-источника, баланс которого может быть разделен.
+     */
+    private long debitSource(Account sourceAccount, long amount) {
+        if (!isSharded(sourceAccount)) {
+            return debitForTransfer(sourceAccount, amount);
+        }
+        return balanceShards.debit(sourceAccount.getId(), amount)
+                .orElseThrow(() -> new IllegalArgumentException("Not enough funds"));
+    }
+
+    /**
+     * Приватный метод для зачисления суммы перевода на счет-получатель, баланс которого может быть разделен.
+     */
+    private long creditTarget(Account targetAccount, long amount) {
+        if (!isSharded(targetAccount)) {
+            return accountRepository.adjustBalance(targetAccount.getId(), amount);
+        }
+        return balanceShards.credit(targetAccount.getId(), amount);
+    }
+
+    /**
+     * Приватный метод для проверки, что операции с ключом идемпотентности можно выполнить.
+     * Ключ занимается в транзакции базы данных вместе с операцией, а движок проводок и групповая
+     * фиксация фиксируют операцию на другом соединении: при повторе после сбоя операция выполнилась бы
+     * дважды, а соединение ключа удерживалось бы на все время ожидания пачки.
+     *
+     * @throws IllegalStateException Если включены движок проводок или групповая фиксация.
+     */
+    private void requireIdempotencySupported() {
+        if (isLedgerEngineEnabled() || groupCommitter != null) {
+            throw new IllegalStateException("Idempotency keys are not supported with the ledger engine or group commit");
+        }
+    }
+
+    /**
+     * Приватный метод для построения отпечатка запроса, по которому обнаруживается
+     * повторное использование ключа идемпотентности для другого запроса.
+     */
+    private static String fingerprint(TransactionType type, int accountId, int counterpartyId, long amount) {
+        return type.name() + ':' + accountId + ':' + counterpartyId + ':' + amount;
+    }
+
+    /**
+     * Приватный метод для построения результата операции, сохраняемого с ключом идемпотентности.
+     */
+    private static IdempotencyRecord idempotencyResult(long balance, long counterpartyBalance) {
+        return IdempotencyRecord.builder()
+                .balance(balance)
+                .counterpartyBalance(counterpartyBalance)
+                .build();
+    }
+
+    /**
+     * Приватный метод для списания суммы перевода со счета-источника.
+     *
+     * @param sourceAccount Счет-источник средств.
+     * @param amount        Сумма для перевода в копейках.
+     * @return Новый баланс счета-источника.
+     * @throws IllegalArgumentException Если на счете-источнике недостаточно средств.
+     */
+    private long debitForTransfer(Account sourceAccount, long amount) {
+        return accountRepository.debitIfSufficient(sourceAccount.getId(), amount)
+                .orElseThrow(() -> new IllegalArgumentException("Not enough funds"));
+    }
+
+    /**
+     * Приватный метод для выполнения операции с одним повтором, если она не удалась потому,
+     * что баланс одного из ее счетов разделили или объединили на другом узле. Неудачная операция
+     * откатывается целиком, поэтому повтор не выполняет ее дважды.
+     *
+     * @param operation  Операция.
+     * @param accountIds Идентификаторы счетов операции.
+     */
+    private void retryIfShardingChanged(Runnable operation, int... accountIds) {
+        try {
+            operation.run();
+        } catch (RuntimeException e) {
+            if (balanceShards == null || !balanceShards.recheck(accountIds)) {
+                throw e;
             }
+            operation.run();
+        }
+    }
+
+    /**
+     * Приватный метод для проверки, разделен ли баланс счета.
+     *
+     * @param account Счет.
+     * @return true, если разделенные балансы заданы и баланс счета разделен.
+     */
+    private boolean isSharded(Account account) {
+        return balanceShards != null && balanceShards.isSharded(account.getId());
+    }
+
+    /**
+     * Приватный метод для проверки, включен ли режим высокой нагрузки.
+     *
+     * @return true, если движок проводок задан и принимает операции.
+     */
+    private boolean isLedgerEngineEnabled() {
+        return ledgerEngine != null && ledgerEngine.isRunning();
+    }
+
+    /**
+     * Приватный метод для создания чека операции движка проводок. Транзакции операции появляются
+     * в базе данных только после ее фонового сохранения, поэтому чек с их номерами создается
+     * исполнителем асинхронных операций после сохранения, не задерживая вызывающий поток.
+     *
+     * @param operation   Выполненная операция движка.
+     * @param createCheck Создание чека по номерам транзакций операции.
+     */
+    private void createCheckWhenPersisted(LedgerOperation operation, Consumer<int[]> createCheck) {
+        operation.getPersisted().thenAcceptAsync(persisted -> createCheck.accept(persisted.getTransactionIds()),
+                asyncExecutor);
+    }
+
+    /**
+     * Приватный метод для ожидания асинхронной операции.
+     *
+     * @param operation Будущий результат операции.
+     * @param <T>       Тип результата.
+     * @return Результат операции.
+     * @throws RuntimeException Исключение, с которым операция была отклонена.
+     */
+    private <T> T await(CompletableFuture<T> operation) {
+        try {
+            return operation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
     }
 
@@ -143,20 +617,74 @@ public class AccountService {
         // Создаем задачу, выполняющуюся периодически
         Runnable interestTask = () -> {
             LocalDate now = LocalDate.now();
-            List<Account> accounts = accountRepository.getAllAccounts();
-
-            for (Account account : accounts) {
-                LocalDate lastInterestDate = account.getLastInterestDate();
-                // Проверяем, нужно ли начислить проценты
-                if (lastInterestDate == null || lastInterestDate.until(now, ChronoUnit.MONTHS) >= 1) {
-                    // Выполняем расчет и начисление процентов асинхронно
-                    interestExecutor.submit(() -> calculateAndApplyInterest(account));
+            // Балансы движка проводок находятся в памяти, поэтому при запущенном движке проценты
+            // начисляются по одному счету через движок
+            if (bulkInterest && !isLedgerEngineEnabled()) {
+                try {
+                    accrueInterest(now);
+                } catch (RuntimeException e) {
+                    // Исключение отменило бы последующие запуски задачи; диапазоны без контрольной точки
+                    // будут обработаны следующим запуском
                 }
+                return;
+            }
+            try {
+                queueDueAccounts(now);
+            } catch (RuntimeException e) {
+                // Счета, которые не удалось поставить в очередь, будут найдены следующим запуском
             }
         };
 
         // Запускаем задачу с фиксированным интервалом
-        scheduler.scheduleAtFixedRate(interestTask, 0, 30, TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(interestTask, 0, configService.get().getInterestPeriodSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Приватный метод для постановки в очередь начисления процентов счетов, которым пора начислять проценты.
+     * Счета читаются страницами по индексу даты последнего начисления. Счета, уже находящиеся в очереди,
+     * пропускаются. Если очередь заполнена, метод ждет, пока пул обработает поставленные счета.
+     *
+     * @param now Текущая дата.
+     */
+    private void queueDueAccounts(LocalDate now) {
+        int limit = configService.get().getInterestQueueCapacity();
+        Account after = null;
+        List<Account> page;
+        do {
+            page = accountRepository.findDueForInterest(now, after, limit);
+            for (Account account : page) {
+                if (!interestInFlight.add(account.getId())) {
+                    continue;
+                }
+                try {
+                    interestPermits.acquire();
+                } catch (InterruptedException e) {
+                    interestInFlight.remove(account.getId());
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try {
+                    interestExecutor.execute(() -> {
+                        try {
+                            calculateAndApplyInterest(account);
+                        } catch (RuntimeException e) {
+                            // Начисление не записано, поэтому счет будет найден следующим запуском
+                        } finally {
+                            interestInFlight.remove(account.getId());
+                            interestPermits.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // Пул остановлен
+                    interestInFlight.remove(account.getId());
+                    interestPermits.release();
+                    return;
+                }
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1);
+            }
+        } while (page.size() == limit);
     }
 
     /**
@@ -165,17 +693,144 @@ public class AccountService {
      * @param account Счет, на который начисляются проценты.
      */
     private void calculateAndApplyInterest(Account account) {
-        double balance = account.getBalance();
-        Yaml yaml = new Yaml();
-        InputStream inputStream = getClass().getResourceAsStream("/config.yml");
+        calculateAndApplyInterest(account, configService.get().getInterestRateMicros());
+    }
 
-        Map<String, Double> config = yaml.load(inputStream);
-        double interest = config.get("interestRate");
+    /**
+     * Приватный метод для начисления процентов на счет по заданной ставке.
+     *
+     * @param account    Счет, на который начисляются проценты.
+     * @param rateMicros Процентная ставка в миллионных долях.
+     */
+    private void calculateAndApplyInterest(Account account, long rateMicros) {
 
-        // Увеличиваем баланс счета на начисленные проценты
-        account.increaseBalance(interest);
-        account.setLastInterestDate(LocalDate.now());
-        accountRepository.updateAccountById(account, account.getId());
+        // Под блокировкой счет перечитывается, чтобы не затереть операции, выполненные после сканирования.
+        // Изменения с других узлов обнаруживаются по версии строки, и начисление повторяется.
+        try (AccountLockManager.Locks ignored = lockManager.lock(account.getId())) {
+            if (isSharded(account)) {
+                applyInterestToShards(account, rateMicros);
+                return;
+            }
+            if (isLedgerEngineEnabled()) {
+                applyInterestThroughLedger(account, rateMicros);
+                return;
+            }
+            optimisticRetry.run(() -> {
+                LocalDate now = LocalDate.now();
+                Account current = accountRepository.getAccountById(account.getId());
+                if (current == null || !isInterestDue(current, now)) {
+                    return;
+                }
+                // Увеличиваем баланс счета на начисленные проценты
+                current.increaseBalance(interestFor(current.getBalance(), current.getLastInterestDate(), now, rateMicros));
+                current.setLastInterestDate(now);
+                accountRepository.updateAccountById(current, current.getId());
+            });
+        }
+    }
+
+    /**
+     * Метод для массового начисления процентов. Счета обрабатываются диапазонами идентификаторов
+     * через {@link InterestBatchRunner}: каждый диапазон фиксируется вместе с контрольной точкой,
+     * поэтому повторный запуск после сбоя продолжает с необработанных диапазонов.
+     * Счета с разделенным балансом обрабатываются по одному.
+     *
+     * @param asOf Дата начисления.
+     * @return Количество начислений процентов по диапазонам.
+     */
+    public int accrueInterest(LocalDate asOf) {
+        int accrued = interestBatchRunner.run(asOf);
+        long rateMicros = configService.get().getInterestRateMicros();
+        if (balanceShards != null) {
+            for (int accountId : balanceShards.getShardedAccountIds()) {
+                calculateAndApplyInterest(Account.builder().id(accountId).build(), rateMicros);
+            }
+        }
+        return accrued;
+    }
+
+    /**
+     * Приватный метод для начисления процентов в режиме высокой нагрузки. Баланс счета принадлежит
+     * движку проводок, поэтому проценты считаются от баланса в движке (в базе данных он может
+     * отставать на несохраненные операции), в строке счета фиксируется только дата начисления,
+     * а сумма зачисляется через движок. Дата фиксируется первой: при сбое между шагами проценты
+     * не будут начислены повторно.
+     *
+     * @param account    Счет, на который начисляются проценты.
+     * @param rateMicros Процентная ставка в миллионных долях.
+     */
+    private void applyInterestThroughLedger(Account account, long rateMicros) {
+        long interest = optimisticRetry.execute(() -> {
+            LocalDate now = LocalDate.now();
+            Account current = accountRepository.getAccountById(account.getId());
+            if (current == null || !isInterestDue(current, now)) {
+                return 0L;
+            }
+            long balance = await(ledgerEngine.balanceOf(account.getId()));
+            long accrued = interestFor(balance, current.getLastInterestDate(), now, rateMicros);
+            current.setLastInterestDate(now);
+            accountRepository.updateAccountById(current, current.getId());
+            return accrued;
+        });
+        if (interest > 0) {
+            await(ledgerEngine.deposit(account.getId(), interest));
+        }
+    }
+
+    /**
+     * Приватный метод для начисления процентов на счет с разделенным балансом. Проценты считаются
+     * от суммарного баланса и зачисляются на одну из частей в той же транзакции, в которой
+     * в строке счета фиксируется дата начисления.
+     *
+     * @param account    Счет, на который начисляются проценты.
+     * @param rateMicros Процентная ставка в миллионных долях.
+     */
+    private void applyInterestToShards(Account account, long rateMicros) {
+        optimisticRetry.run(() -> TransactionContext.runInTransaction(dataSource, () -> {
+            LocalDate now = LocalDate.now();
+            Account current = accountRepository.getAccountById(account.getId());
+            if (current == null || !isInterestDue(current, now)) {
+                return;
+            }
+            long interest = interestFor(current.getBalance() + balanceShards.getBalance(current.getId()),
+                    current.getLastInterestDate(), now, rateMicros);
+            current.setLastInterestDate(now);
+            accountRepository.updateAccountById(current, current.getId());
+            if (interest > 0) {
+                balanceShards.credit(current.getId(), interest);
+            }
+        }));
+    }
+
+    /**
+     * Приватный метод для расчета процентов по одному счету тем же {@link InterestEngine}, что и при
+     * массовом начислении, с соглашением о подсчете дней и способом начисления из текущей конфигурации.
+     *
+     * @param balance          Баланс счета в копейках.
+     * @param lastInterestDate Дата последнего начисления процентов или null, если проценты не начислялись;
+     *                         в этом случае проценты начисляются за один месяц.
+     * @param now              Дата начисления.
+     * @param rateMicros       Ежемесячная процентная ставка в миллионных долях.
+     * @return Проценты в копейках.
+     */
+    private long interestFor(long balance, LocalDate lastInterestDate, LocalDate now, long rateMicros) {
+        AppConfig config = configService.get();
+        InterestEngine engine = new InterestEngine(config.getInterestDayCount(), config.getInterestCompounding());
+        LocalDate from = lastInterestDate != null ? lastInterestDate : now.minusMonths(1);
+        return engine.accrue(balance, (int) from.toEpochDay(), InterestEngine.annualRate(rateMicros),
+                (int) now.toEpochDay());
+    }
+
+    /**
+     * Приватный метод для проверки, пора ли начислять проценты на счет.
+     *
+     * @param account Счет.
+     * @param now     Текущая дата.
+     * @return true, если с последнего начисления прошел хотя бы месяц.
+     */
+    private boolean isInterestDue(Account account, LocalDate now) {
+        LocalDate lastInterestDate = account.getLastInterestDate();
+        return lastInterestDate == null || lastInterestDate.until(now, ChronoUnit.MONTHS) >= 1;
     }
 
     /**
@@ -185,6 +840,23 @@ public class AccountService {
         // Останавливаем планировщик и пул потоков для расчета процентов
         scheduler.shutdown();
         interestExecutor.shutdown();
+        interestBatchRunner.close();
+    }
+
+    /**
+     * Метод для остановки исполнителя асинхронных операций. Уже принятые операции будут выполнены.
+     */
+    public void stopAsyncOperations() {
+        asyncExecutor.shutdown();
+    }
+
+    /**
+     * Метод для получения политики повтора и ее счетчиков конфликтов и повторов.
+     *
+     * @return Политика повтора при конфликте оптимистичной блокировки.
+     */
+    public OptimisticRetry getOptimisticRetry() {
+        return optimisticRetry;
     }
 
     /**
@@ -197,6 +869,11 @@ public class AccountService {
     public Account getAccount(int accountId) {
         Account account = accountRepository.getAccountById(accountId);
         if (account != null) {
+            if (isLedgerEngineEnabled()) {
+                account.setBalance(await(ledgerEngine.balanceOf(accountId)));
+            } else if (isSharded(account)) {
+                account.increaseBalance(balanceShards.getBalance(accountId));
+            }
             return account;
         } else {
             throw new RuntimeException("Account not found");
@@ -212,6 +889,27 @@ public class AccountService {
         return accountRepository.getAllAccounts();
     }
 
+    /**
+     * Получает страницу счетов, упорядоченных по идентификатору.
+     *
+     * @param continuationToken Токен продолжения предыдущей страницы или null для первой страницы.
+     * @param limit             Максимальное количество элементов на странице.
+     * @return Страница счетов с токеном продолжения.
+     */
+    public Page<Account> getAccountsPage(String continuationToken, int limit) {
+        return accountRepository.getAccountsPage(continuationToken, limit);
+    }
+
+    /**
+     * Метод для потокового чтения всех счетов без загрузки таблицы в память.
+     * Поток необходимо закрыть после использования.
+     *
+     * @return Поток всех счетов.
+     */
+    public Stream<Account> streamAllAccounts() {
+        return accountRepository.streamAllAccounts();
+    }
+
     /**
      * Метод для сохранения счета.
      *
@@ -226,11 +924,69 @@ public class AccountService {
     /**
      * Метод для обновления счета по его идентификатору.
      *
-     * @param account   Счет для обновления.
+     * @param account   Счет для обновления с версией, с которой он был прочитан.
      * @param accountId Идентификатор счета.
+     * @throws org.CleverBank.Repository.OptimisticLockException Если счет был изменен после чтения.
+     * @throws IllegalStateException Если баланс счета хранит движок проводок.
      */
     public void updateAccount(Account account, int accountId) {
+        requireNotHeldByLedger(accountId);
         accountRepository.updateAccountById(account, accountId);
+        // Номер счета входит в строки выписок всех счетов, переводивших на него средства
+        statementCache().clear();
+    }
+
+    /**
+     * Метод для разделения баланса горячего счета на части. Баланс переносится со строки счета
+     * в нулевую часть, после чего зачисления распределяются между частями.
+     *
+     * @param accountId Идентификатор счета.
+     * @param shards    Количество частей.
+     * @throws IllegalStateException    Если разделенные балансы не заданы.
+     * @throws IllegalArgumentException Если количество частей меньше двух.
+     */
+    public void enableBalanceSharding(int accountId, int shards) {
+        requireBalanceShards();
+        try (AccountLockManager.Locks ignored = lockManager.lock(accountId)) {
+            optimisticRetry.run(() -> TransactionContext.runInTransaction(dataSource, () -> {
+                if (balanceShards.isSharded(accountId)) {
+                    return;
+                }
+                Account current = getAccount(accountId);
+                balanceShards.enable(accountId, shards, current.getBalance());
+                current.setBalance(0);
+                accountRepository.updateAccountById(current, accountId);
+            }));
+        } finally {
+            balanceShards.refresh();
+        }
+    }
+
+    /**
+     * Метод для объединения частей баланса счета обратно в строку счета.
+     *
+     * @param accountId Идентификатор счета.
+     * @throws IllegalStateException Если разделенные балансы не заданы.
+     */
+    public void disableBalanceSharding(int accountId) {
+        requireBalanceShards();
+        try (AccountLockManager.Locks ignored = lockManager.lock(accountId)) {
+            TransactionContext.runInTransaction(dataSource, () ->
+                    accountRepository.adjustBalance(accountId, balanceShards.disable(accountId)));
+        } finally {
+            balanceShards.refresh();
+        }
+    }
+
+    /**
+     * Приватный метод для проверки, что разделенные балансы заданы.
+     *
+     * @throws IllegalStateException Если разделенные балансы не заданы.
+     */
+    private void requireBalanceShards() {
+        if (balanceShards == null) {
+            throw new IllegalStateException("Balance sharding is not configured");
+        }
     }
 
     /**
@@ -238,12 +994,37 @@ public class AccountService {
      *
      * @param accountId Идентификатор счета для удаления.
      * @throws RuntimeException Если счет не найден.
+     * @throws IllegalStateException Если баланс счета хранит движок проводок.
      */
     public void deleteAccount(int accountId) {
+        requireNotHeldByLedger(accountId);
         if (accountRepository.getAccountById(accountId) != null) {
             accountRepository.deleteAccountById(accountId);
+            statementCache().clear();
         } else {
             throw new RuntimeException("Account not found");
         }
     }
+
+    private StatementCache statementCache() {
+        StatementCache cache = statementCache;
+        if (cache == null) {
+            cache = StatementCache.getDefault();
+            statementCache = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * Проверяет, что баланс счета не хранит запущенный движок проводок: изменения в обход движка
+     * были бы перезаписаны его операциями, а операции удаленного счета невозможно сохранить.
+     *
+     * @param accountId Идентификатор счета.
+     * @throws IllegalStateException Если баланс счета хранит движок проводок.
+     */
+    private void requireNotHeldByLedger(int accountId) {
+        if (ledgerEngine != null && ledgerEngine.holds(accountId)) {
+            throw new IllegalStateException("Account " + accountId + " is held by the ledger engine");
+        }
+    }
 }
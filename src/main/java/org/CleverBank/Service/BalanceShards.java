@@ -0,0 +1,201 @@
+package org.CleverBank.Service;
+
+import lombok.Setter;
+import org.CleverBank.Repository.BalanceShardRepository;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс `BalanceShards` управляет разделенными балансами горячих счетов (расчетных, торговых),
+ * на которые поступают тысячи зачислений в секунду. Баланс такого счета хранится в нескольких
+ * строках `account_balance_shard`: каждое зачисление обновляет случайную строку, поэтому
+ * конкурирующие операции не выстраиваются в очередь за одной строкой счета. Списание берется
+ * из случайной строки, а если в ней недостаточно средств — из всех строк с перебалансировкой.
+ * Номера счетов с разделенным балансом хранятся в памяти, чтобы проверка не требовала запроса,
+ * и перечитываются не реже раза в {@link #REFRESH_INTERVAL_MILLIS} миллисекунд, а также после неудачных
+ * операций ({@link #recheck(int...)}), поэтому разделение баланса на другом узле становится видно
+ * без перезапуска.
+ */
+public class BalanceShards {
+
+    /**
+     * Количество частей баланса по умолчанию.
+     */
+    public static final int DEFAULT_SHARDS = 8;
+
+    /**
+     * Максимальный возраст номеров счетов с разделенным балансом в памяти (в миллисекундах).
+     */
+    public static final long REFRESH_INTERVAL_MILLIS = 1_000;
+
+    @Setter
+    private BalanceShardRepository balanceShardRepository;
+
+    private volatile Map<Integer, Integer> shardCounts;
+    private volatile long refreshedAt;
+
+    private final LongAdder rebalanceCount = new LongAdder();
+
+    /**
+     * Конструктор класса `BalanceShards`.
+     *
+     * @param dataSource Источник данных (DataSource), используемый для взаимодействия с базой данных.
+     */
+    public BalanceShards(DataSource dataSource) {
+        balanceShardRepository = new BalanceShardRepository(dataSource);
+    }
+
+    /**
+     * Проверяет, разделен ли баланс счета. При первом вызове и по истечении интервала обновления
+     * номера счетов загружаются из базы данных.
+     *
+     * @param accountId Идентификатор счета.
+     * @return true, если баланс счета разделен на части.
+     */
+    public boolean isSharded(int accountId) {
+        return shardCounts().containsKey(accountId);
+    }
+
+    /**
+     * Разделяет баланс счета на части. Вызывается внутри транзакции, в которой баланс
+     * списывается со строки счета; после фиксации транзакции нужно вызвать {@link #refresh()}.
+     *
+     * @param accountId Идентификатор счета.
+     * @param shards    Количество частей.
+     * @param balance   Баланс счета в копейках, переносимый в части.
+     * @throws IllegalArgumentException Если количество частей меньше двух.
+     */
+    public void enable(int accountId, int shards, long balance) {
+        if (shards < 2) {
+            throw new IllegalArgumentException("Balance must be split into at least two shards");
+        }
+        balanceShardRepository.createShards(accountId, shards, balance);
+    }
+
+    /**
+     * Объединяет части баланса счета. Вызывается внутри транзакции, в которой возвращенная сумма
+     * зачисляется на строку счета; после фиксации транзакции нужно вызвать {@link #refresh()}.
+     *
+     * @param accountId Идентификатор счета.
+     * @return Сумма частей в копейках.
+     */
+    public long disable(int accountId) {
+        return balanceShardRepository.deleteShards(accountId);
+    }
+
+    /**
+     * Перечитывает из базы данных номера счетов с разделенным балансом.
+     */
+    public void refresh() {
+        shardCounts = Map.copyOf(balanceShardRepository.getShardCounts());
+        refreshedAt = System.nanoTime();
+    }
+
+    /**
+     * Перечитывает номера счетов с разделенным балансом после неудачной операции: баланс счета
+     * мог быть разделен или объединен другим узлом, и операция выполнялась не над теми строками.
+     *
+     * @param accountIds Идентификаторы счетов операции.
+     * @return true, если разделение баланса хотя бы одного из счетов изменилось и операцию нужно повторить.
+     */
+    public boolean recheck(int... accountIds) {
+        Map<Integer, Integer> previous = shardCounts();
+        refresh();
+        Map<Integer, Integer> current = shardCounts;
+        for (int accountId : accountIds) {
+            if (previous.containsKey(accountId) != current.containsKey(accountId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Получает идентификаторы счетов с разделенным балансом.
+     *
+     * @return Идентификаторы счетов.
+     */
+    public Set<Integer> getShardedAccountIds() {
+        return shardCounts().keySet();
+    }
+
+    /**
+     * Зачисляет сумму на случайную часть баланса счета.
+     *
+     * @param accountId Идентификатор счета.
+     * @param amount    Сумма в копейках.
+     * @return Суммарный баланс частей после зачисления.
+     */
+    public long credit(int accountId, long amount) {
+        balanceShardRepository.credit(accountId, randomShard(accountId), amount);
+        return balanceShardRepository.getTotalBalance(accountId);
+    }
+
+    /**
+     * Списывает сумму со случайной части баланса счета. Если в ней недостаточно средств,
+     * сумма списывается из всех частей, а остаток распределяется между ними поровну.
+     * Вызывается внутри транзакции.
+     *
+     * @param accountId Идентификатор счета.
+     * @param amount    Сумма в копейках.
+     * @return Суммарный баланс частей после списания или пустое значение, если средств недостаточно.
+     */
+    public OptionalLong debit(int accountId, long amount) {
+        if (balanceShardRepository.debitIfSufficient(accountId, randomShard(accountId), amount)) {
+            return OptionalLong.of(balanceShardRepository.getTotalBalance(accountId));
+        }
+        rebalanceCount.increment();
+        return balanceShardRepository.debitAndRebalance(accountId, amount);
+    }
+
+    /**
+     * Получает суммарный баланс частей счета.
+     *
+     * @param accountId Идентификатор счета.
+     * @return Баланс в копейках.
+     */
+    public long getBalance(int accountId) {
+        return balanceShardRepository.getTotalBalance(accountId);
+    }
+
+    /**
+     * Получает количество списаний, потребовавших перебалансировки частей.
+     *
+     * @return Количество перебалансировок.
+     */
+    public long getRebalanceCount() {
+        return rebalanceCount.sum();
+    }
+
+    private int randomShard(int accountId) {
+        Integer shards = shardCounts().get(accountId);
+        if (shards == null) {
+            throw new IllegalStateException("Balance of account " + accountId + " is not sharded");
+        }
+        return ThreadLocalRandom.current().nextInt(shards);
+    }
+
+    private Map<Integer, Integer> shardCounts() {
+        Map<Integer, Integer> current = shardCounts;
+        if (current == null || isStale()) {
+            synchronized (this) {
+                current = shardCounts;
+                if (current == null || isStale()) {
+                    refresh();
+                    current = shardCounts;
+                }
+            }
+        }
+        return current;
+    }
+
+    private boolean isStale() {
+        return System.nanoTime() - refreshedAt > TimeUnit.MILLISECONDS.toNanos(REFRESH_INTERVAL_MILLIS);
+    }
+}
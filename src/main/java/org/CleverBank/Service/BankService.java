@@ -2,6 +2,7 @@ package org.CleverBank.Service;
 
 import lombok.Setter;
 import org.CleverBank.Models.Bank;
+import org.CleverBank.Models.Page;
 import org.CleverBank.Repository.BankRepository;
 
 import javax.sql.DataSource;
@@ -49,6 +50,17 @@ public class BankService {
         return bankRepository.getAllBanks();
     }
 
+    /**
+     * Получает страницу банков, упорядоченных по идентификатору.
+     *
+     * @param continuationToken Токен продолжения предыдущей страницы или null для первой страницы.
+     * @param limit             Максимальное количество элементов на странице.
+     * @return Страница банков с токеном продолжения.
+     */
+    public Page<Bank> getBanksPage(String continuationToken, int limit) {
+        return bankRepository.getBanksPage(continuationToken, limit);
+    }
+
     /**
      * Сохраняет новый банк.
      *
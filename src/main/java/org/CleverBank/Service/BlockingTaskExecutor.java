@@ -0,0 +1,177 @@
+package org.CleverBank.Service;
+
+import org.CleverBank.Config.ExecutorMode;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Класс `BlockingTaskExecutor` выполняет задачи, блокирующиеся на JDBC, с ограничением числа
+ * одновременно выполняемых задач. В режиме {@link ExecutorMode#VIRTUAL_THREADS} каждая задача получает
+ * собственный виртуальный поток, а ожидание разрешения и ответа базы данных не занимает поток
+ * платформы, поэтому тысячи ожидающих операций стоят несколько килобайт памяти каждая.
+ * Количество разрешений обычно равно размеру пула соединений: больше задач одновременно
+ * все равно не получит соединение.
+ * <p>
+ * Виртуальные потоки доступны начиная с Java 21. На более ранней версии режим
+ * {@link ExecutorMode#VIRTUAL_THREADS} заменяется фиксированным пулом; действующий режим возвращает {@link #getMode()}.
+ */
+public class BlockingTaskExecutor extends AbstractExecutorService {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadFactory();
+
+    private final ExecutorMode mode;
+    private final int maxConcurrency;
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final AtomicInteger waitingTasks = new AtomicInteger();
+
+    /**
+     * Конструктор класса `BlockingTaskExecutor`.
+     *
+     * @param mode           Запрошенный режим выполнения задач.
+     * @param maxConcurrency Максимальное количество одновременно выполняемых задач.
+     * @throws IllegalArgumentException Если количество задач не положительно.
+     */
+    public BlockingTaskExecutor(ExecutorMode mode, int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Max concurrency must be positive");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency, true);
+        if (mode == ExecutorMode.VIRTUAL_THREADS && isVirtualThreadsSupported()) {
+            this.mode = ExecutorMode.VIRTUAL_THREADS;
+            this.delegate = newVirtualThreadPerTaskExecutor();
+        } else {
+            this.mode = ExecutorMode.FIXED_POOL;
+            this.delegate = Executors.newFixedThreadPool(maxConcurrency);
+        }
+    }
+
+    /**
+     * Проверяет, поддерживает ли текущая версия Java виртуальные потоки.
+     *
+     * @return true, если виртуальные потоки доступны.
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Получает действующий режим выполнения задач.
+     *
+     * @return Режим выполнения задач.
+     */
+    public ExecutorMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Получает максимальное количество одновременно выполняемых задач.
+     *
+     * @return Максимальное количество задач.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Получает количество выполняемых в данный момент задач.
+     *
+     * @return Количество выполняемых задач.
+     */
+    public int getActiveTaskCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * Получает количество задач, ожидающих разрешения на выполнение.
+     *
+     * @return Количество ожидающих задач.
+     */
+    public int getWaitingTaskCount() {
+        return waitingTasks.get();
+    }
+
+    /**
+     * Выполняет задачу, как только освободится одно из разрешений.
+     *
+     * @param command Задача.
+     */
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(() -> {
+            waitingTasks.incrementAndGet();
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                // Исполнитель остановлен методом shutdownNow; задача, поставленная через submit, отменяется,
+                // чтобы ожидающие ее результат не зависли
+                if (command instanceof Future) {
+                    ((Future<?>) command).cancel(false);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                waitingTasks.decrementAndGet();
+            }
+            try {
+                command.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create virtual thread executor", e);
+        }
+    }
+
+    // Проект компилируется для Java 17, поэтому фабрика виртуальных потоков ищется во время выполнения
+    private static Method findVirtualThreadFactory() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            // На Java 19-20 без --enable-preview метод существует, но выбрасывает исключение
+            ((ExecutorService) method.invoke(null)).shutdown();
+            return method;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,509 @@
+package org.CleverBank.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Класс `CheckArchive` — архив банковских чеков из сегментов, ограниченных днем и размером.
+ * Чеки дописываются в файл текущего сегмента ({@code .log}), а в индекс сегмента — запись
+ * фиксированного размера: номер транзакции, смещение и длина чека. Когда наступает новый день
+ * или сегмент достигает предельного размера, он запечатывается: индекс сортируется по номеру
+ * транзакции и больше не изменяется. Поиск чека в запечатанном сегменте — двоичный поиск
+ * по отображенному в память индексу и одно чтение отображенного в память файла данных,
+ * поиск в текущем сегменте — по индексу в памяти.
+ * <p>
+ * Запечатанные сегменты неизменяемы, поэтому их можно сжимать или переносить в другое хранилище
+ * целиком ({@link #archiveSegmentsBefore(LocalDate, Path)}). Экземпляр потокобезопасен;
+ * запись выполняется одним потоком {@link CheckWriter}.
+ */
+public class CheckArchive implements AutoCloseable {
+
+    /**
+     * Размер записи индекса: номер транзакции (4), смещение (8), длина (4).
+     */
+    static final int INDEX_ENTRY_SIZE = 16;
+
+    private static final String DATA_SUFFIX = ".log";
+    private static final String SEALED_INDEX_SUFFIX = ".idx";
+    private static final String OPEN_INDEX_SUFFIX = ".open";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("checks-(\\d{4}-\\d{2}-\\d{2})-(\\d{6})\\.log");
+    private static final byte[] SEPARATOR = "\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final Path directory;
+    private final long segmentMaxBytes;
+    private final Clock clock;
+
+    /**
+     * Запечатанные сегменты в порядке создания.
+     */
+    private final List<SealedSegment> sealed = new ArrayList<>();
+
+    private final ByteBuffer dataBuffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final ByteBuffer indexBuffer = ByteBuffer.allocateDirect(INDEX_ENTRY_SIZE * 1_024);
+
+    /**
+     * Смещение и длина чеков текущего сегмента по номеру транзакции.
+     */
+    private final Map<Integer, long[]> activeIndex = new HashMap<>();
+
+    private LocalDate activeDay;
+    private int activeSequence;
+    private Path activeData;
+    private FileChannel activeDataChannel;
+    private FileChannel activeIndexChannel;
+
+    /**
+     * Длина файла данных текущего сегмента вместе с еще не записанным буфером.
+     */
+    private long activeLength;
+
+    /**
+     * Длина файла данных текущего сегмента, уже записанная в файл.
+     */
+    private long activeWritten;
+
+    /**
+     * Признак ошибки записи текущего сегмента: следующий чек начнет новый сегмент.
+     */
+    private boolean failed;
+
+    /**
+     * Конструктор класса `CheckArchive`. Сегменты, оставшиеся открытыми после остановки, запечатываются,
+     * и создается новый текущий сегмент.
+     *
+     * @param directory       Каталог архива (создается, если не существует).
+     * @param segmentMaxBytes Предельный размер файла данных сегмента (в байтах).
+     * @param clock           Часы, определяющие день сегмента.
+     * @throws IllegalArgumentException Если размер сегмента не положителен.
+     * @throws UncheckedIOException     Если каталог не удалось прочитать или сегмент не удалось создать.
+     */
+    public CheckArchive(Path directory, long segmentMaxBytes, Clock clock) {
+        if (segmentMaxBytes <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+        this.directory = directory;
+        this.segmentMaxBytes = segmentMaxBytes;
+        this.clock = clock;
+        try {
+            Files.createDirectories(directory);
+            recover();
+            openSegment(LocalDate.now(clock));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open check archive " + directory, e);
+        }
+    }
+
+    /**
+     * Конструктор класса `CheckArchive` с системными часами.
+     *
+     * @param directory       Каталог архива (создается, если не существует).
+     * @param segmentMaxBytes Предельный размер файла данных сегмента (в байтах).
+     */
+    public CheckArchive(Path directory, long segmentMaxBytes) {
+        this(directory, segmentMaxBytes, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Добавляет чек в текущий сегмент. Данные накапливаются в памяти до {@link #flush()}.
+     * Чек индексируется по каждому из переданных номеров транзакций (например, по обеим транзакциям
+     * перевода); чек без номеров сохраняется, но не находится поиском.
+     *
+     * @param check          Содержимое чека в UTF-8.
+     * @param transactionIds Номера транзакций чека; нулевые номера не индексируются.
+     * @throws IOException Если сегмент не удалось записать или сменить.
+     */
+    public synchronized void append(byte[] check, int... transactionIds) throws IOException {
+        LocalDate today = LocalDate.now(clock);
+        if (failed || !today.equals(activeDay) || activeLength > 0 && activeLength + check.length > segmentMaxBytes) {
+            seal();
+            openSegment(today);
+        }
+        long offset = activeLength;
+        int length = check.length + SEPARATOR.length;
+        if (dataBuffer.remaining() < length) {
+            flushData();
+        }
+        activeLength += length;
+        if (dataBuffer.remaining() < length) {
+            // Чек больше буфера записывается напрямую
+            try {
+                writeFully(activeDataChannel, ByteBuffer.wrap(check));
+                writeFully(activeDataChannel, ByteBuffer.wrap(SEPARATOR));
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+            activeWritten = activeLength;
+        } else {
+            dataBuffer.put(check).put(SEPARATOR);
+        }
+        for (int transactionId : transactionIds) {
+            if (transactionId <= 0) {
+                continue;
+            }
+            if (indexBuffer.remaining() < INDEX_ENTRY_SIZE) {
+                drain(indexBuffer, activeIndexChannel);
+            }
+            indexBuffer.putInt(transactionId).putLong(offset).putInt(check.length);
+            activeIndex.put(transactionId, new long[]{offset, check.length});
+        }
+    }
+
+    /**
+     * Записывает накопленные чеки и записи индекса в файлы текущего сегмента.
+     * Индекс записывается после данных, поэтому запись индекса никогда не ссылается на незаписанный чек.
+     *
+     * @throws IOException Если запись не удалась.
+     */
+    public synchronized void flush() throws IOException {
+        flushData();
+        try {
+            drain(indexBuffer, activeIndexChannel);
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Записывает накопленные чеки и сбрасывает файлы текущего сегмента на диск.
+     *
+     * @throws IOException Если запись не удалась.
+     */
+    public synchronized void sync() throws IOException {
+        flush();
+        activeDataChannel.force(false);
+        activeIndexChannel.force(false);
+    }
+
+    /**
+     * Ищет чек по номеру транзакции.
+     *
+     * @param transactionId Номер транзакции.
+     * @return Содержимое чека или пустой результат, если чек не найден.
+     * @throws UncheckedIOException Если сегмент не удалось прочитать.
+     */
+    public synchronized Optional<String> findCheck(int transactionId) {
+        try {
+            long[] location = activeIndex.get(transactionId);
+            if (location != null) {
+                if (location[0] + location[1] > activeWritten) {
+                    flushData();
+                }
+                ByteBuffer check = ByteBuffer.allocate((int) location[1]);
+                long position = location[0];
+                while (check.hasRemaining()) {
+                    int read = activeDataChannel.read(check, position);
+                    if (read < 0) {
+                        // Чек потерян при ошибке записи сегмента
+                        return Optional.empty();
+                    }
+                    position += read;
+                }
+                return Optional.of(new String(check.array(), StandardCharsets.UTF_8));
+            }
+            // Новые сегменты проверяются первыми: чаще ищут недавние чеки
+            for (int i = sealed.size() - 1; i >= 0; i--) {
+                SealedSegment segment = sealed.get(i);
+                if (transactionId >= segment.minId && transactionId <= segment.maxId) {
+                    String check = segment.find(transactionId);
+                    if (check != null) {
+                        return Optional.of(check);
+                    }
+                }
+            }
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read check " + transactionId, e);
+        }
+    }
+
+    /**
+     * Переносит запечатанные сегменты дней до указанной даты в другой каталог, например, для сжатия
+     * или передачи в архивное хранилище. Чеки перенесенных сегментов больше не находятся поиском.
+     *
+     * @param day    Сегменты этого и последующих дней остаются в архиве.
+     * @param target Каталог, в который переносятся файлы сегментов.
+     * @return Количество перенесенных сегментов.
+     * @throws UncheckedIOException Если файлы не удалось перенести.
+     */
+    public synchronized int archiveSegmentsBefore(LocalDate day, Path target) {
+        int moved = 0;
+        try {
+            Files.createDirectories(target);
+            for (int i = 0; i < sealed.size(); ) {
+                SealedSegment segment = sealed.get(i);
+                if (!segment.day.isBefore(day)) {
+                    i++;
+                    continue;
+                }
+                sealed.remove(i);
+                for (Path file : List.of(segment.data, segment.index)) {
+                    Files.move(file, target.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                }
+                moved++;
+            }
+            return moved;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to archive check segments", e);
+        }
+    }
+
+    /**
+     * Получает количество запечатанных сегментов в архиве.
+     *
+     * @return Количество сегментов.
+     */
+    public synchronized int getSealedSegmentCount() {
+        return sealed.size();
+    }
+
+    /**
+     * Записывает накопленные чеки, запечатывает текущий сегмент и закрывает его файлы.
+     *
+     * @throws UncheckedIOException Если сегмент не удалось записать.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            seal();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close check archive " + directory, e);
+        }
+    }
+
+    private void openSegment(LocalDate day) throws IOException {
+        activeSequence = day.equals(activeDay) ? activeSequence + 1 : nextSequence(day);
+        activeDay = day;
+        String name = segmentName(day, activeSequence);
+        activeData = directory.resolve(name + DATA_SUFFIX);
+        activeDataChannel = FileChannel.open(activeData, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeIndexChannel = FileChannel.open(directory.resolve(name + OPEN_INDEX_SUFFIX),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        activeLength = 0;
+        activeWritten = 0;
+        failed = false;
+        activeIndex.clear();
+    }
+
+    /**
+     * Запечатывает текущий сегмент: записывает отсортированный индекс и удаляет неотсортированный.
+     */
+    private void seal() throws IOException {
+        if (activeDataChannel == null) {
+            return;
+        }
+        flush();
+        activeDataChannel.force(false);
+        activeDataChannel.close();
+        activeIndexChannel.close();
+        activeDataChannel = null;
+        Path openIndex = withSuffix(activeData, OPEN_INDEX_SUFFIX);
+        SealedSegment segment = sealIndex(activeData, openIndex, activeDay);
+        if (segment != null) {
+            sealed.add(segment);
+        }
+        activeIndex.clear();
+    }
+
+    /**
+     * Сортирует неотсортированный индекс сегмента, записывает его рядом с данными и удаляет исходный.
+     * Записи, ссылающиеся за конец файла данных (оборванные при сбое), отбрасываются.
+     *
+     * @return Запечатанный сегмент или null, если сегмент пуст и удален.
+     */
+    private static SealedSegment sealIndex(Path data, Path openIndex, LocalDate day) throws IOException {
+        long dataLength = Files.size(data);
+        if (dataLength == 0) {
+            Files.delete(data);
+            Files.deleteIfExists(openIndex);
+            return null;
+        }
+        ByteBuffer entries = ByteBuffer.wrap(Files.exists(openIndex) ? Files.readAllBytes(openIndex) : new byte[0]);
+        int count = entries.remaining() / INDEX_ENTRY_SIZE;
+        long[] keys = new long[count];
+        int valid = 0;
+        for (int i = 0; i < count; i++) {
+            int id = entries.getInt(i * INDEX_ENTRY_SIZE);
+            long offset = entries.getLong(i * INDEX_ENTRY_SIZE + 4);
+            int length = entries.getInt(i * INDEX_ENTRY_SIZE + 12);
+            if (offset + length <= dataLength) {
+                // Номер транзакции в старших битах, номер записи в младших: сортировка по номеру транзакции
+                keys[valid++] = ((long) id << 32) | i;
+            }
+        }
+        Arrays.sort(keys, 0, valid);
+        ByteBuffer sorted = ByteBuffer.allocate(valid * INDEX_ENTRY_SIZE);
+        for (int i = 0; i < valid; i++) {
+            int entry = (int) keys[i] * INDEX_ENTRY_SIZE;
+            sorted.put(entries.array(), entry, INDEX_ENTRY_SIZE);
+        }
+        Path index = withSuffix(data, SEALED_INDEX_SUFFIX);
+        Path temporary = withSuffix(data, SEALED_INDEX_SUFFIX + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            sorted.flip();
+            writeFully(channel, sorted);
+            channel.force(false);
+        }
+        Files.move(temporary, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(openIndex);
+        return new SealedSegment(day, data, index);
+    }
+
+    /**
+     * Загружает запечатанные сегменты каталога и запечатывает сегменты, оставшиеся открытыми после сбоя.
+     */
+    private void recover() throws IOException {
+        List<Path> dataFiles = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "checks-*" + DATA_SUFFIX)) {
+            files.forEach(dataFiles::add);
+        }
+        dataFiles.sort(null);
+        for (Path data : dataFiles) {
+            Matcher matcher = SEGMENT_NAME.matcher(data.getFileName().toString());
+            if (!matcher.matches()) {
+                continue;
+            }
+            LocalDate day = LocalDate.parse(matcher.group(1));
+            Path index = withSuffix(data, SEALED_INDEX_SUFFIX);
+            SealedSegment segment = Files.exists(index)
+                    ? new SealedSegment(day, data, index)
+                    : sealIndex(data, withSuffix(data, OPEN_INDEX_SUFFIX), day);
+            if (segment != null) {
+                sealed.add(segment);
+            }
+        }
+    }
+
+    private int nextSequence(LocalDate day) {
+        int sequence = 1;
+        String prefix = "checks-" + day + "-";
+        for (SealedSegment segment : sealed) {
+            String name = segment.data.getFileName().toString();
+            if (name.startsWith(prefix)) {
+                sequence = Math.max(sequence, Integer.parseInt(name.substring(prefix.length(), prefix.length() + 6)) + 1);
+            }
+        }
+        return sequence;
+    }
+
+    private void flushData() throws IOException {
+        try {
+            drain(dataBuffer, activeDataChannel);
+        } catch (IOException e) {
+            // Записи индекса, ссылающиеся на незаписанные данные, отбрасываются при запечатывании
+            failed = true;
+            throw e;
+        }
+        activeWritten = activeLength;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        try {
+            writeFully(channel, buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private static String segmentName(LocalDate day, int sequence) {
+        return String.format("checks-%s-%06d", day, sequence);
+    }
+
+    private static Path withSuffix(Path data, String suffix) {
+        String name = data.getFileName().toString();
+        return data.resolveSibling(name.substring(0, name.length() - DATA_SUFFIX.length()) + suffix);
+    }
+
+    /**
+     * Запечатанный сегмент: файлы данных и отсортированного индекса, отображенные в память при первом поиске.
+     */
+    private static final class SealedSegment {
+        private final LocalDate day;
+        private final Path data;
+        private final Path index;
+        private final int minId;
+        private final int maxId;
+        private MappedByteBuffer mappedIndex;
+        private MappedByteBuffer mappedData;
+
+        private SealedSegment(LocalDate day, Path data, Path index) throws IOException {
+            this.day = day;
+            this.data = data;
+            this.index = index;
+            long entries = Files.size(index) / INDEX_ENTRY_SIZE;
+            if (entries == 0) {
+                minId = Integer.MAX_VALUE;
+                maxId = Integer.MIN_VALUE;
+            } else {
+                try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+                    ByteBuffer id = ByteBuffer.allocate(Integer.BYTES);
+                    channel.read(id, 0);
+                    minId = id.getInt(0);
+                    id.clear();
+                    channel.read(id, (entries - 1) * INDEX_ENTRY_SIZE);
+                    maxId = id.getInt(0);
+                }
+            }
+        }
+
+        private String find(int transactionId) throws IOException {
+            if (mappedIndex == null) {
+                mappedIndex = map(index);
+                mappedData = map(data);
+            }
+            int low = 0;
+            int high = mappedIndex.capacity() / INDEX_ENTRY_SIZE - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int id = mappedIndex.getInt(middle * INDEX_ENTRY_SIZE);
+                if (id < transactionId) {
+                    low = middle + 1;
+                } else if (id > transactionId) {
+                    high = middle - 1;
+                } else {
+                    int offset = (int) mappedIndex.getLong(middle * INDEX_ENTRY_SIZE + 4);
+                    int length = mappedIndex.getInt(middle * INDEX_ENTRY_SIZE + 12);
+                    byte[] check = new byte[length];
+                    mappedData.get(offset, check);
+                    return new String(check, StandardCharsets.UTF_8);
+                }
+            }
+            return null;
+        }
+
+        private static MappedByteBuffer map(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+    }
+}
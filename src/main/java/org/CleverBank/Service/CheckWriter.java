@@ -0,0 +1,375 @@
+package org.CleverBank.Service;
+
+import org.CleverBank.Config.AppConfig;
+import org.CleverBank.Config.ConfigService;
+import org.CleverBank.Ledger.MpscRingBuffer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Класс `CheckWriter` асинхронно записывает банковские чеки в архив {@link CheckArchive}.
+ * Операции только кодируют чек и ставят его в ограниченную очередь для нескольких производителей
+ * ({@link MpscRingBuffer}); единственный поток записи забирает чеки пачками и дописывает каждую
+ * пачку в текущий сегмент архива одним обращением к файлу. Чеки разных потоков не перемешиваются.
+ * Данные сбрасываются на диск после заданного количества чеков или по истечении интервала.
+ * При заполненной очереди операция ждет, пока поток записи освободит место.
+ */
+public class CheckWriter implements AutoCloseable {
+
+    /**
+     * Максимальное количество чеков в одной пачке записи.
+     */
+    static final int MAX_BATCH = 256;
+
+    private static CheckWriter defaultInstance;
+
+    private final CheckArchive archive;
+    private final MpscRingBuffer<PendingCheck> queue;
+    private final int syncEveryChecks;
+    private final long syncIntervalNanos;
+    private final Thread thread;
+    private final AtomicBoolean parked = new AtomicBoolean();
+
+    /**
+     * Потоки, ждущие места в очереди или записи чеков; поток записи будит их после каждой пачки.
+     */
+    private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Количество пачек, обработанных потоком записи. Ожидающие потоки сравнивают его с прочитанным
+     * до ожидания значением, поэтому пробуждение между проверкой и засыпанием не теряется.
+     */
+    private volatile long progress;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private volatile long written;
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder backpressureWaits = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile IOException lastFailure;
+    private volatile boolean running = true;
+
+    private int unsyncedChecks;
+    private long oldestUnsyncedNanos;
+
+    /**
+     * Конструктор класса `CheckWriter`. Запускает поток записи; архив закрывается вместе с ним.
+     *
+     * @param archive            Архив чеков.
+     * @param capacity           Емкость очереди чеков.
+     * @param syncEveryChecks    Количество записанных чеков, после которого файл сбрасывается на диск.
+     * @param syncIntervalMillis Максимальное время между записью чека и сбросом файла на диск (в миллисекундах).
+     * @throws IllegalArgumentException Если параметры не положительны.
+     */
+    public CheckWriter(CheckArchive archive, int capacity, int syncEveryChecks, long syncIntervalMillis) {
+        if (syncEveryChecks <= 0 || syncIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Check sync policy must be positive");
+        }
+        this.archive = archive;
+        this.queue = new MpscRingBuffer<>(capacity);
+        this.syncEveryChecks = syncEveryChecks;
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+        this.thread = new Thread(this::run, "check-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Получает общий экземпляр, записывающий чеки в архив с параметрами из конфигурации.
+     * Экземпляр создается при первом обращении; очередь дописывается в архив при остановке JVM.
+     *
+     * @return Общий экземпляр.
+     */
+    public static synchronized CheckWriter getDefault() {
+        if (defaultInstance == null) {
+            AppConfig config = ConfigService.getDefault().get();
+            CheckArchive archive = new CheckArchive(Paths.get(config.getCheckArchiveDirectory()),
+                    config.getCheckSegmentMaxBytes());
+            CheckWriter writer = new CheckWriter(archive, config.getCheckQueueCapacity(),
+                    config.getCheckSyncEveryChecks(), config.getCheckSyncIntervalMillis());
+            Runtime.getRuntime().addShutdownHook(new Thread(writer::close, "check-writer-shutdown"));
+            defaultInstance = writer;
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * Ставит чек в очередь записи. Если очередь заполнена, ждет освобождения места.
+     *
+     * @param check          Содержимое чека.
+     * @param transactionIds Номера транзакций, по которым чек находится в архиве; без номеров чек не индексируется.
+     * @throws IllegalStateException Если запись чеков остановлена.
+     */
+    public void write(String check, int... transactionIds) {
+        write(check.getBytes(StandardCharsets.UTF_8), transactionIds);
+    }
+
+    /**
+     * Ставит в очередь записи чек, уже закодированный в UTF-8. Массив передается в очередь без копирования
+     * и не должен изменяться после вызова. Если очередь заполнена, ждет освобождения места.
+     *
+     * @param check          Содержимое чека в UTF-8.
+     * @param transactionIds Номера транзакций, по которым чек находится в архиве; без номеров чек не индексируется.
+     * @throws IllegalStateException Если запись чеков остановлена.
+     */
+    public void write(byte[] check, int... transactionIds) {
+        if (!running) {
+            throw new IllegalStateException("Check writer is closed");
+        }
+        PendingCheck pending = new PendingCheck(check, transactionIds);
+        long seen = progress;
+        if (!queue.offer(pending)) {
+            backpressureWaits.increment();
+            do {
+                awaitProgress(seen);
+                if (!running) {
+                    throw new IllegalStateException("Check writer is closed");
+                }
+                seen = progress;
+            } while (!queue.offer(pending));
+        }
+        enqueued.incrementAndGet();
+        wake();
+    }
+
+    /**
+     * Ждет, пока все чеки, поставленные в очередь до вызова, будут записаны в архив.
+     * Сброс на диск выполняется по политике записи.
+     */
+    public void flush() {
+        long target = enqueued.get();
+        long seen = progress;
+        while (written < target && thread.isAlive()) {
+            awaitProgress(seen);
+            seen = progress;
+        }
+    }
+
+    /**
+     * Ищет в архиве чек по номеру транзакции. Чеки, еще не записанные из очереди, не находятся;
+     * чтобы найти их, нужно сначала вызвать {@link #flush()}.
+     *
+     * @param transactionId Номер транзакции.
+     * @return Содержимое чека или пустой результат, если чек не найден.
+     */
+    public Optional<String> findCheck(int transactionId) {
+        return archive.findCheck(transactionId);
+    }
+
+    /**
+     * Получает архив, в который записываются чеки.
+     *
+     * @return Архив чеков.
+     */
+    public CheckArchive getArchive() {
+        return archive;
+    }
+
+    /**
+     * Получает количество записанных в архив чеков.
+     *
+     * @return Количество чеков.
+     */
+    public long getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * Получает количество сбросов архива на диск.
+     *
+     * @return Количество сбросов.
+     */
+    public long getSyncCount() {
+        return syncs.sum();
+    }
+
+    /**
+     * Получает количество операций, ждавших свободного места в очереди.
+     *
+     * @return Количество ожиданий.
+     */
+    public long getBackpressureWaitCount() {
+        return backpressureWaits.sum();
+    }
+
+    /**
+     * Получает количество ошибок записи.
+     *
+     * @return Количество ошибок.
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Получает последнюю ошибку записи.
+     *
+     * @return Ошибка или null, если ошибок не было.
+     */
+    public IOException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Останавливает прием чеков, дописывает очередь, сбрасывает архив на диск и закрывает его.
+     */
+    @Override
+    public void close() {
+        running = false;
+        wake();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            int count = queue.drain(this::append, MAX_BATCH);
+            try {
+                if (count > 0) {
+                    archive.flush();
+                    unsyncedChecks += count;
+                    if (oldestUnsyncedNanos == 0) {
+                        oldestUnsyncedNanos = System.nanoTime();
+                    }
+                }
+                if (unsyncedChecks >= syncEveryChecks
+                        || unsyncedChecks > 0 && System.nanoTime() - oldestUnsyncedNanos >= syncIntervalNanos) {
+                    sync();
+                }
+            } catch (IOException e) {
+                // Чеки пачки потеряны; операции уже выполнены, поэтому запись продолжается со следующей пачки
+                failures.increment();
+                lastFailure = e;
+            }
+            written += count;
+            if (count > 0) {
+                signalProgress();
+            } else {
+                idle();
+            }
+        }
+        try {
+            // Чеки, поставленные одновременно с остановкой
+            int count = queue.drain(this::append, Integer.MAX_VALUE);
+            archive.flush();
+            unsyncedChecks += count;
+            written += count;
+            sync();
+        } catch (IOException e) {
+            failures.increment();
+            lastFailure = e;
+        } finally {
+            try {
+                archive.close();
+            } catch (UncheckedIOException e) {
+                failures.increment();
+                lastFailure = e.getCause();
+            } finally {
+                signalProgress();
+            }
+        }
+    }
+
+    /**
+     * Добавляет чек в текущий сегмент архива. Ошибка записи учитывается, пачка продолжает записываться.
+     */
+    private void append(PendingCheck check) {
+        try {
+            archive.append(check.bytes, check.transactionIds);
+        } catch (IOException e) {
+            failures.increment();
+            lastFailure = e;
+        }
+    }
+
+    private void sync() throws IOException {
+        if (unsyncedChecks == 0) {
+            return;
+        }
+        unsyncedChecks = 0;
+        oldestUnsyncedNanos = 0;
+        archive.sync();
+        syncs.increment();
+    }
+
+    /**
+     * Усыпляет поток записи до появления чеков. Без записанных, но не сброшенных чеков поток спит
+     * без таймаута и будится производителем ({@link #wake()}); иначе — не дольше срока сброса.
+     */
+    private void idle() {
+        parked.set(true);
+        if (running && queue.isEmpty()) {
+            if (unsyncedChecks == 0) {
+                LockSupport.park(this);
+            } else {
+                long untilSync = syncIntervalNanos - (System.nanoTime() - oldestUnsyncedNanos);
+                if (untilSync > 0) {
+                    LockSupport.parkNanos(this, untilSync);
+                }
+            }
+        }
+        parked.set(false);
+    }
+
+    /**
+     * Ждет, пока поток записи обработает пачку после значения прогресса {@code seen} или завершится.
+     * Прерывание не прекращает ожидание и восстанавливается после него.
+     */
+    private void awaitProgress(long seen) {
+        Thread current = Thread.currentThread();
+        boolean interrupted = false;
+        waiters.add(current);
+        try {
+            while (progress == seen && thread.isAlive()) {
+                wake();
+                LockSupport.park(this);
+                interrupted |= Thread.interrupted();
+            }
+        } finally {
+            waiters.remove(current);
+            if (interrupted) {
+                current.interrupt();
+            }
+        }
+    }
+
+    private void signalProgress() {
+        progress++;
+        for (Thread waiter : waiters) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    private void wake() {
+        if (parked.get()) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Чек в очереди записи.
+     */
+    private static final class PendingCheck {
+        private final byte[] bytes;
+        private final int[] transactionIds;
+
+        private PendingCheck(byte[] bytes, int[] transactionIds) {
+            this.bytes = bytes;
+            this.transactionIds = transactionIds;
+        }
+    }
+}
@@ -1,92 +1,183 @@
 package org.CleverBank.Service;
 
 import org.CleverBank.Models.Account;
+import org.CleverBank.Models.Currency;
+import org.CleverBank.Models.StatementRow;
 import org.CleverBank.Models.Transaction;
 import org.CleverBank.Models.TransactionType;
 import org.CleverBank.Models.User;
+import org.CleverBank.Service.DocumentTemplate.Field;
 
-import java.io.FileWriter;
-import java.io.IOException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 public class DocumentGenerator {
-    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Макеты документов разбираются один раз при загрузке класса (см. DocumentTemplate)
+    private static final DocumentTemplate TRANSFER_CHECK = DocumentTemplate.compile(
+            "      Банковский чек      \n" +
+                    "Тип операции: {operationType}\n" +
+                    "Дата и время: {timestamp}\n" +
+                    "Банк отправителя: {sourceBank}\n" +
+                    "Банк получателя: {targetBank}\n" +
+                    "Номер счета отправителя: {sourceAccountNumber}\n" +
+                    "Номер счета получателя: {targetAccountNumber}\n" +
+                    "Сумма: {amount} {currency}\n");
+
+    private static final DocumentTemplate CHECK = DocumentTemplate.compile(
+            "      Банковский чек      \n" +
+                    "Дата и время: {timestamp}\n" +
+                    "Тип операции: {operationType}\n" +
+                    "Банк  {bank}\n" +
+                    "Номер счета : {accountNumber}\n" +
+                    "Сумма: {amount} {currency}\n");
+
+    private static final DocumentTemplate STATEMENT_HEADER = DocumentTemplate.compile(
+            "Клиент: {firstname} {lastname}\n" +
+                    "Cчет: {accountNumber}\n" +
+                    "Дата основания: {date}\n" +
+                    "Дата выписки: {timestamp}\n\n" +
+                    "\t Дата \t|\t Примечание \t\t\t| Сумма\n");
+
+    private static final DocumentTemplate OPERATION_ROW = DocumentTemplate.compile(
+            "Дата: {date}  |Тип операции: {operationType}\t\t|Сумма: {amount} {currency}\n");
+
+    private static final DocumentTemplate TRANSFER_IN_ROW = DocumentTemplate.compile(
+            "Дата: {date}  |Тип операции: {operationType} от {lastname}  |Сумма: {amount} {currency}\n");
+
+    private static final DocumentTemplate TRANSFER_OUT_ROW = DocumentTemplate.compile(
+            "Дата: {date}  |Тип операции: {operationType} к {lastname}  |Сумма: {amount} {currency}\n");
+
+    /**
+     * Асинхронная запись чеков в архив. Если не задана, при первом чеке используется {@link CheckWriter#getDefault()}.
+     */
+    private volatile CheckWriter checkWriter;
+
+    /**
+     * Конструктор класса `DocumentGenerator`, записывающий чеки через общий {@link CheckWriter}.
+     */
+    public DocumentGenerator() {
+    }
+
+    /**
+     * Конструктор класса `DocumentGenerator` с заданной записью чеков.
+     *
+     * @param checkWriter Асинхронная запись чеков в архив.
+     */
+    public DocumentGenerator(CheckWriter checkWriter) {
+        this.checkWriter = checkWriter;
+    }
 
     /**
      * Генерирует банковский чек для операции перевода средств между счетами.
      *
-     * @param amount             Сумма перевода.
+     * @param amount             Сумма перевода в минимальных единицах валюты.
+     * @param currency           Валюта счетов перевода.
      * @param operationType      Тип операции (например, "Transfer").
      * @param sourceBank         Название банка отправителя.
      * @param sourceAccountNumber Номер счета отправителя.
      * @param targetBank         Название банка получателя.
      * @param targetAccountNumber Номер счета получателя.
+     * @param transactionIds     Номера транзакций перевода, по которым чек находится в архиве.
      */
-    public void generateTransferCheck(double amount, String operationType, String sourceBank,
-                                      String sourceAccountNumber, String targetBank, String targetAccountNumber) {
-        // Создаем строку с содержимым чека
-        String checkContent = "      Банковский чек      " + "\n" +
-                "Тип операции: " + operationType + "\n" +
-                "Дата и время: " + LocalDateTime.now().format(formatter) + "\n" +
-                "Банк отправителя: " + sourceBank + "\n" +
-                "Банк получателя: " + targetBank + "\n" +
-                "Номер счета отправителя: " + sourceAccountNumber + "\n" +
-                "Номер счета получателя: " + targetAccountNumber + "\n" +
-                "Сумма: " + amount + " рублей\n";
+    public void generateTransferCheck(long amount, Currency currency, String operationType, String sourceBank,
+                                      String sourceAccountNumber, String targetBank, String targetAccountNumber,
+                                      int... transactionIds) {
+        DocumentTemplate.Values values = DocumentTemplate.values()
+                .set(Field.OPERATION_TYPE, operationType)
+                .set(Field.SOURCE_BANK, sourceBank)
+                .set(Field.TARGET_BANK, targetBank)
+                .set(Field.SOURCE_ACCOUNT_NUMBER, sourceAccountNumber)
+                .set(Field.TARGET_ACCOUNT_NUMBER, targetAccountNumber)
+                .amount(amount)
+                .currency(currency);
 
         // Сохраняем чек в файл
-        saveCheckToFile(checkContent);
+        saveCheckToFile(TRANSFER_CHECK.appendTo(DocumentTemplate.buffer(), values), transactionIds);
     }
 
     /**
      * Генерирует банковский чек для операции депозита или снятия средств.
      *
-     * @param amount        Сумма операции.
+     * @param amount        Сумма операции в минимальных единицах валюты.
+     * @param currency      Валюта счета.
      * @param operationType Тип операции (например, "Deposit" или "Withdrawal").
      * @param bank          Название банка.
-     * @param accountNumber Номер счета.
+     * @param accountNumber  Номер счета.
+     * @param transactionIds Номер транзакции, по которому чек находится в архиве.
      */
-    public void generateCheck(double amount, String operationType, String bank, String accountNumber) {
-        // Создаем строку с содержимым чека
-        String checkContent = "      Банковский чек      " + "\n" +
-                "Дата и время: " + LocalDateTime.now().format(formatter) + "\n" +
-                "Тип операции: " + operationType + "\n" +
-                "Банк  " + bank + "\n" +
-                "Номер счета : " + accountNumber + "\n" +
-                "Сумма: " + amount + " рублей\n";
+    public void generateCheck(long amount, Currency currency, String operationType, String bank, String accountNumber,
+                              int... transactionIds) {
+        DocumentTemplate.Values values = DocumentTemplate.values()
+                .set(Field.OPERATION_TYPE, operationType)
+                .set(Field.BANK, bank)
+                .set(Field.ACCOUNT_NUMBER, accountNumber)
+                .amount(amount)
+                .currency(currency);
 
         // Сохраняем чек в файл
-        saveCheckToFile(checkContent);
+        saveCheckToFile(CHECK.appendTo(DocumentTemplate.buffer(), values), transactionIds);
     }
 
     /**
-     * Генерирует информацию о транзакции и возвращает ее в виде строки.
+     * Генерирует информацию о транзакции в валюте по умолчанию и возвращает ее в виде строки.
      *
      * @param transaction Транзакция.
      * @param user        Пользователь, связанный с транзакцией.
      * @return Строка с информацией о транзакции.
      */
     public StringBuilder generateInfoAboutTransaction(Transaction transaction, User user) {
-        StringBuilder transactionInfo = new StringBuilder();
-        transactionInfo.append("Дата: ").append(transaction.getDate()).append("  |");
-
-        // Определяем тип операции и формируем строку информации о ней
-        if (transaction.getType().equals(TransactionType.DEPOSIT)
-                || transaction.getType().equals(TransactionType.WITHDRAWAL)) {
-            transactionInfo.append("Тип операции: ").append(transaction.getType()).append("\t\t|");
-        } else if (transaction.getType().equals(TransactionType.TRANSFER_IN)) {
-            transactionInfo.append("Тип операции: ").append(transaction.getType()).append(" от ")
-                    .append(user.getLastname()).append("  |");
-        } else {
-            transactionInfo.append("Тип операции: ").append(transaction.getType()).append(" к ")
-                    .append(user.getLastname()).append("  |");
-        }
+        return appendInfoAboutTransaction(new StringBuilder(), transaction, user);
+    }
+
+    /**
+     * Дописывает информацию о транзакции в валюте по умолчанию в строку выписки.
+     *
+     * @param transactionInfo Строка, в которую дописывается информация.
+     * @param transaction     Транзакция.
+     * @param user            Пользователь, связанный с транзакцией.
+     * @return Переданная строка.
+     */
+    public StringBuilder appendInfoAboutTransaction(StringBuilder transactionInfo, Transaction transaction, User user) {
+        return appendInfo(transactionInfo, transaction.getDate(), transaction.getType(), transaction.getAmount(),
+                Currency.DEFAULT, user.getLastname());
+    }
 
-        transactionInfo.append("Сумма: ").append(transaction.getAmount()).append(" рублей\n");
+    /**
+     * Дописывает информацию о строке выписки, полученной вместе с данными второй стороны операции.
+     *
+     * @param transactionInfo Строка, в которую дописывается информация.
+     * @param row             Строка выписки.
+     * @param currency        Валюта счета выписки.
+     * @return Переданная строка.
+     */
+    public StringBuilder appendStatementRow(StringBuilder transactionInfo, StatementRow row, Currency currency) {
+        return appendInfo(transactionInfo, row.getDate(), row.getType(), row.getAmount(), currency,
+                row.getCounterpartyLastname());
+    }
 
-        return transactionInfo;
+    private StringBuilder appendInfo(StringBuilder transactionInfo, LocalDate date, TransactionType type, long amount,
+                                     Currency currency, String lastname) {
+        // Определяем тип операции и выбираем макет строки информации о ней
+        DocumentTemplate row;
+        switch (type) {
+            case TRANSFER_IN:
+                row = TRANSFER_IN_ROW;
+                break;
+            case TRANSFER_OUT:
+                row = TRANSFER_OUT_ROW;
+                break;
+            default:
+                row = OPERATION_ROW;
+        }
+        DocumentTemplate.Values values = DocumentTemplate.values()
+                .set(Field.OPERATION_TYPE, type.getDescription())
+                .set(Field.LASTNAME, lastname)
+                .amount(amount)
+                .currency(currency)
+                .date(date);
+        return row.appendTo(transactionInfo, values);
     }
 
     /**
@@ -98,14 +189,7 @@ public class DocumentGenerator {
      * @return Строка с выпиской о транзакциях.
      */
     public StringBuilder generateTransactionStatement(User user, Account account, List<StringBuilder> transactions) {
-        StringBuilder statementContent = new StringBuilder();
-        statementContent.append("Клиент: ").append(user.getFirstname()).append(" ").
-                append(user.getLastname()).append("\n");
-        statementContent.append("Cчет: ").append(account.getAccountNumber()).append("\n");
-        statementContent.append("Дата основания: ").append(account.getDate()).append("\n");
-        statementContent.append("Дата выписки: ").append(LocalDateTime.now().format(formatter)).append("\n\n");
-
-        statementContent.append("\t Дата \t|\t Примечание \t\t\t| Сумма\n");
+        StringBuilder statementContent = appendStatementHeader(new StringBuilder(), user, account);
 
         // Добавляем информацию о транзакциях
         for (StringBuilder transaction : transactions) {
@@ -115,15 +199,47 @@ public class DocumentGenerator {
         return statementContent;
     }
 
-    // Приватный метод для сохранения чека в файл
-    private void saveCheckToFile(String checkContent) {
-        try {
-            FileWriter writer = new FileWriter("src/main/resources/check/check.txt", true);
-            writer.write(checkContent);
-            writer.write("\n\n");
-            writer.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Дописывает заголовок выписки: данные клиента и счета, дату выписки и шапку таблицы транзакций.
+     * Строки транзакций дописываются после заголовка, каждая с пустой строкой после нее.
+     *
+     * @param statementContent Строка, в которую дописывается заголовок.
+     * @param user             Пользователь.
+     * @param account          Счет пользователя.
+     * @return Переданная строка.
+     */
+    public StringBuilder appendStatementHeader(StringBuilder statementContent, User user, Account account) {
+        DocumentTemplate.Values values = DocumentTemplate.values()
+                .set(Field.FIRSTNAME, user.getFirstname())
+                .set(Field.LASTNAME, user.getLastname())
+                .set(Field.ACCOUNT_NUMBER, account.getAccountNumber())
+                .date(account.getDate());
+        return STATEMENT_HEADER.appendTo(statementContent, values);
+    }
+
+    /**
+     * Ищет сохраненный чек по номеру транзакции.
+     *
+     * @param transactionId Номер транзакции.
+     * @return Содержимое чека или пустой результат, если чек не найден.
+     */
+    public Optional<String> findCheck(int transactionId) {
+        return checkWriter().findCheck(transactionId);
+    }
+
+    // Приватный метод для сохранения чека в архив. Чек кодируется в UTF-8 из буфера потока без промежуточной
+    // строки, ставится в очередь записи и дописывается в архив потоком CheckWriter, поэтому операция
+    // не ждет файлового ввода-вывода
+    private void saveCheckToFile(CharSequence checkContent, int[] transactionIds) {
+        checkWriter().write(DocumentTemplate.toUtf8(checkContent), transactionIds);
+    }
+
+    private CheckWriter checkWriter() {
+        CheckWriter writer = checkWriter;
+        if (writer == null) {
+            writer = CheckWriter.getDefault();
+            checkWriter = writer;
         }
+        return writer;
     }
 }
@@ -0,0 +1,345 @@
+package org.CleverBank.Service;
+
+import org.CleverBank.Models.Currency;
+import org.CleverBank.Models.Money;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Класс `DocumentTemplate` — макет чека или строки выписки, разобранный один раз при создании.
+ * Макет задается текстом с полями вида {@code {amount}}; при компиляции он превращается в массив
+ * отрезков: неизменный текст хранится готовым массивом символов, поле — ссылкой на {@link Field}.
+ * Документ собирается в переиспользуемый буфер текущего потока без промежуточных строк: суммы
+ * и даты дописываются цифрами, а отметка времени форматируется не чаще раза в секунду.
+ * Экземпляр неизменяем и может использоваться из нескольких потоков.
+ */
+public final class DocumentTemplate {
+
+    /**
+     * Поле макета.
+     */
+    public enum Field {
+        OPERATION_TYPE("operationType"),
+        TIMESTAMP("timestamp"),
+        BANK("bank"),
+        ACCOUNT_NUMBER("accountNumber"),
+        SOURCE_BANK("sourceBank"),
+        TARGET_BANK("targetBank"),
+        SOURCE_ACCOUNT_NUMBER("sourceAccountNumber"),
+        TARGET_ACCOUNT_NUMBER("targetAccountNumber"),
+        FIRSTNAME("firstname"),
+        LASTNAME("lastname"),
+        AMOUNT("amount"),
+        CURRENCY("currency"),
+        DATE("date");
+
+        private final String placeholder;
+
+        Field(String placeholder) {
+            this.placeholder = placeholder;
+        }
+    }
+
+    /**
+     * Максимальная емкость буфера потока, сохраняемого между документами (в символах).
+     */
+    private static final int MAX_RETAINED_CHARS = 16 * 1024;
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private static volatile Timestamp timestamp = new Timestamp(Long.MIN_VALUE, new char[0]);
+
+    /**
+     * Неизменный текст отрезков; null для отрезков-полей.
+     */
+    private final char[][] literals;
+
+    /**
+     * Поля отрезков; null для отрезков с неизменным текстом.
+     */
+    private final Field[] fields;
+
+    private DocumentTemplate(char[][] literals, Field[] fields) {
+        this.literals = literals;
+        this.fields = fields;
+    }
+
+    /**
+     * Компилирует макет документа.
+     *
+     * @param layout Текст макета с полями вида {@code {amount}}.
+     * @return Скомпилированный макет.
+     * @throws IllegalArgumentException Если поле не закрыто или неизвестно.
+     */
+    public static DocumentTemplate compile(String layout) {
+        List<char[]> literals = new ArrayList<>();
+        List<Field> fields = new ArrayList<>();
+        int position = 0;
+        while (position < layout.length()) {
+            int open = layout.indexOf('{', position);
+            if (open < 0) {
+                open = layout.length();
+            }
+            if (open > position) {
+                literals.add(layout.substring(position, open).toCharArray());
+                fields.add(null);
+            }
+            if (open == layout.length()) {
+                break;
+            }
+            int close = layout.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed field at " + open + ": " + layout);
+            }
+            literals.add(null);
+            fields.add(field(layout.substring(open + 1, close)));
+            position = close + 1;
+        }
+        return new DocumentTemplate(literals.toArray(new char[0][]), fields.toArray(new Field[0]));
+    }
+
+    private static Field field(String placeholder) {
+        for (Field field : Field.values()) {
+            if (field.placeholder.equals(placeholder)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown template field: " + placeholder);
+    }
+
+    /**
+     * Дописывает документ в буфер.
+     *
+     * @param out    Буфер, в который дописывается документ.
+     * @param values Значения полей.
+     * @return Переданный буфер.
+     */
+    public StringBuilder appendTo(StringBuilder out, Values values) {
+        for (int i = 0; i < literals.length; i++) {
+            char[] literal = literals[i];
+            if (literal != null) {
+                out.append(literal);
+                continue;
+            }
+            Field field = fields[i];
+            switch (field) {
+                case TIMESTAMP:
+                    appendTimestamp(out);
+                    break;
+                case AMOUNT:
+                    Money.appendTo(out, values.amount, values.currency);
+                    break;
+                case CURRENCY:
+                    out.append(values.currency.getDescription());
+                    break;
+                case DATE:
+                    appendDate(out, values.date);
+                    break;
+                default:
+                    out.append(values.text[field.ordinal()]);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Получает значения полей текущего потока, очищенные от предыдущего документа.
+     *
+     * @return Значения полей.
+     */
+    public static Values values() {
+        Values values = BUFFERS.get().values;
+        Arrays.fill(values.text, null);
+        values.amount = 0;
+        values.currency = Currency.DEFAULT;
+        values.date = null;
+        return values;
+    }
+
+    /**
+     * Получает пустой буфер текущего потока для сборки документа. Буфер действителен до следующего вызова.
+     *
+     * @return Буфер.
+     */
+    public static StringBuilder buffer() {
+        Buffers buffers = BUFFERS.get();
+        if (buffers.text.capacity() > MAX_RETAINED_CHARS) {
+            buffers.text = new StringBuilder(256);
+        }
+        buffers.text.setLength(0);
+        return buffers.text;
+    }
+
+    /**
+     * Кодирует текст в UTF-8 через буфер байтов текущего потока, не создавая промежуточной строки.
+     * Непарные суррогаты заменяются на '?', как при {@link String#getBytes(java.nio.charset.Charset)}.
+     *
+     * @param text Текст.
+     * @return Массив байтов точной длины.
+     */
+    public static byte[] toUtf8(CharSequence text) {
+        Buffers buffers = BUFFERS.get();
+        int length = text.length();
+        // Символы копируются в массив потока одним вызовом: обход массива заметно быстрее charAt()
+        char[] chars = buffers.chars;
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+            if (chars.length <= MAX_RETAINED_CHARS) {
+                buffers.chars = chars;
+            }
+        }
+        if (text instanceof StringBuilder) {
+            ((StringBuilder) text).getChars(0, length, chars, 0);
+        } else {
+            text.toString().getChars(0, length, chars, 0);
+        }
+        byte[] bytes = buffers.bytes;
+        if (bytes.length < length * 3) {
+            bytes = new byte[Math.max(length * 3, bytes.length * 2)];
+            if (bytes.length <= MAX_RETAINED_CHARS * 3) {
+                buffers.bytes = bytes;
+            }
+        }
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                bytes[size++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[size++] = (byte) (0xC0 | c >> 6);
+                bytes[size++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars[i + 1])) {
+                    int codePoint = Character.toCodePoint(c, chars[++i]);
+                    bytes[size++] = (byte) (0xF0 | codePoint >> 18);
+                    bytes[size++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    bytes[size++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    bytes[size++] = (byte) (0x80 | codePoint & 0x3F);
+                } else {
+                    bytes[size++] = '?';
+                }
+            } else {
+                bytes[size++] = (byte) (0xE0 | c >> 12);
+                bytes[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[size++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return Arrays.copyOf(bytes, size);
+    }
+
+    /**
+     * Дописывает текущие дату и время в формате {@code yyyy-MM-dd HH:mm:ss}. Текст отметки
+     * форматируется один раз в секунду и разделяется всеми потоками.
+     */
+    private static void appendTimestamp(StringBuilder out) {
+        long second = Math.floorDiv(System.currentTimeMillis(), 1000);
+        Timestamp current = timestamp;
+        if (current.second != second) {
+            LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault());
+            current = new Timestamp(second, now.format(TIMESTAMP_FORMATTER).toCharArray());
+            timestamp = current;
+        }
+        out.append(current.text);
+    }
+
+    /**
+     * Дописывает дату в формате ISO ({@code yyyy-MM-dd}), как {@link LocalDate#toString()}, но без создания строки.
+     */
+    private static void appendDate(StringBuilder out, LocalDate date) {
+        if (date == null || date.getYear() < 1000 || date.getYear() > 9999) {
+            out.append(date);
+            return;
+        }
+        out.append(date.getYear()).append('-');
+        appendTwoDigits(out, date.getMonthValue()).append('-');
+        appendTwoDigits(out, date.getDayOfMonth());
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder out, int value) {
+        return out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    /**
+     * Значения полей документа. Экземпляр принадлежит потоку и переиспользуется ({@link #values()}).
+     */
+    public static final class Values {
+        private final String[] text = new String[Field.values().length];
+        private long amount;
+        private Currency currency = Currency.DEFAULT;
+        private LocalDate date;
+
+        private Values() {
+        }
+
+        /**
+         * Задает значение текстового поля.
+         *
+         * @param field Поле.
+         * @param value Значение.
+         * @return Этот экземпляр.
+         */
+        public Values set(Field field, String value) {
+            text[field.ordinal()] = value;
+            return this;
+        }
+
+        /**
+         * Задает сумму в минимальных единицах для поля {@link Field#AMOUNT}.
+         *
+         * @param amount Сумма.
+         * @return Этот экземпляр.
+         */
+        public Values amount(long amount) {
+            this.amount = amount;
+            return this;
+        }
+
+        /**
+         * Задает валюту суммы {@link Field#AMOUNT} и поля {@link Field#CURRENCY}; по умолчанию {@link Currency#DEFAULT}.
+         *
+         * @param currency Валюта.
+         * @return Этот экземпляр.
+         */
+        public Values currency(Currency currency) {
+            this.currency = currency;
+            return this;
+        }
+
+        /**
+         * Задает дату для поля {@link Field#DATE}.
+         *
+         * @param date Дата.
+         * @return Этот экземпляр.
+         */
+        public Values date(LocalDate date) {
+            this.date = date;
+            return this;
+        }
+    }
+
+    private static final class Buffers {
+        private final Values values = new Values();
+        private StringBuilder text = new StringBuilder(256);
+        private char[] chars = new char[256];
+        private byte[] bytes = new byte[768];
+    }
+
+    private static final class Timestamp {
+        private final long second;
+        private final char[] text;
+
+        private Timestamp(long second, char[] text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package org.CleverBank.Service;
+
+import lombok.Setter;
+import org.CleverBank.Config.AppConfig;
+import org.CleverBank.Config.ConfigService;
+import org.CleverBank.Histogram;
+import org.CleverBank.Models.Transaction;
+import org.CleverBank.Models.TransactionType;
+import org.CleverBank.Repository.AccountRepository;
+import org.CleverBank.Repository.TransactionContext;
+import org.CleverBank.Repository.TransactionRepository;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Класс `GroupCommitter` объединяет денежные операции конкурирующих потоков в пачки,
+ * каждая из которых выполняется одной транзакцией базы данных. Вместо фиксации и сброса журнала
+ * базы данных на каждую операцию выполняется одна фиксация на пачку.
+ * <p>
+ * Пачка собирается, пока не истечет окно ожидания с момента поступления первой операции
+ * или пока не наберется максимальное количество операций. Операции пачки применяются по порядку
+ * одним потоком; отклонение одной операции (например, из-за нехватки средств) не отменяет остальные.
+ * Перед применением пачка блокирует строки всех своих счетов в порядке возрастания идентификаторов,
+ * как обычный перевод и начисление процентов, поэтому пачки не блокируют друг друга и остальные операции.
+ * Если транзакция пачки завершилась ошибкой, ее операции выполняются повторно по одной,
+ * чтобы ошибочная операция не помешала остальным.
+ */
+public class GroupCommitter implements AutoCloseable {
+
+    /**
+     * Границы корзин гистограммы размеров пачек.
+     */
+    private static final long[] BATCH_SIZE_BOUNDS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512};
+
+    /**
+     * Время ожидания первой операции пачки, после которого проверяется признак остановки (в миллисекундах).
+     */
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    @Setter
+    private AccountRepository accountRepository;
+
+    @Setter
+    private TransactionRepository transactionRepository;
+
+    @Setter
+    private DataSource dataSource;
+
+    private final ConfigService configService;
+    private final BlockingQueue<Command> queue = new LinkedBlockingQueue<>();
+    private final Histogram batchSizes = new Histogram(BATCH_SIZE_BOUNDS);
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * Конструктор класса `GroupCommitter` с параметрами из общей конфигурации.
+     *
+     * @param dataSource Источник данных (DataSource), используемый для взаимодействия с базой данных.
+     */
+    public GroupCommitter(DataSource dataSource) {
+        this(dataSource, ConfigService.getDefault());
+    }
+
+    /**
+     * Конструктор класса `GroupCommitter`.
+     *
+     * @param dataSource   Источник данных (DataSource), используемый для взаимодействия с базой данных.
+     * @param windowMicros Окно ожидания операций для пачки (в микросекундах).
+     * @param maxBatchSize Максимальное количество операций в пачке.
+     * @throws IllegalArgumentException Если окно отрицательно или размер пачки не положителен.
+     */
+    public GroupCommitter(DataSource dataSource, long windowMicros, int maxBatchSize) {
+        this(dataSource, new ConfigService(fixedConfig(windowMicros, maxBatchSize)));
+    }
+
+    /**
+     * Конструктор класса `GroupCommitter`, читающий окно и размер пачки из текущего снимка конфигурации
+     * перед сборкой каждой пачки, поэтому их изменение применяется без перезапуска.
+     *
+     * @param dataSource    Источник данных (DataSource), используемый для взаимодействия с базой данных.
+     * @param configService Сервис конфигурации.
+     */
+    public GroupCommitter(DataSource dataSource, ConfigService configService) {
+        this.dataSource = dataSource;
+        this.accountRepository = new AccountRepository(dataSource);
+        this.transactionRepository = new TransactionRepository(dataSource);
+        this.configService = configService;
+        this.worker = new Thread(this::run, "group-committer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Ставит в очередь зачисление на счет.
+     *
+     * @param accountId Идентификатор счета.
+     * @param amount    Сумма зачисления в копейках.
+     * @return Результат с новым балансом счета, завершаемый после фиксации пачки.
+     */
+    public CompletableFuture<Result> deposit(int accountId, long amount) {
+        return submit(new Command(TransactionType.DEPOSIT, accountId, accountId, amount));
+    }
+
+    /**
+     * Ставит в очередь списание со счета. Если средств недостаточно, результат завершается
+     * исключением {@link IllegalArgumentException}.
+     *
+     * @param accountId Идентификатор счета.
+     * @param amount    Сумма списания в копейках.
+     * @return Результат с новым балансом счета, завершаемый после фиксации пачки.
+     */
+    public CompletableFuture<Result> withdraw(int accountId, long amount) {
+        return submit(new Command(TransactionType.WITHDRAWAL, accountId, accountId, amount));
+    }
+
+    /**
+     * Ставит в очередь перевод со счета на счет. Если средств недостаточно, результат завершается
+     * исключением {@link IllegalArgumentException}.
+     *
+     * @param sourceAccountId Идентификатор счета-источника.
+     * @param targetAccountId Идентификатор счета-получателя.
+     * @param amount          Сумма перевода в копейках.
+     * @return Результат с новыми балансами обоих счетов, завершаемый после фиксации пачки.
+     */
+    public CompletableFuture<Result> transfer(int sourceAccountId, int targetAccountId, long amount) {
+        return submit(new Command(TransactionType.TRANSFER_OUT, sourceAccountId, targetAccountId, amount));
+    }
+
+    /**
+     * Получает гистограмму размеров зафиксированных пачек.
+     *
+     * @return Гистограмма размеров пачек.
+     */
+    public Histogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    /**
+     * Получает количество зафиксированных транзакций базы данных.
+     *
+     * @return Количество фиксаций.
+     */
+    public long getCommitCount() {
+        return commits.sum();
+    }
+
+    /**
+     * Получает количество пачек, выполненных повторно по одной операции после ошибки.
+     *
+     * @return Количество пачек.
+     */
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * Прекращает прием операций и дожидается выполнения уже принятых.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Command command;
+        while ((command = queue.poll()) != null) {
+            command.future.completeExceptionally(new IllegalStateException("Group committer is closed"));
+        }
+    }
+
+    private CompletableFuture<Result> submit(Command command) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Group committer is closed"));
+        }
+        queue.add(command);
+        // close() мог остановить поток и разобрать очередь между проверкой и добавлением: тогда операцию
+        // никто не выполнит. Если она еще в очереди, она отклоняется; иначе ее забрал поток или close()
+        if (!running && queue.remove(command)) {
+            command.future.completeExceptionally(new IllegalStateException("Group committer is closed"));
+        }
+        return command.future;
+    }
+
+    private static AppConfig fixedConfig(long windowMicros, int maxBatchSize) {
+        if (windowMicros < 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Window must not be negative and batch size must be positive");
+        }
+        return AppConfig.defaults().toBuilder()
+                .groupCommitWindowMicros(windowMicros)
+                .groupCommitMaxBatchSize(maxBatchSize)
+                .build();
+    }
+
+    private void run() {
+        List<Command> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Command first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                AppConfig config = configService.get();
+                collect(batch, System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(config.getGroupCommitWindowMicros()),
+                        config.getGroupCommitMaxBatchSize());
+            } catch (InterruptedException e) {
+                // Поток останавливается только по признаку running, накопленная пачка будет зафиксирована
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Добирает операции в пачку до истечения окна или заполнения пачки.
+     */
+    private void collect(List<Command> batch, long deadline, int maxBatchSize) throws InterruptedException {
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+            Command next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void commit(List<Command> batch) {
+        batchSizes.record(batch.size());
+        try {
+            apply(batch);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).future.completeExceptionally(e);
+                return;
+            }
+            fallbacks.increment();
+            for (Command command : batch) {
+                try {
+                    apply(List.of(command));
+                    command.complete();
+                } catch (RuntimeException single) {
+                    command.future.completeExceptionally(single);
+                }
+            }
+            return;
+        }
+        for (Command command : batch) {
+            command.complete();
+        }
+    }
+
+    /**
+     * Применяет операции одной транзакцией. Результаты операций завершаются вызывающим методом
+     * после фиксации.
+     */
+    private void apply(List<Command> commands) {
+        List<Transaction> transactions = new ArrayList<>(commands.size() * 2);
+        LocalDate today = LocalDate.now();
+        int[] accountIds = commands.stream()
+                .flatMapToInt(command -> IntStream.of(command.accountId, command.counterpartyId))
+                .distinct()
+                .sorted()
+                .toArray();
+        TransactionContext.runInTransaction(dataSource, () -> {
+            transactions.clear();
+            accountRepository.lockAccounts(accountIds);
+            for (Command command : commands) {
+                command.reset();
+                applyCommand(command, today, transactions);
+            }
+            if (!transactions.isEmpty()) {
+                transactionRepository.saveTransactions(transactions);
+            }
+        });
+        commits.increment();
+    }
+
+    private void applyCommand(Command command, LocalDate today, List<Transaction> transactions) {
+        switch (command.type) {
+            case DEPOSIT:
+                command.balance = accountRepository.adjustBalance(command.accountId, command.amount);
+                command.transactions.add(transaction(command.accountId, command.accountId, command.amount, today,
+                        TransactionType.DEPOSIT));
+                break;
+            case WITHDRAWAL:
+                OptionalLong withdrawn = accountRepository.debitIfSufficient(command.accountId, command.amount);
+                if (withdrawn.isEmpty()) {
+                    command.rejection = new IllegalArgumentException("Insufficient funds to withdraw");
+                    return;
+                }
+                command.balance = withdrawn.getAsLong();
+                command.transactions.add(transaction(command.accountId, command.accountId, -command.amount, today,
+                        TransactionType.WITHDRAWAL));
+                break;
+            default:
+                // Строки обоих счетов уже заблокированы в порядке идентификаторов (lockAccounts),
+                // поэтому порядок списания и зачисления не влияет на взаимные блокировки
+                OptionalLong debited = accountRepository.debitIfSufficient(command.accountId, command.amount);
+                if (debited.isEmpty()) {
+                    command.rejection = new IllegalArgumentException("Not enough funds");
+                    return;
+                }
+                command.balance = debited.getAsLong();
+                command.counterpartyBalance = accountRepository.adjustBalance(command.counterpartyId, command.amount);
+                command.transactions.add(transaction(command.accountId, command.counterpartyId, -command.amount, today,
+                        TransactionType.TRANSFER_OUT));
+                command.transactions.add(transaction(command.accountId, command.counterpartyId, command.amount, today,
+                        TransactionType.TRANSFER_IN));
+        }
+        transactions.addAll(command.transactions);
+    }
+
+    private static Transaction transaction(int sourceAccount, int targetAccount, long amount, LocalDate date,
+                                           TransactionType type) {
+        return Transaction.builder()
+                .amount(amount)
+                .sourceAccount(sourceAccount)
+                .targetAccount(targetAccount)
+                .date(date)
+                .type(type)
+                .build();
+    }
+
+    /**
+     * Результат операции: новые балансы затронутых счетов и номера созданных транзакций.
+     */
+    public static final class Result {
+        private final long balance;
+        private final long counterpartyBalance;
+        private final int[] transactionIds;
+
+        private Result(long balance, long counterpartyBalance, int[] transactionIds) {
+            this.balance = balance;
+            this.counterpartyBalance = counterpartyBalance;
+            this.transactionIds = transactionIds;
+        }
+
+        /**
+         * Получает баланс счета после операции.
+         *
+         * @return Новый баланс счета (для перевода — счета-источника).
+         */
+        public long getBalance() {
+            return balance;
+        }
+
+        /**
+         * Получает баланс счета-получателя после перевода.
+         *
+         * @return Новый баланс счета-получателя.
+         */
+        public long getCounterpartyBalance() {
+            return counterpartyBalance;
+        }
+
+        /**
+         * Получает номера транзакций операции: для перевода — списания и зачисления.
+         *
+         * @return Номера транзакций.
+         */
+        public int[] getTransactionIds() {
+            return transactionIds.clone();
+        }
+    }
+
+    /**
+     * Операция в очереди. Тип перевода обозначается {@link TransactionType#TRANSFER_OUT}.
+     */
+    private static final class Command {
+        private final TransactionType type;
+        private final int accountId;
+        private final int counterpartyId;
+        private final long amount;
+        private final CompletableFuture<Result> future = new CompletableFuture<>();
+        private final List<Transaction> transactions = new ArrayList<>(2);
+
+        private long balance;
+        private long counterpartyBalance;
+        private RuntimeException rejection;
+
+        private Command(TransactionType type, int accountId, int counterpartyId, long amount) {
+            this.type = type;
+            this.accountId = accountId;
+            this.counterpartyId = counterpartyId;
+            this.amount = amount;
+        }
+
+        private void reset() {
+            balance = 0;
+            counterpartyBalance = 0;
+            rejection = null;
+            transactions.clear();
+        }
+
+        private void complete() {
+            if (rejection != null) {
+                future.completeExceptionally(rejection);
+            } else {
+                future.complete(new Result(balance, counterpartyBalance,
+                        transactions.stream().mapToInt(Transaction::getId).toArray()));
+            }
+        }
+    }
+}
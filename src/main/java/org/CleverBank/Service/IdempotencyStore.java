@@ -0,0 +1,190 @@
+package org.CleverBank.Service;
+
+import lombok.Setter;
+import org.CleverBank.Config.AppConfig;
+import org.CleverBank.Config.ConfigService;
+import org.CleverBank.Models.IdempotencyRecord;
+import org.CleverBank.Repository.IdempotencyRepository;
+import org.CleverBank.Repository.TransactionContext;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Класс `IdempotencyStore` исключает повторное выполнение операций, повторенных клиентом с тем же ключом.
+ * Результаты недавних операций хранятся в ограниченном LRU-кэше в памяти, поэтому типичный повтор
+ * обнаруживается за O(1) без обращения к базе данных. За кэшем стоит таблица `idempotency`:
+ * ключ занимается в той же транзакции, что и сама операция, поэтому операция и ее ключ
+ * фиксируются или откатываются вместе, а одновременные повторы ждут завершения первой попытки.
+ * Поэтому операция должна выполняться в транзакции вызывающего потока ({@link TransactionContext}),
+ * а не фиксироваться на другом соединении.
+ */
+public class IdempotencyStore {
+
+    @Setter
+    private IdempotencyRepository idempotencyRepository;
+
+    @Setter
+    private DataSource dataSource;
+
+    private final ConfigService configService;
+    private final Map<String, IdempotencyRecord> cache;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder databaseHits = new LongAdder();
+
+    /**
+     * Конструктор класса `IdempotencyStore` с параметрами из общей конфигурации.
+     *
+     * @param dataSource Источник данных (DataSource), используемый для взаимодействия с базой данных.
+     */
+    public IdempotencyStore(DataSource dataSource) {
+        this(dataSource, ConfigService.getDefault());
+    }
+
+    /**
+     * Конструктор класса `IdempotencyStore`.
+     *
+     * @param dataSource Источник данных (DataSource), используемый для взаимодействия с базой данных.
+     * @param capacity   Максимальное количество ключей в памяти.
+     * @param ttl        Срок хранения ключей.
+     * @throws IllegalArgumentException Если емкость или срок хранения не положительны.
+     */
+    public IdempotencyStore(DataSource dataSource, int capacity, Duration ttl) {
+        this(dataSource, new ConfigService(fixedConfig(capacity, ttl)));
+    }
+
+    /**
+     * Конструктор класса `IdempotencyStore`, читающий емкость кэша и срок хранения ключей
+     * из текущего снимка конфигурации, поэтому их изменение применяется без перезапуска.
+     *
+     * @param dataSource    Источник данных (DataSource), используемый для взаимодействия с базой данных.
+     * @param configService Сервис конфигурации.
+     */
+    public IdempotencyStore(DataSource dataSource, ConfigService configService) {
+        this.dataSource = dataSource;
+        this.idempotencyRepository = new IdempotencyRepository(dataSource);
+        this.configService = configService;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+                return size() > configService.get().getIdempotencyCacheCapacity();
+            }
+        };
+    }
+
+    private static AppConfig fixedConfig(int capacity, Duration ttl) {
+        if (capacity <= 0 || ttl.toMinutes() <= 0) {
+            throw new IllegalArgumentException("Capacity and TTL must be positive");
+        }
+        return AppConfig.defaults().toBuilder()
+                .idempotencyCacheCapacity(capacity)
+                .idempotencyTtlMinutes(ttl.toMinutes())
+                .build();
+    }
+
+    /**
+     * Выполняет операцию не более одного раза для данного ключа. Если операция с этим ключом
+     * уже выполнялась, возвращается ее сохраненный результат, а операция не вызывается.
+     *
+     * @param key         Ключ идемпотентности.
+     * @param fingerprint Отпечаток запроса (тип операции, счета и сумма).
+     * @param operation   Операция, возвращающая балансы после выполнения.
+     * @return Результат первого выполнения операции.
+     * @throws IllegalArgumentException Если ключ пуст или уже использован для другого запроса.
+     * @throws IllegalStateException    Если операция с этим ключом еще не завершена.
+     */
+    public IdempotencyRecord execute(String key, String fingerprint, Supplier<IdempotencyRecord> operation) {
+        if (key == null || key.isEmpty()) {
+            throw new IllegalArgumentException("Idempotency key must not be empty");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiredBefore = now.minus(ttl());
+
+        IdempotencyRecord cached = getCached(key, expiredBefore);
+        if (cached != null) {
+            memoryHits.increment();
+            return checkFingerprint(cached, fingerprint);
+        }
+
+        IdempotencyRecord result = TransactionContext.inTransaction(dataSource, () -> {
+            if (!idempotencyRepository.claim(key, fingerprint, now, expiredBefore)) {
+                return null;
+            }
+            IdempotencyRecord record = operation.get();
+            idempotencyRepository.complete(key, record.getBalance(), record.getCounterpartyBalance());
+            record.setKey(key);
+            record.setFingerprint(fingerprint);
+            record.setCompleted(true);
+            record.setCreatedAt(now);
+            return record;
+        });
+
+        if (result == null) {
+            databaseHits.increment();
+            result = idempotencyRepository.getByKey(key);
+            if (result == null || !result.isCompleted()) {
+                throw new IllegalStateException("Request with this idempotency key is still in progress");
+            }
+            checkFingerprint(result, fingerprint);
+        }
+        synchronized (cache) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Удаляет из базы данных ключи с истекшим сроком хранения.
+     *
+     * @return Количество удаленных ключей.
+     */
+    public int purgeExpired() {
+        return idempotencyRepository.deleteExpired(LocalDateTime.now().minus(ttl()));
+    }
+
+    private Duration ttl() {
+        return Duration.ofMinutes(configService.get().getIdempotencyTtlMinutes());
+    }
+
+    /**
+     * Получает количество повторов, обнаруженных в памяти.
+     *
+     * @return Количество повторов.
+     */
+    public long getMemoryHitCount() {
+        return memoryHits.sum();
+    }
+
+    /**
+     * Получает количество повторов, обнаруженных только в базе данных.
+     *
+     * @return Количество повторов.
+     */
+    public long getDatabaseHitCount() {
+        return databaseHits.sum();
+    }
+
+    private IdempotencyRecord getCached(String key, LocalDateTime expiredBefore) {
+        synchronized (cache) {
+            IdempotencyRecord record = cache.get(key);
+            if (record != null && record.getCreatedAt().isBefore(expiredBefore)) {
+                cache.remove(key);
+                return null;
+            }
+            return record;
+        }
+    }
+
+    private static IdempotencyRecord checkFingerprint(IdempotencyRecord record, String fingerprint) {
+        if (!record.getFingerprint().equals(fingerprint)) {
+            throw new IllegalArgumentException("Idempotency key was already used for a different request");
+        }
+        return record;
+    }
+}
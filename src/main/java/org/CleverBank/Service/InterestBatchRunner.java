@@ -0,0 +1,228 @@
+package org.CleverBank.Service;
+
+import lombok.Setter;
+import org.CleverBank.Config.AppConfig;
+import org.CleverBank.Config.ConfigService;
+import org.CleverBank.Models.InterestChunk;
+import org.CleverBank.Repository.AccountRepository;
+import org.CleverBank.Repository.InterestCheckpointRepository;
+import org.CleverBank.Repository.TransactionContext;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс `InterestBatchRunner` выполняет массовое начисление процентов как возобновляемый пакетный запуск.
+ * Пространство идентификаторов счетов делится на диапазоны, которые обрабатываются параллельно
+ * в пуле с перехватом работы ({@link ForkJoinPool}). Счета диапазона загружаются блоком массивов
+ * примитивов, проценты вычисляются {@link InterestEngine} для всего блока сразу и записываются
+ * пакетом в одной транзакции вместе с контрольной точкой диапазона, поэтому после сбоя
+ * повторный запуск за ту же дату обрабатывает только диапазоны без контрольной точки
+ * и не начисляет проценты дважды.
+ */
+public class InterestBatchRunner implements AutoCloseable {
+
+    /**
+     * Блок счетов потока пула; массивы растут до размера наибольшего диапазона и переиспользуются.
+     */
+    private static final ThreadLocal<InterestChunk> CHUNK = ThreadLocal.withInitial(() -> new InterestChunk(1_024));
+
+    @Setter
+    private AccountRepository accountRepository;
+
+    @Setter
+    private InterestCheckpointRepository checkpointRepository;
+
+    @Setter
+    private DataSource dataSource;
+
+    private final ConfigService configService;
+    private final ForkJoinPool pool;
+
+    private final LongAdder completedRanges = new LongAdder();
+    private final LongAdder skippedIds = new LongAdder();
+    private final LongAdder failedRanges = new LongAdder();
+
+    /**
+     * Конструктор класса `InterestBatchRunner`. Параллелизм пула задается размером пула начисления
+     * процентов из текущего снимка конфигурации.
+     *
+     * @param dataSource    Источник данных (DataSource), используемый для взаимодействия с базой данных.
+     * @param configService Сервис конфигурации.
+     */
+    public InterestBatchRunner(DataSource dataSource, ConfigService configService) {
+        this.dataSource = dataSource;
+        this.accountRepository = new AccountRepository(dataSource);
+        this.checkpointRepository = new InterestCheckpointRepository(dataSource);
+        this.configService = configService;
+        this.pool = new ForkJoinPool(configService.get().getInterestPoolSize());
+    }
+
+    /**
+     * Начисляет проценты на все счета, которым пора начислять проценты на указанную дату.
+     * Диапазоны, обработанные ранее в запуске за эту дату, пропускаются; контрольные точки
+     * предыдущих дат удаляются. Ошибка в одном диапазоне не останавливает остальные:
+     * после обработки всех диапазонов выбрасывается исключение, а необработанные диапазоны
+     * будут обработаны следующим запуском.
+     *
+     * @param asOf Дата начисления.
+     * @return Количество начислений процентов в этом запуске.
+     * @throws RuntimeException Если начисление по одному или нескольким диапазонам завершилось ошибкой.
+     */
+    public int run(LocalDate asOf) {
+        AppConfig config = configService.get();
+        checkpointRepository.deleteBefore(asOf);
+        List<int[]> ranges = pendingRanges(asOf, accountRepository.getMaxAccountId(), config.getInterestChunkSize());
+        if (ranges.isEmpty()) {
+            return 0;
+        }
+        Queue<RuntimeException> failures = new ConcurrentLinkedQueue<>();
+        InterestEngine engine = new InterestEngine(config.getInterestDayCount(), config.getInterestCompounding());
+        RangeTask task = new RangeTask(ranges, 0, ranges.size(), asOf, asOf.minusMonths(1), engine,
+                InterestEngine.annualRate(config.getInterestRateMicros()), failures);
+        int accrued = pool.invoke(task);
+        if (!failures.isEmpty()) {
+            RuntimeException failure = new RuntimeException("Failed to accrue interest for " + failures.size()
+                    + " of " + ranges.size() + " ranges", failures.peek());
+            failures.stream().skip(1).forEach(failure::addSuppressed);
+            throw failure;
+        }
+        return accrued;
+    }
+
+    /**
+     * Получает количество диапазонов, обработанных с момента создания.
+     *
+     * @return Количество обработанных диапазонов.
+     */
+    public long getCompletedRangeCount() {
+        return completedRanges.sum();
+    }
+
+    /**
+     * Получает количество идентификаторов счетов, пропущенных благодаря контрольным точкам.
+     *
+     * @return Количество пропущенных идентификаторов.
+     */
+    public long getSkippedIdCount() {
+        return skippedIds.sum();
+    }
+
+    /**
+     * Получает количество диапазонов, обработка которых завершилась ошибкой.
+     *
+     * @return Количество диапазонов с ошибкой.
+     */
+    public long getFailedRangeCount() {
+        return failedRanges.sum();
+    }
+
+    /**
+     * Останавливает пул после завершения текущего запуска.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Делит идентификаторы от 1 до maxId, не покрытые контрольными точками, на диапазоны не длиннее chunkSize.
+     * Диапазоны строятся по промежуткам между контрольными точками, поэтому изменение размера диапазона
+     * или появление новых счетов между запусками не приводит к повторной обработке.
+     */
+    private List<int[]> pendingRanges(LocalDate asOf, int maxId, int chunkSize) {
+        List<int[]> ranges = new ArrayList<>();
+        long next = 1;
+        for (int[] completed : checkpointRepository.getCompletedRanges(asOf)) {
+            addRanges(ranges, next, Math.min(completed[0] - 1L, maxId), chunkSize);
+            skippedIds.add(Math.max(0, Math.min(completed[1], maxId) - Math.max(completed[0], next) + 1));
+            next = Math.max(next, completed[1] + 1L);
+        }
+        addRanges(ranges, next, maxId, chunkSize);
+        return ranges;
+    }
+
+    private static void addRanges(List<int[]> ranges, long from, long to, int chunkSize) {
+        for (long start = from; start <= to; start += chunkSize) {
+            ranges.add(new int[]{(int) start, (int) Math.min(start + chunkSize - 1, to)});
+        }
+    }
+
+    /**
+     * Обрабатывает диапазон начислением процентов и контрольной точкой в одной транзакции.
+     * Блок переиспользуется потоком пула между диапазонами.
+     */
+    private int accrueRange(int[] range, LocalDate asOf, LocalDate dueBefore, InterestEngine engine,
+                            double annualRate, InterestChunk chunk) {
+        int accrued = TransactionContext.inTransaction(dataSource, () -> {
+            int size = accountRepository.loadInterestChunk(range[0], range[1], dueBefore, chunk);
+            Arrays.fill(chunk.getRates(), 0, size, annualRate);
+            engine.accrue(chunk.getBalances(), chunk.getLastAccrualDays(), chunk.getRates(), size,
+                    (int) asOf.toEpochDay(), chunk.getInterest());
+            int count = accountRepository.applyInterestChunk(chunk, asOf);
+            checkpointRepository.markCompleted(asOf, range[0], range[1], count);
+            return count;
+        });
+        completedRanges.increment();
+        return accrued;
+    }
+
+    /**
+     * Задача, делящая список диапазонов пополам, пока в ней не останется один диапазон.
+     * Свободные потоки пула забирают непройденные половины у занятых.
+     */
+    private final class RangeTask extends RecursiveTask<Integer> {
+        private final List<int[]> ranges;
+        private final int from;
+        private final int to;
+        private final LocalDate asOf;
+        private final LocalDate dueBefore;
+        private final InterestEngine engine;
+        private final double annualRate;
+        private final Queue<RuntimeException> failures;
+
+        private RangeTask(List<int[]> ranges, int from, int to, LocalDate asOf, LocalDate dueBefore,
+                          InterestEngine engine, double annualRate, Queue<RuntimeException> failures) {
+            this.ranges = ranges;
+            this.from = from;
+            this.to = to;
+            this.asOf = asOf;
+            this.dueBefore = dueBefore;
+            this.engine = engine;
+            this.annualRate = annualRate;
+            this.failures = failures;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from == 1) {
+                try {
+                    return accrueRange(ranges.get(from), asOf, dueBefore, engine, annualRate, CHUNK.get());
+                } catch (RuntimeException e) {
+                    failedRanges.increment();
+                    failures.add(e);
+                    return 0;
+                }
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask left = new RangeTask(ranges, from, middle, asOf, dueBefore, engine, annualRate, failures);
+            RangeTask right = new RangeTask(ranges, middle, to, asOf, dueBefore, engine, annualRate, failures);
+            left.fork();
+            return right.compute() + left.join();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.CleverBank.Service;
+
+import org.CleverBank.Models.Compounding;
+import org.CleverBank.Models.DayCount;
+import org.CleverBank.Models.Money;
+
+/**
+ * Класс `InterestEngine` вычисляет проценты, накопленные за период, сразу для блока счетов.
+ * Балансы, даты последнего начисления и ставки передаются параллельными массивами примитивов,
+ * поэтому расчет не создает объектов на счет, а цикл по блоку компилируется JIT без обращений
+ * к куче, кроме чтения и записи массивов.
+ * <p>
+ * Длительность периода считается по соглашению {@link DayCount}, проценты начисляются простыми
+ * или с ежедневной капитализацией ({@link Compounding}). Результат округляется до минимальной
+ * единицы валюты по банковскому правилу (половина — к четному) с точностью {@code double}.
+ * Экземпляр неизменяем и может использоваться из нескольких потоков.
+ */
+public class InterestEngine {
+
+    private final DayCount dayCount;
+    private final Compounding compounding;
+
+    /**
+     * Конструктор класса `InterestEngine`.
+     *
+     * @param dayCount    Соглашение о подсчете дней.
+     * @param compounding Способ начисления процентов.
+     */
+    public InterestEngine(DayCount dayCount, Compounding compounding) {
+        this.dayCount = dayCount;
+        this.compounding = compounding;
+    }
+
+    /**
+     * Переводит ежемесячную ставку из конфигурации в годовую номинальную ставку.
+     *
+     * @param monthlyRateMicros Ежемесячная ставка в миллионных долях.
+     * @return Годовая ставка в виде десятичной дроби.
+     */
+    public static double annualRate(long monthlyRateMicros) {
+        return monthlyRateMicros * 12.0 / Money.RATE_SCALE;
+    }
+
+    /**
+     * Вычисляет проценты для первых {@code length} счетов блока за период от даты последнего
+     * начисления до даты {@code asOfEpochDay}. Для периода нулевой или отрицательной длины проценты равны нулю.
+     *
+     * @param balances        Балансы счетов в минимальных единицах.
+     * @param lastAccrualDays Даты последнего начисления в днях от 1970-01-01.
+     * @param annualRates     Годовые ставки в виде десятичных дробей.
+     * @param length          Количество счетов в блоке.
+     * @param asOfEpochDay    Дата начисления в днях от 1970-01-01.
+     * @param interest        Массив для результатов: проценты в минимальных единицах.
+     * @throws ArithmeticException Если проценты не помещаются в {@code long}.
+     */
+    public void accrue(long[] balances, int[] lastAccrualDays, double[] annualRates, int length,
+                       int asOfEpochDay, long[] interest) {
+        int asOfDate = dayCount == DayCount.THIRTY_360 ? civilDate(asOfEpochDay) : 0;
+        for (int i = 0; i < length; i++) {
+            int days = dayCount == DayCount.THIRTY_360
+                    ? days360(civilDate(lastAccrualDays[i]), asOfDate)
+                    : asOfEpochDay - lastAccrualDays[i];
+            interest[i] = interest(balances[i], days, annualRates[i]);
+        }
+    }
+
+    /**
+     * Вычисляет проценты для одного счета. Используется при начислении по одному счету,
+     * чтобы результат совпадал с начислением блоком.
+     *
+     * @param balance         Баланс счета в минимальных единицах.
+     * @param lastAccrualDay  Дата последнего начисления в днях от 1970-01-01.
+     * @param annualRate      Годовая ставка в виде десятичной дроби.
+     * @param asOfEpochDay    Дата начисления в днях от 1970-01-01.
+     * @return Проценты в минимальных единицах.
+     * @throws ArithmeticException Если проценты не помещаются в {@code long}.
+     */
+    public long accrue(long balance, int lastAccrualDay, double annualRate, int asOfEpochDay) {
+        int days = dayCount == DayCount.THIRTY_360
+                ? days360(civilDate(lastAccrualDay), civilDate(asOfEpochDay))
+                : asOfEpochDay - lastAccrualDay;
+        return interest(balance, days, annualRate);
+    }
+
+    private long interest(long balance, int days, double annualRate) {
+        if (days <= 0 || balance == 0) {
+            return 0;
+        }
+        double factor = compounding == Compounding.DAILY
+                ? Math.expm1(days * Math.log1p(annualRate / dayCount.getDaysInYear()))
+                : annualRate * days / dayCount.getDaysInYear();
+        double amount = Math.rint(balance * factor);
+        if (Math.abs(amount) >= 0x1p63) {
+            throw new ArithmeticException("Interest amount overflow");
+        }
+        return (long) amount;
+    }
+
+    /**
+     * Количество дней между датами по правилу 30/360 Bond Basis. Даты упакованы методом {@link #civilDate(int)}.
+     */
+    private static int days360(int from, int to) {
+        int fromDay = from & 0x1F;
+        int toDay = to & 0x1F;
+        if (fromDay == 31) {
+            fromDay = 30;
+        }
+        if (toDay == 31 && fromDay == 30) {
+            toDay = 30;
+        }
+        return 360 * ((to >> 9) - (from >> 9)) + 30 * (((to >> 5) & 0xF) - ((from >> 5) & 0xF)) + toDay - fromDay;
+    }
+
+    /**
+     * Переводит количество дней от 1970-01-01 в дату по григорианскому календарю без создания объектов.
+     * Результат упакован в int: год в старших битах, месяц (1-12) в битах 5-8, день (1-31) в битах 0-4.
+     */
+    private static int civilDate(int epochDay) {
+        // Алгоритм civil_from_days Говарда Хиннанта: год начинается 1 марта,
+        // поэтому високосный день оказывается в конце года
+        int z = epochDay + 719_468;
+        int era = Math.floorDiv(z, 146_097);
+        int dayOfEra = z - era * 146_097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        int month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (year << 9) | (month << 5) | day;
+    }
+}
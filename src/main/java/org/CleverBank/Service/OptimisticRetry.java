@@ -0,0 +1,142 @@
+package org.CleverBank.Service;
+
+import org.CleverBank.Repository.OptimisticLockException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Класс `OptimisticRetry` повторяет операцию, завершившуюся конфликтом оптимистичной блокировки,
+ * с ограниченной экспоненциальной задержкой. Операция должна заново читать данные при каждой попытке,
+ * иначе повтор приведет к тому же конфликту.
+ */
+public class OptimisticRetry {
+
+    /**
+     * Максимальное количество попыток по умолчанию.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    /**
+     * Начальная задержка перед повтором по умолчанию (в миллисекундах).
+     */
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 5;
+
+    /**
+     * Максимальная задержка перед повтором по умолчанию (в миллисекундах).
+     */
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 200;
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    /**
+     * Конструктор класса `OptimisticRetry` с параметрами по умолчанию.
+     */
+    public OptimisticRetry() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS);
+    }
+
+    /**
+     * Конструктор класса `OptimisticRetry`.
+     *
+     * @param maxAttempts          Максимальное количество попыток, включая первую.
+     * @param initialBackoffMillis Задержка перед первым повтором (в миллисекундах).
+     * @param maxBackoffMillis     Верхняя граница задержки (в миллисекундах).
+     * @throws IllegalArgumentException Если параметры заданы некорректно.
+     */
+    public OptimisticRetry(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        if (maxAttempts <= 0 || initialBackoffMillis <= 0 || maxBackoffMillis < initialBackoffMillis) {
+            throw new IllegalArgumentException("Invalid retry policy");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * Выполняет операцию, повторяя ее при конфликте оптимистичной блокировки.
+     *
+     * @param operation Операция, перечитывающая данные при каждой попытке.
+     * @param <T>       Тип результата операции.
+     * @return Результат успешной попытки.
+     * @throws OptimisticLockException Если конфликт сохранился после всех попыток.
+     */
+    public <T> T execute(Supplier<T> operation) {
+        long backoff = initialBackoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return operation.get();
+            } catch (OptimisticLockException e) {
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw e;
+                }
+                retries.increment();
+                pause(backoff, e);
+                backoff = Math.min(backoff * 2, maxBackoffMillis);
+            }
+        }
+    }
+
+    /**
+     * Выполняет операцию без результата, повторяя ее при конфликте оптимистичной блокировки.
+     *
+     * @param operation Операция, перечитывающая данные при каждой попытке.
+     * @see #execute(Supplier)
+     */
+    public void run(Runnable operation) {
+        execute(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Получает количество обнаруженных конфликтов.
+     *
+     * @return Количество конфликтов.
+     */
+    public long getConflictCount() {
+        return conflicts.sum();
+    }
+
+    /**
+     * Получает количество выполненных повторов.
+     *
+     * @return Количество повторов.
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * Получает количество операций, не выполненных после всех попыток.
+     *
+     * @return Количество исчерпанных операций.
+     */
+    public long getExhaustedCount() {
+        return exhausted.sum();
+    }
+
+    /**
+     * Ждет перед повтором случайное время от половины до полной задержки,
+     * чтобы конкурирующие узлы не повторяли попытки одновременно.
+     */
+    private void pause(long backoffMillis, OptimisticLockException conflict) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(backoffMillis / 2, backoffMillis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            conflict.addSuppressed(e);
+            throw conflict;
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package org.CleverBank.Service;
+
+import org.CleverBank.Config.AppConfig;
+import org.CleverBank.Config.ConfigService;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Класс `StatementCache` хранит строки выписок по закрытым периодам — диапазонам дат, завершившимся
+ * до текущего дня. Новые транзакции в такие периоды не добавляются, но существующие могут быть изменены
+ * или удалены, а строки содержат фамилии получателей, поэтому изменяющие операции вызывают
+ * {@link #evict(int, LocalDate)} или {@link #clear()}. Выписки сохраняются на локальный диск в сжатом виде
+ * (по файлу на счет и диапазон дат), а перед диском стоит ограниченный LRU-кэш в памяти.
+ * В памяти хранятся только выписки не длиннее заданного размера; длинные выписки читаются с диска потоком,
+ * поэтому расход памяти не зависит от длины выписки. Общий размер файлов на диске ограничен:
+ * при превышении удаляются самые старые файлы.
+ */
+public class StatementCache {
+
+    /**
+     * Максимальная длина выписки, хранимой в памяти (в символах).
+     */
+    public static final int MAX_MEMORY_ENTRY_CHARS = 32 * 1024;
+
+    private static final String FILE_SUFFIX = ".txt.gz";
+
+    private static StatementCache defaultInstance;
+
+    private final Path directory;
+    private final long maxDiskBytes;
+    private final Map<String, String> cache;
+
+    /**
+     * Номер инвалидации; изменяется под блокировкой кэша. Выписка, начатая до инвалидации,
+     * не сохраняется, так как могла быть сформирована из устаревших данных.
+     */
+    private long generation;
+
+    /**
+     * Размер файлов выписок на диске; отрицателен, пока каталог не измерен.
+     * Уточняется при каждой очистке диска.
+     */
+    private final AtomicLong diskBytes = new AtomicLong(-1);
+    private final Object diskLock = new Object();
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Конструктор класса `StatementCache` с ограничением размера диска по умолчанию.
+     * Каталог создается при сохранении первой выписки.
+     *
+     * @param directory Каталог, в котором хранятся сжатые выписки.
+     * @param capacity  Максимальное количество выписок в памяти.
+     * @throws IllegalArgumentException Если емкость не положительна.
+     */
+    public StatementCache(Path directory, int capacity) {
+        this(directory, capacity, AppConfig.DEFAULT_STATEMENT_CACHE_MAX_DISK_MEGABYTES * 1024 * 1024);
+    }
+
+    /**
+     * Конструктор класса `StatementCache`. Каталог создается при сохранении первой выписки.
+     *
+     * @param directory    Каталог, в котором хранятся сжатые выписки.
+     * @param capacity     Максимальное количество выписок в памяти.
+     * @param maxDiskBytes Максимальный общий размер файлов выписок на диске (в байтах).
+     * @throws IllegalArgumentException Если емкость или размер диска не положительны.
+     */
+    public StatementCache(Path directory, int capacity, long maxDiskBytes) {
+        if (capacity <= 0 || maxDiskBytes <= 0) {
+            throw new IllegalArgumentException("Capacity and disk size must be positive");
+        }
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Получает общий экземпляр с каталогом и емкостью из конфигурации.
+     *
+     * @return Общий экземпляр.
+     */
+    public static synchronized StatementCache getDefault() {
+        if (defaultInstance == null) {
+            AppConfig config = ConfigService.getDefault().get();
+            defaultInstance = new StatementCache(Paths.get(config.getStatementCacheDirectory()),
+                    config.getStatementCacheCapacity(), config.getStatementCacheMaxDiskMegabytes() * 1024 * 1024);
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * Проверяет, что период закрыт, то есть завершился до текущего дня.
+     *
+     * @param endDate Конечная дата периода.
+     * @return true, если выписку за период можно кэшировать.
+     */
+    public static boolean isClosed(LocalDate endDate) {
+        return endDate.isBefore(LocalDate.now());
+    }
+
+    /**
+     * Записывает сохраненные строки выписки в поток, если они есть в памяти или на диске.
+     *
+     * @param accountId Идентификатор счета.
+     * @param startDate Начальная дата периода.
+     * @param endDate   Конечная дата периода.
+     * @param writer    Поток, в который записываются строки выписки.
+     * @return true, если выписка найдена и записана; false, если ее нужно сформировать.
+     * @throws IOException Если сохраненную выписку не удалось прочитать или записать в поток.
+     */
+    public boolean copyTo(int accountId, LocalDate startDate, LocalDate endDate, Writer writer) throws IOException {
+        String key = key(accountId, startDate, endDate);
+        String cached;
+        long seenGeneration;
+        synchronized (cache) {
+            cached = cache.get(key);
+            seenGeneration = generation;
+        }
+        if (cached != null) {
+            memoryHits.increment();
+            writer.write(cached);
+            return true;
+        }
+        InputStream input;
+        try {
+            input = Files.newInputStream(file(accountId, startDate, endDate));
+        } catch (NoSuchFileException e) {
+            misses.increment();
+            return false;
+        }
+        diskHits.increment();
+        try (input; Reader reader = new InputStreamReader(new GZIPInputStream(input), StandardCharsets.UTF_8)) {
+            // Короткая выписка попутно собирается для кэша в памяти; длинная только копируется
+            StringBuilder content = new StringBuilder();
+            char[] buffer = new char[8 * 1024];
+            int read;
+            while ((read = reader.read(buffer)) >= 0) {
+                writer.write(buffer, 0, read);
+                if (content != null) {
+                    content = content.length() + read <= MAX_MEMORY_ENTRY_CHARS ? content.append(buffer, 0, read) : null;
+                }
+            }
+            if (content != null) {
+                remember(key, content.toString(), seenGeneration);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Начинает запись выписки закрытого периода. Строки, записанные в {@link Recorder#getWriter()},
+     * передаются в поток вызывающего и одновременно сохраняются в кэш; выписка становится доступной
+     * после {@link Recorder#commit()}. Если запись закрыта без фиксации, сохраненные данные удаляются.
+     *
+     * @param accountId Идентификатор счета.
+     * @param startDate Начальная дата периода.
+     * @param endDate   Конечная дата периода.
+     * @param writer    Поток, в который записываются строки выписки.
+     * @return Запись выписки.
+     * @throws IllegalArgumentException Если период не закрыт.
+     * @throws IOException              Если файл кэша не удалось создать.
+     */
+    public Recorder record(int accountId, LocalDate startDate, LocalDate endDate, Writer writer) throws IOException {
+        if (!isClosed(endDate)) {
+            throw new IllegalArgumentException("Only statements for closed periods can be cached");
+        }
+        return new Recorder(key(accountId, startDate, endDate), file(accountId, startDate, endDate), writer);
+    }
+
+    /**
+     * Удаляет из памяти и с диска выписки счета, период которых включает дату.
+     * Вызывается после изменения или удаления транзакции счета за эту дату.
+     *
+     * @param accountId Идентификатор счета.
+     * @param date      Дата измененной транзакции.
+     * @throws RuntimeException Если файлы выписок не удалось удалить.
+     */
+    public void evict(int accountId, LocalDate date) {
+        String prefix = accountId + "/";
+        synchronized (cache) {
+            generation++;
+            cache.keySet().removeIf(key -> key.startsWith(prefix) && covers(key.substring(prefix.length()), date));
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory.resolve(String.valueOf(accountId)),
+                "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (covers(name.substring(0, name.length() - FILE_SUFFIX.length()), date)) {
+                    delete(file);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Выписок счета на диске нет
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to evict cached statements", e);
+        }
+    }
+
+    /**
+     * Удаляет из памяти и с диска все выписки. Вызывается после изменений, затрагивающих выписки
+     * многих счетов, например фамилии пользователя.
+     *
+     * @throws RuntimeException Если файлы выписок не удалось удалить.
+     */
+    public void clear() {
+        synchronized (cache) {
+            generation++;
+            cache.clear();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.filter(StatementCache::isStatementFile)::iterator) {
+                delete(file);
+            }
+        } catch (NoSuchFileException e) {
+            // Каталог еще не создан
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Failed to clear cached statements", e);
+        }
+    }
+
+    /**
+     * Получает количество выписок, найденных в памяти.
+     *
+     * @return Количество попаданий.
+     */
+    public long getMemoryHitCount() {
+        return memoryHits.sum();
+    }
+
+    /**
+     * Получает количество выписок, найденных только на диске.
+     *
+     * @return Количество попаданий.
+     */
+    public long getDiskHitCount() {
+        return diskHits.sum();
+    }
+
+    /**
+     * Получает количество выписок, которые пришлось сформировать.
+     *
+     * @return Количество промахов.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Сохраняет выписку в памяти, если после ее чтения не было инвалидации.
+     *
+     * @return true, если выписка сохранена или инвалидаций не было.
+     */
+    private boolean remember(String key, String content, long seenGeneration) {
+        synchronized (cache) {
+            if (generation != seenGeneration) {
+                return false;
+            }
+            if (content != null) {
+                cache.put(key, content);
+            }
+            return true;
+        }
+    }
+
+    private static String key(int accountId, LocalDate startDate, LocalDate endDate) {
+        return accountId + "/" + range(startDate, endDate);
+    }
+
+    private static String range(LocalDate startDate, LocalDate endDate) {
+        return startDate + "_" + endDate;
+    }
+
+    /**
+     * Проверяет, что период вида {@code начало_конец} включает дату.
+     */
+    private static boolean covers(String range, LocalDate date) {
+        int separator = range.indexOf('_');
+        return !date.isBefore(LocalDate.parse(range.substring(0, separator)))
+                && !date.isAfter(LocalDate.parse(range.substring(separator + 1)));
+    }
+
+    private static boolean isStatementFile(Path file) {
+        return file.getFileName().toString().endsWith(FILE_SUFFIX) && Files.isRegularFile(file);
+    }
+
+    private Path file(int accountId, LocalDate startDate, LocalDate endDate) {
+        return directory.resolve(String.valueOf(accountId)).resolve(range(startDate, endDate) + FILE_SUFFIX);
+    }
+
+    private void delete(Path file) throws IOException {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (Files.deleteIfExists(file)) {
+            diskBytes.getAndUpdate(used -> used < 0 ? used : Math.max(used - size, 0));
+        }
+    }
+
+    /**
+     * Учитывает новый файл выписки и, если общий размер превысил ограничение, очищает диск.
+     */
+    private void addDiskUsage(long size) throws IOException {
+        long used = diskBytes.get();
+        if (used < 0 || diskBytes.addAndGet(size) > maxDiskBytes) {
+            trimDisk();
+        }
+    }
+
+    /**
+     * Пересчитывает размер файлов выписок по каталогу и удаляет самые старые файлы,
+     * пока общий размер превышает ограничение.
+     */
+    private void trimDisk() throws IOException {
+        synchronized (diskLock) {
+            Map<Path, BasicFileAttributes> attributes = new LinkedHashMap<>();
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) paths.filter(StatementCache::isStatementFile)::iterator) {
+                    try {
+                        attributes.put(file, Files.readAttributes(file, BasicFileAttributes.class));
+                    } catch (NoSuchFileException e) {
+                        // Файл удален одновременно с обходом
+                    }
+                }
+            }
+            long used = 0;
+            for (BasicFileAttributes attribute : attributes.values()) {
+                used += attribute.size();
+            }
+            List<Path> files = new ArrayList<>(attributes.keySet());
+            files.sort(Comparator.comparing(file -> attributes.get(file).lastModifiedTime()));
+            for (int i = 0; i < files.size() && used > maxDiskBytes; i++) {
+                Path file = files.get(i);
+                if (Files.deleteIfExists(file)) {
+                    used -= attributes.get(file).size();
+                }
+            }
+            diskBytes.set(used);
+        }
+    }
+
+    /**
+     * Запись выписки закрытого периода в поток вызывающего и в кэш.
+     */
+    public final class Recorder implements Closeable {
+        private final String key;
+        private final Path file;
+        private final Path temporary;
+        private final Writer compressed;
+        private final Writer writer;
+        private final long startGeneration;
+        private StringBuilder content = new StringBuilder();
+        private boolean committed;
+
+        private Recorder(String key, Path file, Writer target) throws IOException {
+            this.key = key;
+            this.file = file;
+            synchronized (cache) {
+                this.startGeneration = generation;
+            }
+            Files.createDirectories(file.getParent());
+            // Одновременные записи одной выписки пишут в разные временные файлы и заменяют файл атомарно
+            this.temporary = Files.createTempFile(file.getParent(), "statement", ".tmp");
+            this.compressed = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(temporary)), StandardCharsets.UTF_8));
+            this.writer = new Writer() {
+                @Override
+                public void write(char[] buffer, int offset, int length) throws IOException {
+                    target.write(buffer, offset, length);
+                    compressed.write(buffer, offset, length);
+                    if (content != null) {
+                        content = content.length() + length <= MAX_MEMORY_ENTRY_CHARS
+                                ? content.append(buffer, offset, length) : null;
+                    }
+                }
+
+                @Override
+                public void write(String text, int offset, int length) throws IOException {
+                    target.write(text, offset, length);
+                    compressed.write(text, offset, length);
+                    if (content != null) {
+                        content = content.length() + length <= MAX_MEMORY_ENTRY_CHARS
+                                ? content.append(text, offset, offset + length) : null;
+                    }
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    target.flush();
+                }
+
+                @Override
+                public void close() {
+                    // Поток вызывающего закрывает вызывающий, файл кэша — commit() и close() записи
+                }
+            };
+        }
+
+        /**
+         * Получает поток, в который записываются строки выписки.
+         *
+         * @return Поток строк выписки.
+         */
+        public Writer getWriter() {
+            return writer;
+        }
+
+        /**
+         * Сохраняет записанную выписку в кэш. Если во время записи выписки счета были инвалидированы,
+         * выписка не сохраняется: она могла быть сформирована из устаревших данных.
+         *
+         * @throws IOException Если файл кэша не удалось записать.
+         */
+        public void commit() throws IOException {
+            compressed.close();
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            if (!remember(key, content != null ? content.toString() : null, startGeneration)) {
+                Files.deleteIfExists(file);
+                return;
+            }
+            addDiskUsage(Files.size(file));
+        }
+
+        /**
+         * Завершает запись; если выписка не сохранена, удаляет временный файл.
+         *
+         * @throws IOException Если временный файл не удалось удалить.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                try {
+                    compressed.close();
+                } finally {
+                    Files.deleteIfExists(temporary);
+                }
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.CleverBank.Service;
 
 import lombok.Setter;
 import org.CleverBank.Models.Account;
+import org.CleverBank.Models.Page;
 import org.CleverBank.Models.Transaction;
 import org.CleverBank.Models.TransactionType;
 import org.CleverBank.Repository.BankRepository;
@@ -9,7 +10,9 @@ import org.CleverBank.Repository.TransactionRepository;
 
 import javax.sql.DataSource;
 import java.time.LocalDate;
-import java.util.List;/**
+import java.util.List;
+import java.util.stream.Stream;
+/**
  * Сервисный класс `TransactionService` предоставляет функциональность для работы с транзакциями,
  * создания транзакций и генерации чеков.
  */
@@ -20,6 +23,12 @@ public class TransactionService {
     private BankRepository bankRepository;
     private DocumentGenerator documentGenerator = new DocumentGenerator();
 
+    /**
+     * Кэш выписок по закрытым периодам, из которого удаляются выписки с измененными транзакциями.
+     * Если не задан, используется {@link StatementCache#getDefault()}.
+     */
+    private StatementCache statementCache;
+
     /**
      * Конструктор класса `TransactionService`.
      *
@@ -55,6 +64,27 @@ public class TransactionService {
         return transactionRepository.getAllTransactions();
     }
 
+    /**
+     * Получает страницу транзакций, упорядоченных по идентификатору.
+     *
+     * @param continuationToken Токен продолжения предыдущей страницы или null для первой страницы.
+     * @param limit             Максимальное количество элементов на странице.
+     * @return Страница транзакций с токеном продолжения.
+     */
+    public Page<Transaction> getTransactionsPage(String continuationToken, int limit) {
+        return transactionRepository.getTransactionsPage(continuationToken, limit);
+    }
+
+    /**
+     * Получает все транзакции в виде потока без загрузки таблицы в память.
+     * Поток необходимо закрыть после использования.
+     *
+     * @return Поток всех транзакций.
+     */
+    public Stream<Transaction> streamAllTransactions() {
+        return transactionRepository.streamAllTransactions();
+    }
+
     /**
      * Получает список всех транзакций для определенного счета и за указанный период времени.
      *
@@ -67,6 +97,22 @@ public class TransactionService {
         return transactionRepository.getAllTransactionsByAccountIdAndTime(accountId, startDate, endDate);
     }
 
+    /**
+     * Получает страницу транзакций счета за указанный период, упорядоченных по дате и идентификатору.
+     *
+     * @param accountId         Идентификатор счета.
+     * @param startDate         Начальная дата периода.
+     * @param endDate           Конечная дата периода.
+     * @param continuationToken Токен продолжения предыдущей страницы или null для первой страницы.
+     * @param limit             Максимальное количество транзакций на странице.
+     * @return Страница транзакций с токеном продолжения.
+     */
+    public Page<Transaction> getTransactionsPageByAccountAndTime(int accountId, LocalDate startDate, LocalDate endDate,
+                                                                 String continuationToken, int limit) {
+        return transactionRepository.getTransactionsPageByAccountIdAndTime(accountId, startDate, endDate,
+                continuationToken, limit);
+    }
+
     /**
      * Сохраняет новую транзакцию и устанавливает текущую дату.
      *
@@ -79,13 +125,17 @@ public class TransactionService {
     }
 
     /**
-     * Обновляет информацию о транзакции.
+     * Обновляет информацию о транзакции. Выписки, в которые транзакция входила до и после изменения,
+     * удаляются из кэша выписок.
      *
      * @param transaction   Объект транзакции с обновленными данными.
      * @param transactionId Идентификатор транзакции для обновления.
      */
     public void updateTransaction(Transaction transaction, int transactionId) {
+        Transaction previous = transactionRepository.getTransactionById(transactionId);
         transactionRepository.updateTransactionById(transaction, transactionId);
+        evictStatements(previous);
+        evictStatements(transaction);
     }
 
     /**
@@ -95,21 +145,42 @@ public class TransactionService {
      * @throws RuntimeException, если транзакция не найдена.
      */
     public void deleteTransaction(int transactionId) {
-        if (transactionRepository.getTransactionById(transactionId) != null) {
+        Transaction transaction = transactionRepository.getTransactionById(transactionId);
+        if (transaction != null) {
             transactionRepository.deleteTransactionById(transactionId);
+            evictStatements(transaction);
         } else {
             throw new RuntimeException("Transaction not found");
         }
     }
 
     /**
-     * Создает две транзакции для операции перевода между счетами и генерирует чек для перевода.
+     * Удаляет из кэша выписки счета-источника транзакции, период которых включает ее дату:
+     * в выписку счета входят транзакции, у которых он указан источником.
+     *
+     * @param transaction Транзакция или null.
+     */
+    private void evictStatements(Transaction transaction) {
+        if (transaction == null || transaction.getDate() == null) {
+            return;
+        }
+        StatementCache cache = statementCache;
+        if (cache == null) {
+            cache = StatementCache.getDefault();
+            statementCache = cache;
+        }
+        cache.evict(transaction.getSourceAccount(), transaction.getDate());
+    }
+
+    /**
+     * Создает две транзакции для операции перевода между счетами, сохраняя их одним пакетом,
+     * и генерирует чек для перевода.
      *
      * @param sourceAccount Счет-источник перевода.
      * @param targetAccount Счет-получатель перевода.
-     * @param amount        Сумма перевода.
+     * @param amount        Сумма перевода в копейках.
      */
-    public void createTransferTransactions(Account sourceAccount, Account targetAccount, double amount) {
+    public void createTransferTransactions(Account sourceAccount, Account targetAccount, long amount) {
         Transaction depositTransaction = Transaction.builder()
                 .amount(amount)
                 .sourceAccount(sourceAccount.getId())
@@ -117,7 +188,6 @@ public class TransactionService {
                 .date(LocalDate.now())
                 .type(TransactionType.TRANSFER_IN)
                 .build();
-        transactionRepository.saveTransaction(depositTransaction);
 
         Transaction withdrawTransaction = Transaction.builder()
                 .amount(-amount)
@@ -126,9 +196,10 @@ public class TransactionService {
                 .date(LocalDate.now())
                 .type(TransactionType.TRANSFER_OUT)
                 .build();
-        transactionRepository.saveTransaction(withdrawTransaction);
+        transactionRepository.saveTransactions(List.of(depositTransaction, withdrawTransaction));
 
-        createTransferCheck(sourceAccount, targetAccount, amount);
+        createTransferCheck(sourceAccount, targetAccount, amount,
+                withdrawTransaction.getId(), depositTransaction.getId());
     }
 
     /**
@@ -136,25 +207,26 @@ public class TransactionService {
      *
      * @param sourceAccount        Счет-источник перевода.
      * @param targetAccount        Счет-получатель перевода.
-     * @param amount               Сумма перевода.
+     * @param amount               Сумма перевода в копейках.
+     * @param transactionIds       Номера транзакций перевода, если они известны.
      */
-    private void createTransferCheck(Account sourceAccount, Account targetAccount, double amount) {
+    void createTransferCheck(Account sourceAccount, Account targetAccount, long amount, int... transactionIds) {
         String sourceBank = bankRepository.getBankById(sourceAccount.getBankId()).getName();
         String targetBank = bankRepository.getBankById(targetAccount.getBankId()).getName();
         String sourceAccountNumber = sourceAccount.getAccountNumber();
         String targetAccountNumber = targetAccount.getAccountNumber();
 
-        documentGenerator.generateTransferCheck(amount, "Transfer", sourceBank,
-                sourceAccountNumber, targetBank, targetAccountNumber);
+        documentGenerator.generateTransferCheck(amount, sourceAccount.getCurrency(), "Transfer", sourceBank,
+                sourceAccountNumber, targetBank, targetAccountNumber, transactionIds);
     }
 
     /**
      * Создает чек для операции депозита.
      *
      * @param account Счет, на который выполняется депозит.
-     * @param amount  Сумма депозита.
+     * @param amount  Сумма депозита в копейках.
      */
-    public void saveDepositTransfer(Account account, double amount) {
+    public void saveDepositTransfer(Account account, long amount) {
         Transaction depositTransaction = Transaction.builder()
                 .amount(amount)
                 .sourceAccount(account.getId())
@@ -164,16 +236,16 @@ public class TransactionService {
                 .build();
         transactionRepository.saveTransaction(depositTransaction);
 
-        createCheck(TransactionType.DEPOSIT.getDescription(), account, amount);
+        createCheck(TransactionType.DEPOSIT.getDescription(), account, amount, depositTransaction.getId());
     }
 
     /**
      * Создает чек для операции снятия денег.
      *
      * @param account Счет, с которого производится снятие.
-     * @param amount  Сумма снятия.
+     * @param amount  Сумма снятия в копейках.
      */
-    public void saveWithdrawTransfer(Account account, double amount) {
+    public void saveWithdrawTransfer(Account account, long amount) {
         Transaction withdrawTransaction = Transaction.builder()
                 .amount(-amount)
                 .sourceAccount(account.getId())
@@ -183,19 +255,21 @@ public class TransactionService {
                 .build();
         transactionRepository.saveTransaction(withdrawTransaction);
 
-        createCheck(TransactionType.WITHDRAWAL.getDescription(), account, amount);
+        createCheck(TransactionType.WITHDRAWAL.getDescription(), account, amount, withdrawTransaction.getId());
     }
 
     /**
      * Создает чек для операции.
      *
-     * @param operationType Тип операции (депозит или снятие).
-     * @param account       Счет, на котором произошла операция.
-     * @param amount        Сумма операции.
+     * @param operationType  Тип операции (депозит или снятие).
+     * @param account        Счет, на котором произошла операция.
+     * @param amount         Сумма операции в копейках.
+     * @param transactionIds Номер транзакции операции, если он известен.
      */
-    private void createCheck(String operationType, Account account, double amount) {
+    void createCheck(String operationType, Account account, long amount, int... transactionIds) {
         String bank = bankRepository.getBankById(account.getBankId()).getName();
         String accountNumber = account.getAccountNumber();
-        documentGenerator.generateCheck(amount, operationType, bank, accountNumber);
+        documentGenerator.generateCheck(amount, account.getCurrency(), operationType, bank, accountNumber,
+                transactionIds);
     }
 }
@@ -2,16 +2,25 @@ package org.CleverBank.Service;
 
 import lombok.Setter;
 import org.CleverBank.Models.Account;
-import org.CleverBank.Models.Transaction;
+import org.CleverBank.Models.Page;
+import org.CleverBank.Models.StatementRow;
 import org.CleverBank.Models.User;
 import org.CleverBank.Repository.AccountRepository;
 import org.CleverBank.Repository.TransactionRepository;
 import org.CleverBank.Repository.UserRepository;
 
 import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 /**
  * Сервисный класс `UserService` предоставляет функциональность для работы с пользователями, их транзакциями
  * и формирования выписок по счетам.
@@ -24,6 +33,11 @@ public class UserService {
     private AccountRepository accountRepository;
     private DocumentGenerator documentGenerator = new DocumentGenerator();
 
+    /**
+     * Кэш выписок по закрытым периодам. Если не задан, при первой выписке используется {@link StatementCache#getDefault()}.
+     */
+    private StatementCache statementCache;
+
     /**
      * Конструктор класса `UserService`.
      *
@@ -60,6 +74,17 @@ public class UserService {
         return userRepository.getAllUsers();
     }
 
+    /**
+     * Получает страницу пользователей, упорядоченных по идентификатору.
+     *
+     * @param continuationToken Токен продолжения предыдущей страницы или null для первой страницы.
+     * @param limit             Максимальное количество элементов на странице.
+     * @return Страница пользователей с токеном продолжения.
+     */
+    public Page<User> getUsersPage(String continuationToken, int limit) {
+        return userRepository.getUsersPage(continuationToken, limit);
+    }
+
     /**
      * Генерирует выписку по счету пользователя за определенный период времени.
      *
@@ -79,26 +104,106 @@ public class UserService {
         if (endDate == null) {
             endDate = LocalDate.now();
         }
-        List<Transaction> transactions = transactionRepository.getAllTransactionsByAccountIdAndTime(
-                accountId, startDate, endDate);
-        List<StringBuilder> transactionsInfo = getTransactionsInfo(transactions);
-        return documentGenerator.generateTransactionStatement(user, account, transactionsInfo);
+        StringWriter rows = new StringWriter();
+        try {
+            writeStatementRows(account, startDate, endDate, rows);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read cached statement", e);
+        }
+        return documentGenerator.appendStatementHeader(new StringBuilder(), user, account).append(rows.getBuffer());
+    }
+
+    /**
+     * Записывает выписку по счету пользователя за определенный период времени в поток символов.
+     * Строки выписки читаются из базы данных одним запросом через курсор (или из кэша выписок для закрытой
+     * части периода) и записываются сразу, поэтому расход памяти не зависит от длины периода. Поток не закрывается.
+     *
+     * @param userId    Идентификатор пользователя.
+     * @param accountId Идентификатор счета.
+     * @param startDate Начальная дата периода или null, чтобы начать с даты открытия счета.
+     * @param endDate   Конечная дата периода или null, чтобы закончить текущей датой.
+     * @param writer    Поток, в который записывается выписка.
+     * @throws IOException Если запись в поток не удалась.
+     */
+    public void writeStatementForUser(int userId, int accountId, LocalDate startDate, LocalDate endDate,
+                                      Writer writer) throws IOException {
+        User user = userRepository.getUserById(userId);
+        Account account = accountRepository.getAccountById(accountId);
+        if (startDate == null) {
+            startDate = account.getDate();
+        }
+        if (endDate == null) {
+            endDate = LocalDate.now();
+        }
+        writer.append(documentGenerator.appendStatementHeader(new StringBuilder(256), user, account));
+        writeStatementRows(account, startDate, endDate, writer);
     }
 
     /**
-     * Получает информацию о транзакциях пользователя.
+     * Записывает выписку по счету пользователя за определенный период времени в поток байтов в кодировке UTF-8.
+     * Поток не закрывается; записанные данные сбрасываются в него по завершении.
      *
-     * @param transactions Список транзакций пользователя.
-     * @return Список строк с информацией о транзакциях.
+     * @param userId       Идентификатор пользователя.
+     * @param accountId    Идентификатор счета.
+     * @param startDate    Начальная дата периода или null, чтобы начать с даты открытия счета.
+     * @param endDate      Конечная дата периода или null, чтобы закончить текущей датой.
+     * @param outputStream Поток, в который записывается выписка.
+     * @throws IOException Если запись в поток не удалась.
      */
-    private List<StringBuilder> getTransactionsInfo(List<Transaction> transactions) {
-        List<StringBuilder> transactionsInfo = new ArrayList<>();
-        for (Transaction transaction : transactions) {
-            Account account = accountRepository.getAccountById(transaction.getSourceAccount());
-            User user = userRepository.getUserById(account.getUserId());
-            transactionsInfo.add(documentGenerator.generateInfoAboutTransaction(transaction, user));
+    public void writeStatementForUser(int userId, int accountId, LocalDate startDate, LocalDate endDate,
+                                      OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writeStatementForUser(userId, accountId, startDate, endDate, writer);
+        writer.flush();
+    }
+
+    /**
+     * Записывает строки выписки за период. Закрытая часть периода (до вчерашнего дня включительно)
+     * берется из кэша выписок или формируется и сохраняется в него, а строки текущего дня всегда
+     * читаются из базы данных.
+     */
+    private void writeStatementRows(Account account, LocalDate startDate, LocalDate endDate,
+                                    Writer writer) throws IOException {
+        int accountId = account.getId();
+        LocalDate today = LocalDate.now();
+        if (startDate.isBefore(today) && !endDate.isBefore(startDate)) {
+            LocalDate closedEndDate = endDate.isBefore(today) ? endDate : today.minusDays(1);
+            StatementCache cache = statementCache();
+            if (!cache.copyTo(accountId, startDate, closedEndDate, writer)) {
+                try (StatementCache.Recorder recorder = cache.record(accountId, startDate, closedEndDate, writer)) {
+                    writeRowsFromDatabase(account, startDate, closedEndDate, recorder.getWriter());
+                    recorder.commit();
+                }
+            }
+            if (closedEndDate.equals(endDate)) {
+                return;
+            }
+            startDate = today;
+        }
+        writeRowsFromDatabase(account, startDate, endDate, writer);
+    }
+
+    private void writeRowsFromDatabase(Account account, LocalDate startDate, LocalDate endDate,
+                                       Writer writer) throws IOException {
+        // Одна строка переиспользуется для всех транзакций выписки
+        StringBuilder line = new StringBuilder(128);
+        try (Stream<StatementRow> rows = transactionRepository.streamStatementRows(account.getId(), startDate, endDate)) {
+            Iterator<StatementRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                line.setLength(0);
+                documentGenerator.appendStatementRow(line, iterator.next(), account.getCurrency()).append('\n');
+                writer.append(line);
+            }
+        }
+    }
+
+    private StatementCache statementCache() {
+        StatementCache cache = statementCache;
+        if (cache == null) {
+            cache = StatementCache.getDefault();
+            statementCache = cache;
         }
-        return transactionsInfo;
+        return cache;
     }
 
     /**
@@ -119,6 +224,8 @@ public class UserService {
      */
     public void updateUser(User user, int userId) {
         userRepository.updateUserById(user, userId);
+        // Фамилия пользователя входит в строки выписок всех счетов, переводивших ему средства
+        statementCache().clear();
     }
 
     /**
@@ -130,6 +237,7 @@ public class UserService {
     public void deleteUser(int userId) {
         if (userRepository.getUserById(userId) != null) {
             userRepository.deleteUserById(userId);
+            statementCache().clear();
         } else {
             throw new RuntimeException("User not found");
         }
@@ -0,0 +1,4 @@
+-- Индекс для постраничного чтения выписки по ключу (transaction_date, id).
+-- Страницы списков пользователей, банков, счетов и транзакций используют индексы первичных ключей.
+CREATE INDEX IF NOT EXISTS transactions_source_account_date_id_idx
+    ON transactions (source_account, transaction_date, id);
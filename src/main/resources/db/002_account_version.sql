@@ -0,0 +1,2 @@
+-- Версия строки счета для оптимистичной блокировки в AccountRepository.updateAccountById.
+ALTER TABLE account ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
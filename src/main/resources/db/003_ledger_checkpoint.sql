@@ -0,0 +1,5 @@
+-- Номер последней операции журнала каждого шарда LedgerEngine, примененной к базе данных.
+CREATE TABLE IF NOT EXISTS ledger_checkpoint (
+    shard         INT PRIMARY KEY,
+    last_sequence BIGINT NOT NULL
+);
@@ -0,0 +1,11 @@
+-- Результаты операций, выполненных с ключом идемпотентности (IdempotencyRepository).
+CREATE TABLE IF NOT EXISTS idempotency (
+    key                  VARCHAR(128) PRIMARY KEY,
+    fingerprint          VARCHAR(255)     NOT NULL,
+    balance              DOUBLE PRECISION NOT NULL DEFAULT 0,
+    counterparty_balance DOUBLE PRECISION NOT NULL DEFAULT 0,
+    completed            BOOLEAN          NOT NULL DEFAULT FALSE,
+    created_at           TIMESTAMP        NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_created_at ON idempotency (created_at);
@@ -0,0 +1,27 @@
+-- Денежные суммы хранятся целым числом копеек (Models.Money) вместо double precision.
+-- Каждый столбец преобразуется, только пока он еще double precision, поэтому повторный запуск ничего не меняет.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'account' AND column_name = 'balance'
+                 AND data_type = 'double precision') THEN
+        ALTER TABLE account ALTER COLUMN balance TYPE BIGINT USING round(balance * 100)::BIGINT;
+    END IF;
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'transactions' AND column_name = 'amount'
+                 AND data_type = 'double precision') THEN
+        ALTER TABLE transactions ALTER COLUMN amount TYPE BIGINT USING round(amount * 100)::BIGINT;
+    END IF;
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'idempotency' AND column_name = 'balance'
+                 AND data_type = 'double precision') THEN
+        ALTER TABLE idempotency ALTER COLUMN balance TYPE BIGINT USING round(balance * 100)::BIGINT;
+    END IF;
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'idempotency' AND column_name = 'counterparty_balance'
+                 AND data_type = 'double precision') THEN
+        ALTER TABLE idempotency ALTER COLUMN counterparty_balance
+            TYPE BIGINT USING round(counterparty_balance * 100)::BIGINT;
+    END IF;
+END
+$$;
@@ -0,0 +1,8 @@
+-- Части баланса горячих счетов. Баланс счета с шардами равен сумме строк этой таблицы
+-- (и остатка в account.balance); зачисления распределяются по строкам, снимая конкуренцию за строку счета.
+CREATE TABLE IF NOT EXISTS account_balance_shard (
+    account_id INT    NOT NULL REFERENCES account (id) ON DELETE CASCADE,
+    shard      INT    NOT NULL,
+    balance    BIGINT NOT NULL DEFAULT 0 CHECK (balance >= 0),
+    PRIMARY KEY (account_id, shard)
+);
@@ -0,0 +1,9 @@
+-- Диапазоны идентификаторов счетов, на которые проценты за дату запуска уже начислены (InterestBatchRunner).
+CREATE TABLE IF NOT EXISTS interest_checkpoint (
+    run_date     DATE      NOT NULL,
+    range_start  INT       NOT NULL,
+    range_end    INT       NOT NULL,
+    accrued      INT       NOT NULL,
+    completed_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (run_date, range_start)
+);
@@ -0,0 +1,3 @@
+-- Индекс для поиска счетов, которым пора начислять проценты (AccountRepository.findDueForInterest).
+CREATE INDEX IF NOT EXISTS account_last_interest_date_id_idx
+    ON account (last_interest_date, id);
@@ -0,0 +1,2 @@
+-- Валюта счета (Models.Currency): определяет масштаб баланса и сумм операций по счету.
+ALTER TABLE account ADD COLUMN IF NOT EXISTS currency VARCHAR(3) NOT NULL DEFAULT 'BYN';
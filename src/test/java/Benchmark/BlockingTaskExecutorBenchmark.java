@@ -0,0 +1,67 @@
+package Benchmark;
+
+import org.CleverBank.Config.ExecutorMode;
+import org.CleverBank.Service.BlockingTaskExecutor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение режимов {@link BlockingTaskExecutor} на задачах, блокирующихся на вводе-выводе.
+ * Запрос к базе данных моделируется ожиданием заданной длительности. Для каждого режима выводятся
+ * время выполнения, пропускная способность и пиковое количество потоков платформы.
+ * <p>
+ * Запуск: {@code java -cp <classpath> Benchmark.BlockingTaskExecutorBenchmark [задач] [параллелизм] [мс на задачу]}.
+ * Значения по умолчанию — 10 000 задач, 1 000 одновременных задач и 20 мс на задачу.
+ * Режим виртуальных потоков измеряется только на Java 21 и новее.
+ */
+public class BlockingTaskExecutorBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        long blockMillis = args.length > 2 ? Long.parseLong(args[2]) : 20;
+
+        System.out.printf("tasks=%d concurrency=%d block=%dms virtualThreadsSupported=%b%n",
+                tasks, concurrency, blockMillis, BlockingTaskExecutor.isVirtualThreadsSupported());
+        // Прогрев JIT
+        run(ExecutorMode.FIXED_POOL, Math.min(tasks, 1_000), concurrency, 1);
+        run(ExecutorMode.FIXED_POOL, tasks, concurrency, blockMillis);
+        if (BlockingTaskExecutor.isVirtualThreadsSupported()) {
+            run(ExecutorMode.VIRTUAL_THREADS, Math.min(tasks, 1_000), concurrency, 1);
+            run(ExecutorMode.VIRTUAL_THREADS, tasks, concurrency, blockMillis);
+        }
+    }
+
+    private static void run(ExecutorMode mode, int tasks, int concurrency, long blockMillis)
+            throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        BlockingTaskExecutor executor = new BlockingTaskExecutor(mode, concurrency);
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            futures.add(CompletableFuture.runAsync(() -> block(blockMillis), executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        long elapsedNanos = System.nanoTime() - start;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%-16s elapsed=%8.1fms throughput=%10.0f ops/s peakPlatformThreads=%d%n",
+                executor.getMode(), elapsedNanos / 1e6, tasks / seconds, threads.getPeakThreadCount());
+    }
+
+    private static void block(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package Benchmark;
+
+import org.CleverBank.Models.Currency;
+import org.CleverBank.Models.Money;
+import org.CleverBank.Models.StatementRow;
+import org.CleverBank.Models.TransactionType;
+import org.CleverBank.Service.DocumentGenerator;
+import org.CleverBank.Service.DocumentTemplate;
+import org.CleverBank.Service.DocumentTemplate.Field;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Сравнение формирования чеков и строк выписки сцеплением строк (прежняя реализация {@link DocumentGenerator})
+ * и по скомпилированным макетам {@link DocumentTemplate}. Для каждого способа выводятся время и объем памяти,
+ * выделенной текущим потоком, в пересчете на один документ.
+ * <p>
+ * Запуск: {@code java -cp <classpath> Benchmark.DocumentRenderBenchmark [документов]}.
+ * Значение по умолчанию — 1 000 000 документов.
+ */
+public class DocumentRenderBenchmark {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final DocumentTemplate CHECK = DocumentTemplate.compile(
+            "      Банковский чек      \n" +
+                    "Дата и время: {timestamp}\n" +
+                    "Тип операции: {operationType}\n" +
+                    "Банк  {bank}\n" +
+                    "Номер счета : {accountNumber}\n" +
+                    "Сумма: {amount} рублей\n");
+
+    private static final StatementRow ROW = StatementRow.builder()
+            .transactionId(1)
+            .type(TransactionType.TRANSFER_OUT)
+            .amount(123_456L)
+            .date(LocalDate.of(2023, 9, 1))
+            .counterpartyLastname("Ivanov")
+            .build();
+
+    private static long checksum;
+
+    public static void main(String[] args) {
+        int documents = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        DocumentGenerator generator = new DocumentGenerator();
+        StringBuilder statement = new StringBuilder();
+
+        // Первый проход — прогрев JIT, второй — измерение
+        for (int pass = 0; pass < 2; pass++) {
+            boolean report = pass == 1;
+            run("check/concat", documents, report, () -> legacyCheck(123_456L));
+            run("check/template", documents, report, () -> templateCheck(123_456L));
+            run("row/concat", documents, report, () -> {
+                statement.setLength(0);
+                legacyRow(statement, ROW);
+            });
+            run("row/template", documents, report, () -> {
+                statement.setLength(0);
+                generator.appendStatementRow(statement, ROW, Currency.DEFAULT);
+            });
+        }
+        System.out.println("checksum=" + checksum);
+    }
+
+    private static void run(String name, int documents, boolean report, Runnable render) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < documents; i++) {
+            render.run();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        if (report) {
+            System.out.printf("%-16s %8.1f ns/op %8.1f B/op%n",
+                    name, (double) elapsedNanos / documents, (double) allocated / documents);
+        }
+    }
+
+    private static void legacyCheck(long amount) {
+        String checkContent = "      Банковский чек      " + "\n" +
+                "Дата и время: " + LocalDateTime.now().format(FORMATTER) + "\n" +
+                "Тип операции: " + "Пополнение" + "\n" +
+                "Банк  " + "Clever-Bank" + "\n" +
+                "Номер счета : " + "40817810099910004312" + "\n" +
+                "Сумма: " + Money.format(amount, Currency.DEFAULT) + " рублей\n";
+        checksum += checkContent.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void templateCheck(long amount) {
+        DocumentTemplate.Values values = DocumentTemplate.values()
+                .set(Field.OPERATION_TYPE, "Пополнение")
+                .set(Field.BANK, "Clever-Bank")
+                .set(Field.ACCOUNT_NUMBER, "40817810099910004312")
+                .amount(amount);
+        checksum += DocumentTemplate.toUtf8(CHECK.appendTo(DocumentTemplate.buffer(), values)).length;
+    }
+
+    private static void legacyRow(StringBuilder transactionInfo, StatementRow row) {
+        transactionInfo.append("Дата: ").append(row.getDate()).append("  |");
+        transactionInfo.append("Тип операции: ").append(row.getType()).append(" к ")
+                .append(row.getCounterpartyLastname()).append("  |");
+        transactionInfo.append("Сумма: ");
+        Money.appendTo(transactionInfo, row.getAmount(), Currency.DEFAULT).append(" рублей\n");
+        checksum += transactionInfo.length();
+    }
+}
@@ -0,0 +1,110 @@
+package Config;
+
+import org.CleverBank.Config.AppConfig;
+import org.CleverBank.Config.ConfigService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Класс ConfigServiceTest представляет собой набор юнит-тестов для класса ConfigService.
+ */
+public class ConfigServiceTest {
+
+    private Path file;
+
+    /**
+     * Метод настройки перед каждым тестом. Создает временный файл конфигурации.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("config", ".yml");
+    }
+
+    /**
+     * Метод очистки после каждого теста. Удаляет временный файл конфигурации.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Тест проверяет разбор файла, значения по умолчанию для отсутствующих параметров
+     * и запятую в качестве десятичного разделителя.
+     */
+    @Test
+    public void testLoadWithDefaults() throws IOException {
+        write("interestRate: 0,02\ninterestPoolSize: 4\n");
+
+        AppConfig config = new ConfigService(file).get();
+
+        assertThat(config.getInterestRateMicros()).isEqualTo(20_000L);
+        assertThat(config.getInterestPoolSize()).isEqualTo(4);
+        assertThat(config.getInterestChunkSize()).isEqualTo(AppConfig.defaults().getInterestChunkSize());
+    }
+
+    /**
+     * Тест проверяет, что перечитывание применяет новый снимок целиком,
+     * а файл с ошибкой не применяется и текущий снимок сохраняется.
+     */
+    @Test
+    public void testReloadKeepsPreviousSnapshotOnError() throws IOException {
+        write("interestRate: 0.01\n");
+        ConfigService configService = new ConfigService(file);
+        AppConfig first = configService.get();
+
+        write("interestRate: 0.03\ngroupCommitMaxBatchSize: 64\n");
+        assertThat(configService.reload()).isTrue();
+        AppConfig second = configService.get();
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getInterestRateMicros()).isEqualTo(30_000L);
+        assertThat(second.getGroupCommitMaxBatchSize()).isEqualTo(64);
+
+        write("interestRate: abc\n");
+        assertThat(configService.reload()).isFalse();
+        assertThat(configService.get()).isSameAs(second);
+        assertThat(configService.getReloadFailureCount()).isEqualTo(1);
+        assertThat(configService.getLastReloadFailure()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Тест проверяет, что неверное значение при первом чтении отклоняется.
+     */
+    @Test
+    public void testInvalidValueRejected() throws IOException {
+        write("interestPoolSize: 0\n");
+
+        assertThatThrownBy(() -> new ConfigService(file)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Тест проверяет чтение параметров пула соединений и отклонение минимального размера больше максимального.
+     */
+    @Test
+    public void testPoolSettings() throws IOException {
+        write("poolMinSize: 0\npoolMaxSize: 8\npoolAcquireTimeoutMillis: 250\npoolValidateOnBorrow: false\n");
+
+        AppConfig config = new ConfigService(file).get();
+
+        assertThat(config.getPoolMinSize()).isZero();
+        assertThat(config.getPoolMaxSize()).isEqualTo(8);
+        assertThat(config.getPoolAcquireTimeoutMillis()).isEqualTo(250L);
+        assertThat(config.getPoolIdleTimeoutMillis()).isEqualTo(AppConfig.DEFAULT_POOL_IDLE_TIMEOUT_MILLIS);
+        assertThat(config.isPoolValidateOnBorrow()).isFalse();
+
+        write("poolMinSize: 10\npoolMaxSize: 4\n");
+        assertThatThrownBy(() -> new ConfigService(file)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void write(String content) throws IOException {
+        Files.writeString(file, content);
+    }
+}
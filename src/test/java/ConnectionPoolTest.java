@@ -0,0 +1,79 @@
+import org.CleverBank.ConnectionPool;
+import org.CleverBank.PoolStatistics;
+import org.assertj.core.api.Assertions;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLTimeoutException;
+
+/**
+ * Класс ConnectionPoolTest представляет собой набор юнит-тестов для класса ConnectionPool.
+ * Он использует встроенную базу данных H2 в качестве источника физических соединений.
+ */
+public class ConnectionPoolTest {
+
+    private ConnectionPool connectionPool;
+
+    /**
+     * Создает пул максимум на одно соединение с коротким таймаутом получения.
+     */
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        dataSource.setPassword("");
+        connectionPool = new ConnectionPool(dataSource, 0, 1, 100, 60_000, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionPool.close();
+    }
+
+    /**
+     * Проверяет, что закрытое клиентом соединение возвращается в пул и переиспользуется.
+     */
+    @Test
+    void testConnectionIsReused() throws Exception {
+        try (Connection connection = connectionPool.getConnection()) {
+            Assertions.assertThat(connectionPool.getStatistics().getActive()).isEqualTo(1);
+        }
+        try (Connection connection = connectionPool.getConnection()) {
+            Assertions.assertThat(connection.isClosed()).isFalse();
+        }
+
+        PoolStatistics statistics = connectionPool.getStatistics();
+        Assertions.assertThat(statistics.getTotal()).isEqualTo(1);
+        Assertions.assertThat(statistics.getIdle()).isEqualTo(1);
+        Assertions.assertThat(statistics.getActive()).isZero();
+    }
+
+    /**
+     * Проверяет, что при исчерпании пула запрос соединения завершается по таймауту.
+     */
+    @Test
+    void testAcquireTimesOutWhenPoolIsExhausted() throws Exception {
+        try (Connection connection = connectionPool.getConnection()) {
+            Assertions.assertThatThrownBy(() -> connectionPool.getConnection())
+                    .isInstanceOf(SQLTimeoutException.class);
+        }
+        Assertions.assertThat(connectionPool.getStatistics().getAcquireTimeouts()).isEqualTo(1);
+    }
+
+    /**
+     * Проверяет, что незавершенная транзакция откатывается при возврате соединения в пул.
+     */
+    @Test
+    void testReturnedConnectionIsReset() throws Exception {
+        try (Connection connection = connectionPool.getConnection()) {
+            connection.setAutoCommit(false);
+        }
+        try (Connection connection = connectionPool.getConnection()) {
+            Assertions.assertThat(connection.getAutoCommit()).isTrue();
+        }
+    }
+}
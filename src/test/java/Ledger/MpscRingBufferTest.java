@@ -0,0 +1,75 @@
+package Ledger;
+
+import org.CleverBank.Ledger.MpscRingBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Класс MpscRingBufferTest представляет собой набор юнит-тестов для класса MpscRingBuffer.
+ */
+public class MpscRingBufferTest {
+
+    /**
+     * Тест проверяет, что буфер возвращает элементы в порядке добавления
+     * и отказывает в добавлении при заполнении.
+     */
+    @Test
+    public void testOfferAndPollInOrder() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(3);
+        assertThat(buffer.capacity()).isEqualTo(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+        assertThat(buffer.offer(4)).isFalse();
+
+        assertThat(buffer.poll()).isEqualTo(0);
+        assertThat(buffer.offer(4)).isTrue();
+
+        List<Integer> drained = new ArrayList<>();
+        assertThat(buffer.drain(drained::add, 10)).isEqualTo(4);
+        assertThat(drained).containsExactly(1, 2, 3, 4);
+        assertThat(buffer.poll()).isNull();
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    /**
+     * Тест проверяет, что элементы нескольких производителей не теряются и не дублируются.
+     */
+    @Test
+    public void testConcurrentProducers() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 10_000;
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }));
+        }
+
+        boolean[] seen = new boolean[producers * perProducer];
+        int received = 0;
+        while (received < seen.length) {
+            Integer element = buffer.poll();
+            if (element != null) {
+                assertThat(seen[element]).isFalse();
+                seen[element] = true;
+                received++;
+            }
+        }
+        futures.forEach(CompletableFuture::join);
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+}
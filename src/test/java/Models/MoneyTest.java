@@ -0,0 +1,49 @@
+package Models;
+
+import org.CleverBank.Models.Currency;
+import org.CleverBank.Models.Money;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Класс MoneyTest представляет собой набор юнит-тестов для класса Money.
+ */
+public class MoneyTest {
+
+    /**
+     * Тест проверяет разбор и форматирование сумм в минимальных единицах.
+     */
+    @Test
+    public void testParseAndFormat() {
+        assertThat(Money.parse("123.45", Currency.BYN)).isEqualTo(12345L);
+        assertThat(Money.parse("0,5", Currency.BYN)).isEqualTo(50L);
+        assertThat(Money.parse("-7", Currency.BYN)).isEqualTo(-700L);
+        assertThat(Money.ofMajor(9, Currency.BYN)).isEqualTo(900L);
+
+        assertThat(Money.format(12345L, Currency.BYN)).isEqualTo("123.45");
+        assertThat(Money.format(5L, Currency.BYN)).isEqualTo("0.05");
+        assertThat(Money.format(-50L, Currency.BYN)).isEqualTo("-0.50");
+
+        assertThatThrownBy(() -> Money.parse("1.234", Currency.BYN))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Тест проверяет начисление процентов с банковским округлением.
+     */
+    @Test
+    public void testApplyRateRoundsHalfEven() {
+        long onePercent = Money.rateToMicros(0.01);
+        assertThat(onePercent).isEqualTo(10_000L);
+
+        assertThat(Money.applyRate(100_000L, onePercent)).isEqualTo(1_000L);
+        assertThat(Money.applyRate(50L, onePercent)).isEqualTo(0L);
+        assertThat(Money.applyRate(150L, onePercent)).isEqualTo(2L);
+        assertThat(Money.applyRate(250L, onePercent)).isEqualTo(2L);
+
+        assertThatThrownBy(() -> Money.applyRate(Long.MAX_VALUE, onePercent))
+                .isInstanceOf(ArithmeticException.class);
+    }
+}
@@ -1,7 +1,9 @@
 package Repository;
 
 import org.CleverBank.Models.Account;
+import org.CleverBank.Models.Currency;
 import org.CleverBank.Repository.AccountRepository;
+import org.CleverBank.Repository.OptimisticLockException;
 import org.assertj.core.api.Assertions;
 import org.h2.jdbcx.JdbcDataSource;
 import org.junit.jupiter.api.BeforeAll;
@@ -10,6 +12,9 @@ import org.junit.jupiter.api.Test;
 import java.sql.Connection;
 import java.sql.Statement;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Класс AccountRepositoryTest представляет собой набор юнит-тестов для класса AccountRepository.
@@ -36,9 +41,9 @@ public class AccountRepositoryTest {
         // Создание таблицы "account" для хранения данных об аккаунтах
         try (Connection connection = dataSource.getConnection();
              Statement statement = connection.createStatement()) {
-            statement.execute("CREATE TABLE account (id SERIAL PRIMARY  KEY, balance INT, " +
+            statement.execute("CREATE TABLE account (id SERIAL PRIMARY  KEY, balance BIGINT, " +
                     "user_id INT, bank_id INT, account_date DATE, account_number VARCHAR(10)," +
-                    "last_interest_date DATE)");
+                    "last_interest_date DATE, version BIGINT DEFAULT 0, currency VARCHAR(3) DEFAULT 'BYN')");
         }
 
         // Создание объекта AccountRepository для тестирования
@@ -59,6 +64,7 @@ public class AccountRepositoryTest {
                 .balance(1000)
                 .bankId(1)
                 .userId(1)
+                .currency(Currency.USD)
                 .build();
 
         // Сохранение аккаунта в базе данных
@@ -70,6 +76,7 @@ public class AccountRepositoryTest {
         // Проверка, что аккаунт был успешно сохранен и найден
         Assertions.assertThat(savedAccount.getId()).isNotNull();
         Assertions.assertThat(savedAccount.getAccountNumber()).isEqualTo(retrievedAccount.getAccountNumber());
+        Assertions.assertThat(retrievedAccount.getCurrency()).isEqualTo(Currency.USD);
     }
 
     /**
@@ -135,4 +142,95 @@ public class AccountRepositoryTest {
         // Проверка, что аккаунт был успешно удален
         Assertions.assertThat(retrievedAccount).isNull();
     }
+
+    /**
+     * Метод testStreamAllAccounts выполняет тестирование потокового чтения аккаунтов через курсор.
+     */
+    @Test
+    void testStreamAllAccounts() {
+        // Сохранение аккаунта в базе данных
+        Account savedAccount = accountRepository.saveAccount(Account.builder()
+                .accountNumber("5555555555")
+                .date(LocalDate.EPOCH)
+                .lastInterestDate(LocalDate.EPOCH)
+                .balance(1000)
+                .bankId(1)
+                .userId(1)
+                .build());
+
+        // Чтение всех аккаунтов потоком с маленьким размером выборки
+        accountRepository.setFetchSize(1);
+        List<Integer> ids;
+        try (Stream<Account> accounts = accountRepository.streamAllAccounts()) {
+            ids = accounts.map(Account::getId).collect(Collectors.toList());
+        }
+        accountRepository.setFetchSize(AccountRepository.DEFAULT_FETCH_SIZE);
+
+        // Проверка, что сохраненный аккаунт прочитан из потока
+        Assertions.assertThat(ids).contains(savedAccount.getId());
+    }
+
+    /**
+     * Метод testUpdateAccountById_versionConflict выполняет тестирование оптимистичной блокировки:
+     * обновление устаревшей копии аккаунта должно завершаться конфликтом.
+     */
+    @Test
+    void testUpdateAccountById_versionConflict() {
+        // Сохранение аккаунта и получение двух его копий
+        Account savedAccount = accountRepository.saveAccount(Account.builder()
+                .accountNumber("7777777777")
+                .date(LocalDate.EPOCH)
+                .lastInterestDate(LocalDate.EPOCH)
+                .balance(1000)
+                .bankId(1)
+                .userId(1)
+                .build());
+        Account firstCopy = accountRepository.getAccountById(savedAccount.getId());
+        Account secondCopy = accountRepository.getAccountById(savedAccount.getId());
+
+        // Первое обновление увеличивает версию строки
+        firstCopy.setBalance(2000);
+        accountRepository.updateAccountById(firstCopy, firstCopy.getId());
+        Assertions.assertThat(firstCopy.getVersion()).isEqualTo(secondCopy.getVersion() + 1);
+
+        // Обновление устаревшей копии отклоняется
+        secondCopy.setBalance(3000);
+        Assertions.assertThatThrownBy(() -> accountRepository.updateAccountById(secondCopy, secondCopy.getId()))
+                .isInstanceOf(OptimisticLockException.class);
+        Assertions.assertThat(accountRepository.getAccountById(savedAccount.getId()).getBalance()).isEqualTo(2000);
+    }
+
+    /**
+     * Метод testFindDueForInterest выполняет тестирование поиска аккаунтов, которым пора начислять проценты:
+     * аккаунты возвращаются по дате последнего начисления страницами, а аккаунты без долга по процентам пропускаются.
+     */
+    @Test
+    void testFindDueForInterest() {
+        // Сохранение аккаунтов с разными датами последнего начисления
+        Account first = saveAccountWithInterestDate("8888888801", LocalDate.of(1900, 1, 2));
+        Account second = saveAccountWithInterestDate("8888888802", LocalDate.of(1900, 1, 1));
+        saveAccountWithInterestDate("8888888803", LocalDate.of(1900, 2, 20));
+        LocalDate asOf = LocalDate.of(1900, 3, 1);
+
+        // Чтение страниц по одному аккаунту
+        List<Account> firstPage = accountRepository.findDueForInterest(asOf, 1);
+        List<Account> secondPage = accountRepository.findDueForInterest(asOf, firstPage.get(0), 1);
+        List<Account> lastPage = accountRepository.findDueForInterest(asOf, secondPage.get(0), 1);
+
+        // Проверка порядка по дате последнего начисления и отсутствия аккаунта без долга по процентам
+        Assertions.assertThat(firstPage).extracting(Account::getId).containsExactly(second.getId());
+        Assertions.assertThat(secondPage).extracting(Account::getId).containsExactly(first.getId());
+        Assertions.assertThat(lastPage).isEmpty();
+    }
+
+    private Account saveAccountWithInterestDate(String accountNumber, LocalDate lastInterestDate) {
+        return accountRepository.saveAccount(Account.builder()
+                .accountNumber(accountNumber)
+                .date(LocalDate.EPOCH)
+                .lastInterestDate(lastInterestDate)
+                .balance(1000)
+                .bankId(1)
+                .userId(1)
+                .build());
+    }
 }
@@ -0,0 +1,99 @@
+package Repository;
+
+import org.CleverBank.Repository.BalanceShardRepository;
+import org.CleverBank.Repository.TransactionContext;
+import org.assertj.core.api.Assertions;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.OptionalLong;
+
+/**
+ * Класс BalanceShardRepositoryTest представляет собой набор юнит-тестов для класса BalanceShardRepository.
+ * Он использует встроенную базу данных H2 для выполнения тестовых операций с базой данных.
+ */
+public class BalanceShardRepositoryTest {
+
+    private static JdbcDataSource dataSource;
+
+    private static BalanceShardRepository balanceShardRepository;
+
+    /**
+     * Метод setUp выполняется перед запуском всех тестов в классе.
+     * Он инициализирует встроенную базу данных H2 и создает объект BalanceShardRepository для тестирования.
+     *
+     * @throws Exception Если возникают ошибки при настройке тестового окружения.
+     */
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:test;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        dataSource.setPassword("");
+
+        // Создание таблицы "account_balance_shard" для хранения частей балансов
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE account_balance_shard (account_id INT, shard INT, " +
+                    "balance BIGINT, PRIMARY KEY (account_id, shard))");
+        }
+
+        balanceShardRepository = new BalanceShardRepository(dataSource);
+    }
+
+    /**
+     * Тест проверяет, что зачисления на разные части суммируются в общий баланс,
+     * а списание из части без достаточных средств отклоняется.
+     */
+    @Test
+    void testCreditAndDebitShards() {
+        balanceShardRepository.createShards(1, 4, 1000);
+
+        balanceShardRepository.credit(1, 2, 300);
+        balanceShardRepository.credit(1, 3, 200);
+
+        Assertions.assertThat(balanceShardRepository.getTotalBalance(1)).isEqualTo(1500);
+        Assertions.assertThat(balanceShardRepository.getShardCounts()).containsEntry(1, 4);
+        Assertions.assertThat(balanceShardRepository.debitIfSufficient(1, 2, 300)).isTrue();
+        Assertions.assertThat(balanceShardRepository.debitIfSufficient(1, 2, 1)).isFalse();
+        Assertions.assertThat(balanceShardRepository.getTotalBalance(1)).isEqualTo(1200);
+    }
+
+    /**
+     * Тест проверяет, что списание за счет всех частей поровну распределяет остаток между ними
+     * и отклоняется, если суммарного баланса недостаточно.
+     */
+    @Test
+    void testDebitAndRebalance() {
+        balanceShardRepository.createShards(2, 3, 1000);
+
+        OptionalLong remaining = TransactionContext.inTransaction(dataSource,
+                () -> balanceShardRepository.debitAndRebalance(2, 500));
+
+        Assertions.assertThat(remaining).hasValue(500);
+        Assertions.assertThat(balanceShardRepository.debitIfSufficient(2, 2, 167)).isFalse();
+        Assertions.assertThat(balanceShardRepository.debitIfSufficient(2, 2, 166)).isTrue();
+        Assertions.assertThat(balanceShardRepository.debitIfSufficient(2, 0, 168)).isFalse();
+        Assertions.assertThat(balanceShardRepository.getTotalBalance(2)).isEqualTo(334);
+        Assertions.assertThat(TransactionContext.inTransaction(dataSource,
+                () -> balanceShardRepository.debitAndRebalance(2, 335))).isEmpty();
+    }
+
+    /**
+     * Тест проверяет, что удаление частей возвращает их суммарный баланс.
+     */
+    @Test
+    void testDeleteShards() {
+        balanceShardRepository.createShards(3, 2, 700);
+        balanceShardRepository.credit(3, 1, 50);
+
+        long total = TransactionContext.inTransaction(dataSource, () -> balanceShardRepository.deleteShards(3));
+
+        Assertions.assertThat(total).isEqualTo(750);
+        Assertions.assertThat(balanceShardRepository.getShardCounts()).doesNotContainKey(3);
+        Assertions.assertThat(balanceShardRepository.getTotalBalance(3)).isZero();
+    }
+}
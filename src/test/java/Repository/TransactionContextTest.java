@@ -0,0 +1,94 @@
+package Repository;
+
+import org.CleverBank.Models.User;
+import org.CleverBank.Repository.OptimisticLockException;
+import org.CleverBank.Repository.TransactionContext;
+import org.CleverBank.Repository.UserRepository;
+import org.assertj.core.api.Assertions;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Класс TransactionContextTest представляет собой набор юнит-тестов для класса TransactionContext.
+ * Он использует встроенную базу данных H2 для проверки фиксации и отката работы нескольких репозиториев.
+ */
+public class TransactionContextTest {
+
+    private static JdbcDataSource dataSource;
+    private static UserRepository userRepository;
+
+    /**
+     * Инициализирует отдельную базу данных H2 с таблицей пользователей.
+     *
+     * @throws Exception Если возникают ошибки при настройке тестового окружения.
+     */
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:context;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        dataSource.setPassword("");
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE users(id SERIAL PRIMARY KEY, " +
+                    "firstname varchar(50), lastname varchar(50))");
+        }
+
+        userRepository = new UserRepository(dataSource);
+    }
+
+    /**
+     * Проверяет, что изменения нескольких вызовов репозитория фиксируются вместе.
+     */
+    @Test
+    void testWorkIsCommitted() {
+        User saved = TransactionContext.inTransaction(dataSource, () -> {
+            User user = userRepository.saveUser(User.builder().firstname("ivan").lastname("ivanov").build());
+            userRepository.updateUserById(User.builder().firstname("ivan").lastname("sidorov").build(), user.getId());
+            return user;
+        });
+
+        Assertions.assertThat(userRepository.getUserById(saved.getId()).getLastname()).isEqualTo("sidorov");
+    }
+
+    /**
+     * Проверяет, что при исключении все изменения внутри транзакции откатываются.
+     */
+    @Test
+    void testWorkIsRolledBackOnFailure() {
+        int[] savedId = new int[1];
+
+        Assertions.assertThatThrownBy(() -> TransactionContext.runInTransaction(dataSource, () -> {
+            savedId[0] = userRepository.saveUser(User.builder().firstname("petr").lastname("petrov").build()).getId();
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        Assertions.assertThat(userRepository.getUserById(savedId[0])).isNull();
+    }
+
+    /**
+     * Проверяет, что ошибка восстановления автофиксации на сломанном соединении не заменяет
+     * исключение работы, а прикрепляется к нему.
+     */
+    @Test
+    void testAutoCommitFailureDoesNotMaskWorkFailure() throws SQLException {
+        DataSource brokenDataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(brokenDataSource.getConnection()).thenReturn(connection);
+        SQLException broken = new SQLException("connection is broken");
+        doThrow(broken).when(connection).setAutoCommit(true);
+
+        Assertions.assertThatThrownBy(() -> TransactionContext.runInTransaction(brokenDataSource, () -> {
+            throw new OptimisticLockException("Account 1 was modified concurrently");
+        })).isInstanceOf(OptimisticLockException.class).hasSuppressedException(broken);
+    }
+}
@@ -1,5 +1,6 @@
 package Repository;
 
+import org.CleverBank.Models.StatementRow;
 import org.CleverBank.Models.Transaction;
 import org.CleverBank.Models.TransactionType;
 import org.CleverBank.Repository.TransactionRepository;
@@ -11,6 +12,9 @@ import org.junit.jupiter.api.Test;
 import java.sql.Connection;
 import java.sql.Statement;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 /**
  * Класс TransactionRepositoryTest представляет собой набор юнит-тестов для класса TransactionRepository.
  * Он использует встроенную базу данных H2 для выполнения тестовых операций с базой данных.
@@ -37,7 +41,7 @@ public class TransactionRepositoryTest {
         try (Connection connection = dataSource.getConnection();
              Statement statement = connection.createStatement()) {
             statement.execute("CREATE TABLE transactions (id SERIAL PRIMARY KEY, source_account INT, " +
-                    "target_account INT, transaction_type VARCHAR(15), amount INT, transaction_date DATE)");
+                    "target_account INT, transaction_type VARCHAR(15), amount BIGINT, transaction_date DATE)");
         }
 
         // Создание объекта TransactionRepository для тестирования
@@ -128,4 +132,103 @@ public class TransactionRepositoryTest {
         // Проверка, что информация о транзакции была успешно удалена
         Assertions.assertThat(retrievedTransaction).isNull();
     }
+
+    /**
+     * Метод testSaveTransactions выполняет тестирование пакетного сохранения транзакций
+     * с размером пакета меньше количества транзакций.
+     */
+    @Test
+    void testSaveTransactions() {
+        // Создание транзакций для тестирования
+        List<Transaction> transactions = List.of(
+                Transaction.builder().amount(100).sourceAccount(1).targetAccount(2)
+                        .date(LocalDate.EPOCH).type(TransactionType.TRANSFER_IN).build(),
+                Transaction.builder().amount(-100).sourceAccount(1).targetAccount(2)
+                        .date(LocalDate.EPOCH).type(TransactionType.TRANSFER_OUT).build(),
+                Transaction.builder().amount(50).sourceAccount(3).targetAccount(3)
+                        .date(LocalDate.EPOCH).type(TransactionType.DEPOSIT).build()
+        );
+
+        // Сохранение транзакций пакетами по две строки
+        transactionRepository.setBatchSize(2);
+        transactionRepository.saveTransactions(transactions);
+        transactionRepository.setBatchSize(TransactionRepository.DEFAULT_BATCH_SIZE);
+
+        // Проверка, что каждой транзакции присвоен идентификатор сохраненной строки
+        for (Transaction transaction : transactions) {
+            Transaction retrievedTransaction = transactionRepository.getTransactionById(transaction.getId());
+            Assertions.assertThat(retrievedTransaction.getType()).isEqualTo(transaction.getType());
+            Assertions.assertThat(retrievedTransaction.getAmount()).isEqualTo(transaction.getAmount());
+        }
+    }
+
+    /**
+     * Метод testStreamTransactionsByAccountIdAndTime выполняет тестирование потокового чтения транзакций
+     * счета за период в порядке даты и идентификатора.
+     */
+    @Test
+    void testStreamTransactionsByAccountIdAndTime() {
+        LocalDate day = LocalDate.of(1901, 1, 10);
+        Transaction late = Transaction.builder().amount(300).sourceAccount(901).targetAccount(901)
+                .date(day.plusDays(2)).type(TransactionType.DEPOSIT).build();
+        Transaction early = Transaction.builder().amount(100).sourceAccount(901).targetAccount(901)
+                .date(day).type(TransactionType.DEPOSIT).build();
+        Transaction outOfRange = Transaction.builder().amount(500).sourceAccount(901).targetAccount(901)
+                .date(day.plusDays(30)).type(TransactionType.DEPOSIT).build();
+        Transaction otherAccount = Transaction.builder().amount(700).sourceAccount(902).targetAccount(902)
+                .date(day).type(TransactionType.DEPOSIT).build();
+        transactionRepository.saveTransactions(List.of(late, early, outOfRange, otherAccount));
+
+        // Чтение по одной строке за раз, чтобы курсор проходил несколько выборок
+        transactionRepository.setFetchSize(1);
+        try (Stream<Transaction> transactions = transactionRepository.streamTransactionsByAccountIdAndTime(
+                901, day, day.plusDays(7))) {
+            Assertions.assertThat(transactions.map(Transaction::getAmount)).containsExactly(100L, 300L);
+        } finally {
+            transactionRepository.setFetchSize(TransactionRepository.DEFAULT_FETCH_SIZE);
+        }
+    }
+
+    /**
+     * Метод testStreamStatementRows выполняет тестирование чтения строк выписки, соединенных
+     * с номером счета и фамилией владельца второй стороны операции. Для соединения используется
+     * отдельная база данных со счетами и пользователями.
+     */
+    @Test
+    void testStreamStatementRows() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:statement;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        dataSource.setPassword("");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE transactions (id SERIAL PRIMARY KEY, source_account INT, " +
+                    "target_account INT, transaction_type VARCHAR(15), amount BIGINT, transaction_date DATE)");
+            statement.execute("CREATE TABLE account (id SERIAL PRIMARY KEY, balance BIGINT, user_id INT, " +
+                    "bank_id INT, account_date DATE, account_number VARCHAR(10))");
+            statement.execute("CREATE TABLE users (id SERIAL PRIMARY KEY, firstname VARCHAR(50), lastname VARCHAR(50))");
+            statement.execute("INSERT INTO users (firstname, lastname) VALUES ('Jane', 'Petrov'), ('Ivan', 'Ivanov')");
+            statement.execute("INSERT INTO account (balance, user_id, bank_id, account_number) " +
+                    "VALUES (0, 1, 1, 'ACC1'), (0, 2, 1, 'ACC2')");
+        }
+        TransactionRepository repository = new TransactionRepository(dataSource);
+        LocalDate day = LocalDate.of(2023, 9, 1);
+        repository.saveTransactions(List.of(
+                Transaction.builder().amount(-300).sourceAccount(1).targetAccount(2)
+                        .date(day.plusDays(1)).type(TransactionType.TRANSFER_OUT).build(),
+                Transaction.builder().amount(100).sourceAccount(1).targetAccount(1)
+                        .date(day).type(TransactionType.DEPOSIT).build(),
+                Transaction.builder().amount(200).sourceAccount(2).targetAccount(2)
+                        .date(day).type(TransactionType.DEPOSIT).build()
+        ));
+
+        try (Stream<StatementRow> rows = repository.streamStatementRows(1, day, day.plusDays(1))) {
+            Assertions.assertThat(rows.collect(Collectors.toList()))
+                    .extracting(StatementRow::getType, StatementRow::getAmount,
+                            StatementRow::getCounterpartyAccountNumber, StatementRow::getCounterpartyLastname)
+                    .containsExactly(
+                            Assertions.tuple(TransactionType.DEPOSIT, 100L, "ACC1", "Petrov"),
+                            Assertions.tuple(TransactionType.TRANSFER_OUT, -300L, "ACC2", "Ivanov"));
+        }
+    }
 }
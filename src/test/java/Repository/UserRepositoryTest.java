@@ -1,5 +1,6 @@
 package Repository;
 
+import org.CleverBank.Models.Page;
 import org.CleverBank.Models.User;
 import org.CleverBank.Repository.UserRepository;
 import org.assertj.core.api.Assertions;
@@ -11,6 +12,8 @@ import org.h2.jdbcx.JdbcDataSource;
 
 import java.sql.Connection;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Класс UserRepositoryTest представляет собой набор юнит-тестов для класса UserRepository.
@@ -112,4 +115,32 @@ class UserRepositoryTest {
         // Проверка, что информация о пользователе была успешно удалена
         Assertions.assertThat(retrievedUser).isNull();
     }
+
+    /**
+     * Метод testGetUsersPage выполняет тестирование постраничного чтения пользователей по токену продолжения.
+     */
+    @Test
+    void testGetUsersPage() {
+        // Создание нескольких пользователей в базе данных
+        List<Integer> savedIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            savedIds.add(userRepository.saveUser(User.builder()
+                    .firstname("page")
+                    .lastname("user" + i)
+                    .build()).getId());
+        }
+
+        // Чтение всех пользователей страницами по два
+        List<Integer> readIds = new ArrayList<>();
+        String token = null;
+        do {
+            Page<User> page = userRepository.getUsersPage(token, 2);
+            Assertions.assertThat(page.getItems().size()).isLessThanOrEqualTo(2);
+            page.getItems().forEach(user -> readIds.add(user.getId()));
+            token = page.getContinuationToken();
+        } while (token != null);
+
+        // Проверка, что страницы упорядочены по идентификатору и содержат всех созданных пользователей
+        Assertions.assertThat(readIds).isSorted().containsAll(savedIds);
+    }
 }
@@ -0,0 +1,48 @@
+package Services;
+
+import org.CleverBank.Service.AccountLockManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Класс AccountLockManagerTest представляет собой набор юнит-тестов для класса AccountLockManager.
+ */
+public class AccountLockManagerTest {
+
+    /**
+     * Тест проверяет, что занятая блокировка счета не выдается другому потоку
+     * и ожидание завершается по таймауту с учетом в статистике.
+     */
+    @Test
+    public void testLockTimesOutWhileAccountIsHeld() {
+        AccountLockManager lockManager = new AccountLockManager(16, 50);
+
+        try (AccountLockManager.Locks ignored = lockManager.lock(1)) {
+            CompletableFuture<Void> competitor = CompletableFuture.runAsync(() -> lockManager.lock(1).close());
+            assertThatThrownBy(competitor::join).hasCauseInstanceOf(RuntimeException.class);
+        }
+
+        assertThat(lockManager.getTimeoutCount()).isEqualTo(1);
+        assertThat(lockManager.getHotAccounts(10)).containsKey(1);
+    }
+
+    /**
+     * Тест проверяет, что счета, попавшие в одну полосу, и повторяющиеся идентификаторы
+     * захватываются без самоблокировки и освобождаются полностью.
+     */
+    @Test
+    public void testLockSameStripeTwice() {
+        AccountLockManager lockManager = new AccountLockManager(1, 50);
+
+        try (AccountLockManager.Locks ignored = lockManager.lock(1, 2, 1)) {
+            assertThat(lockManager.getAcquisitionCount()).isEqualTo(1);
+        }
+
+        CompletableFuture.runAsync(() -> lockManager.lock(2).close()).join();
+        assertThat(lockManager.getTimeoutCount()).isZero();
+    }
+}
@@ -1,11 +1,17 @@
 package Services;
 
+import org.CleverBank.Ledger.LedgerEngine;
 import org.CleverBank.Models.Account;
+import org.CleverBank.Models.Currency;
 import org.CleverBank.Repository.AccountRepository;
 import org.CleverBank.Service.AccountService;
+import org.CleverBank.Service.BalanceShards;
+import org.CleverBank.Service.GroupCommitter;
+import org.CleverBank.Service.StatementCache;
 import org.CleverBank.Service.TransactionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -15,11 +21,15 @@ import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 /**
@@ -31,6 +41,9 @@ public class AccountServiceTest {
     @Mock
     private DataSource dataSource;
 
+    @Mock
+    private Connection connection;
+
     @Mock
     private ScheduledExecutorService scheduler;
 
@@ -43,6 +56,12 @@ public class AccountServiceTest {
     @Mock
     private TransactionService transactionService;
 
+    @Mock
+    private BalanceShards balanceShards;
+
+    @Mock
+    private StatementCache statementCache;
+
     private AccountService accountService;
 
     /**
@@ -50,8 +69,9 @@ public class AccountServiceTest {
      * и настраивается объект AccountService для тестирования.
      */
     @BeforeEach
-    public void setUp() {
+    public void setUp() throws SQLException {
         MockitoAnnotations.openMocks(this);
+        when(dataSource.getConnection()).thenReturn(connection);
         accountService = new AccountService(dataSource);
         scheduler = Executors.newScheduledThreadPool(1);
         interestExecutor = Executors.newFixedThreadPool(10);
@@ -59,39 +79,71 @@ public class AccountServiceTest {
         accountService.setInterestExecutor(interestExecutor);
         accountService.setAccountRepository(accountRepository);
         accountService.setTransactionService(transactionService);
+        accountService.setStatementCache(statementCache);
     }
 
     /**
      * Тест метода deposit, который проверяет корректное пополнение средств на аккаунте.
-     * Проверяется вызов метода updateAccountById у AccountRepository.
+     * Проверяется атомарное изменение баланса через adjustBalance у AccountRepository.
      */
     @Test
     public void testDeposit() {
-        when(accountRepository.getAccountById(anyInt())).thenReturn(createAccount(1));
+        when(accountRepository.adjustBalance(anyInt(), anyLong())).thenReturn(1500L);
         accountService.setAccountRepository(accountRepository);
         Account account = createAccount(1);
-        double amount = 500.0;
+        long amount = 500;
         accountService.deposit(account, amount);
-        verify(accountRepository).updateAccountById(account, account.getId());
+        verify(accountRepository).adjustBalance(account.getId(), amount);
+        assertThat(account.getBalance()).isEqualTo(1500L);
+    }
+
+    /**
+     * Тест метода depositAsync, который проверяет, что асинхронное пополнение выполняется
+     * исполнителем асинхронных операций и завершает результат после изменения баланса.
+     */
+    @Test
+    public void testDepositAsync() {
+        when(accountRepository.adjustBalance(anyInt(), anyLong())).thenReturn(1500L);
+        Account account = createAccount(1);
+
+        accountService.depositAsync(account, 500).join();
+
+        verify(accountRepository).adjustBalance(account.getId(), 500);
+        assertThat(account.getBalance()).isEqualTo(1500L);
     }
 
     /**
      * Тест метода withdraw, который проверяет корректное снятие средств с аккаунта.
-     * Проверяется вызов метода updateAccountById у AccountRepository.
+     * Проверяется атомарное списание через debitIfSufficient у AccountRepository.
      */
     @Test
     public void testWithdraw() {
-        when(accountRepository.getAccountById(anyInt())).thenReturn(createAccount(1));
+        when(accountRepository.debitIfSufficient(anyInt(), anyLong())).thenReturn(OptionalLong.of(800L));
         accountService.setAccountRepository(accountRepository);
         Account account = createAccount(1);
-        double amount = 200.0;
+        long amount = 200;
         accountService.withdraw(account, amount);
-        verify(accountRepository).updateAccountById(account, account.getId());
+        verify(accountRepository).debitIfSufficient(account.getId(), amount);
+        assertThat(account.getBalance()).isEqualTo(800L);
+    }
+
+    /**
+     * Тест метода withdraw, который проверяет отказ в снятии при недостатке средств.
+     * Транзакция снятия не должна сохраняться.
+     */
+    @Test
+    public void testWithdrawInsufficientFunds() {
+        when(accountRepository.debitIfSufficient(anyInt(), anyLong())).thenReturn(OptionalLong.empty());
+        accountService.setAccountRepository(accountRepository);
+        Account account = createAccount(1);
+        assertThatThrownBy(() -> accountService.withdraw(account, 5000L))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(transactionService, never()).saveWithdrawTransfer(any(Account.class), anyLong());
     }
 
     /**
      * Тест метода transfer, который проверяет корректный перевод средств между аккаунтами.
-     * Проверяется вызов метода updateAccountById у AccountRepository и commit у Connection.
+     * Проверяется атомарное списание и зачисление у AccountRepository и commit у Connection.
      * @throws SQLException если возникает ошибка SQL во время теста.
      */
     @Test
@@ -99,17 +151,114 @@ public class AccountServiceTest {
         DataSource dataSource = mock(DataSource.class);
         Connection connection = mock(Connection.class);
         when(dataSource.getConnection()).thenReturn(connection);
-        when(accountRepository.getAccountById(anyInt())).thenReturn(createAccount(1));
+        when(accountRepository.debitIfSufficient(anyInt(), anyLong())).thenReturn(OptionalLong.of(900L));
+        when(accountRepository.adjustBalance(anyInt(), anyLong())).thenReturn(1100L);
         accountService.setAccountRepository(accountRepository);
         accountService.setDataSource(dataSource);
         Account sourceAccount = createAccount(1);
         Account targetAccount = createAccount(2);
-        double amount = 100.0;
+        long amount = 100;
         accountService.transfer(sourceAccount, targetAccount, amount);
-        verify(accountRepository, times(2)).updateAccountById(any(Account.class), anyInt());
+        verify(accountRepository).debitIfSufficient(sourceAccount.getId(), amount);
+        verify(accountRepository).adjustBalance(targetAccount.getId(), amount);
         verify(connection).commit();
     }
 
+    /**
+     * Тест метода transfer, который проверяет, что перевод между счетами в разных валютах отклоняется
+     * без изменения балансов.
+     */
+    @Test
+    public void testTransferBetweenCurrenciesIsRejected() {
+        Account sourceAccount = createAccount(1);
+        Account targetAccount = createAccount(2);
+        targetAccount.setCurrency(Currency.USD);
+
+        assertThatThrownBy(() -> accountService.transfer(sourceAccount, targetAccount, 100L))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(accountRepository, never()).debitIfSufficient(anyInt(), anyLong());
+        verify(accountRepository, never()).adjustBalance(anyInt(), anyLong());
+    }
+
+    /**
+     * Тест проверяет, что операции с ключом идемпотентности отклоняются при групповой фиксации:
+     * ключ не может быть зафиксирован вместе с операцией, поэтому операция не выполняется.
+     */
+    @Test
+    public void testIdempotentOperationRejectedWithGroupCommit() {
+        GroupCommitter groupCommitter = mock(GroupCommitter.class);
+        accountService.setGroupCommitter(groupCommitter);
+        Account account = createAccount(1);
+
+        assertThatThrownBy(() -> accountService.deposit(account, 500L, "key-1"))
+                .isInstanceOf(IllegalStateException.class);
+
+        verifyNoInteractions(groupCommitter);
+    }
+
+    /**
+     * Тест проверяет, что пополнение счета с разделенным балансом зачисляется на его части,
+     * не изменяя строку счета.
+     */
+    @Test
+    public void testDepositToShardedAccount() {
+        when(balanceShards.isSharded(1)).thenReturn(true);
+        when(balanceShards.credit(1, 500L)).thenReturn(1500L);
+        accountService.setBalanceShards(balanceShards);
+        Account account = createAccount(1);
+        accountService.deposit(account, 500L);
+        verify(accountRepository, never()).adjustBalance(anyInt(), anyLong());
+        verify(transactionService).saveDepositTransfer(account, 500L);
+        assertThat(account.getBalance()).isEqualTo(1500L);
+    }
+
+    /**
+     * Тест проверяет, что снятие со счета с разделенным балансом отклоняется,
+     * если суммарного баланса частей недостаточно.
+     */
+    @Test
+    public void testWithdrawFromShardedAccountInsufficientFunds() {
+        when(balanceShards.isSharded(1)).thenReturn(true);
+        when(balanceShards.debit(1, 5000L)).thenReturn(OptionalLong.empty());
+        accountService.setBalanceShards(balanceShards);
+        Account account = createAccount(1);
+        assertThatThrownBy(() -> accountService.withdraw(account, 5000L))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(transactionService, never()).saveWithdrawTransfer(any(Account.class), anyLong());
+    }
+
+    /**
+     * Тест проверяет, что снятие повторяется над частями баланса, если баланс счета разделили
+     * на другом узле: строка счета уже пуста, а номера счетов в памяти еще не обновлены.
+     */
+    @Test
+    public void testWithdrawRetriesWhenAccountShardedElsewhere() {
+        when(balanceShards.isSharded(1)).thenReturn(false, true);
+        when(balanceShards.recheck(1)).thenReturn(true);
+        when(balanceShards.debit(1, 500L)).thenReturn(OptionalLong.of(4500L));
+        when(accountRepository.debitIfSufficient(1, 500L)).thenReturn(OptionalLong.empty());
+        accountService.setBalanceShards(balanceShards);
+        Account account = createAccount(1);
+        accountService.withdraw(account, 500L);
+        verify(transactionService).saveWithdrawTransfer(account, 500L);
+        assertThat(account.getBalance()).isEqualTo(4500L);
+    }
+
+    /**
+     * Тест метода getAccount, который проверяет, что баланс счета с разделенным балансом
+     * складывается из его частей.
+     */
+    @Test
+    public void testGetShardedAccountAggregatesBalance() {
+        when(balanceShards.isSharded(1)).thenReturn(true);
+        when(balanceShards.getBalance(1)).thenReturn(2500L);
+        accountService.setBalanceShards(balanceShards);
+        Account stored = createAccount(1);
+        stored.setBalance(0L);
+        when(accountRepository.getAccountById(1)).thenReturn(stored);
+        assertThat(accountService.getAccount(1).getBalance()).isEqualTo(2500L);
+    }
+
     /**
      * Тест метода getAccount, который проверяет корректное получение аккаунта по его ID.
      */
@@ -126,6 +275,23 @@ public class AccountServiceTest {
                 .isEqualTo(expectedAccount);
     }
 
+    /**
+     * Тест метода getAccount в режиме движка проводок: баланс берется из движка,
+     * так как строка счета еще не содержит несохраненных операций.
+     */
+    @Test
+    public void testGetAccountReturnsLedgerBalance() {
+        accountRepository = mock(AccountRepository.class);
+        accountService.setAccountRepository(accountRepository);
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        accountService.setLedgerEngine(ledgerEngine);
+        int accountId = 1;
+        when(accountRepository.getAccountById(accountId)).thenReturn(createAccount(accountId));
+        when(ledgerEngine.isRunning()).thenReturn(true);
+        when(ledgerEngine.balanceOf(accountId)).thenReturn(CompletableFuture.completedFuture(7500L));
+        assertThat(accountService.getAccount(accountId).getBalance()).isEqualTo(7500L);
+    }
+
     /**
      * Тест метода getAllAccounts, который проверяет корректное получение списка всех аккаунтов.
      */
@@ -168,10 +334,11 @@ public class AccountServiceTest {
         accountService.setAccountRepository(accountRepository);
         int accountId = 1;
         Account updatedAccount = createAccount(accountId);
-        updatedAccount.setBalance(2000.0);
+        updatedAccount.setBalance(2000L);
         when(accountRepository.getAccountById(accountId)).thenReturn(updatedAccount);
         accountService.updateAccount(updatedAccount, accountId);
         verify(accountRepository).updateAccountById(updatedAccount, accountId);
+        verify(statementCache).clear();
     }
 
     /**
@@ -186,6 +353,52 @@ public class AccountServiceTest {
         when(accountRepository.getAccountById(accountId)).thenReturn(accountToDelete);
         accountService.deleteAccount(accountId);
         verify(accountRepository).deleteAccountById(accountId);
+        verify(statementCache).clear();
+    }
+
+    /**
+     * Тест метода deleteAccount: счет, баланс которого хранит движок проводок, не удаляется.
+     */
+    @Test
+    public void testDeleteAccountHeldByLedgerIsRejected() {
+        accountRepository = mock(AccountRepository.class);
+        accountService.setAccountRepository(accountRepository);
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        accountService.setLedgerEngine(ledgerEngine);
+        int accountId = 1;
+        when(accountRepository.getAccountById(accountId)).thenReturn(createAccount(accountId));
+        when(ledgerEngine.holds(accountId)).thenReturn(true);
+        assertThatThrownBy(() -> accountService.deleteAccount(accountId))
+                .isInstanceOf(IllegalStateException.class);
+        verify(accountRepository, never()).deleteAccountById(accountId);
+    }
+
+    /**
+     * Тест планировщика начисления процентов по одному счету: счета берутся из запроса счетов,
+     * которым пора начислять проценты, а счет, начисление по которому еще не завершено,
+     * не ставится в очередь повторно.
+     */
+    @Test
+    public void testInterestSchedulerDoesNotQueueAccountTwice() {
+        ScheduledExecutorService mockScheduler = mock(ScheduledExecutorService.class);
+        ExecutorService mockExecutor = mock(ExecutorService.class);
+        accountService.setScheduler(mockScheduler);
+        accountService.setInterestExecutor(mockExecutor);
+        accountService.setBulkInterest(false);
+        Account account = createAccount(1);
+        account.setLastInterestDate(LocalDate.now().minusMonths(2));
+        when(accountRepository.findDueForInterest(any(LocalDate.class), any(), anyInt())).thenReturn(List.of(account));
+
+        accountService.startInterestCalculation();
+        ArgumentCaptor<Runnable> interestTask = ArgumentCaptor.forClass(Runnable.class);
+        verify(mockScheduler).scheduleAtFixedRate(interestTask.capture(), anyLong(), anyLong(), any(TimeUnit.class));
+
+        // Задача первого запуска еще не выполнена, поэтому второй запуск не ставит счет в очередь
+        interestTask.getValue().run();
+        interestTask.getValue().run();
+
+        verify(mockExecutor, times(1)).execute(any(Runnable.class));
+        verify(accountRepository, never()).streamAllAccounts();
     }
 
     /**
@@ -201,7 +414,7 @@ public class AccountServiceTest {
                 .date(LocalDate.now())
                 .userId(id)
                 .bankId(id)
-                .balance(1000.0)
+                .balance(1000L)
                 .lastInterestDate(LocalDate.now())
                 .build();
     }
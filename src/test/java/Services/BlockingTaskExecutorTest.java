@@ -0,0 +1,89 @@
+package Services;
+
+import org.CleverBank.Config.ExecutorMode;
+import org.CleverBank.Service.BlockingTaskExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Класс BlockingTaskExecutorTest представляет собой набор юнит-тестов для класса BlockingTaskExecutor.
+ */
+public class BlockingTaskExecutorTest {
+
+    private BlockingTaskExecutor executor;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Тест проверяет, что в режиме виртуальных потоков одновременно выполняется не больше задач,
+     * чем разрешений, а остальные задачи ждут.
+     */
+    @Test
+    public void testLimitsConcurrency() throws Exception {
+        executor = new BlockingTaskExecutor(ExecutorMode.VIRTUAL_THREADS, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(executor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                release.await();
+                running.decrementAndGet();
+                return null;
+            }));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getActiveTaskCount() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(executor.getActiveTaskCount()).isEqualTo(2);
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertThat(maxRunning.get()).isEqualTo(2);
+        assertThat(executor.getActiveTaskCount()).isZero();
+    }
+
+    /**
+     * Тест проверяет, что режим виртуальных потоков заменяется фиксированным пулом,
+     * если версия Java их не поддерживает.
+     */
+    @Test
+    public void testFallsBackToFixedPool() {
+        executor = new BlockingTaskExecutor(ExecutorMode.VIRTUAL_THREADS, 4);
+
+        assertThat(executor.getMode()).isEqualTo(BlockingTaskExecutor.isVirtualThreadsSupported()
+                ? ExecutorMode.VIRTUAL_THREADS
+                : ExecutorMode.FIXED_POOL);
+        assertThat(executor.getMaxConcurrency()).isEqualTo(4);
+    }
+
+    /**
+     * Тест проверяет, что количество разрешений должно быть положительным.
+     */
+    @Test
+    public void testRejectsNonPositiveConcurrency() {
+        executor = new BlockingTaskExecutor(ExecutorMode.FIXED_POOL, 1);
+
+        assertThatThrownBy(() -> new BlockingTaskExecutor(ExecutorMode.FIXED_POOL, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
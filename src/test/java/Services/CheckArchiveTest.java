@@ -0,0 +1,132 @@
+package Services;
+
+import org.CleverBank.Config.AppConfig;
+import org.CleverBank.Service.CheckArchive;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Класс CheckArchiveTest представляет собой набор юнит-тестов для класса CheckArchive.
+ */
+public class CheckArchiveTest {
+
+    private Path directory;
+    private MutableClock clock;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("check-archive");
+        clock = new MutableClock(LocalDate.of(2023, 9, 1));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Тест проверяет поиск чеков в текущем сегменте и в запечатанном сегменте после повторного открытия архива.
+     */
+    @Test
+    public void testFindCheckInActiveAndSealedSegments() throws Exception {
+        CheckArchive archive = new CheckArchive(directory, AppConfig.DEFAULT_CHECK_SEGMENT_MAX_BYTES, clock);
+        // Номера транзакций приходят не по порядку: индекс сортируется при запечатывании
+        archive.append(bytes("Чек 30\n"), 30);
+        archive.append(bytes("Чек 10\n"), 10);
+        archive.append(bytes("Чек перевода\n"), 21, 20);
+        archive.append(bytes("Чек без номера\n"));
+
+        assertThat(archive.findCheck(10)).contains("Чек 10\n");
+        assertThat(archive.findCheck(20)).contains("Чек перевода\n");
+        archive.close();
+
+        CheckArchive reopened = new CheckArchive(directory, AppConfig.DEFAULT_CHECK_SEGMENT_MAX_BYTES, clock);
+        assertThat(reopened.getSealedSegmentCount()).isEqualTo(1);
+        assertThat(reopened.findCheck(30)).contains("Чек 30\n");
+        assertThat(reopened.findCheck(10)).contains("Чек 10\n");
+        assertThat(reopened.findCheck(21)).contains("Чек перевода\n");
+        assertThat(reopened.findCheck(20)).contains("Чек перевода\n");
+        assertThat(reopened.findCheck(15)).isEmpty();
+        reopened.close();
+    }
+
+    /**
+     * Тест проверяет, что сегменты сменяются при наступлении нового дня и при достижении предельного размера,
+     * а сегменты прошлых дней переносятся из архива целиком.
+     */
+    @Test
+    public void testRollsSegmentsAndArchivesOldDays() throws Exception {
+        CheckArchive archive = new CheckArchive(directory, 64, clock);
+        archive.append(bytes("Первый чек первого дня, длиной около сорока байт\n"), 1);
+        archive.append(bytes("Второй чек первого дня, не помещается в сегмент\n"), 2);
+        clock.setDay(LocalDate.of(2023, 9, 2));
+        archive.append(bytes("Чек второго дня\n"), 3);
+        archive.flush();
+
+        assertThat(archive.getSealedSegmentCount()).isEqualTo(2);
+        assertThat(archive.findCheck(1)).contains("Первый чек первого дня, длиной около сорока байт\n");
+        assertThat(archive.findCheck(2)).contains("Второй чек первого дня, не помещается в сегмент\n");
+        assertThat(archive.findCheck(3)).contains("Чек второго дня\n");
+
+        Path cold = directory.resolve("cold");
+        assertThat(archive.archiveSegmentsBefore(LocalDate.of(2023, 9, 2), cold)).isEqualTo(2);
+        try (Stream<Path> files = Files.list(cold)) {
+            assertThat(files.map(path -> path.getFileName().toString())).containsExactlyInAnyOrder(
+                    "checks-2023-09-01-000001.log", "checks-2023-09-01-000001.idx",
+                    "checks-2023-09-01-000002.log", "checks-2023-09-01-000002.idx");
+        }
+        assertThat(archive.findCheck(1)).isEmpty();
+        assertThat(archive.findCheck(3)).contains("Чек второго дня\n");
+        archive.close();
+    }
+
+    private static byte[] bytes(String check) {
+        return check.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Часы, день которых задается тестом.
+     */
+    private static final class MutableClock extends Clock {
+        private volatile Instant instant;
+
+        private MutableClock(LocalDate day) {
+            setDay(day);
+        }
+
+        private void setDay(LocalDate day) {
+            instant = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
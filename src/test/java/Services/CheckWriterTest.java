@@ -0,0 +1,154 @@
+package Services;
+
+import org.CleverBank.Config.AppConfig;
+import org.CleverBank.Service.CheckArchive;
+import org.CleverBank.Service.CheckWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Класс CheckWriterTest представляет собой набор юнит-тестов для класса CheckWriter.
+ */
+public class CheckWriterTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("checks");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Тест проверяет, что чеки нескольких потоков записываются целиком и не перемешиваются,
+     * а очередь меньше количества чеков не приводит к их потере.
+     */
+    @Test
+    public void testConcurrentChecksAreNotInterleaved() throws Exception {
+        CheckWriter writer = newWriter(8, 1_000, 60_000);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 250; i++) {
+                    writer.write("Чек " + thread + "-" + i + "\nСумма: " + i + ".00 рублей\n", thread * 1_000 + i + 1);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writer.flush();
+
+        assertThat(writer.getWrittenCount()).isEqualTo(1_000);
+        assertThat(writer.findCheck(2_043)).contains("Чек 2-42\nСумма: 42.00 рублей\n");
+        writer.close();
+        String content = readSegments();
+        List<String> checks = Arrays.asList(content.split("\n\n\n"));
+        assertThat(checks).hasSize(1_000);
+        assertThat(checks).allMatch(check -> check.matches("(?s)Чек (\\d)-(\\d+)\nСумма: \\2\\.00 рублей\n?"));
+    }
+
+    /**
+     * Тест проверяет, что файл сбрасывается на диск после заданного количества чеков,
+     * а при закрытии очередь дописывается и сбрасывается.
+     */
+    @Test
+    public void testSyncPolicyAndDrainOnClose() throws Exception {
+        CheckWriter writer = newWriter(64, 2, 60_000);
+        writer.write("Чек 1\n");
+        writer.write("Чек 2\n");
+        writer.flush();
+        assertThat(writer.getSyncCount()).isEqualTo(1);
+
+        writer.write("Чек 3\n");
+        writer.close();
+
+        assertThat(writer.getSyncCount()).isEqualTo(2);
+        assertThat(readSegments())
+                .isEqualTo("Чек 1\n\n\nЧек 2\n\n\nЧек 3\n\n\n");
+        assertThatThrownBy(() -> writer.write("Чек 4\n")).isInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * Тест проверяет, что записанные чеки сбрасываются на диск по истечении интервала,
+     * даже если их меньше заданного количества.
+     */
+    @Test
+    public void testSyncByInterval() throws Exception {
+        CheckWriter writer = newWriter(64, 1_000, 10);
+        writer.write("Чек 1\n");
+        writer.flush();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (writer.getSyncCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        writer.close();
+
+        assertThat(writer.getSyncCount()).isEqualTo(1);
+    }
+
+    /**
+     * Тест проверяет, что без новых и несброшенных чеков поток записи спит без таймаута,
+     * а не просыпается периодически, и будится следующим чеком.
+     */
+    @Test
+    public void testIdleWriterParksUntilWoken() throws Exception {
+        CheckWriter writer = newWriter(64, 1, 60_000);
+        writer.write("Чек 1\n");
+        writer.flush();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!writerThreadWaiting() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(writerThreadWaiting()).isTrue();
+
+        writer.write("Чек 2\n");
+        writer.flush();
+        writer.close();
+
+        assertThat(writer.getWrittenCount()).isEqualTo(2);
+    }
+
+    private static boolean writerThreadWaiting() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals("check-writer") && thread.getState() == Thread.State.WAITING);
+    }
+
+    private CheckWriter newWriter(int capacity, int syncEveryChecks, long syncIntervalMillis) {
+        return new CheckWriter(new CheckArchive(directory, AppConfig.DEFAULT_CHECK_SEGMENT_MAX_BYTES),
+                capacity, syncEveryChecks, syncIntervalMillis);
+    }
+
+    private String readSegments() throws Exception {
+        StringBuilder content = new StringBuilder();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path segment : (Iterable<Path>) files.filter(path -> path.toString().endsWith(".log")).sorted()::iterator) {
+                content.append(new String(Files.readAllBytes(segment), StandardCharsets.UTF_8));
+            }
+        }
+        return content.toString();
+    }
+}
@@ -0,0 +1,74 @@
+package Services;
+
+import org.CleverBank.Service.DocumentTemplate;
+import org.CleverBank.Service.DocumentTemplate.Field;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Класс DocumentTemplateTest представляет собой набор юнит-тестов для класса DocumentTemplate.
+ */
+public class DocumentTemplateTest {
+
+    /**
+     * Тест проверяет подстановку текстовых полей, суммы и даты в скомпилированный макет.
+     */
+    @Test
+    public void testAppendTo() {
+        DocumentTemplate template = DocumentTemplate.compile(
+                "Дата: {date}  |Тип операции: {operationType} к {lastname}  |Сумма: {amount} рублей\n");
+        DocumentTemplate.Values values = DocumentTemplate.values()
+                .set(Field.OPERATION_TYPE, "Перевод с отправителя")
+                .set(Field.LASTNAME, "Ivanov")
+                .amount(-123_456L)
+                .date(LocalDate.of(2023, 9, 1));
+
+        StringBuilder out = template.appendTo(new StringBuilder("> "), values);
+
+        assertThat(out.toString()).isEqualTo(
+                "> Дата: 2023-09-01  |Тип операции: Перевод с отправителя к Ivanov  |Сумма: -1234.56 рублей\n");
+    }
+
+    /**
+     * Тест проверяет, что отметка времени подставляется в формате yyyy-MM-dd HH:mm:ss,
+     * а значения полей предыдущего документа не переходят в следующий.
+     */
+    @Test
+    public void testTimestampAndValuesReset() {
+        DocumentTemplate template = DocumentTemplate.compile("{timestamp}|{bank}|{amount}");
+        DocumentTemplate.values().set(Field.BANK, "Clever-Bank").amount(100L);
+
+        String rendered = template.appendTo(DocumentTemplate.buffer(), DocumentTemplate.values()).toString();
+
+        assertThat(rendered).matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}\\|null\\|0\\.00");
+    }
+
+    /**
+     * Тест проверяет, что кодирование в UTF-8 совпадает с {@link String#getBytes}, включая суррогатные пары
+     * и непарные суррогаты.
+     */
+    @Test
+    public void testToUtf8() {
+        String text = "Сумма: 1.00 рублей € 💰 \uD800 end";
+
+        assertThat(DocumentTemplate.toUtf8(text)).isEqualTo(text.getBytes(StandardCharsets.UTF_8));
+        assertThat(DocumentTemplate.toUtf8(new StringBuilder(text.repeat(2_000))))
+                .isEqualTo(text.repeat(2_000).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Тест проверяет, что макет с неизвестным или незакрытым полем не компилируется.
+     */
+    @Test
+    public void testCompileRejectsInvalidFields() {
+        assertThatThrownBy(() -> DocumentTemplate.compile("Сумма: {sum}"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DocumentTemplate.compile("Сумма: {amount"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,141 @@
+package Services;
+
+import org.CleverBank.Models.Transaction;
+import org.CleverBank.Repository.AccountRepository;
+import org.CleverBank.Repository.TransactionRepository;
+import org.CleverBank.Service.GroupCommitter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+/**
+ * Класс GroupCommitterTest представляет собой набор юнит-тестов для класса GroupCommitter.
+ */
+public class GroupCommitterTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private GroupCommitter groupCommitter;
+
+    /**
+     * Метод настройки перед каждым тестом. Окно пачки выбрано большим,
+     * чтобы пачка фиксировалась только после заполнения.
+     */
+    @BeforeEach
+    public void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        groupCommitter = new GroupCommitter(dataSource, 10_000_000, 3);
+        groupCommitter.setAccountRepository(accountRepository);
+        groupCommitter.setTransactionRepository(transactionRepository);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        groupCommitter.close();
+    }
+
+    /**
+     * Тест проверяет, что операции нескольких вызовов фиксируются одной транзакцией,
+     * а отклоненная операция не отменяет остальные.
+     */
+    @Test
+    public void testBatchCommittedOnce() throws SQLException {
+        when(accountRepository.adjustBalance(1, 100L)).thenReturn(200L);
+        when(accountRepository.debitIfSufficient(2, 50L)).thenReturn(OptionalLong.empty());
+        when(accountRepository.debitIfSufficient(1, 10L)).thenReturn(OptionalLong.of(190L));
+        when(accountRepository.adjustBalance(2, 10L)).thenReturn(60L);
+        doAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            for (int i = 0; i < transactions.size(); i++) {
+                transactions.get(i).setId(i + 1);
+            }
+            return transactions;
+        }).when(transactionRepository).saveTransactions(anyList());
+
+        CompletableFuture<GroupCommitter.Result> deposit = groupCommitter.deposit(1, 100L);
+        CompletableFuture<GroupCommitter.Result> withdraw = groupCommitter.withdraw(2, 50L);
+        CompletableFuture<GroupCommitter.Result> transfer = groupCommitter.transfer(1, 2, 10L);
+
+        assertThat(deposit.join().getBalance()).isEqualTo(200L);
+        assertThatThrownBy(withdraw::join).hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(transfer.join().getBalance()).isEqualTo(190L);
+        assertThat(transfer.join().getCounterpartyBalance()).isEqualTo(60L);
+        assertThat(deposit.join().getTransactionIds()).containsExactly(1);
+        assertThat(transfer.join().getTransactionIds()).containsExactly(2, 3);
+
+        verify(transactionRepository, times(1)).saveTransactions(argThat(list -> list.size() == 3));
+        verify(connection, times(1)).commit();
+        assertThat(groupCommitter.getBatchSizes().getTotalCount()).isEqualTo(1);
+        assertThat(groupCommitter.getCommitCount()).isEqualTo(1);
+    }
+
+    /**
+     * Тест проверяет, что пачка блокирует строки своих счетов в порядке возрастания идентификаторов
+     * до применения операций, независимо от порядка поступления операций.
+     */
+    @Test
+    public void testBatchLocksAccountsInIdOrder() {
+        when(accountRepository.debitIfSufficient(anyInt(), anyLong())).thenReturn(OptionalLong.of(0L));
+
+        CompletableFuture<GroupCommitter.Result> first = groupCommitter.transfer(7, 3, 10L);
+        CompletableFuture<GroupCommitter.Result> second = groupCommitter.transfer(3, 7, 10L);
+        CompletableFuture<GroupCommitter.Result> third = groupCommitter.withdraw(5, 10L);
+        CompletableFuture.allOf(first, second, third).join();
+
+        InOrder inOrder = inOrder(accountRepository);
+        inOrder.verify(accountRepository).lockAccounts(new int[]{3, 5, 7});
+        inOrder.verify(accountRepository).debitIfSufficient(7, 10L);
+    }
+
+    /**
+     * Тест проверяет, что операции, поставленные одновременно с закрытием, завершаются —
+     * выполненными или отклоненными, — а не остаются в очереди навсегда.
+     */
+    @Test
+    public void testSubmitRacingCloseAlwaysCompletes() throws Exception {
+        List<CompletableFuture<GroupCommitter.Result>> futures = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    futures.add(groupCommitter.deposit(1, 1L));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        groupCommitter.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(futures).allMatch(CompletableFuture::isDone);
+    }
+}
@@ -0,0 +1,109 @@
+package Services;
+
+import org.CleverBank.Models.IdempotencyRecord;
+import org.CleverBank.Repository.IdempotencyRepository;
+import org.CleverBank.Service.IdempotencyStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Класс IdempotencyStoreTest представляет собой набор юнит-тестов для класса IdempotencyStore.
+ */
+public class IdempotencyStoreTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private IdempotencyRepository idempotencyRepository;
+
+    private IdempotencyStore idempotencyStore;
+
+    /**
+     * Метод настройки перед каждым тестом.
+     */
+    @BeforeEach
+    public void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        idempotencyStore = new IdempotencyStore(dataSource, 10, Duration.ofHours(1));
+        idempotencyStore.setIdempotencyRepository(idempotencyRepository);
+    }
+
+    /**
+     * Тест проверяет, что повтор с тем же ключом возвращает первый результат из памяти,
+     * не выполняя операцию и не обращаясь к базе данных.
+     */
+    @Test
+    public void testRetryServedFromMemory() {
+        when(idempotencyRepository.claim(eq("key-1"), anyString(), any(), any())).thenReturn(true);
+        AtomicInteger executions = new AtomicInteger();
+
+        IdempotencyRecord first = idempotencyStore.execute("key-1", "DEPOSIT:1:1:10000", () -> {
+            executions.incrementAndGet();
+            return IdempotencyRecord.builder().balance(200L).build();
+        });
+        IdempotencyRecord retry = idempotencyStore.execute("key-1", "DEPOSIT:1:1:10000", () -> {
+            executions.incrementAndGet();
+            return IdempotencyRecord.builder().balance(300L).build();
+        });
+
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(retry.getBalance()).isEqualTo(first.getBalance()).isEqualTo(200L);
+        verify(idempotencyRepository, times(1)).claim(anyString(), anyString(), any(), any());
+        verify(idempotencyRepository).complete("key-1", 200L, 0L);
+        assertThat(idempotencyStore.getMemoryHitCount()).isEqualTo(1);
+    }
+
+    /**
+     * Тест проверяет, что ключ, занятый ранее (например, до перезапуска), обнаруживается в базе данных
+     * и операция не выполняется.
+     */
+    @Test
+    public void testRetryServedFromDatabase() {
+        when(idempotencyRepository.claim(eq("key-2"), anyString(), any(), any())).thenReturn(false);
+        when(idempotencyRepository.getByKey("key-2")).thenReturn(new IdempotencyRecord("key-2",
+                "WITHDRAWAL:1:1:5000", 150L, 150L, true, LocalDateTime.now()));
+
+        IdempotencyRecord record = idempotencyStore.execute("key-2", "WITHDRAWAL:1:1:5000", () -> {
+            throw new AssertionError("Operation must not be executed again");
+        });
+
+        assertThat(record.getBalance()).isEqualTo(150L);
+        assertThat(idempotencyStore.getDatabaseHitCount()).isEqualTo(1);
+    }
+
+    /**
+     * Тест проверяет, что ключ нельзя использовать для другого запроса.
+     */
+    @Test
+    public void testKeyReusedForDifferentRequest() {
+        when(idempotencyRepository.claim(eq("key-3"), anyString(), any(), any())).thenReturn(true);
+        idempotencyStore.execute("key-3", "DEPOSIT:1:1:10000",
+                () -> IdempotencyRecord.builder().balance(200L).build());
+
+        assertThatThrownBy(() -> idempotencyStore.execute("key-3", "DEPOSIT:1:1:50000",
+                () -> IdempotencyRecord.builder().build()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,153 @@
+package Services;
+
+import org.CleverBank.Config.AppConfig;
+import org.CleverBank.Config.ConfigService;
+import org.CleverBank.Models.InterestChunk;
+import org.CleverBank.Repository.AccountRepository;
+import org.CleverBank.Repository.InterestCheckpointRepository;
+import org.CleverBank.Service.InterestBatchRunner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+/**
+ * Класс InterestBatchRunnerTest представляет собой набор юнит-тестов для класса InterestBatchRunner.
+ */
+public class InterestBatchRunnerTest {
+
+    private static final LocalDate AS_OF = LocalDate.of(2023, 10, 1);
+    private static final LocalDate DUE_BEFORE = LocalDate.of(2023, 9, 1);
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private InterestCheckpointRepository checkpointRepository;
+
+    private InterestBatchRunner interestBatchRunner;
+
+    /**
+     * Метод настройки перед каждым тестом.
+     */
+    @BeforeEach
+    public void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        ConfigService configService = new ConfigService(AppConfig.defaults().toBuilder()
+                .interestChunkSize(10_000)
+                .interestPoolSize(4)
+                .build());
+        interestBatchRunner = new InterestBatchRunner(dataSource, configService);
+        interestBatchRunner.setAccountRepository(accountRepository);
+        interestBatchRunner.setCheckpointRepository(checkpointRepository);
+    }
+
+    /**
+     * Метод очистки после каждого теста.
+     */
+    @AfterEach
+    public void tearDown() {
+        interestBatchRunner.close();
+    }
+
+    /**
+     * Тест проверяет, что диапазон идентификаторов счетов обрабатывается частями по interestChunkSize,
+     * а каждая часть фиксируется вместе с контрольной точкой.
+     */
+    @Test
+    public void testRunInChunksWithCheckpoints() {
+        when(accountRepository.getMaxAccountId()).thenReturn(25_000);
+        when(accountRepository.applyInterestChunk(any(InterestChunk.class), any(LocalDate.class))).thenReturn(10);
+
+        int accrued = interestBatchRunner.run(AS_OF);
+
+        assertThat(accrued).isEqualTo(30);
+        verify(accountRepository).loadInterestChunk(eq(1), eq(10_000), eq(DUE_BEFORE), any(InterestChunk.class));
+        verify(accountRepository).loadInterestChunk(eq(10_001), eq(20_000), eq(DUE_BEFORE), any(InterestChunk.class));
+        verify(accountRepository).loadInterestChunk(eq(20_001), eq(25_000), eq(DUE_BEFORE), any(InterestChunk.class));
+        verify(checkpointRepository).markCompleted(AS_OF, 20_001, 25_000, 10);
+        verify(checkpointRepository).deleteBefore(AS_OF);
+        assertThat(interestBatchRunner.getCompletedRangeCount()).isEqualTo(3);
+    }
+
+    /**
+     * Тест проверяет, что повторный запуск за ту же дату пропускает диапазоны с контрольной точкой.
+     */
+    @Test
+    public void testResumeSkipsCompletedRanges() {
+        when(accountRepository.getMaxAccountId()).thenReturn(25_000);
+        when(checkpointRepository.getCompletedRanges(AS_OF)).thenReturn(List.of(new int[]{1, 10_000}));
+
+        interestBatchRunner.run(AS_OF);
+
+        verify(accountRepository, never()).loadInterestChunk(eq(1), anyInt(), any(), any());
+        verify(accountRepository).loadInterestChunk(eq(10_001), eq(20_000), eq(DUE_BEFORE), any(InterestChunk.class));
+        verify(accountRepository).loadInterestChunk(eq(20_001), eq(25_000), eq(DUE_BEFORE), any(InterestChunk.class));
+        assertThat(interestBatchRunner.getSkippedIdCount()).isEqualTo(10_000);
+    }
+
+    /**
+     * Тест проверяет, что ошибка в одном диапазоне не останавливает остальные,
+     * а для диапазона с ошибкой контрольная точка не сохраняется.
+     */
+    @Test
+    public void testFailedRangeDoesNotStopOthers() {
+        when(accountRepository.getMaxAccountId()).thenReturn(20_000);
+        when(accountRepository.loadInterestChunk(eq(1), anyInt(), any(), any()))
+                .thenThrow(new RuntimeException("Failed to load accounts due for interest"));
+
+        assertThatThrownBy(() -> interestBatchRunner.run(AS_OF)).isInstanceOf(RuntimeException.class);
+
+        verify(checkpointRepository, never()).markCompleted(eq(AS_OF), eq(1), anyInt(), anyInt());
+        verify(checkpointRepository).markCompleted(eq(AS_OF), eq(10_001), eq(20_000), anyInt());
+        assertThat(interestBatchRunner.getFailedRangeCount()).isEqualTo(1);
+    }
+
+    /**
+     * Тест проверяет, что проценты блока счетов вычисляются по дням с даты последнего начисления:
+     * при настройках по умолчанию (30/360, простые проценты) за месяц начисляется месячная ставка.
+     */
+    @Test
+    public void testAccruesChunkThroughInterestEngine() {
+        when(accountRepository.getMaxAccountId()).thenReturn(2);
+        when(accountRepository.loadInterestChunk(eq(1), eq(2), eq(DUE_BEFORE), any(InterestChunk.class)))
+                .thenAnswer(invocation -> {
+                    InterestChunk chunk = invocation.getArgument(3);
+                    chunk.clear();
+                    chunk.add(1, 100_000L, (int) LocalDate.of(2023, 9, 1).toEpochDay());
+                    chunk.add(2, 100_000L, (int) LocalDate.of(2023, 8, 1).toEpochDay());
+                    return chunk.getSize();
+                });
+        List<long[]> interest = new ArrayList<>();
+        when(accountRepository.applyInterestChunk(any(InterestChunk.class), eq(AS_OF))).thenAnswer(invocation -> {
+            InterestChunk chunk = invocation.getArgument(0);
+            interest.add(Arrays.copyOf(chunk.getInterest(), chunk.getSize()));
+            return chunk.getSize();
+        });
+
+        assertThat(interestBatchRunner.run(AS_OF)).isEqualTo(2);
+        assertThat(interest).hasSize(1);
+        assertThat(interest.get(0)).containsExactly(1_000L, 2_000L);
+    }
+}
@@ -0,0 +1,93 @@
+package Services;
+
+import org.CleverBank.Models.Compounding;
+import org.CleverBank.Models.DayCount;
+import org.CleverBank.Service.InterestEngine;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Класс InterestEngineTest представляет собой набор юнит-тестов для класса InterestEngine.
+ */
+public class InterestEngineTest {
+
+    private static int day(int year, int month, int dayOfMonth) {
+        return (int) LocalDate.of(year, month, dayOfMonth).toEpochDay();
+    }
+
+    /**
+     * Тест проверяет, что по соглашению 30/360 любой полный месяц равен 1/12 года,
+     * а 31-е число считается 30-м.
+     */
+    @Test
+    public void testThirty360() {
+        InterestEngine engine = new InterestEngine(DayCount.THIRTY_360, Compounding.SIMPLE);
+
+        assertThat(engine.accrue(1_200_000L, day(2023, 2, 1), 0.12, day(2023, 3, 1))).isEqualTo(12_000L);
+        assertThat(engine.accrue(1_200_000L, day(2023, 1, 31), 0.12, day(2023, 3, 31))).isEqualTo(24_000L);
+        assertThat(engine.accrue(1_200_000L, day(2023, 1, 15), 0.12, day(2023, 1, 16))).isEqualTo(400L);
+    }
+
+    /**
+     * Тест проверяет, что по соглашению ACT/365 учитывается фактическое количество дней, включая 29 февраля.
+     */
+    @Test
+    public void testActual365() {
+        InterestEngine engine = new InterestEngine(DayCount.ACT_365, Compounding.SIMPLE);
+
+        assertThat(engine.accrue(3_650_000L, day(2023, 2, 1), 0.1, day(2023, 3, 1))).isEqualTo(28_000L);
+        assertThat(engine.accrue(3_650_000L, day(2024, 2, 1), 0.1, day(2024, 3, 1))).isEqualTo(29_000L);
+    }
+
+    /**
+     * Тест проверяет ежедневную капитализацию: за год по ставке 36.5% при ACT/365
+     * сумма растет в (1 + 0.001)^365 раз.
+     */
+    @Test
+    public void testDailyCompounding() {
+        InterestEngine engine = new InterestEngine(DayCount.ACT_365, Compounding.DAILY);
+
+        long interest = engine.accrue(100_000_000L, day(2023, 1, 1), 0.365, day(2024, 1, 1));
+
+        assertThat(interest).isEqualTo(Math.round(100_000_000L * (Math.pow(1.001, 365) - 1)));
+        assertThat(interest).isGreaterThan(36_500_000L);
+    }
+
+    /**
+     * Тест проверяет, что расчет блоком совпадает с расчетом по одному счету и не затрагивает
+     * элементы массивов за пределами длины блока.
+     */
+    @Test
+    public void testBlockMatchesSingleAccount() {
+        InterestEngine engine = new InterestEngine(DayCount.THIRTY_360, Compounding.DAILY);
+        long[] balances = {100_000L, 2_500_000L, 0L, 999_999L, 7L};
+        int[] lastAccrualDays = {day(2023, 1, 31), day(2022, 12, 15), day(2023, 1, 1), day(2023, 3, 1), day(2023, 1, 1)};
+        double[] rates = {0.12, 0.05, 0.2, 0.01, 0.3};
+        long[] interest = new long[5];
+        interest[4] = -1;
+
+        engine.accrue(balances, lastAccrualDays, rates, 4, day(2023, 3, 1), interest);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(interest[i]).isEqualTo(engine.accrue(balances[i], lastAccrualDays[i], rates[i], day(2023, 3, 1)));
+        }
+        assertThat(interest[2]).isZero();
+        assertThat(interest[3]).isZero();
+        assertThat(interest[4]).isEqualTo(-1);
+    }
+
+    /**
+     * Тест проверяет, что переполнение суммы процентов не замалчивается.
+     */
+    @Test
+    public void testOverflow() {
+        InterestEngine engine = new InterestEngine(DayCount.ACT_365, Compounding.SIMPLE);
+
+        assertThatThrownBy(() -> engine.accrue(Long.MAX_VALUE, day(2000, 1, 1), 1.0, day(2023, 1, 1)))
+                .isInstanceOf(ArithmeticException.class);
+    }
+}
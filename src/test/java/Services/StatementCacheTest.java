@@ -0,0 +1,155 @@
+package Services;
+
+import org.CleverBank.Service.StatementCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Класс StatementCacheTest представляет собой набор юнит-тестов для класса StatementCache.
+ */
+public class StatementCacheTest {
+
+    private static final LocalDate START = LocalDate.of(2023, 9, 1);
+    private static final LocalDate END = LocalDate.of(2023, 9, 30);
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("statements");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Тест проверяет, что сохраненная выписка находится в памяти, а после вытеснения из памяти — на диске.
+     */
+    @Test
+    public void testServesFromMemoryThenFromDisk() throws Exception {
+        StatementCache cache = new StatementCache(directory, 1);
+        StringWriter missed = new StringWriter();
+        assertThat(cache.copyTo(1, START, END, missed)).isFalse();
+
+        record(cache, 1, "Дата: 2023-09-01  |Сумма: 1.00 рублей\n\n");
+        record(cache, 2, "Дата: 2023-09-02  |Сумма: 2.00 рублей\n\n");
+
+        StringWriter fromMemory = new StringWriter();
+        assertThat(cache.copyTo(2, START, END, fromMemory)).isTrue();
+        StringWriter fromDisk = new StringWriter();
+        assertThat(cache.copyTo(1, START, END, fromDisk)).isTrue();
+
+        assertThat(fromMemory.toString()).isEqualTo("Дата: 2023-09-02  |Сумма: 2.00 рублей\n\n");
+        assertThat(fromDisk.toString()).isEqualTo("Дата: 2023-09-01  |Сумма: 1.00 рублей\n\n");
+        assertThat(cache.getMemoryHitCount()).isEqualTo(1);
+        assertThat(cache.getDiskHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    /**
+     * Тест проверяет, что выписка длиннее предела хранения в памяти читается с диска целиком.
+     */
+    @Test
+    public void testLongStatementIsServedFromDisk() throws Exception {
+        StatementCache cache = new StatementCache(directory, 16);
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; rows.length() <= StatementCache.MAX_MEMORY_ENTRY_CHARS; i++) {
+            rows.append("Дата: 2023-09-01  |Тип операции: DEPOSIT\t\t|Сумма: ").append(i).append(".00 рублей\n\n");
+        }
+        record(cache, 1, rows.toString());
+
+        StringWriter first = new StringWriter();
+        StringWriter second = new StringWriter();
+        cache.copyTo(1, START, END, first);
+        cache.copyTo(1, START, END, second);
+
+        assertThat(first.toString()).isEqualTo(rows.toString());
+        assertThat(second.toString()).isEqualTo(rows.toString());
+        assertThat(cache.getMemoryHitCount()).isZero();
+        assertThat(cache.getDiskHitCount()).isEqualTo(2);
+    }
+
+    /**
+     * Тест проверяет, что незафиксированная запись не сохраняется, а период, включающий текущий день, не кэшируется.
+     */
+    @Test
+    public void testUncommittedAndOpenPeriodsAreNotCached() throws Exception {
+        StatementCache cache = new StatementCache(directory, 16);
+        StringWriter target = new StringWriter();
+        try (StatementCache.Recorder recorder = cache.record(1, START, END, target)) {
+            recorder.getWriter().write("Дата: 2023-09-01\n\n");
+        }
+
+        assertThat(target.toString()).isEqualTo("Дата: 2023-09-01\n\n");
+        assertThat(cache.copyTo(1, START, END, new StringWriter())).isFalse();
+        try (Stream<Path> files = Files.list(directory.resolve("1"))) {
+            assertThat(files).isEmpty();
+        }
+        assertThatThrownBy(() -> cache.record(1, START, LocalDate.now(), new StringWriter()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Тест проверяет, что инвалидация удаляет из памяти и с диска только выписки счета, период которых
+     * включает дату, и что выписка, начатая до инвалидации, не сохраняется.
+     */
+    @Test
+    public void testEvictRemovesCoveringStatements() throws Exception {
+        StatementCache cache = new StatementCache(directory, 16);
+        record(cache, 1, "Дата: 2023-09-10\n\n");
+        record(cache, 2, "Дата: 2023-09-10\n\n");
+        try (StatementCache.Recorder recorder = cache.record(1, START.minusMonths(1), START.minusDays(1),
+                new StringWriter())) {
+            recorder.getWriter().write("Дата: 2023-08-10\n\n");
+            recorder.commit();
+        }
+        StatementCache.Recorder stale = cache.record(2, START.minusMonths(1), START.minusDays(1), new StringWriter());
+        stale.getWriter().write("Дата: 2023-08-10\n\n");
+
+        cache.evict(1, LocalDate.of(2023, 9, 10));
+        stale.commit();
+        stale.close();
+
+        assertThat(cache.copyTo(1, START, END, new StringWriter())).isFalse();
+        assertThat(cache.copyTo(1, START.minusMonths(1), START.minusDays(1), new StringWriter())).isTrue();
+        assertThat(cache.copyTo(2, START, END, new StringWriter())).isTrue();
+        assertThat(cache.copyTo(2, START.minusMonths(1), START.minusDays(1), new StringWriter())).isFalse();
+    }
+
+    /**
+     * Тест проверяет, что при превышении размера диска удаляются самые старые выписки.
+     */
+    @Test
+    public void testDiskUsageIsCapped() throws Exception {
+        StatementCache cache = new StatementCache(directory, 1, 1);
+        record(cache, 1, "Дата: 2023-09-01\n\n");
+        record(cache, 2, "Дата: 2023-09-02\n\n");
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            assertThat(files.filter(path -> path.toString().endsWith(".txt.gz"))).isEmpty();
+        }
+        assertThat(cache.copyTo(1, START, END, new StringWriter())).isFalse();
+    }
+
+    private static void record(StatementCache cache, int accountId, String rows) throws Exception {
+        try (StatementCache.Recorder recorder = cache.record(accountId, START, END, new StringWriter())) {
+            recorder.getWriter().write(rows);
+            recorder.commit();
+        }
+    }
+}
@@ -2,11 +2,13 @@ package Services;
 
 import org.CleverBank.Models.Account;
 import org.CleverBank.Models.Bank;
+import org.CleverBank.Models.Currency;
 import org.CleverBank.Models.Transaction;
 import org.CleverBank.Models.TransactionType;
 import org.CleverBank.Repository.BankRepository;
 import org.CleverBank.Repository.TransactionRepository;
 import org.CleverBank.Service.DocumentGenerator;
+import org.CleverBank.Service.StatementCache;
 import org.CleverBank.Service.TransactionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -31,6 +33,9 @@ public class TransactionServiceTest {
     @Mock
     private DocumentGenerator documentGenerator;
 
+    @Mock
+    private StatementCache statementCache;
+
     private TransactionService transactionService;
 
     @BeforeEach
@@ -39,6 +44,7 @@ public class TransactionServiceTest {
         transactionService = new TransactionService(dataSource);
         transactionService.setBankRepository(bankRepository);
         transactionService.setDocumentGenerator(documentGenerator);
+        transactionService.setStatementCache(statementCache);
     }
 
     /**
@@ -104,7 +110,8 @@ public class TransactionServiceTest {
     }
 
     /**
-     * Тест метода updateTransaction, который проверяет корректное обновление транзакции в репозитории.
+     * Тест метода updateTransaction, который проверяет корректное обновление транзакции в репозитории
+     * и удаление из кэша выписок, в которые транзакция входила до и после изменения.
      */
     @Test
     public void testUpdateTransaction() {
@@ -112,14 +119,19 @@ public class TransactionServiceTest {
         transactionService.setTransactionRepository(transactionRepository);
 
         int transactionId = 1;
+        Transaction previousTransaction = createTransaction(transactionId);
         Transaction updatedTransaction = createTransaction(transactionId);
-        updatedTransaction.setAmount(2000.0);
+        updatedTransaction.setAmount(2000L);
+        updatedTransaction.setSourceAccount(3);
+        updatedTransaction.setDate(LocalDate.of(2023, 9, 1));
 
-        when(transactionRepository.getTransactionById(transactionId)).thenReturn(updatedTransaction);
+        when(transactionRepository.getTransactionById(transactionId)).thenReturn(previousTransaction);
 
         transactionService.updateTransaction(updatedTransaction, transactionId);
 
         verify(transactionRepository).updateTransactionById(updatedTransaction, transactionId);
+        verify(statementCache).evict(1, previousTransaction.getDate());
+        verify(statementCache).evict(3, LocalDate.of(2023, 9, 1));
     }
 
     /**
@@ -138,6 +150,7 @@ public class TransactionServiceTest {
         transactionService.deleteTransaction(transactionId);
 
         verify(transactionRepository).deleteTransactionById(transactionId);
+        verify(statementCache).evict(1, transactionToDelete.getDate());
     }
 
     /**
@@ -163,12 +176,20 @@ public class TransactionServiceTest {
 
         Account sourceAccount = createAccount(1);
         Account targetAccount = createAccount(2);
-        double amount = 500.0;
+        long amount = 500;
+
+        doAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            transactions.get(0).setId(7);
+            transactions.get(1).setId(8);
+            return null;
+        }).when(transactionRepository).saveTransactions(anyList());
 
         transactionService.createTransferTransactions(sourceAccount, targetAccount, amount);
 
-        verify(transactionRepository, times(2)).saveTransaction(any(Transaction.class));
-        verify(documentGenerator).generateTransferCheck(anyDouble(), anyString(), anyString(), anyString(), anyString(), anyString());
+        verify(transactionRepository).saveTransactions(argThat(transactions -> transactions.size() == 2));
+        verify(documentGenerator).generateTransferCheck(eq(amount), eq(Currency.DEFAULT), anyString(), anyString(),
+                anyString(), anyString(), anyString(), eq(8), eq(7));
     }
 
     /**
@@ -187,12 +208,20 @@ public class TransactionServiceTest {
         transactionService.setBankRepository(bankRepository);
 
         Account account = createAccount(1);
-        double amount = 500.0;
+        account.setCurrency(Currency.USD);
+        long amount = 500;
+
+        when(transactionRepository.saveTransaction(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            transaction.setId(42);
+            return transaction;
+        });
 
         transactionService.saveDepositTransfer(account, amount);
 
         verify(transactionRepository).saveTransaction(any(Transaction.class));
-        verify(documentGenerator).generateCheck(anyDouble(), anyString(), anyString(), anyString());
+        verify(documentGenerator).generateCheck(eq(amount), eq(Currency.USD), anyString(), anyString(), anyString(),
+                eq(42));
     }
 
     /**
@@ -214,18 +243,19 @@ public class TransactionServiceTest {
         transactionService.setBankRepository(bankRepository);
 
         Account account = createAccount(1);
-        double amount = 200.0;
+        long amount = 200;
 
         transactionService.saveWithdrawTransfer(account, amount);
 
         verify(transactionRepository).saveTransaction(any(Transaction.class));
-        verify(documentGenerator).generateCheck(anyDouble(), anyString(), anyString(), anyString());
+        verify(documentGenerator).generateCheck(anyLong(), any(Currency.class), anyString(), anyString(), anyString(),
+                anyInt());
     }
 
     private Transaction createTransaction(int id) {
         return Transaction.builder()
                 .id(id)
-                .amount(1000.0)
+                .amount(1000L)
                 .sourceAccount(1)
                 .targetAccount(2)
                 .date(LocalDate.now())
@@ -240,7 +270,7 @@ public class TransactionServiceTest {
                 .date(LocalDate.now())
                 .userId(id)
                 .bankId(id)
-                .balance(1000.0)
+                .balance(1000L)
                 .lastInterestDate(LocalDate.now())
                 .build();
     }
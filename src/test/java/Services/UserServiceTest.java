@@ -1,23 +1,32 @@
 package Services;
 
 import org.CleverBank.Models.Account;
-import org.CleverBank.Models.Transaction;
+import org.CleverBank.Models.StatementRow;
 import org.CleverBank.Models.TransactionType;
 import org.CleverBank.Models.User;
 import org.CleverBank.Repository.AccountRepository;
 import org.CleverBank.Repository.TransactionRepository;
 import org.CleverBank.Repository.UserRepository;
 import org.CleverBank.Service.DocumentGenerator;
+import org.CleverBank.Service.StatementCache;
 import org.CleverBank.Service.UserService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatCode;
@@ -29,10 +38,21 @@ public class UserServiceTest {
 
     private UserService userService;
 
+    private Path cacheDirectory;
+
     @BeforeEach
-    public void setUp() {
+    public void setUp() throws Exception {
         MockitoAnnotations.openMocks(this);
         userService = new UserService(dataSource);
+        cacheDirectory = Files.createTempDirectory("statements");
+        userService.setStatementCache(new StatementCache(cacheDirectory, 16));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        try (Stream<Path> files = Files.walk(cacheDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
     }
 
     /**
@@ -43,9 +63,6 @@ public class UserServiceTest {
         UserRepository userRepository = mock(UserRepository.class);
         TransactionRepository transactionRepository = mock(TransactionRepository.class);
         AccountRepository accountRepository = mock(AccountRepository.class);
-        DocumentGenerator documentGenerator = mock(DocumentGenerator.class);
-        when(documentGenerator.generateTransactionStatement(any(User.class), any(Account.class), anyList()))
-                .thenReturn(new StringBuilder("Expected Statement Contents"));
 
         when(userRepository.getUserById(1)).thenReturn(createTestUser(1));
         when(accountRepository.getAccountById(1)).thenReturn(createTestAccount(1));
@@ -53,20 +70,93 @@ public class UserServiceTest {
         userService.setUserRepository(userRepository);
         userService.setTransactionRepository(transactionRepository);
         userService.setAccountRepository(accountRepository);
-        userService.setDocumentGenerator(documentGenerator);
-
-        User user = createTestUser(1);
-        Account account = createTestAccount(1);
-        List<Transaction> transactions = createTestTransactions(user, account, 3);
+        userService.setDocumentGenerator(new DocumentGenerator());
 
-        when(transactionRepository.getAllTransactionsByAccountIdAndTime(1, LocalDate.now().minusDays(7), LocalDate.now()))
-                .thenReturn(transactions);
+        stubStatementRows(transactionRepository, createTestStatementRows(3), new AtomicInteger());
 
         StringBuilder statement = userService.generateStatementForUser(1, 1, LocalDate.now().minusDays(7), LocalDate.now());
 
         assertThat(statement).isNotNull();
+        assertThat(statement.toString()).startsWith("Клиент: Jane Petrov\n");
+        assertThat(statement.toString().split("Сумма: 1.00 рублей\n\n", -1)).hasSize(4);
+    }
+
+    /**
+     * Тест метода writeStatementForUser, который проверяет, что выписка записывается в поток
+     * построчно из курсора строк выписки, данные второй стороны операции берутся из строк выписки
+     * без дополнительных запросов, а курсор закрывается после записи.
+     */
+    @Test
+    public void testWriteStatementForUser() throws Exception {
+        UserRepository userRepository = mock(UserRepository.class);
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        AccountRepository accountRepository = mock(AccountRepository.class);
+        when(userRepository.getUserById(1)).thenReturn(createTestUser(1));
+        when(accountRepository.getAccountById(1)).thenReturn(createTestAccount(1));
+
+        userService.setUserRepository(userRepository);
+        userService.setTransactionRepository(transactionRepository);
+        userService.setAccountRepository(accountRepository);
+        userService.setDocumentGenerator(new DocumentGenerator());
+
+        LocalDate startDate = LocalDate.now().minusDays(7);
+        List<StatementRow> rows = createTestStatementRows(3);
+        rows.get(1).setType(TransactionType.TRANSFER_OUT);
+        rows.get(1).setAmount(-100L);
+        rows.get(1).setCounterpartyLastname("Ivanov");
+        AtomicInteger openCursors = new AtomicInteger();
+        stubStatementRows(transactionRepository, rows, openCursors);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        userService.writeStatementForUser(1, 1, startDate, LocalDate.now(), output);
+
+        String statement = output.toString(StandardCharsets.UTF_8);
+        assertThat(statement).startsWith("Клиент: Jane Petrov\n");
+        assertThat(statement.split("Сумма: 1.00 рублей\n\n", -1)).hasSize(3);
+        assertThat(statement).contains("Тип операции: Перевод с отправителя к Ivanov  |Сумма: -1.00 рублей\n\n");
+        assertThat(openCursors).hasValue(0);
+        verify(accountRepository, times(1)).getAccountById(anyInt());
+        verify(userRepository, times(1)).getUserById(anyInt());
     }
 
+    /**
+     * Тест проверяет, что выписка за закрытый период формируется из базы данных один раз,
+     * повторно берется из кэша, в том числе новым экземпляром кэша с диска, а строки текущего дня
+     * всегда читаются из базы данных.
+     */
+    @Test
+    public void testStatementForClosedPeriodIsCached() throws Exception {
+        UserRepository userRepository = mock(UserRepository.class);
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        AccountRepository accountRepository = mock(AccountRepository.class);
+        when(userRepository.getUserById(1)).thenReturn(createTestUser(1));
+        when(accountRepository.getAccountById(1)).thenReturn(createTestAccount(1));
+
+        userService.setUserRepository(userRepository);
+        userService.setTransactionRepository(transactionRepository);
+        userService.setAccountRepository(accountRepository);
+        userService.setDocumentGenerator(new DocumentGenerator());
+        stubStatementRows(transactionRepository, createTestStatementRows(3), new AtomicInteger());
+
+        LocalDate startDate = LocalDate.now().minusDays(7);
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        String first = rowsOf(userService.generateStatementForUser(1, 1, startDate, yesterday));
+        String second = rowsOf(userService.generateStatementForUser(1, 1, startDate, yesterday));
+        userService.setStatementCache(new StatementCache(cacheDirectory, 16));
+        String fromDisk = rowsOf(userService.generateStatementForUser(1, 1, startDate, yesterday));
+
+        assertThat(first.split("Сумма: 1.00 рублей\n\n", -1)).hasSize(3);
+        assertThat(second).isEqualTo(first);
+        assertThat(fromDisk).isEqualTo(first);
+        verify(transactionRepository, times(1)).streamStatementRows(1, startDate, yesterday);
+
+        // Закрытая часть периода берется из кэша, строки текущего дня — из базы данных
+        String withToday = rowsOf(userService.generateStatementForUser(1, 1, startDate, LocalDate.now()));
+        assertThat(withToday.split("Сумма: 1.00 рублей\n\n", -1)).hasSize(4);
+        assertThat(withToday).startsWith(first);
+        verify(transactionRepository, times(1)).streamStatementRows(1, startDate, yesterday);
+        verify(transactionRepository).streamStatementRows(1, LocalDate.now(), LocalDate.now());
+    }
 
     /**
      * Тест метода getUser, который проверяет корректное получение пользователя по ID.
@@ -166,24 +256,45 @@ public class UserServiceTest {
                 .date(LocalDate.now())
                 .userId(1)
                 .bankId(1)
-                .balance(1000.0)
+                .balance(1000L)
                 .lastInterestDate(LocalDate.now())
                 .build();
     }
 
-    private List<Transaction> createTestTransactions(User user, Account account, int count) {
-        List<Transaction> transactions = new ArrayList<>();
+    private List<StatementRow> createTestStatementRows(int count) {
+        List<StatementRow> rows = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            Transaction transaction = Transaction.builder()
-                    .id(i)
-                    .amount(100.0)
-                    .sourceAccount(account.getId())
-                    .targetAccount(account.getId())
-                    .date(LocalDate.now().minusDays(i))
+            StatementRow row = StatementRow.builder()
+                    .transactionId(i)
                     .type(TransactionType.DEPOSIT)
+                    .amount(100L)
+                    .date(LocalDate.now().minusDays(i))
+                    .counterpartyAccountId(1)
+                    .counterpartyAccountNumber("12345678901")
+                    .counterpartyLastname("Petrov")
                     .build();
-            transactions.add(transaction);
+            rows.add(row);
         }
-        return transactions;
+        return rows;
+    }
+
+    /**
+     * Возвращает строки выписки, попадающие в запрошенный период, и считает незакрытые курсоры.
+     */
+    private void stubStatementRows(TransactionRepository transactionRepository, List<StatementRow> rows,
+                                   AtomicInteger openCursors) {
+        when(transactionRepository.streamStatementRows(anyInt(), any(LocalDate.class), any(LocalDate.class)))
+                .thenAnswer(invocation -> {
+                    LocalDate startDate = invocation.getArgument(1);
+                    LocalDate endDate = invocation.getArgument(2);
+                    openCursors.incrementAndGet();
+                    return rows.stream()
+                            .filter(row -> !row.getDate().isBefore(startDate) && !row.getDate().isAfter(endDate))
+                            .onClose(openCursors::decrementAndGet);
+                });
+    }
+
+    private static String rowsOf(StringBuilder statement) {
+        return statement.substring(statement.indexOf("| Сумма\n") + "| Сумма\n".length());
     }
 }